@@ -0,0 +1,58 @@
+// Writes .br and .gz copies next to the compressible files of a production build,
+// so that the Spring Boot backend can serve them without compressing on each request
+// (see StaticResourceConfig).  Run after "npm run build":
+//
+//   node scripts/precompress.js [dir]   (dir defaults to build)
+//
+// Files under MIN_SIZE bytes are skipped, and a variant is only written when it is smaller
+// than the original.
+
+const fs = require("fs");
+const path = require("path");
+const zlib = require("zlib");
+
+const MIN_SIZE = 1024;
+const EXTENSIONS = [".js", ".css", ".html", ".json", ".svg", ".map", ".txt"];
+
+function* files(dir) {
+  for (const entry of fs.readdirSync(dir, { withFileTypes: true })) {
+    const file = path.join(dir, entry.name);
+    if (entry.isDirectory()) {
+      yield* files(file);
+    } else if (EXTENSIONS.includes(path.extname(entry.name))) {
+      yield file;
+    }
+  }
+}
+
+function precompress(dir) {
+  let original = 0;
+  let brotli = 0;
+  let gzip = 0;
+  for (const file of files(dir)) {
+    const content = fs.readFileSync(file);
+    if (content.length < MIN_SIZE) {
+      continue;
+    }
+    const variants = {
+      ".br": zlib.brotliCompressSync(content, {
+        params: {
+          [zlib.constants.BROTLI_PARAM_QUALITY]: zlib.constants.BROTLI_MAX_QUALITY,
+          [zlib.constants.BROTLI_PARAM_SIZE_HINT]: content.length,
+        },
+      }),
+      ".gz": zlib.gzipSync(content, { level: zlib.constants.Z_BEST_COMPRESSION }),
+    };
+    for (const [extension, compressed] of Object.entries(variants)) {
+      if (compressed.length < content.length) {
+        fs.writeFileSync(file + extension, compressed);
+      }
+    }
+    original += content.length;
+    brotli += Math.min(variants[".br"].length, content.length);
+    gzip += Math.min(variants[".gz"].length, content.length);
+  }
+  console.log(`precompress: ${original} bytes -> ${brotli} brotli, ${gzip} gzip`);
+}
+
+precompress(process.argv[2] || path.join(__dirname, "..", "build"));
@@ -0,0 +1,142 @@
+package edu.ucsb.cs156.example.aop;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.helpers.NOPAppender;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Before;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request overhead of LoggingAspect.
+ *
+ * Each benchmark calls a controller method through a Spring AOP proxy, as the DispatcherServlet would:
+ * with no aspect (baseline), with the previous implementation of the aspect (legacy), and with the current one.
+ * Log output goes to a no-op appender so only the cost on the request thread is measured.
+ * level=INFO is the production setting; level=WARN shows the cost when access logging is turned off.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LoggingAspectBenchmark {
+
+  @Param({ "INFO", "WARN" })
+  public String level;
+
+  private SampleController plain;
+  private SampleController legacy;
+  private SampleController current;
+
+  public static class SampleController {
+    @GetMapping("/api/sample/all")
+    public String allSamples() {
+      return "ok";
+    }
+  }
+
+  /** Copy of LoggingAspect before the rework, for comparison. */
+  @Slf4j
+  @Aspect
+  public static class LegacyLoggingAspect {
+    private ArrayList<String> stoplist = new ArrayList<String>(Arrays.asList(
+        "edu.ucsb.cs156.example.controllers.FrontendProxyController"));
+
+    @Before("@annotation(org.springframework.web.bind.annotation.GetMapping)")
+    public void logControllers(JoinPoint joinPoint) {
+      getCurrentHttpRequest().ifPresent(
+          request -> {
+            String declaringTypeName = joinPoint.getSignature().getDeclaringTypeName();
+            if (!stoplist.contains(declaringTypeName)) {
+              log.info("===== %s %s handled by %s in %s".formatted(request.getMethod(), request.getRequestURI(),
+                  joinPoint.getSignature().getName(), declaringTypeName));
+            }
+          });
+    }
+
+    private static Optional<HttpServletRequest> getCurrentHttpRequest() {
+      return Optional.ofNullable(RequestContextHolder.getRequestAttributes())
+          .filter(ServletRequestAttributes.class::isInstance)
+          .map(ServletRequestAttributes.class::cast)
+          .map(ServletRequestAttributes::getRequest);
+    }
+  }
+
+  @Setup
+  public void setup() {
+    LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+    Logger root = context.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+    root.detachAndStopAllAppenders();
+    NOPAppender<ILoggingEvent> nop = new NOPAppender<>();
+    nop.setContext(context);
+    nop.start();
+    root.addAppender(nop);
+    root.setLevel(Level.toLevel(level));
+
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/sample/all");
+    RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+    plain = proxy(null);
+    legacy = proxy(new LegacyLoggingAspect());
+    current = proxy(new LoggingAspect());
+  }
+
+  @TearDown
+  public void tearDown() {
+    RequestContextHolder.resetRequestAttributes();
+  }
+
+  private static SampleController proxy(Object aspect) {
+    AspectJProxyFactory factory = new AspectJProxyFactory(new SampleController());
+    factory.setProxyTargetClass(true);
+    if (aspect != null) {
+      factory.addAspect(aspect);
+    }
+    return factory.getProxy();
+  }
+
+  @Benchmark
+  public String baseline() {
+    return plain.allSamples();
+  }
+
+  @Benchmark
+  public String legacyAspect() {
+    return legacy.allSamples();
+  }
+
+  @Benchmark
+  public String currentAspect() {
+    return current.allSamples();
+  }
+}
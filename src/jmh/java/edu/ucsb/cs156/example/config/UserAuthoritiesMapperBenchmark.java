@@ -0,0 +1,110 @@
+package edu.ucsb.cs156.example.config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.helpers.NOPAppender;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.AdminStatusService;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.authority.mapping.GrantedAuthoritiesMapper;
+import org.springframework.security.oauth2.core.user.OAuth2UserAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of SecurityConfig.userAuthoritiesMapper, which runs on every OAuth2 login, for the authorities
+ * Google returns (an OAuth2UserAuthority with the profile attributes, plus scope authorities).
+ *
+ * The UserRepository is a stub that answers findByEmail from memory; in any case AdminStatusService
+ * caches the admin status of a user who is not in app.admin.emails, so it is only called once.
+ * Log output goes to a no-op appender; level=INFO is the production setting (the mapper only logs
+ * at DEBUG, so INFO and WARN should measure the same).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class UserAuthoritiesMapperBenchmark {
+
+  @Param({ "INFO", "WARN" })
+  public String level;
+
+  private GrantedAuthoritiesMapper mapper;
+  private Collection<GrantedAuthority> admin;
+  private Collection<GrantedAuthority> student;
+
+  @Setup
+  public void setup() {
+    LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+    Logger root = context.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+    root.detachAndStopAllAppenders();
+    NOPAppender<ILoggingEvent> nop = new NOPAppender<>();
+    nop.setContext(context);
+    nop.start();
+    root.addAppender(nop);
+    root.setLevel(Level.toLevel(level));
+
+    User user = User.builder().email("cgaucho@ucsb.edu").admin(false).build();
+    UserRepository userRepository = (UserRepository) Proxy.newProxyInstance(UserRepository.class.getClassLoader(),
+        new Class<?>[] { UserRepository.class },
+        (proxy, method, args) -> method.getName().equals("findByEmail") ? Optional.of(user) : null);
+
+    AdminStatusService adminStatusService = new AdminStatusService();
+    ReflectionTestUtils.setField(adminStatusService, "userRepository", userRepository);
+    ReflectionTestUtils.setField(adminStatusService, "adminEmails", Set.of("phtcon@ucsb.edu"));
+    ReflectionTestUtils.invokeMethod(adminStatusService, "buildCache");
+
+    SecurityConfig securityConfig = new SecurityConfig();
+    securityConfig.adminStatusService = adminStatusService;
+    mapper = securityConfig.userAuthoritiesMapper();
+
+    admin = authorities("phtcon@ucsb.edu");
+    student = authorities("cgaucho@ucsb.edu");
+  }
+
+  private static Collection<GrantedAuthority> authorities(String email) {
+    Map<String, Object> attributes = Map.of("sub", "1234567890", "email", email, "email_verified", true,
+        "name", "Chris Gaucho", "given_name", "Chris", "family_name", "Gaucho", "hd", "ucsb.edu",
+        "picture", "https://lh3.googleusercontent.com/a/photo", "locale", "en");
+    return List.of(new OAuth2UserAuthority(attributes), new SimpleGrantedAuthority("SCOPE_openid"),
+        new SimpleGrantedAuthority("SCOPE_https://www.googleapis.com/auth/userinfo.email"),
+        new SimpleGrantedAuthority("SCOPE_https://www.googleapis.com/auth/userinfo.profile"));
+  }
+
+  @Benchmark
+  public Collection<? extends GrantedAuthority> adminFromConfiguration() {
+    return mapper.mapAuthorities(admin);
+  }
+
+  @Benchmark
+  public Collection<? extends GrantedAuthority> userFromRepository() {
+    return mapper.mapAuthorities(student);
+  }
+}
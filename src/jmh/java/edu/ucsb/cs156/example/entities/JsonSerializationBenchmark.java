@@ -0,0 +1,94 @@
+package edu.ucsb.cs156.example.entities;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * Jackson serialization of a list of each entity, as the /all and /page endpoints write it.
+ *
+ * The mapper is configured as Spring Boot configures the application's (dates as ISO strings).
+ * size=20 is a default keyset page; size=1000 is a typical /all response.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JsonSerializationBenchmark {
+
+  private static final LocalDateTime WHEN = LocalDateTime.parse("2024-10-23T12:00:00");
+
+  @Param({ "Article", "HelpRequest", "MenuItemReview", "RecommendationRequest", "Restaurant", "UCSBDate",
+      "UCSBDiningCommons", "UCSBDiningCommonsMenuItem", "UCSBOrganization" })
+  public String entity;
+
+  @Param({ "20", "1000" })
+  public int size;
+
+  private ObjectWriter writer;
+  private List<Object> entities;
+
+  @Setup
+  public void setup() {
+    writer = Jackson2ObjectMapperBuilder.json()
+        .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+        .build()
+        .writer();
+    IntFunction<Object> factory = switch (entity) {
+      case "Article" -> i -> Article.builder().id(i).title("Article " + i).url("https://example.org/articles/" + i)
+          .explanation("Why article " + i + " is worth reading").email("cgaucho@ucsb.edu").dateAdded(WHEN.plusMinutes(i))
+          .version(1).lastModified(Instant.parse("2024-10-23T19:00:00Z")).build();
+      case "HelpRequest" -> i -> HelpRequest.builder().id(i).requesterEmail("cgaucho@ucsb.edu").teamId("f24-" + (i % 20))
+          .tableOrBreakoutRoom("table " + (i % 10)).requestTime(WHEN.plusMinutes(i)).explanation("stuck on request " + i)
+          .solved(i % 2 == 0).build();
+      case "MenuItemReview" -> i -> MenuItemReview.builder().id(i).itemId(i % 50).reviewerEmail("cgaucho@ucsb.edu")
+          .stars(1 + i % 5).dateReviewed(WHEN.plusMinutes(i)).comments("review " + i).build();
+      case "RecommendationRequest" -> i -> RecommendationRequest.builder().id(i).requesterEmail("cgaucho@ucsb.edu")
+          .professorEmail("phtcon@ucsb.edu").explanation("grad school " + i).dateRequested(WHEN.plusMinutes(i))
+          .dateNeeded(WHEN.plusDays(30)).done(false).build();
+      case "Restaurant" -> i -> Restaurant.builder().id(i).name("Restaurant " + i).description("Tacos and burritos " + i)
+          .build();
+      case "UCSBDate" -> i -> UCSBDate.builder().id(i).quarterYYYYQ("2024" + (1 + i % 4)).name("date " + i)
+          .localDateTime(WHEN.plusDays(i)).build();
+      case "UCSBDiningCommons" -> i -> UCSBDiningCommons.builder().code("commons" + i).name("Commons " + i)
+          .hasSackMeal(true).hasTakeOutMeal(false).hasDiningCam(true).latitude(34.41 + i * 1e-4).longitude(-119.84)
+          .build();
+      case "UCSBDiningCommonsMenuItem" -> i -> UCSBDiningCommonsMenuItem.builder().id(i).diningCommonsCode("ortega")
+          .name("Menu item " + i).station("Entrees").build();
+      case "UCSBOrganization" -> i -> UCSBOrganization.builder().orgCode("ORG" + i).orgTranslationShort("Org " + i)
+          .orgTranslation("Organization number " + i).inactive(false).build();
+      default -> throw new IllegalArgumentException(entity);
+    };
+    entities = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      entities.add(factory.apply(i));
+    }
+  }
+
+  @Benchmark
+  public byte[] serializeList() throws JsonProcessingException {
+    return writer.writeValueAsBytes(entities);
+  }
+}
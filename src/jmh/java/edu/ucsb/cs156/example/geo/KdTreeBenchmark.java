@@ -0,0 +1,93 @@
+package edu.ucsb.cs156.example.geo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Nearest-neighbour queries over POINTS locations: the k-d tree behind /api/ucsbdiningcommons/nearby
+ * against a linear scan computing the haversine distance to every point, plus the cost of moving a
+ * point in the tree incrementally (as an update to a commons does).
+ *
+ * Points are spread over a 50 km square around UCSB, and queries are random points in the same area.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class KdTreeBenchmark {
+
+  private static final double LAT = 34.4125;
+  private static final double LON = -119.8486;
+  private static final double SPREAD = 0.25;
+
+  @Param({ "100000" })
+  public int points;
+
+  @Param({ "5" })
+  public int limit;
+
+  private double[][] locations;
+  private KdTree<Integer> tree;
+  private final Random random = new Random(42);
+
+  @Setup
+  public void setup() {
+    locations = new double[points][];
+    tree = new KdTree<>();
+    for (int i = 0; i < points; i++) {
+      locations[i] = randomLocation();
+      tree.put(i, locations[i][0], locations[i][1]);
+    }
+    tree.rebuild();
+  }
+
+  private double[] randomLocation() {
+    return new double[] { LAT + SPREAD * (2 * random.nextDouble() - 1), LON + SPREAD * (2 * random.nextDouble() - 1) };
+  }
+
+  @Benchmark
+  public List<KdTree.Neighbor<Integer>> kdTree() {
+    double[] query = randomLocation();
+    return tree.nearest(query[0], query[1], limit);
+  }
+
+  @Benchmark
+  public PriorityQueue<double[]> linearScan() {
+    double[] query = randomLocation();
+    PriorityQueue<double[]> best = new PriorityQueue<>((a, b) -> Double.compare(b[1], a[1]));
+    for (int i = 0; i < points; i++) {
+      double d = GeoDistance.haversineMeters(query[0], query[1], locations[i][0], locations[i][1]);
+      if (best.size() < limit) {
+        best.add(new double[] { i, d });
+      } else if (d < best.peek()[1]) {
+        best.poll();
+        best.add(new double[] { i, d });
+      }
+    }
+    return best;
+  }
+
+  @Benchmark
+  public KdTree<Integer> moveOnePoint() {
+    int key = random.nextInt(points);
+    double[] location = randomLocation();
+    tree.put(key, location[0], location[1]);
+    return tree;
+  }
+}
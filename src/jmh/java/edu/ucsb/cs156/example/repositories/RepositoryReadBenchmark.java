@@ -0,0 +1,103 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.ExampleApplication;
+import edu.ucsb.cs156.example.entities.HelpRequest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads of ROWS help requests through HelpRequestRepository against the embedded H2 database:
+ * findAll (as /all does), the first keyset page (as /page does), and every keyset page in turn.
+ *
+ * The application is started once per trial with the integration profile (an in-memory database
+ * migrated by Liquibase) on a random port, with SQL logging off.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RepositoryReadBenchmark {
+
+  private static final LocalDateTime START = LocalDateTime.parse("2024-01-01T00:00:00");
+
+  @Param({ "1000", "10000" })
+  public int rows;
+
+  @Param({ "20", "100" })
+  public int pageSize;
+
+  private ConfigurableApplicationContext context;
+  private HelpRequestRepository helpRequestRepository;
+
+  @Setup
+  public void setup() {
+    context = new SpringApplicationBuilder(ExampleApplication.class)
+        .profiles("integration")
+        .run("--server.port=0", "--logging.level.root=WARN", "--logging.level.sql=WARN",
+            "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN");
+    helpRequestRepository = context.getBean(HelpRequestRepository.class);
+
+    List<Object[]> batch = new ArrayList<>(rows);
+    for (int i = 0; i < rows; i++) {
+      batch.add(new Object[] { "cgaucho@ucsb.edu", "f24-" + (i % 20), "table " + (i % 10),
+          Timestamp.valueOf(START.plusMinutes(i)), "request " + i, i % 2 == 0 });
+    }
+    context.getBean(JdbcTemplate.class).batchUpdate(
+        "INSERT INTO HELPREQUESTS (ID, REQUESTER_EMAIL, TEAM_ID, TABLE_OR_BREAKOUT_ROOM, REQUEST_TIME, EXPLANATION, SOLVED)"
+            + " VALUES (NEXT VALUE FOR HELPREQUESTS_SEQ, ?, ?, ?, ?, ?, ?)", batch);
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public Iterable<HelpRequest> findAll() {
+    return helpRequestRepository.findAll();
+  }
+
+  @Benchmark
+  public Slice<HelpRequest> firstPage() {
+    return helpRequestRepository.findByIdGreaterThanOrderByIdAsc(0, PageRequest.of(0, pageSize));
+  }
+
+  @Benchmark
+  public int everyPage() {
+    int read = 0;
+    long cursor = 0;
+    Slice<HelpRequest> page;
+    do {
+      page = helpRequestRepository.findByIdGreaterThanOrderByIdAsc(cursor, PageRequest.of(0, pageSize));
+      read += page.getNumberOfElements();
+      if (page.hasContent()) {
+        cursor = page.getContent().get(page.getNumberOfElements() - 1).getId();
+      }
+    } while (page.hasNext());
+    return read;
+  }
+}
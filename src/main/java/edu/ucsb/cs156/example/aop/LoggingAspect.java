@@ -3,15 +3,19 @@ package edu.ucsb.cs156.example.aop;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.Signature;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Before;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Optional;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This class is an Aspect that logs all invocations of controller methods that are annotated
@@ -21,6 +25,11 @@ import java.util.Optional;
  * For more information on Aspect Oriented Programming (AOP)
  * and AspectJ, including what a {@code JoinPoint} is, 
  * refer to <a href="https://www.baeldung.com/aspectj">https://www.baeldung.com/aspectj</a> 
+ *
+ * This advice runs on every request, so it is kept cheap: nothing is done unless INFO is enabled
+ * for this logger, the handler name and stoplist check are computed once per controller method,
+ * and the message is formatted by SLF4J only if an appender actually writes it.
+ * To move the writing off the request thread, run with the "asynclog" Spring profile (see logback-spring.xml).
  */
 
 
@@ -38,8 +47,24 @@ public class LoggingAspect {
       @annotation(org.springframework.web.bind.annotation.PatchMapping)
       """;
 
-  private ArrayList<String> stoplist = new ArrayList<String>(Arrays.asList(
-      "edu.ucsb.cs156.example.controllers.FrontendProxyController"));
+  private static final Set<String> stoplist = Set.of(
+      "edu.ucsb.cs156.example.controllers.FrontendProxyController");
+
+  /**
+   * What we log about a controller method, computed once per method.
+   * @param logged false if the controller is on the stoplist
+   * @param name the method name
+   * @param declaringTypeName the fully qualified controller class name
+   */
+  record Handler(boolean logged, String name, String declaringTypeName) {
+    static Handler of(Signature signature) {
+      String declaringTypeName = signature.getDeclaringTypeName();
+      return new Handler(!stoplist.contains(declaringTypeName), signature.getName(), declaringTypeName);
+    }
+  }
+
+  // Keyed by Method rather than Signature: Spring AOP creates a new Signature object for every call
+  private final Map<Method, Handler> handlers = new ConcurrentHashMap<>();
 
   /**
    * This method is called before any controller method that is annotated with
@@ -49,26 +74,31 @@ public class LoggingAspect {
    */
   @Before(pointcut)
   public void logControllers(JoinPoint joinPoint) {
-    getCurrentHttpRequest().ifPresent(
-        request -> {
-          String declaringTypeName = joinPoint.getSignature().getDeclaringTypeName();
-          if (!stoplist.contains(declaringTypeName)) {
-            log.info("===== %s %s handled by %s in %s".formatted(request.getMethod(), request.getRequestURI(),
-                joinPoint.getSignature().getName(), declaringTypeName));
-          }
-        });
+    if (!log.isInfoEnabled()) {
+      return;
+    }
+    Handler handler = handler(joinPoint.getSignature());
+    if (!handler.logged()) {
+      return;
+    }
+    RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+    if (attributes instanceof ServletRequestAttributes servletRequestAttributes) {
+      HttpServletRequest request = servletRequestAttributes.getRequest();
+      log.info("===== {} {} handled by {} in {}", request.getMethod(), request.getRequestURI(),
+          handler.name(), handler.declaringTypeName());
+    }
   }
 
   /**
-   * The function `getCurrentHttpRequest` returns an `Optional` containing the current
-   * `HttpServletRequest` if available.
-   * 
-   * @return An Optional object containing the current HttpServletRequest, if available.
+   * The function `handler` returns the cached metadata for the controller method behind a signature.
+   *
+   * @param signature the signature of the join point
+   * @return the Handler for that method
    */
-  private static Optional<HttpServletRequest> getCurrentHttpRequest() {
-    return Optional.ofNullable(RequestContextHolder.getRequestAttributes())
-        .filter(ServletRequestAttributes.class::isInstance)
-        .map(ServletRequestAttributes.class::cast)
-        .map(ServletRequestAttributes::getRequest);
+  Handler handler(Signature signature) {
+    if (signature instanceof MethodSignature methodSignature) {
+      return handlers.computeIfAbsent(methodSignature.getMethod(), m -> Handler.of(signature));
+    }
+    return Handler.of(signature);
   }
 }
@@ -0,0 +1,152 @@
+package edu.ucsb.cs156.example.config;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.security.oauth2.client.web.AuthorizationRequestRepository;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationRequest;
+import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+import org.springframework.web.util.WebUtils;
+
+/**
+ * Keeps the OAuth2 authorization request, between the redirect to the provider and the callback,
+ * in a cookie rather than the HttpSession, so that the callback can be served by any instance.
+ * The cookie holds the time it was issued and the serialized request, and an HMAC-SHA256 of both.
+ * A cookie whose HMAC does not match, or that was issued more than five minutes ago, is ignored
+ * without being deserialized, and deserialization only accepts the classes an OAuth2AuthorizationRequest
+ * is made of.  As with HttpSessionOAuth2AuthorizationRequestRepository, the request is only returned to
+ * a callback with the same state parameter.
+ */
+final class CookieOAuth2AuthorizationRequestRepository implements AuthorizationRequestRepository<OAuth2AuthorizationRequest> {
+
+  static final String COOKIE = "OAUTH2_AUTHORIZATION_REQUEST";
+  static final Duration MAX_AGE = Duration.ofMinutes(5);
+  static final ObjectInputFilter FILTER = ObjectInputFilter.Config.createFilter(String.join(";",
+      "org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationRequest",
+      "org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationResponseType",
+      "org.springframework.security.oauth2.core.AuthorizationGrantType",
+      "java.lang.String",
+      "java.util.Collections$UnmodifiableMap",
+      "java.util.Collections$UnmodifiableSet",
+      "java.util.Collections$UnmodifiableCollection",
+      "java.util.Collections$EmptyMap",
+      "java.util.Collections$EmptySet",
+      "java.util.HashMap",
+      "java.util.LinkedHashMap",
+      "java.util.HashSet",
+      "java.util.LinkedHashSet",
+      "maxdepth=8", "maxrefs=500", "maxbytes=16384", "!*"));
+
+  private final SecretKey key;
+
+  CookieOAuth2AuthorizationRequestRepository(SecretKey key) {
+    this.key = key;
+  }
+
+  @Override
+  public OAuth2AuthorizationRequest loadAuthorizationRequest(HttpServletRequest request) {
+    String state = request.getParameter(OAuth2ParameterNames.STATE);
+    Cookie cookie = WebUtils.getCookie(request, COOKIE);
+    if (state == null || cookie == null) {
+      return null;
+    }
+    OAuth2AuthorizationRequest authorizationRequest = decode(cookie.getValue());
+    return authorizationRequest != null && state.equals(authorizationRequest.getState()) ? authorizationRequest : null;
+  }
+
+  @Override
+  public void saveAuthorizationRequest(OAuth2AuthorizationRequest authorizationRequest, HttpServletRequest request,
+      HttpServletResponse response) {
+    if (authorizationRequest == null) {
+      write(request, response, "", Duration.ZERO);
+    } else {
+      write(request, response, encode(authorizationRequest), MAX_AGE);
+    }
+  }
+
+  @Override
+  public OAuth2AuthorizationRequest removeAuthorizationRequest(HttpServletRequest request, HttpServletResponse response) {
+    OAuth2AuthorizationRequest authorizationRequest = loadAuthorizationRequest(request);
+    if (authorizationRequest != null) {
+      write(request, response, "", Duration.ZERO);
+    }
+    return authorizationRequest;
+  }
+
+  private String encode(OAuth2AuthorizationRequest authorizationRequest) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    bytes.writeBytes(ByteBuffer.allocate(Long.BYTES).putLong(Instant.now().toEpochMilli()).array());
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(authorizationRequest);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    Base64.Encoder base64 = Base64.getUrlEncoder().withoutPadding();
+    return base64.encodeToString(bytes.toByteArray()) + "." + base64.encodeToString(mac(bytes.toByteArray()));
+  }
+
+  private OAuth2AuthorizationRequest decode(String value) {
+    int dot = value.indexOf('.');
+    if (dot < 0) {
+      return null;
+    }
+    try {
+      byte[] payload = Base64.getUrlDecoder().decode(value.substring(0, dot));
+      byte[] signature = Base64.getUrlDecoder().decode(value.substring(dot + 1));
+      if (!MessageDigest.isEqual(mac(payload), signature) || payload.length < Long.BYTES) {
+        return null;
+      }
+      Instant issuedAt = Instant.ofEpochMilli(ByteBuffer.wrap(payload).getLong());
+      if (issuedAt.plus(MAX_AGE).isBefore(Instant.now())) {
+        return null;
+      }
+      try (ObjectInputStream in = new ObjectInputStream(
+          new ByteArrayInputStream(payload, Long.BYTES, payload.length - Long.BYTES))) {
+        in.setObjectInputFilter(FILTER);
+        return (OAuth2AuthorizationRequest) in.readObject();
+      }
+    } catch (IllegalArgumentException | IOException | ClassNotFoundException | ClassCastException e) {
+      return null;
+    }
+  }
+
+  byte[] mac(byte[] payload) {
+    try {
+      Mac mac = Mac.getInstance("HmacSHA256");
+      mac.init(key);
+      return mac.doFinal(payload);
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static void write(HttpServletRequest request, HttpServletResponse response, String value, Duration maxAge) {
+    ResponseCookie cookie = ResponseCookie.from(COOKIE, value)
+        .path("/")
+        .httpOnly(true)
+        .secure(request.isSecure())
+        .sameSite("Lax")
+        .maxAge(maxAge)
+        .build();
+    response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+  }
+}
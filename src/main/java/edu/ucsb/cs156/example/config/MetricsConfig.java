@@ -0,0 +1,62 @@
+package edu.ucsb.cs156.example.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import edu.ucsb.cs156.example.metrics.ApiMetricsFilter;
+import edu.ucsb.cs156.example.metrics.HibernateCacheMetrics;
+import edu.ucsb.cs156.example.services.HelpRequestStreamService;
+
+/**
+ * Registers {@link ApiMetricsFilter} for the /api routes, {@link HibernateCacheMetrics},
+ * and a gauge of the open /api/helprequests/stream connections.
+ * The metrics are scraped from /actuator/prometheus.
+ */
+@Configuration
+public class MetricsConfig {
+
+  /**
+   * The filter runs ahead of Spring Security so that rejected requests are timed and counted too.
+   * @param registry the application's meter registry
+   * @return the filter registration
+   */
+  @Bean
+  public FilterRegistrationBean<ApiMetricsFilter> apiMetricsFilter(MeterRegistry registry) {
+    FilterRegistrationBean<ApiMetricsFilter> registration = new FilterRegistrationBean<>(new ApiMetricsFilter(registry));
+    registration.addUrlPatterns("/api/*");
+    registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+    return registration;
+  }
+
+  /**
+   * Second-level cache hit and miss counts, bound to the registry once the session factory is built.
+   * @param entityManagerFactory the application's entity manager factory
+   * @return the meter binder
+   */
+  @Bean
+  public HibernateCacheMetrics hibernateCacheMetrics(EntityManagerFactory entityManagerFactory) {
+    return new HibernateCacheMetrics(entityManagerFactory.unwrap(SessionFactory.class).getStatistics());
+  }
+
+  /**
+   * The number of clients connected to /api/helprequests/stream on this instance.
+   * @param helpRequestStreamService the service holding the streams
+   * @return the meter binder
+   */
+  @Bean
+  public MeterBinder helpRequestStreamMetrics(HelpRequestStreamService helpRequestStreamService) {
+    return registry -> Gauge.builder("helprequests.stream.subscribers", helpRequestStreamService,
+        HelpRequestStreamService::subscriberCount)
+        .description("Open help request event streams")
+        .register(registry);
+  }
+}
@@ -1,14 +1,18 @@
 package edu.ucsb.cs156.example.config;
 
-import edu.ucsb.cs156.example.entities.User;
-import edu.ucsb.cs156.example.repositories.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsb.cs156.example.services.AdminStatusService;
+import edu.ucsb.cs156.example.services.CurrentUserService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.Customizer;
@@ -22,16 +26,19 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.authority.mapping.GrantedAuthoritiesMapper;
+import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
 import org.springframework.security.oauth2.core.user.OAuth2UserAuthority;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.Http403ForbiddenEntryPoint;
 import org.springframework.security.web.authentication.SavedRequestAwareAuthenticationSuccessHandler;
 import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
+import org.springframework.security.web.context.SecurityContextHolderFilter;
 import org.springframework.security.web.csrf.CookieCsrfTokenRepository;
 import org.springframework.security.web.csrf.CsrfTokenRequestAttributeHandler;
 import org.springframework.security.web.csrf.CsrfTokenRequestHandler;
 import org.springframework.security.web.csrf.XorCsrfTokenRequestAttributeHandler;
 import org.springframework.security.web.csrf.CsrfToken;
+import org.springframework.security.web.savedrequest.NullRequestCache;
 import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -40,11 +47,9 @@ import static org.springframework.security.web.util.matcher.AntPathRequestMatche
 
 
 import java.io.IOException;
-import java.util.ArrayList;
+import java.time.Duration;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
 import java.util.function.Supplier;
 
@@ -59,11 +64,8 @@ import java.util.function.Supplier;
 @Slf4j
 public class SecurityConfig {
 
-  @Value("${app.admin.emails}")
-  private final List<String> adminEmails = new ArrayList<>();
-
   @Autowired
-  UserRepository userRepository;
+  AdminStatusService adminStatusService;
 
   /**
    * The `filterChain` method in this Java code configures various security
@@ -71,12 +73,17 @@ public class SecurityConfig {
    * including authorization, exception handling, OAuth2 login, CSRF protection,
    * and logout behavior.
    * 
+   * With app.session.stateless=true, logins are kept in a session token cookie
+   * (see {@link SessionTokenRepository}) and no HttpSession is created.
+   * 
    * @param http injected HttpSecurity object (injected by Spring framework)
    *             //
+   * @param sessionTokens the session token repository, if app.session.stateless is true
    */
   // https://docs.spring.io/spring-security/reference/servlet/exploits/csrf.html#csrf-integration-javascript-spa
   @Bean
-  public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+  public SecurityFilterChain filterChain(HttpSecurity http, ObjectProvider<SessionTokenRepository> sessionTokens)
+      throws Exception {
     http
         .exceptionHandling(handling -> handling.authenticationEntryPoint(new Http403ForbiddenEntryPoint()))
         .oauth2Login(
@@ -87,9 +94,43 @@ public class SecurityConfig {
         .addFilterAfter(new CsrfCookieFilter(), BasicAuthenticationFilter.class)
         .authorizeHttpRequests(auth -> auth.anyRequest().permitAll())
         .logout(logout -> logout.logoutRequestMatcher(new AntPathRequestMatcher("/logout")).logoutSuccessUrl("/"));
+    SessionTokenRepository tokens = sessionTokens.getIfAvailable();
+    if (tokens != null) {
+      http
+          .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+          .securityContext(context -> context.securityContextRepository(tokens))
+          .requestCache(cache -> cache.requestCache(new NullRequestCache()))
+          .oauth2Login(oauth2 -> oauth2
+              .authorizationEndpoint(endpoint -> endpoint.authorizationRequestRepository(tokens.authorizationRequests()))
+              .authorizedClientRepository(tokens.authorizedClients()))
+          .addFilterAfter(new SessionTokenRenewalFilter(tokens), SecurityContextHolderFilter.class)
+          .logout(logout -> logout.deleteCookies(SessionTokenRepository.COOKIE));
+    }
     return http.build();
   }
 
+  /**
+   * The `sessionTokenRepository` method creates the repository that keeps logins in a signed
+   * session token cookie instead of the HttpSession, when app.session.stateless is true.
+   *
+   * @param secret the key tokens are signed with (app.session.jwt.secret), at least 32 bytes
+   * @param ttl how long a token is valid (app.session.jwt.ttl)
+   * @param maxLifetime how long after login a token may be renewed to (app.session.jwt.maxLifetime)
+   * @param registrations the OAuth2 client registrations
+   * @param currentUserService resolves the User at login
+   * @param mapper the application's ObjectMapper
+   * @return the repository
+   */
+  @Bean
+  @ConditionalOnProperty(name = "app.session.stateless", havingValue = "true")
+  SessionTokenRepository sessionTokenRepository(@Value("${app.session.jwt.secret:}") String secret,
+      @Value("${app.session.jwt.ttl:PT30M}") Duration ttl,
+      @Value("${app.session.jwt.maxLifetime:PT12H}") Duration maxLifetime, ClientRegistrationRepository registrations,
+      CurrentUserService currentUserService, ObjectMapper mapper) {
+    return new SessionTokenRepository(secret, ttl, maxLifetime, registrations, currentUserService::getUser,
+        adminStatusService, mapper);
+  }
+
   /**
    * The `webSecurityCustomizer` method is used to configure web security in Java,
    * specifically ignoring requests
@@ -100,17 +141,23 @@ public class SecurityConfig {
     return web -> web.ignoring().requestMatchers(antMatcher("/h2-console/**"));
   }
 
-  private GrantedAuthoritiesMapper userAuthoritiesMapper() {
+  /**
+   * The `userAuthoritiesMapper` method maps the authorities of an OAuth2 login to the
+   * roles of this application (ROLE_USER, plus ROLE_ADMIN and ROLE_MEMBER where they apply).
+   * It runs on every login, so it logs only at DEBUG, and admin status comes from
+   * {@link AdminStatusService}, which caches it.
+   * Package-private so that it can be benchmarked (see UserAuthoritiesMapperBenchmark).
+   *
+   * @return the mapper
+   */
+  GrantedAuthoritiesMapper userAuthoritiesMapper() {
     return (authorities) -> {
       Set<GrantedAuthority> mappedAuthorities = new HashSet<>();
-      log.info("********** authorities={}", authorities);
 
       authorities.forEach(authority -> {
-        log.info("********** authority={}", authority);
         mappedAuthorities.add(authority);
         if (authority instanceof OAuth2UserAuthority oauth2UserAuthority) {
           Map<String, Object> userAttributes = oauth2UserAuthority.getAttributes();
-          log.info("********** userAttributes={}", userAttributes);
 
           mappedAuthorities.add(new SimpleGrantedAuthority("ROLE_USER"));
 
@@ -125,7 +172,7 @@ public class SecurityConfig {
         }
 
       });
-      log.info("********** mappedAuthorities={}", mappedAuthorities);
+      log.debug("authorities={} mappedAuthorities={}", authorities, mappedAuthorities);
       return mappedAuthorities;
     };
   }
@@ -133,17 +180,13 @@ public class SecurityConfig {
   /**
    * This method checks if the given email belongs to an admin user either from a
    * predefined
-   * list or by querying the user repository.
+   * list or by querying the user repository (see {@link AdminStatusService}).
    * 
    * @param email email address of the user
    * @return whether the user with the given email is an admin
    */
   public boolean getAdmin(String email) {
-    if (adminEmails.contains(email)) {
-      return true;
-    }
-    Optional<User> u = userRepository.findByEmail(email);
-    return u.isPresent() && u.get().getAdmin();
+    return adminStatusService.isAdmin(email);
   }
 }
 
@@ -0,0 +1,115 @@
+package edu.ucsb.cs156.example.config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.support.GenericConversionService;
+import org.springframework.core.serializer.DefaultDeserializer;
+import org.springframework.core.serializer.DefaultSerializer;
+import org.springframework.core.serializer.Deserializer;
+import org.springframework.core.serializer.Serializer;
+import org.springframework.core.serializer.support.DeserializingConverter;
+import org.springframework.core.serializer.support.SerializingConverter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.session.jdbc.config.annotation.web.http.EnableJdbcHttpSession;
+
+import edu.ucsb.cs156.example.metrics.SessionMetrics;
+
+/**
+ * With app.session.store=jdbc, HttpSessions are kept in the database (the SPRING_SESSION tables,
+ * created by the SpringSession changelog) instead of in memory, so that several instances behind a
+ * load balancer share logins: a session created on one instance can be used, and logged out, on any
+ * other.  The session id is then in the SESSION cookie rather than JSESSIONID.  The default,
+ * app.session.store=memory, keeps sessions in each instance's memory (Spring Boot's session
+ * auto-configuration is excluded in application.properties so that it does not switch on just
+ * because spring-session-jdbc is on the classpath).
+ *
+ * Session attributes are Java-serialized and deflated before being stored; for a login (the
+ * OAuth2AuthenticationToken in the security context, whose provider attributes appear twice) this
+ * roughly halves the row size.  Sizes are published by {@link SessionMetrics}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.session.store", havingValue = "jdbc")
+@EnableJdbcHttpSession
+public class SessionConfig {
+
+  /**
+   * The session store's gauges, and the distribution of attribute sizes.
+   * @param jdbcTemplate the application's JdbcTemplate
+   * @param refreshInterval how often the size of the session store is read (app.session.metrics.refreshInterval)
+   * @return the meter binder
+   */
+  @Bean
+  public SessionMetrics sessionMetrics(JdbcTemplate jdbcTemplate,
+      @Value("${app.session.metrics.refreshInterval:PT1M}") Duration refreshInterval) {
+    return new SessionMetrics(jdbcTemplate, refreshInterval);
+  }
+
+  /**
+   * Converts session attributes to and from the bytes stored in SPRING_SESSION_ATTRIBUTES.
+   * @param sessionMetrics records the size of each attribute written
+   * @return the conversion service used by the session repository
+   */
+  @Bean
+  public ConversionService springSessionConversionService(SessionMetrics sessionMetrics) {
+    CompressedSessionSerializer serializer = new CompressedSessionSerializer(SessionConfig.class.getClassLoader(),
+        sessionMetrics);
+    GenericConversionService conversionService = new GenericConversionService();
+    conversionService.addConverter(Object.class, byte[].class, new SerializingConverter(serializer));
+    conversionService.addConverter(byte[].class, Object.class, new DeserializingConverter(serializer));
+    return conversionService;
+  }
+}
+
+final class CompressedSessionSerializer implements Serializer<Object>, Deserializer<Object> {
+  private final DefaultSerializer serializer = new DefaultSerializer();
+  private final DefaultDeserializer deserializer;
+  private final SessionMetrics sessionMetrics;
+
+  CompressedSessionSerializer(ClassLoader classLoader, SessionMetrics sessionMetrics) {
+    this.deserializer = new DefaultDeserializer(classLoader);
+    this.sessionMetrics = sessionMetrics;
+  }
+
+  @Override
+  public void serialize(Object object, OutputStream outputStream) throws IOException {
+    Deflater deflater = new Deflater();
+    try {
+      DeflaterOutputStream out = new DeflaterOutputStream(outputStream, deflater);
+      serializer.serialize(object, out);
+      out.finish();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  @Override
+  public byte[] serializeToByteArray(Object object) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(512);
+    serialize(object, out);
+    sessionMetrics.recordAttributeSize(object, out.size());
+    return out.toByteArray();
+  }
+
+  @Override
+  public Object deserialize(InputStream inputStream) throws IOException {
+    Inflater inflater = new Inflater();
+    try {
+      return deserializer.deserialize(new InflaterInputStream(inputStream, inflater));
+    } finally {
+      inflater.end();
+    }
+  }
+}
@@ -0,0 +1,63 @@
+package edu.ucsb.cs156.example.config;
+
+import edu.ucsb.cs156.example.entities.User;
+
+import java.time.Instant;
+import java.util.Collection;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+
+/**
+ * An OAuth2 login restored from a session token (see {@link SessionTokenRepository}) rather than
+ * from the HttpSession.  Besides the principal and the roles granted at login, it carries the
+ * User row as it was at login, so that the current user can be served without a database lookup.
+ */
+public class SessionTokenAuthentication extends OAuth2AuthenticationToken {
+
+  private final transient User user;
+  private final Instant authenticatedAt;
+  private final Instant expiresAt;
+
+  /**
+   * Constructs an authentication restored from a session token.
+   * @param principal the OAuth2 user
+   * @param authorities the authorities granted at login
+   * @param registrationId the id of the client registration used to log in
+   * @param user the User as it was at login
+   * @param authenticatedAt when the user logged in
+   * @param expiresAt when the token expires
+   */
+  public SessionTokenAuthentication(OAuth2User principal, Collection<? extends GrantedAuthority> authorities,
+      String registrationId, User user, Instant authenticatedAt, Instant expiresAt) {
+    super(principal, authorities, registrationId);
+    this.user = user;
+    this.authenticatedAt = authenticatedAt;
+    this.expiresAt = expiresAt;
+  }
+
+  /**
+   * This method returns the User as it was at login.
+   * @return the user
+   */
+  public User getUser() {
+    return user;
+  }
+
+  /**
+   * This method returns when the user logged in, which tokens renewed since then keep.
+   * @return the login time
+   */
+  public Instant getAuthenticatedAt() {
+    return authenticatedAt;
+  }
+
+  /**
+   * This method returns when the token this authentication was restored from expires.
+   * @return the expiry time
+   */
+  public Instant getExpiresAt() {
+    return expiresAt;
+  }
+}
@@ -0,0 +1,345 @@
+package edu.ucsb.cs156.example.config;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nimbusds.jose.jwk.source.ImmutableSecret;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.services.AdminStatusService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.DeferredSecurityContext;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextHolderStrategy;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
+import org.springframework.security.oauth2.client.web.AuthorizationRequestRepository;
+import org.springframework.security.oauth2.client.web.OAuth2AuthorizedClientRepository;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationRequest;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+import org.springframework.security.oauth2.core.user.OAuth2UserAuthority;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+import org.springframework.security.web.context.HttpRequestResponseHolder;
+import org.springframework.security.web.context.SecurityContextRepository;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+/**
+ * Keeps the security context of an OAuth2 login in a signed, short-lived token (a JWT, HS256) in the
+ * SESSION_TOKEN cookie instead of the HttpSession, for app.session.stateless=true.
+ *
+ * The token is issued at login and carries the principal's attributes, the roles computed by
+ * SecurityConfig.userAuthoritiesMapper, and the User row (so that CurrentUserServiceImpl does not
+ * look it up again).  It is validated on each request without any server-side state, so any instance
+ * sharing app.session.jwt.secret can serve any request.  It expires after app.session.jwt.ttl, and is
+ * renewed once half of that has passed, so like a session it lasts while the user is active.  Renewal
+ * re-reads the User and whether they are an admin (see AdminStatusService), and a token is never renewed past
+ * app.session.jwt.maxLifetime after login (the auth_time claim), after which the user must log in again.
+ * Logging out deletes the cookie, but a copy of the token stays valid until it expires.
+ *
+ * The tokens and the authorization request cookie are signed with separate keys, both derived from
+ * app.session.jwt.secret.
+ */
+@Slf4j
+public class SessionTokenRepository implements SecurityContextRepository {
+
+  /** The name of the cookie holding the token. */
+  public static final String COOKIE = "SESSION_TOKEN";
+
+  private static final Set<String> OAUTH2_USER_AUTHORITIES = Set.of("OAUTH2_USER", "OIDC_USER");
+  private static final String ROLE_ADMIN = "ROLE_ADMIN";
+  private static final TypeReference<Map<String, Object>> MAP = new TypeReference<>() {
+  };
+
+  private final SecretKey authorizationRequestKey;
+  private final JwtEncoder encoder;
+  private final JwtDecoder decoder;
+  private final Duration ttl;
+  private final Duration maxLifetime;
+  private final ClientRegistrationRepository registrations;
+  private final Supplier<User> currentUser;
+  private final AdminStatusService adminStatus;
+  private final ObjectMapper mapper;
+  private final SecurityContextHolderStrategy securityContextHolderStrategy = SecurityContextHolder
+      .getContextHolderStrategy();
+
+  /**
+   * Constructs the repository.
+   * @param secret the key the tokens are signed with; at least 32 bytes
+   * @param ttl how long a token is valid
+   * @param maxLifetime how long after login a token may still be renewed to
+   * @param registrations the OAuth2 client registrations
+   * @param currentUser supplies the User of the login being saved
+   * @param adminStatus looks up the User and whether they are an admin, when a token is renewed
+   * @param mapper converts the User and the principal's attributes to and from claims
+   */
+  public SessionTokenRepository(String secret, Duration ttl, Duration maxLifetime,
+      ClientRegistrationRepository registrations, Supplier<User> currentUser, AdminStatusService adminStatus,
+      ObjectMapper mapper) {
+    byte[] bytes = secret.getBytes(StandardCharsets.UTF_8);
+    if (bytes.length < 32) {
+      throw new IllegalStateException("app.session.jwt.secret must be at least 32 bytes when app.session.stateless is true");
+    }
+    SecretKey tokenKey = deriveKey(bytes, "session-token");
+    this.authorizationRequestKey = deriveKey(bytes, "oauth2-authorization-request");
+    this.encoder = new NimbusJwtEncoder(new ImmutableSecret<>(tokenKey));
+    this.decoder = NimbusJwtDecoder.withSecretKey(tokenKey).macAlgorithm(MacAlgorithm.HS256).build();
+    this.ttl = ttl;
+    this.maxLifetime = maxLifetime;
+    this.registrations = registrations;
+    this.currentUser = currentUser;
+    this.adminStatus = adminStatus;
+    this.mapper = mapper;
+  }
+
+  @Override
+  public DeferredSecurityContext loadDeferredContext(HttpServletRequest request) {
+    return new DeferredSecurityContext() {
+      private SecurityContext context;
+
+      @Override
+      public SecurityContext get() {
+        if (context == null) {
+          context = load(request);
+        }
+        return context;
+      }
+
+      @Override
+      public boolean isGenerated() {
+        return get().getAuthentication() == null;
+      }
+    };
+  }
+
+  @Override
+  @Deprecated
+  public SecurityContext loadContext(HttpRequestResponseHolder requestResponseHolder) {
+    return load(requestResponseHolder.getRequest());
+  }
+
+  /**
+   * This method issues a token for a login (setting the cookie), or deletes the cookie when the
+   * context has been cleared (on logout).
+   */
+  @Override
+  public void saveContext(SecurityContext context, HttpServletRequest request, HttpServletResponse response) {
+    Authentication authentication = context.getAuthentication();
+    if (authentication == null) {
+      if (containsContext(request)) {
+        write(request, response, "", Duration.ZERO);
+      }
+    } else if (authentication instanceof OAuth2AuthenticationToken token
+        && !(authentication instanceof SessionTokenAuthentication)) {
+      write(request, response, issue(token, token.getAuthorities(), currentUser.get(), Instant.now()));
+    }
+  }
+
+  @Override
+  public boolean containsContext(HttpServletRequest request) {
+    return WebUtils.getCookie(request, COOKIE) != null;
+  }
+
+  /**
+   * This method replaces the token with one that expires ttl from now (but no later than maxLifetime after
+   * login), if less than half of ttl is left.  The new token carries the User as the users table now has it,
+   * and ROLE_ADMIN is granted or dropped as the user's admin status now says.
+   * @param authentication the authentication restored from the token
+   * @param request the request
+   * @param response the response
+   */
+  void renewIfDue(SessionTokenAuthentication authentication, HttpServletRequest request, HttpServletResponse response) {
+    Instant expiresAt = authentication.getExpiresAt();
+    if (Instant.now().plus(ttl.dividedBy(2)).isAfter(expiresAt)
+        && authentication.getAuthenticatedAt().plus(maxLifetime).isAfter(expiresAt)) {
+      String email = authentication.getPrincipal().getAttribute("email");
+      write(request, response, issue(authentication, currentRoles(email, authentication), currentUser(email),
+          authentication.getAuthenticatedAt()));
+    }
+  }
+
+  /**
+   * This method returns where to keep OAuth2 authorization requests between the redirect to the provider
+   * and the callback: a signed cookie, rather than the HttpSession.
+   * @return the authorization request repository
+   */
+  AuthorizationRequestRepository<OAuth2AuthorizationRequest> authorizationRequests() {
+    return new CookieOAuth2AuthorizationRequestRepository(authorizationRequestKey);
+  }
+
+  /**
+   * This method returns a repository that does not keep the clients authorized at login (the provider's
+   * access tokens), which this app does not use after login, rather than keeping one per user in memory.
+   * @return the authorized client repository
+   */
+  OAuth2AuthorizedClientRepository authorizedClients() {
+    return new OAuth2AuthorizedClientRepository() {
+      @Override
+      public <T extends OAuth2AuthorizedClient> T loadAuthorizedClient(String clientRegistrationId,
+          Authentication principal, HttpServletRequest request) {
+        return null;
+      }
+
+      @Override
+      public void saveAuthorizedClient(OAuth2AuthorizedClient authorizedClient, Authentication principal,
+          HttpServletRequest request, HttpServletResponse response) {
+      }
+
+      @Override
+      public void removeAuthorizedClient(String clientRegistrationId, Authentication principal,
+          HttpServletRequest request, HttpServletResponse response) {
+      }
+    };
+  }
+
+  private SecurityContext load(HttpServletRequest request) {
+    SecurityContext context = securityContextHolderStrategy.createEmptyContext();
+    Cookie cookie = WebUtils.getCookie(request, COOKIE);
+    if (cookie != null) {
+      try {
+        context.setAuthentication(authentication(decoder.decode(cookie.getValue())));
+      } catch (JwtException | IllegalArgumentException e) {
+        log.debug("ignoring session token: {}", e.getMessage());
+      }
+    }
+    return context;
+  }
+
+  private Jwt issue(OAuth2AuthenticationToken token, Collection<? extends GrantedAuthority> authorities, User user,
+      Instant authenticatedAt) {
+    String registrationId = token.getAuthorizedClientRegistrationId();
+    String nameAttribute = registrations.findByRegistrationId(registrationId).getProviderDetails()
+        .getUserInfoEndpoint().getUserNameAttributeName();
+    Instant now = Instant.now();
+    Instant end = authenticatedAt.plus(maxLifetime);
+    JwtClaimsSet.Builder claims = JwtClaimsSet.builder()
+        .subject(token.getName())
+        .issuedAt(now)
+        .expiresAt(now.plus(ttl).isAfter(end) ? end : now.plus(ttl))
+        .claim("auth_time", authenticatedAt.getEpochSecond())
+        .claim("registration", registrationId)
+        .claim("name_attribute", nameAttribute)
+        .claim("attributes", mapper.convertValue(token.getPrincipal().getAttributes(), MAP))
+        .claim("roles", authorities.stream().map(GrantedAuthority::getAuthority).toList());
+    if (user != null) {
+      claims.claim("user", mapper.convertValue(user, MAP));
+    }
+    return encoder.encode(JwtEncoderParameters.from(JwsHeader.with(MacAlgorithm.HS256).build(), claims.build()));
+  }
+
+  private List<GrantedAuthority> currentRoles(String email, SessionTokenAuthentication authentication) {
+    List<GrantedAuthority> authorities = new ArrayList<>(authentication.getAuthorities());
+    authorities.removeIf(authority -> ROLE_ADMIN.equals(authority.getAuthority()));
+    if (email != null && adminStatus.isAdmin(email)) {
+      authorities.add(new SimpleGrantedAuthority(ROLE_ADMIN));
+    }
+    return authorities;
+  }
+
+  /**
+   * The user's row as it is now, or null (so that CurrentUserServiceImpl looks the user up as at login)
+   * when there is no row yet or a listed admin's row has not been made an admin.
+   */
+  private User currentUser(String email) {
+    if (email == null) {
+      return null;
+    }
+    return adminStatus.findUser(email)
+        .filter(user -> user.getAdmin() || !adminStatus.isListedAdmin(email))
+        .orElse(null);
+  }
+
+  private SessionTokenAuthentication authentication(Jwt jwt) {
+    Map<String, Object> attributes = jwt.getClaim("attributes");
+    List<GrantedAuthority> authorities = jwt.getClaimAsStringList("roles").stream()
+        .map(role -> OAUTH2_USER_AUTHORITIES.contains(role)
+            ? new OAuth2UserAuthority(role, attributes)
+            : (GrantedAuthority) new SimpleGrantedAuthority(role))
+        .toList();
+    OAuth2User principal = new DefaultOAuth2User(authorities, attributes, jwt.getClaimAsString("name_attribute"));
+    Map<String, Object> user = jwt.getClaim("user");
+    Instant authenticatedAt = jwt.hasClaim("auth_time") ? jwt.getClaimAsInstant("auth_time") : jwt.getIssuedAt();
+    return new SessionTokenAuthentication(principal, authorities, jwt.getClaimAsString("registration"),
+        user == null ? null : mapper.convertValue(user, User.class), authenticatedAt, jwt.getExpiresAt());
+  }
+
+  private static SecretKey deriveKey(byte[] secret, String purpose) {
+    try {
+      Mac mac = Mac.getInstance("HmacSHA256");
+      mac.init(new SecretKeySpec(secret, "HmacSHA256"));
+      return new SecretKeySpec(mac.doFinal(purpose.getBytes(StandardCharsets.UTF_8)), "HmacSHA256");
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static void write(HttpServletRequest request, HttpServletResponse response, Jwt token) {
+    write(request, response, token.getTokenValue(), Duration.between(token.getIssuedAt(), token.getExpiresAt()));
+  }
+
+  private static void write(HttpServletRequest request, HttpServletResponse response, String value, Duration maxAge) {
+    ResponseCookie cookie = ResponseCookie.from(COOKIE, value)
+        .path("/")
+        .httpOnly(true)
+        .secure(request.isSecure())
+        .sameSite("Lax")
+        .maxAge(maxAge)
+        .build();
+    response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+  }
+}
+
+final class SessionTokenRenewalFilter extends OncePerRequestFilter {
+  private final SessionTokenRepository sessionTokens;
+
+  SessionTokenRenewalFilter(SessionTokenRepository sessionTokens) {
+    this.sessionTokens = sessionTokens;
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+    if (SecurityContextHolder.getContext().getAuthentication() instanceof SessionTokenAuthentication authentication) {
+      sessionTokens.renewIfDue(authentication, request, response);
+    }
+    filterChain.doFilter(request, response);
+  }
+}
@@ -0,0 +1,36 @@
+package edu.ucsb.cs156.example.config;
+
+import java.time.Duration;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+
+/**
+ * Serves the production build of the frontend (copied to classpath:/public by the production Maven profile).
+ *
+ * The build step writes .br and .gz copies of the larger files (frontend/scripts/precompress.js);
+ * {@link EncodedResourceResolver} sends the best one the browser accepts, so static files are never
+ * compressed per request.  Everything under /static has a content hash in its name, so it is cached
+ * for a year without revalidation; other files (index.html, manifest.json, ...) are revalidated on each use.
+ */
+@Configuration
+public class StaticResourceConfig implements WebMvcConfigurer {
+
+  @Override
+  public void addResourceHandlers(ResourceHandlerRegistry registry) {
+    registry.addResourceHandler("/static/**")
+        .addResourceLocations("classpath:/public/static/")
+        .setCacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable())
+        .resourceChain(true)
+        .addResolver(new EncodedResourceResolver());
+
+    registry.addResourceHandler("/**")
+        .addResourceLocations("classpath:/public/")
+        .setCacheControl(CacheControl.noCache())
+        .resourceChain(true)
+        .addResolver(new EncodedResourceResolver());
+  }
+}
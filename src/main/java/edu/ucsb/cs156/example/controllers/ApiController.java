@@ -2,15 +2,32 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 
+import edu.ucsb.cs156.example.models.BatchItemResult;
 import edu.ucsb.cs156.example.models.CurrentUser;
+import edu.ucsb.cs156.example.models.CursorPage;
+import edu.ucsb.cs156.example.repositories.InsertRepository;
 import edu.ucsb.cs156.example.services.CurrentUserService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.repository.CrudRepository;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * This is an abstract class that provides common functionality for all API controllers.
@@ -21,6 +38,9 @@ public abstract class ApiController {
   @Autowired
   private CurrentUserService currentUserService;
 
+  @Value("${app.pagination.maxPageSize:100}")
+  private int maxPageSize;
+
   /**
    * This method returns the current user.
    * @return the current user
@@ -38,6 +58,185 @@ public abstract class ApiController {
     return Map.of("message", message);
   }
 
+  /**
+   * This method returns the pageable for the first page of a keyset query.
+   * Keyset queries filter on the cursor rather than skipping rows, so the page number is always 0.
+   * @param size the requested page size; clamped to between 1 and app.pagination.maxPageSize
+   * @return a pageable for at most size rows
+   */
+  protected Pageable keysetPageable(int size) {
+    return PageRequest.of(0, pageSize(size));
+  }
+
+  /**
+   * This method clamps a requested page size (or result limit) to between 1 and app.pagination.maxPageSize.
+   * @param size the requested size
+   * @return the size to use
+   */
+  protected int pageSize(int size) {
+    return Math.max(1, Math.min(size, maxPageSize));
+  }
+
+  /**
+   * This method converts a slice from a keyset query into a CursorPage.
+   * @param <T> the type of the entities in the slice
+   * @param slice the slice returned by the repository
+   * @param key function returning the key that the slice is ordered by
+   * @return the page, with the key of its last entity as the next cursor if there are more rows
+   */
+  protected <T> CursorPage<T> cursorPage(Slice<T> slice, Function<T, ?> key) {
+    List<T> content = slice.getContent();
+    String next = slice.hasNext() ? String.valueOf(key.apply(content.get(content.size() - 1))) : null;
+    return CursorPage.<T>builder().content(content).next(next).build();
+  }
+
+  /**
+   * This method saves a batch of new entities and reports the id given to each.
+   * Call it from a @Transactional endpoint so that the batch commits (or rolls back) as a whole,
+   * and Hibernate can send the inserts as JDBC batches.
+   * @param <T> the type of the entities
+   * @param <ID> the type of their ids
+   * @param repository the repository for the entities
+   * @param items the entities to save
+   * @param id function returning the id of an entity
+   * @return one result per entity, in request order
+   */
+  protected <T, ID> List<BatchItemResult> batchCreate(CrudRepository<T, ID> repository, List<T> items, Function<T, ID> id) {
+    List<BatchItemResult> results = new ArrayList<>(items.size());
+    int index = 0;
+    for (T saved : repository.saveAll(items)) {
+      results.add(BatchItemResult.builder().index(index++).id(id.apply(saved)).status(BatchItemResult.CREATED).build());
+    }
+    return results;
+  }
+
+  /**
+   * This method saves a batch of new entities whose ids are assigned by the client (such as codes),
+   * looking up all of the ids in one query.  Elements whose id already exists, or appears earlier in
+   * the batch, are reported as conflicts and not saved; the others are inserted without a lookup each.
+   * Call it from a @Transactional endpoint, as for {@link #batchCreate(CrudRepository, List, Function)}.
+   * @param <T> the type of the entities
+   * @param <ID> the type of their ids
+   * @param <R> the type of the repository
+   * @param repository the repository for the entities
+   * @param type the entity class, for conflict messages
+   * @param items the entities to save
+   * @param id function returning the id of an entity
+   * @return one result per entity, in request order
+   */
+  protected <T, ID, R extends CrudRepository<T, ID> & InsertRepository<T>> List<BatchItemResult> batchCreateWithAssignedIds(
+      R repository, Class<T> type, List<T> items, Function<T, ID> id) {
+    Set<ID> taken = new HashSet<>(findAllById(repository, items.stream().map(id).toList(), id).keySet());
+    List<T> created = new ArrayList<>(items.size());
+    List<BatchItemResult> results = new ArrayList<>(items.size());
+    for (int index = 0; index < items.size(); index++) {
+      T incoming = items.get(index);
+      ID key = id.apply(incoming);
+      if (!taken.add(key)) {
+        results.add(BatchItemResult.builder()
+            .index(index)
+            .id(key)
+            .status(BatchItemResult.CONFLICT)
+            .message("%s with id %s already exists".formatted(type.getSimpleName(), key))
+            .build());
+      } else {
+        created.add(incoming);
+        results.add(BatchItemResult.builder().index(index).id(key).status(BatchItemResult.CREATED).build());
+      }
+    }
+    repository.insertAll(created);
+    return results;
+  }
+
+  /**
+   * This method applies a batch of updates, looking up all of the existing entities in one query.
+   * Elements whose id does not exist are reported as not found; the others are still updated.
+   * @param <T> the type of the entities
+   * @param <ID> the type of their ids
+   * @param repository the repository for the entities
+   * @param type the entity class, for not found messages
+   * @param items the incoming entities, each carrying the id of the entity to update
+   * @param id function returning the id of an entity
+   * @param update copies the fields of the incoming entity (second argument) onto the existing one (first argument)
+   * @return one result per element, in request order
+   */
+  protected <T, ID> List<BatchItemResult> batchUpdate(CrudRepository<T, ID> repository, Class<T> type, List<T> items,
+      Function<T, ID> id, BiConsumer<T, T> update) {
+    Map<ID, T> existing = findAllById(repository, items.stream().map(id).toList(), id);
+    List<T> updated = new ArrayList<>(items.size());
+    List<BatchItemResult> results = new ArrayList<>(items.size());
+    for (int index = 0; index < items.size(); index++) {
+      T incoming = items.get(index);
+      T current = existing.get(id.apply(incoming));
+      if (current == null) {
+        results.add(notFound(index, type, id.apply(incoming)));
+      } else {
+        update.accept(current, incoming);
+        updated.add(current);
+        results.add(BatchItemResult.builder().index(index).id(id.apply(current)).status(BatchItemResult.UPDATED).build());
+      }
+    }
+    repository.saveAll(updated);
+    return results;
+  }
+
+  /**
+   * This method deletes a batch of entities by id, looking them all up in one query.
+   * @param <T> the type of the entities
+   * @param <ID> the type of their ids
+   * @param repository the repository for the entities
+   * @param type the entity class, for not found messages
+   * @param ids the ids to delete
+   * @param id function returning the id of an entity
+   * @return one result per id, in request order
+   */
+  protected <T, ID> List<BatchItemResult> batchDelete(CrudRepository<T, ID> repository, Class<T> type, List<ID> ids,
+      Function<T, ID> id) {
+    return batchDelete(repository, type, ids, id, deleted -> {});
+  }
+
+  /**
+   * This method deletes a batch of entities by id, looking them all up in one query.
+   * @param <T> the type of the entities
+   * @param <ID> the type of their ids
+   * @param repository the repository for the entities
+   * @param type the entity class, for not found messages
+   * @param ids the ids to delete
+   * @param id function returning the id of an entity
+   * @param onDeleted called with the entities that were deleted, e.g. to update aggregates
+   * @return one result per id, in request order
+   */
+  protected <T, ID> List<BatchItemResult> batchDelete(CrudRepository<T, ID> repository, Class<T> type, List<ID> ids,
+      Function<T, ID> id, Consumer<List<T>> onDeleted) {
+    Map<ID, T> existing = findAllById(repository, ids, id);
+    List<BatchItemResult> results = new ArrayList<>(ids.size());
+    for (int index = 0; index < ids.size(); index++) {
+      ID key = ids.get(index);
+      results.add(existing.containsKey(key)
+          ? BatchItemResult.builder().index(index).id(key).status(BatchItemResult.DELETED).build()
+          : notFound(index, type, key));
+    }
+    List<T> deleted = new ArrayList<>(existing.values());
+    repository.deleteAll(deleted);
+    onDeleted.accept(deleted);
+    return results;
+  }
+
+  private <T, ID> Map<ID, T> findAllById(CrudRepository<T, ID> repository, List<ID> ids, Function<T, ID> id) {
+    Map<ID, T> found = new HashMap<>();
+    repository.findAllById(ids).forEach(entity -> found.put(id.apply(entity), entity));
+    return found;
+  }
+
+  private BatchItemResult notFound(int index, Class<?> type, Object id) {
+    return BatchItemResult.builder()
+        .index(index)
+        .id(id)
+        .status(BatchItemResult.NOT_FOUND)
+        .message(new EntityNotFoundException(type, id).getMessage())
+        .build();
+  }
+
   /**
    * This method handles the EntityNotFoundException.
    * @param e the exception
@@ -51,4 +250,19 @@ public abstract class ApiController {
       "message", e.getMessage()
     );
   }
+
+  /**
+   * This method handles an update that lost a race with another update of the same entity
+   * (detected by a @Version column).
+   * @param e the exception
+   * @return a map with the type and message of the exception
+   */
+  @ExceptionHandler({ OptimisticLockingFailureException.class })
+  @ResponseStatus(HttpStatus.CONFLICT)
+  public Object handleConflict(Throwable e) {
+    return Map.of(
+      "type", e.getClass().getSimpleName(),
+      "message", e.getMessage()
+    );
+  }
 }
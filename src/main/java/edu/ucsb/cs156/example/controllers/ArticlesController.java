@@ -3,7 +3,12 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.entities.Article;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchItemResult;
+import edu.ucsb.cs156.example.models.CursorPage;
 import edu.ucsb.cs156.example.repositories.ArticleRepository;
+import edu.ucsb.cs156.example.services.ArticleSearchService;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import edu.ucsb.cs156.example.services.TableVersionService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -13,8 +18,12 @@ import lombok.extern.slf4j.Slf4j;
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.ResponseEntity;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -23,10 +32,13 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * This is a REST controller for Articles
@@ -41,33 +53,102 @@ public class ArticlesController extends ApiController {
     @Autowired
     ArticleRepository articleRepository;
 
+    @Autowired
+    NdjsonExportService ndjsonExportService;
+
+    @Autowired
+    TableVersionService tableVersionService;
+
+    @Autowired
+    ArticleSearchService articleSearchService;
+
     /**
      * List all Articles
      * 
+     * @param request the request, answered with 304 Not Modified if its If-None-Match matches the current ETag
      * @return an iterable of Article
      */
     @Operation(summary= "List all articles")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<Article> allArticles() {
+    public Iterable<Article> allArticles(WebRequest request) {
+        if (request.checkNotModified(tableVersionService.etag(Article.class))) {
+            return null;
+        }
         Iterable<Article> articles = articleRepository.findAll();
         return articles;
     }
 
     /**
-     * Get a single article by id
+     * List a page of articles, ordered by id
+     * 
+     * @param cursor the id of the last article on the previous page (omit for the first page)
+     * @param size the maximum number of articles to return
+     * @return a page of Article, with the cursor for the next page
+     */
+    @Operation(summary= "List a page of articles")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public CursorPage<Article> pageArticles(
+            @Parameter(name="cursor", description="id of the last article on the previous page; omit for the first page") @RequestParam(defaultValue = "0") long cursor,
+            @Parameter(name="size") @RequestParam(defaultValue = "20") int size) {
+        Slice<Article> page = articleRepository.findByIdGreaterThanOrderByIdAsc(cursor, keysetPageable(size));
+        return cursorPage(page, Article::getId);
+    }
+
+    /**
+     * Search articles by title and explanation, best matches first
+     * 
+     * @param q the words to search for
+     * @param page the page number, starting at 0 (the next field of the previous page)
+     * @param size the maximum number of articles to return
+     * @return a page of matching Article, with the number of the next page
+     */
+    @Operation(summary= "Search articles by title and explanation")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/search")
+    public CursorPage<Article> searchArticles(
+            @Parameter(name="q", description="words to search for") @RequestParam String q,
+            @Parameter(name="page", description="page number, from the next field of the previous page; omit for the first page") @RequestParam(defaultValue = "0") int page,
+            @Parameter(name="size") @RequestParam(defaultValue = "20") int size) {
+        Slice<Article> results = articleSearchService.search(q, PageRequest.of(Math.max(page, 0), pageSize(size)));
+        String next = results.hasNext() ? String.valueOf(results.getNumber() + 1) : null;
+        return CursorPage.<Article>builder().content(results.getContent()).next(next).build();
+    }
+
+    /**
+     * Stream all articles as newline-delimited JSON, for bulk exports.
+     * Selected when the request has {@code Accept: application/x-ndjson}.
+     * 
+     * @return a streaming response with one Article per line
+     */
+    @Operation(summary= "Stream all articles as newline-delimited JSON")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", produces = NdjsonExportService.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportArticles() {
+        return ndjsonExportService.export(articleRepository::streamAllBy);
+    }
+
+    /**
+     * Get a single article by id.  The response carries the article's version as its ETag,
+     * for use in If-None-Match here and If-Match on PUT.
      * 
      * @param id the id of the article
+     * @param request the request, answered with 304 Not Modified if its If-None-Match matches the article's ETag
      * @return an Article
      */
     @Operation(summary= "Get a single article")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
     public Article getById(
-            @Parameter(name="id") @RequestParam Long id) {
+            @Parameter(name="id") @RequestParam Long id,
+            WebRequest request) {
         Article article = articleRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(Article.class, id));
 
+        if (request.checkNotModified(etag(article), lastModified(article))) {
+            return null;
+        }
         return article;
     }
 
@@ -110,22 +191,31 @@ public class ArticlesController extends ApiController {
     }
 
     /**
-     * Update a single article
+     * Update a single article.  If the request has an If-Match header, the update is only made
+     * if it matches the article's current ETag (i.e. nobody has changed the article since the
+     * client read it); otherwise the response is 412 Precondition Failed.
      * 
      * @param id       id of the article to update
      * @param incoming the new article
+     * @param request  the request, for its If-Match header
      * @return the updated article object
      */
     @Operation(summary= "Update a single article")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
+    @Transactional
     public Article updateArticle(
             @Parameter(name="id") @RequestParam Long id,
-            @RequestBody @Valid Article incoming) {
+            @RequestBody @Valid Article incoming,
+            WebRequest request) {
 
         Article article = articleRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(Article.class, id));
 
+        if (request.checkNotModified(etag(article), lastModified(article))) {
+            return null;
+        }
+
         article.setTitle(incoming.getTitle());
         article.setUrl(incoming.getUrl());
         article.setExplanation(incoming.getExplanation());
@@ -154,4 +244,64 @@ public class ArticlesController extends ApiController {
         articleRepository.delete(article);
         return genericMessage("Article with id %s deleted".formatted(id));
     }
+
+    /**
+     * Create a batch of articles in one transaction
+     * 
+     * @param incoming the articles to create; any ids in the request are ignored
+     * @return the result for each element of the request, with the id of the saved entity
+     */
+    @Operation(summary= "Create a batch of articles")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/batch")
+    @Transactional
+    public List<BatchItemResult> postArticlesBatch(
+            @RequestBody @Valid List<Article> incoming) {
+        incoming.forEach(article -> article.setId(0));
+        return batchCreate(articleRepository, incoming, Article::getId);
+    }
+
+    /**
+     * Update a batch of articles in one transaction
+     * 
+     * @param incoming the new values, each with the id of the entity to update
+     * @return the result for each element of the request; ids that do not exist are reported as not found
+     */
+    @Operation(summary= "Update a batch of articles")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/batch")
+    @Transactional
+    public List<BatchItemResult> updateArticlesBatch(
+            @RequestBody @Valid List<Article> incoming) {
+        return batchUpdate(articleRepository, Article.class, incoming, Article::getId, (article, update) -> {
+            article.setTitle(update.getTitle());
+            article.setUrl(update.getUrl());
+            article.setExplanation(update.getExplanation());
+            article.setEmail(update.getEmail());
+            article.setDateAdded(update.getDateAdded());
+        });
+    }
+
+    /**
+     * Delete a batch of articles in one transaction
+     * 
+     * @param ids the ids of the articles to delete
+     * @return the result for each id; ids that do not exist are reported as not found
+     */
+    @Operation(summary= "Delete a batch of articles")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping("/batch")
+    @Transactional
+    public List<BatchItemResult> deleteArticlesBatch(
+            @RequestBody List<Long> ids) {
+        return batchDelete(articleRepository, Article.class, ids, Article::getId);
+    }
+
+    private static String etag(Article article) {
+        return "\"%d\"".formatted(article.getVersion());
+    }
+
+    private static long lastModified(Article article) {
+        return article.getLastModified() == null ? -1 : article.getLastModified().toEpochMilli();
+    }
 }
@@ -3,7 +3,14 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.entities.HelpRequest;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchItemResult;
+import edu.ucsb.cs156.example.models.CursorPage;
+import edu.ucsb.cs156.example.models.HelpRequestEvent;
+import edu.ucsb.cs156.example.models.QueuePosition;
 import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.services.HelpRequestStreamService;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import edu.ucsb.cs156.example.services.TableVersionService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -13,20 +20,34 @@ import lombok.extern.slf4j.Slf4j;
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
 
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * This is a REST controller for HelpRequests
@@ -38,33 +59,192 @@ import java.time.LocalDateTime;
 @Slf4j
 public class HelpRequestsController extends ApiController {
 
+    /** Position before every request in the open queue, used when no cursor is given. */
+    private static final LocalDateTime QUEUE_START = LocalDateTime.of(1, 1, 1, 0, 0);
+
     @Autowired
     HelpRequestRepository helpRequestRepository;
 
+    @Autowired
+    NdjsonExportService ndjsonExportService;
+
+    @Autowired
+    TableVersionService tableVersionService;
+
+    @Autowired
+    HelpRequestStreamService helpRequestStreamService;
+
+    @Autowired
+    ApplicationEventPublisher applicationEventPublisher;
+
     /**
      * List all Help Requests
      * 
+     * @param request the request, answered with 304 Not Modified if its If-None-Match matches the current ETag
      * @return an iterable of HelpRequest
      */
     @Operation(summary= "List all help requests")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<HelpRequest> allHelpRequests() {
+    public Iterable<HelpRequest> allHelpRequests(WebRequest request) {
+        if (request.checkNotModified(tableVersionService.etag(HelpRequest.class))) {
+            return null;
+        }
         Iterable<HelpRequest> helpRequests = helpRequestRepository.findAll();
         return helpRequests;
     }
 
+    /**
+     * List a page of help requests, ordered by id
+     * 
+     * @param cursor the id of the last help request on the previous page (omit for the first page)
+     * @param size the maximum number of help requests to return
+     * @return a page of HelpRequest, with the cursor for the next page
+     */
+    @Operation(summary= "List a page of help requests")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public CursorPage<HelpRequest> pageHelpRequests(
+            @Parameter(name="cursor", description="id of the last help request on the previous page; omit for the first page") @RequestParam(defaultValue = "0") long cursor,
+            @Parameter(name="size") @RequestParam(defaultValue = "20") int size) {
+        Slice<HelpRequest> page = helpRequestRepository.findByIdGreaterThanOrderByIdAsc(cursor, keysetPageable(size));
+        return cursorPage(page, HelpRequest::getId);
+    }
+
+    /**
+     * List a page of help requests with the given team id, ordered by id
+     * 
+     * @param teamId the team id to filter on
+     * @param cursor the id of the last help request on the previous page (omit for the first page)
+     * @param size the maximum number of help requests to return
+     * @return a page of HelpRequest, with the cursor for the next page
+     */
+    @Operation(summary= "List a page of help requests with the given team id")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/byteam")
+    public CursorPage<HelpRequest> pageHelpRequestsByTeamId(
+            @Parameter(name="teamId", description="team id, e.g. f24-07") @RequestParam String teamId,
+            @Parameter(name="cursor", description="id of the last help request on the previous page; omit for the first page") @RequestParam(defaultValue = "0") long cursor,
+            @Parameter(name="size") @RequestParam(defaultValue = "20") int size) {
+        Slice<HelpRequest> page = helpRequestRepository.findByTeamIdAndIdGreaterThanOrderByIdAsc(teamId, cursor, keysetPageable(size));
+        return cursorPage(page, HelpRequest::getId);
+    }
+
+    /**
+     * List a page of help requests filtered by solved status, ordered by id
+     * 
+     * @param solved the solved status to filter on
+     * @param cursor the id of the last help request on the previous page (omit for the first page)
+     * @param size the maximum number of help requests to return
+     * @return a page of HelpRequest, with the cursor for the next page
+     */
+    @Operation(summary= "List a page of help requests filtered by solved status")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/bysolved")
+    public CursorPage<HelpRequest> pageHelpRequestsBySolved(
+            @Parameter(name="solved", description="true for solved requests, false for open ones") @RequestParam boolean solved,
+            @Parameter(name="cursor", description="id of the last help request on the previous page; omit for the first page") @RequestParam(defaultValue = "0") long cursor,
+            @Parameter(name="size") @RequestParam(defaultValue = "20") int size) {
+        Slice<HelpRequest> page = helpRequestRepository.findBySolvedAndIdGreaterThanOrderByIdAsc(solved, cursor, keysetPageable(size));
+        return cursorPage(page, HelpRequest::getId);
+    }
+
+    /**
+     * List a page of the open (unsolved) help requests, longest waiting first
+     * 
+     * @param teamId the team id to filter on (omit for all teams)
+     * @param cursor the cursor from the previous page (omit for the first page)
+     * @param size the maximum number of help requests to return
+     * @return a page of HelpRequest, with the cursor for the next page
+     */
+    @Operation(summary= "List a page of the open help requests, in order of request time")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/open")
+    public CursorPage<HelpRequest> openHelpRequests(
+            @Parameter(name="teamId", description="team id, e.g. f24-07; omit for all teams") @RequestParam(required = false) String teamId,
+            @Parameter(name="cursor", description="next field of the previous page; omit for the first page") @RequestParam(required = false) String cursor,
+            @Parameter(name="size") @RequestParam(defaultValue = "20") int size) {
+        LocalDateTime requestTime = QUEUE_START;
+        long id = 0;
+        if (cursor != null) {
+            try {
+                int comma = cursor.lastIndexOf(',');
+                requestTime = LocalDateTime.parse(cursor.substring(0, comma));
+                id = Long.parseLong(cursor.substring(comma + 1));
+            } catch (DateTimeParseException | IndexOutOfBoundsException | NumberFormatException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "cursor must be the next field of a previous page");
+            }
+        }
+        Slice<HelpRequest> page = teamId == null
+                ? helpRequestRepository.findOpenAfter(requestTime, id, keysetPageable(size))
+                : helpRequestRepository.findOpenByTeamIdAfter(teamId, requestTime, id, keysetPageable(size));
+        return cursorPage(page, helpRequest -> helpRequest.getRequestTime() + "," + helpRequest.getId());
+    }
+
+    /**
+     * Get the position of a help request in the open queue
+     * 
+     * @param id the id of the help request
+     * @return the position, 1 for the request that has waited longest; null if the request is not open
+     */
+    @Operation(summary= "Get the position of a help request in the open queue")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/open/position")
+    public QueuePosition openQueuePosition(
+            @Parameter(name="id") @RequestParam Long id) {
+        HelpRequest helpRequest = helpRequestRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException(HelpRequest.class, id));
+        Long position = Boolean.FALSE.equals(helpRequest.getSolved()) && helpRequest.getRequestTime() != null
+                ? helpRequestRepository.countOpenAhead(helpRequest.getRequestTime(), id) + 1
+                : null;
+        return QueuePosition.builder().id(id).position(position).build();
+    }
+
+    /**
+     * Stream all help requests as newline-delimited JSON, for bulk exports.
+     * Selected when the request has {@code Accept: application/x-ndjson}.
+     * 
+     * @return a streaming response with one HelpRequest per line
+     */
+    @Operation(summary= "Stream all help requests as newline-delimited JSON")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", produces = NdjsonExportService.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportHelpRequests() {
+        return ndjsonExportService.export(helpRequestRepository::streamAllBy);
+    }
+
+    /**
+     * Stream changes to help requests as server-sent events, for clients that would otherwise poll /all.
+     * Each event is named created, updated, solved or deleted, and carries the help request as JSON.
+     * Browsers' EventSource reconnects automatically with Last-Event-ID, and is sent the events it missed.
+     * 
+     * @param lastEventId the id of the last event received, when reconnecting
+     * @return the event stream
+     */
+    @Operation(summary= "Stream changes to help requests as server-sent events")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamHelpRequests(
+            @Parameter(name="Last-Event-ID", description="id of the last event received; omit for a new stream") @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return helpRequestStreamService.subscribe(lastEventId);
+    }
+
     /**
      * Get a single help request by id
      * 
      * @param id the id of the help request
+     * @param request the request, answered with 304 Not Modified if its If-None-Match matches the current ETag
      * @return a HelpRequest
      */
     @Operation(summary= "Get a single help request")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
     public HelpRequest getById(
-            @Parameter(name="id") @RequestParam Long id) {
+            @Parameter(name="id") @RequestParam Long id,
+            WebRequest request) {
+        if (request.checkNotModified(tableVersionService.etag(HelpRequest.class))) {
+            return null;
+        }
             HelpRequest helpRequest = helpRequestRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(HelpRequest.class, id));
                 
@@ -108,6 +288,7 @@ public class HelpRequestsController extends ApiController {
         helpRequest.setTeamId(teamId);       
 
         HelpRequest savedHelpRequest = helpRequestRepository.save(helpRequest);
+        applicationEventPublisher.publishEvent(new HelpRequestEvent(HelpRequestEvent.CREATED, savedHelpRequest));
 
         return savedHelpRequest;
     }
@@ -127,6 +308,7 @@ public class HelpRequestsController extends ApiController {
                 .orElseThrow(() -> new EntityNotFoundException(HelpRequest.class, id));
 
         helpRequestRepository.delete(helpRequest);
+        applicationEventPublisher.publishEvent(new HelpRequestEvent(HelpRequestEvent.DELETED, helpRequest));
         return genericMessage("HelpRequest with id %s deleted".formatted(id));
     }
 
@@ -146,6 +328,7 @@ public class HelpRequestsController extends ApiController {
 
         HelpRequest helpRequest = helpRequestRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(HelpRequest.class, id));
+        Boolean wasSolved = helpRequest.getSolved();
 
         helpRequest.setRequesterEmail(incoming.getRequesterEmail());
         helpRequest.setExplanation(incoming.getExplanation());
@@ -156,7 +339,69 @@ public class HelpRequestsController extends ApiController {
 
     
         helpRequestRepository.save(helpRequest);
+        applicationEventPublisher.publishEvent(HelpRequestEvent.updated(wasSolved, helpRequest));
 
         return helpRequest;
     }
+
+    /**
+     * Create a batch of help requests in one transaction
+     * 
+     * @param incoming the help requests to create; any ids in the request are ignored
+     * @return the result for each element of the request, with the id of the saved entity
+     */
+    @Operation(summary= "Create a batch of help requests")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/batch")
+    @Transactional
+    public List<BatchItemResult> postHelpRequestsBatch(
+            @RequestBody @Valid List<HelpRequest> incoming) {
+        incoming.forEach(helpRequest -> helpRequest.setId(0));
+        List<BatchItemResult> results = batchCreate(helpRequestRepository, incoming, HelpRequest::getId);
+        incoming.forEach(helpRequest -> applicationEventPublisher.publishEvent(new HelpRequestEvent(HelpRequestEvent.CREATED, helpRequest)));
+        return results;
+    }
+
+    /**
+     * Update a batch of help requests in one transaction
+     * 
+     * @param incoming the new values, each with the id of the entity to update
+     * @return the result for each element of the request; ids that do not exist are reported as not found
+     */
+    @Operation(summary= "Update a batch of help requests")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/batch")
+    @Transactional
+    public List<BatchItemResult> updateHelpRequestsBatch(
+            @RequestBody @Valid List<HelpRequest> incoming) {
+        List<HelpRequestEvent> events = new ArrayList<>();
+        List<BatchItemResult> results = batchUpdate(helpRequestRepository, HelpRequest.class, incoming, HelpRequest::getId, (helpRequest, update) -> {
+            Boolean wasSolved = helpRequest.getSolved();
+            helpRequest.setRequesterEmail(update.getRequesterEmail());
+            helpRequest.setExplanation(update.getExplanation());
+            helpRequest.setSolved(update.getSolved());
+            helpRequest.setTableOrBreakoutRoom(update.getTableOrBreakoutRoom());
+            helpRequest.setRequestTime(update.getRequestTime());
+            helpRequest.setTeamId(update.getTeamId());
+            events.add(HelpRequestEvent.updated(wasSolved, helpRequest));
+        });
+        events.forEach(applicationEventPublisher::publishEvent);
+        return results;
+    }
+
+    /**
+     * Delete a batch of help requests in one transaction
+     * 
+     * @param ids the ids of the help requests to delete
+     * @return the result for each id; ids that do not exist are reported as not found
+     */
+    @Operation(summary= "Delete a batch of help requests")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping("/batch")
+    @Transactional
+    public List<BatchItemResult> deleteHelpRequestsBatch(
+            @RequestBody List<Long> ids) {
+        return batchDelete(helpRequestRepository, HelpRequest.class, ids, HelpRequest::getId, deleted ->
+                deleted.forEach(helpRequest -> applicationEventPublisher.publishEvent(new HelpRequestEvent(HelpRequestEvent.DELETED, helpRequest))));
+    }
 }
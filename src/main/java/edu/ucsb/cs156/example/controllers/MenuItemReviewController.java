@@ -2,9 +2,15 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.Article;
 import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.MenuItemReviewStats;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchItemResult;
+import edu.ucsb.cs156.example.models.CursorPage;
 import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.services.MenuItemReviewStatsService;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import edu.ucsb.cs156.example.services.TableVersionService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -14,8 +20,12 @@ import lombok.extern.slf4j.Slf4j;
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -24,10 +34,15 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * This is a REST controller for MenuItemReview
@@ -42,6 +57,16 @@ public class MenuItemReviewController extends ApiController{
     
     @Autowired
     MenuItemReviewRepository menuItemReviewRepository;
+
+    @Autowired
+    NdjsonExportService ndjsonExportService;
+
+    @Autowired
+    TableVersionService tableVersionService;
+
+    @Autowired
+    MenuItemReviewStatsService menuItemReviewStatsService;
+
     /*
      * List all MenuItemReviews
      * 
@@ -50,22 +75,111 @@ public class MenuItemReviewController extends ApiController{
     @Operation(summary= "List all menu item reviews")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<MenuItemReview> allMenuItemReviews() {
+    public Iterable<MenuItemReview> allMenuItemReviews(WebRequest request) {
+        if (request.checkNotModified(tableVersionService.etag(MenuItemReview.class))) {
+            return null;
+        }
         Iterable<MenuItemReview> reviews = menuItemReviewRepository.findAll();
         return reviews;
     }
 
+    /**
+     * List a page of menu item reviews, ordered by id
+     * 
+     * @param cursor the id of the last review on the previous page (omit for the first page)
+     * @param size the maximum number of menu item reviews to return
+     * @return a page of MenuItemReview, with the cursor for the next page
+     */
+    @Operation(summary= "List a page of menu item reviews")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public CursorPage<MenuItemReview> pageMenuItemReviews(
+            @Parameter(name="cursor", description="id of the last review on the previous page; omit for the first page") @RequestParam(defaultValue = "0") long cursor,
+            @Parameter(name="size") @RequestParam(defaultValue = "20") int size) {
+        Slice<MenuItemReview> page = menuItemReviewRepository.findByIdGreaterThanOrderByIdAsc(cursor, keysetPageable(size));
+        return cursorPage(page, MenuItemReview::getId);
+    }
+
+    /**
+     * List a page of menu item reviews with the given item id, ordered by id
+     * 
+     * @param itemId the item id to filter on
+     * @param cursor the id of the last review on the previous page (omit for the first page)
+     * @param size the maximum number of menu item reviews to return
+     * @return a page of MenuItemReview, with the cursor for the next page
+     */
+    @Operation(summary= "List a page of menu item reviews with the given item id")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/byitem")
+    public CursorPage<MenuItemReview> pageMenuItemReviewsByItemId(
+            @Parameter(name="itemId", description="id of the menu item") @RequestParam long itemId,
+            @Parameter(name="cursor", description="id of the last review on the previous page; omit for the first page") @RequestParam(defaultValue = "0") long cursor,
+            @Parameter(name="size") @RequestParam(defaultValue = "20") int size) {
+        Slice<MenuItemReview> page = menuItemReviewRepository.findByItemIdAndIdGreaterThanOrderByIdAsc(itemId, cursor, keysetPageable(size));
+        return cursorPage(page, MenuItemReview::getId);
+    }
+
+    /**
+     * List a page of menu item reviews with the given reviewer email, ordered by id
+     * 
+     * @param reviewerEmail the reviewer email to filter on
+     * @param cursor the id of the last review on the previous page (omit for the first page)
+     * @param size the maximum number of menu item reviews to return
+     * @return a page of MenuItemReview, with the cursor for the next page
+     */
+    @Operation(summary= "List a page of menu item reviews with the given reviewer email")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/byreviewer")
+    public CursorPage<MenuItemReview> pageMenuItemReviewsByReviewerEmail(
+            @Parameter(name="reviewerEmail", description="email of the reviewer") @RequestParam String reviewerEmail,
+            @Parameter(name="cursor", description="id of the last review on the previous page; omit for the first page") @RequestParam(defaultValue = "0") long cursor,
+            @Parameter(name="size") @RequestParam(defaultValue = "20") int size) {
+        Slice<MenuItemReview> page = menuItemReviewRepository.findByReviewerEmailAndIdGreaterThanOrderByIdAsc(reviewerEmail, cursor, keysetPageable(size));
+        return cursorPage(page, MenuItemReview::getId);
+    }
+
+    /**
+     * Stream all menu item reviews as newline-delimited JSON, for bulk exports.
+     * Selected when the request has {@code Accept: application/x-ndjson}.
+     * 
+     * @return a streaming response with one MenuItemReview per line
+     */
+    @Operation(summary= "Stream all menu item reviews as newline-delimited JSON")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", produces = NdjsonExportService.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportMenuItemReviews() {
+        return ndjsonExportService.export(menuItemReviewRepository::streamAllBy);
+    }
+
+    /**
+     * Rating stats (count, sum, mean and 1-5 star histogram) for every reviewed menu item.
+     * Read from the MenuItemReviewStats aggregate, so the cost is proportional to the number of items, not reviews.
+     * 
+     * @return an iterable of MenuItemReviewStats, in itemId order
+     */
+    @Operation(summary= "Rating stats for every reviewed menu item")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/stats")
+    public Iterable<MenuItemReviewStats> menuItemReviewStats() {
+        return menuItemReviewStatsService.allStats();
+    }
+
     /**
      * Get a single article by id
      * 
      * @param id the id of the review
+     * @param request the request, answered with 304 Not Modified if its If-None-Match matches the current ETag
      * @return an MenuItemReview
      */
     @Operation(summary= "Get a single review")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
     public MenuItemReview getById(
-            @Parameter(name="id") @RequestParam Long id) {
+            @Parameter(name="id") @RequestParam Long id,
+            WebRequest request) {
+        if (request.checkNotModified(tableVersionService.etag(MenuItemReview.class))) {
+            return null;
+        }
         MenuItemReview menuItemReview = menuItemReviewRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, id));
 
@@ -86,6 +200,7 @@ public class MenuItemReviewController extends ApiController{
     @Operation(summary= "Create a new review")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/post")
+    @Transactional
     public MenuItemReview postMenuItemReview(
             @Parameter(name="itemId") @RequestParam long itemId,
             @Parameter(name="reviewerEmail") @RequestParam String reviewerEmail,
@@ -98,6 +213,7 @@ public class MenuItemReviewController extends ApiController{
         // See: https://www.baeldung.com/spring-date-parameters
 
         log.info("dateReviewed={}", dateReviewed);
+        checkStars(stars);
 
         MenuItemReview menuItemReview = new MenuItemReview();
         menuItemReview.setItemId(itemId);
@@ -108,6 +224,7 @@ public class MenuItemReviewController extends ApiController{
 
 
         MenuItemReview savedMenuItemReview = menuItemReviewRepository.save(menuItemReview);
+        menuItemReviewStatsService.reviewAdded(savedMenuItemReview);
 
         return savedMenuItemReview;
     }
@@ -121,12 +238,16 @@ public class MenuItemReviewController extends ApiController{
     @Operation(summary= "Update a single review")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
+    @Transactional
     public MenuItemReview updateMenuItemReview(
             @Parameter(name="id") @RequestParam Long id,
             @RequestBody @Valid MenuItemReview incoming) {
+        checkStars(incoming.getStars());
 
         MenuItemReview menuItemReview = menuItemReviewRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, id));
+        long oldItemId = menuItemReview.getItemId();
+        int oldStars = menuItemReview.getStars();
 
         menuItemReview.setItemId(incoming.getItemId());
         menuItemReview.setReviewerEmail(incoming.getReviewerEmail());
@@ -135,6 +256,7 @@ public class MenuItemReviewController extends ApiController{
         menuItemReview.setComments(incoming.getComments());
 
         menuItemReviewRepository.save(menuItemReview);
+        menuItemReviewStatsService.reviewChanged(oldItemId, oldStars, menuItemReview);
 
         return menuItemReview;
     }
@@ -148,12 +270,86 @@ public class MenuItemReviewController extends ApiController{
     @Operation(summary= "Delete a review")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
+    @Transactional
     public Object deleteMenuItemReview(
             @Parameter(name="id") @RequestParam Long id) {
         MenuItemReview menuItemReview = menuItemReviewRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, id));
 
         menuItemReviewRepository.delete(menuItemReview);
+        menuItemReviewStatsService.reviewRemoved(menuItemReview);
         return genericMessage("MenuItemReview with id %s deleted".formatted(id));
     }
+
+    /**
+     * Create a batch of reviews in one transaction
+     * 
+     * @param incoming the reviews to create; any ids in the request are ignored
+     * @return the result for each element of the request, with the id of the saved entity
+     */
+    @Operation(summary= "Create a batch of reviews")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/batch")
+    @Transactional
+    public List<BatchItemResult> postMenuItemReviewsBatch(
+            @RequestBody @Valid List<MenuItemReview> incoming) {
+        incoming.forEach(menuItemReview -> checkStars(menuItemReview.getStars()));
+        incoming.forEach(menuItemReview -> menuItemReview.setId(0));
+        List<BatchItemResult> results = batchCreate(menuItemReviewRepository, incoming, MenuItemReview::getId);
+        menuItemReviewStatsService.reviewsAdded(incoming);
+        return results;
+    }
+
+    /**
+     * Update a batch of reviews in one transaction
+     * 
+     * @param incoming the new values, each with the id of the entity to update
+     * @return the result for each element of the request; ids that do not exist are reported as not found
+     */
+    @Operation(summary= "Update a batch of reviews")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/batch")
+    @Transactional
+    public List<BatchItemResult> updateMenuItemReviewsBatch(
+            @RequestBody @Valid List<MenuItemReview> incoming) {
+        incoming.forEach(menuItemReview -> checkStars(menuItemReview.getStars()));
+        List<MenuItemReview> before = new ArrayList<>();
+        List<MenuItemReview> after = new ArrayList<>();
+        List<BatchItemResult> results = batchUpdate(menuItemReviewRepository, MenuItemReview.class, incoming, MenuItemReview::getId, (menuItemReview, update) -> {
+            if (menuItemReview.getItemId() != update.getItemId() || menuItemReview.getStars() != update.getStars()) {
+                before.add(MenuItemReview.builder().itemId(menuItemReview.getItemId()).stars(menuItemReview.getStars()).build());
+                after.add(menuItemReview);
+            }
+            menuItemReview.setItemId(update.getItemId());
+            menuItemReview.setReviewerEmail(update.getReviewerEmail());
+            menuItemReview.setDateReviewed(update.getDateReviewed());
+            menuItemReview.setStars(update.getStars());
+            menuItemReview.setComments(update.getComments());
+        });
+        menuItemReviewStatsService.reviewsRemoved(before);
+        menuItemReviewStatsService.reviewsAdded(after);
+        return results;
+    }
+
+    /**
+     * Delete a batch of reviews in one transaction
+     * 
+     * @param ids the ids of the reviews to delete
+     * @return the result for each id; ids that do not exist are reported as not found
+     */
+    @Operation(summary= "Delete a batch of reviews")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping("/batch")
+    @Transactional
+    public List<BatchItemResult> deleteMenuItemReviewsBatch(
+            @RequestBody List<Long> ids) {
+        return batchDelete(menuItemReviewRepository, MenuItemReview.class, ids, MenuItemReview::getId, menuItemReviewStatsService::reviewsRemoved);
+    }
+
+    private static void checkStars(int stars) {
+        if (!MenuItemReviewStatsService.isValidStars(stars)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "stars must be between %d and %d".formatted(
+                    MenuItemReviewStatsService.MIN_STARS, MenuItemReviewStatsService.MAX_STARS));
+        }
+    }
 }
@@ -2,7 +2,11 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.RecommendationRequest;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchItemResult;
+import edu.ucsb.cs156.example.models.CursorPage;
 import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import edu.ucsb.cs156.example.services.TableVersionService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -12,8 +16,11 @@ import lombok.extern.slf4j.Slf4j;
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.ResponseEntity;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -22,10 +29,13 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Tag(name = "RecommendationRequest")
 @RequestMapping("/api/recommendationrequest")
@@ -35,19 +45,97 @@ public class RecommendationRequestController extends ApiController {
     @Autowired
     RecommendationRequestRepository recommendationRequestRepository;
 
+    @Autowired
+    NdjsonExportService ndjsonExportService;
+
+    @Autowired
+    TableVersionService tableVersionService;
+
     /**
      * List all recommendation requests
      * 
+     * @param request the request, answered with 304 Not Modified if its If-None-Match matches the current ETag
      * @return an iterable of RecommendationRequest
      */
     @Operation(summary= "List all recommendation requests")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<RecommendationRequest> allRecommendationRequests() {
+    public Iterable<RecommendationRequest> allRecommendationRequests(WebRequest request) {
+        if (request.checkNotModified(tableVersionService.etag(RecommendationRequest.class))) {
+            return null;
+        }
         Iterable<RecommendationRequest> requests = recommendationRequestRepository.findAll();
         return requests;
     }
 
+    /**
+     * List a page of recommendation requests, ordered by id
+     * 
+     * @param cursor the id of the last request on the previous page (omit for the first page)
+     * @param size the maximum number of recommendation requests to return
+     * @return a page of RecommendationRequest, with the cursor for the next page
+     */
+    @Operation(summary= "List a page of recommendation requests")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public CursorPage<RecommendationRequest> pageRecommendationRequests(
+            @Parameter(name="cursor", description="id of the last request on the previous page; omit for the first page") @RequestParam(defaultValue = "0") long cursor,
+            @Parameter(name="size") @RequestParam(defaultValue = "20") int size) {
+        Slice<RecommendationRequest> page = recommendationRequestRepository.findByIdGreaterThanOrderByIdAsc(cursor, keysetPageable(size));
+        return cursorPage(page, RecommendationRequest::getId);
+    }
+
+    /**
+     * List a page of recommendation requests with the given professor email, ordered by id
+     * 
+     * @param professorEmail the professor email to filter on
+     * @param cursor the id of the last request on the previous page (omit for the first page)
+     * @param size the maximum number of recommendation requests to return
+     * @return a page of RecommendationRequest, with the cursor for the next page
+     */
+    @Operation(summary= "List a page of recommendation requests with the given professor email")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/byprofessor")
+    public CursorPage<RecommendationRequest> pageRecommendationRequestsByProfessorEmail(
+            @Parameter(name="professorEmail", description="email of the professor") @RequestParam String professorEmail,
+            @Parameter(name="cursor", description="id of the last request on the previous page; omit for the first page") @RequestParam(defaultValue = "0") long cursor,
+            @Parameter(name="size") @RequestParam(defaultValue = "20") int size) {
+        Slice<RecommendationRequest> page = recommendationRequestRepository.findByProfessorEmailAndIdGreaterThanOrderByIdAsc(professorEmail, cursor, keysetPageable(size));
+        return cursorPage(page, RecommendationRequest::getId);
+    }
+
+    /**
+     * List a page of recommendation requests filtered by done status, ordered by id
+     * 
+     * @param done the done status to filter on
+     * @param cursor the id of the last request on the previous page (omit for the first page)
+     * @param size the maximum number of recommendation requests to return
+     * @return a page of RecommendationRequest, with the cursor for the next page
+     */
+    @Operation(summary= "List a page of recommendation requests filtered by done status")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/bydone")
+    public CursorPage<RecommendationRequest> pageRecommendationRequestsByDone(
+            @Parameter(name="done", description="true for completed requests, false for pending ones") @RequestParam boolean done,
+            @Parameter(name="cursor", description="id of the last request on the previous page; omit for the first page") @RequestParam(defaultValue = "0") long cursor,
+            @Parameter(name="size") @RequestParam(defaultValue = "20") int size) {
+        Slice<RecommendationRequest> page = recommendationRequestRepository.findByDoneAndIdGreaterThanOrderByIdAsc(done, cursor, keysetPageable(size));
+        return cursorPage(page, RecommendationRequest::getId);
+    }
+
+    /**
+     * Stream all recommendation requests as newline-delimited JSON, for bulk exports.
+     * Selected when the request has {@code Accept: application/x-ndjson}.
+     * 
+     * @return a streaming response with one RecommendationRequest per line
+     */
+    @Operation(summary= "Stream all recommendation requests as newline-delimited JSON")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", produces = NdjsonExportService.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportRecommendationRequests() {
+        return ndjsonExportService.export(recommendationRequestRepository::streamAllBy);
+    }
+
     /**
      * Create a new request
      * 
@@ -94,13 +182,18 @@ public class RecommendationRequestController extends ApiController {
      * Get a single request by id
      * 
      * @param id the id of the request
+     * @param request the request, answered with 304 Not Modified if its If-None-Match matches the current ETag
      * @return a RecommendationRequest
      */
     @Operation(summary= "Get a single request")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
     public RecommendationRequest getById(
-            @Parameter(name="id") @RequestParam Long id) {
+            @Parameter(name="id") @RequestParam Long id,
+            WebRequest request) {
+        if (request.checkNotModified(tableVersionService.etag(RecommendationRequest.class))) {
+            return null;
+        }
         RecommendationRequest recommendationRequest = recommendationRequestRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(RecommendationRequest.class, id));
 
@@ -153,4 +246,57 @@ public class RecommendationRequestController extends ApiController {
 
         return recommendationRequest;
     }
-}
\ No newline at end of file
+
+    /**
+     * Create a batch of requests in one transaction
+     * 
+     * @param incoming the requests to create; any ids in the request are ignored
+     * @return the result for each element of the request, with the id of the saved entity
+     */
+    @Operation(summary= "Create a batch of requests")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/batch")
+    @Transactional
+    public List<BatchItemResult> postRecommendationRequestsBatch(
+            @RequestBody @Valid List<RecommendationRequest> incoming) {
+        incoming.forEach(recommendationRequest -> recommendationRequest.setId(0));
+        return batchCreate(recommendationRequestRepository, incoming, RecommendationRequest::getId);
+    }
+
+    /**
+     * Update a batch of requests in one transaction
+     * 
+     * @param incoming the new values, each with the id of the entity to update
+     * @return the result for each element of the request; ids that do not exist are reported as not found
+     */
+    @Operation(summary= "Update a batch of requests")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/batch")
+    @Transactional
+    public List<BatchItemResult> updateRecommendationRequestsBatch(
+            @RequestBody @Valid List<RecommendationRequest> incoming) {
+        return batchUpdate(recommendationRequestRepository, RecommendationRequest.class, incoming, RecommendationRequest::getId, (recommendationRequest, update) -> {
+            recommendationRequest.setRequesterEmail(update.getRequesterEmail());
+            recommendationRequest.setProfessorEmail(update.getProfessorEmail());
+            recommendationRequest.setExplanation(update.getExplanation());
+            recommendationRequest.setDateRequested(update.getDateRequested());
+            recommendationRequest.setDateNeeded(update.getDateNeeded());
+            recommendationRequest.setDone(update.getDone());
+        });
+    }
+
+    /**
+     * Delete a batch of requests in one transaction
+     * 
+     * @param ids the ids of the requests to delete
+     * @return the result for each id; ids that do not exist are reported as not found
+     */
+    @Operation(summary= "Delete a batch of requests")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping("/batch")
+    @Transactional
+    public List<BatchItemResult> deleteRecommendationRequestsBatch(
+            @RequestBody List<Long> ids) {
+        return batchDelete(recommendationRequestRepository, RecommendationRequest.class, ids, RecommendationRequest::getId);
+    }
+}
@@ -2,14 +2,21 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.Restaurant;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchItemResult;
+import edu.ucsb.cs156.example.models.CursorPage;
 import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import edu.ucsb.cs156.example.services.TableVersionService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -18,9 +25,13 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
 
+import java.util.List;
+
 /**
  * This is a REST controller for Restaurants
  */
@@ -33,28 +44,73 @@ public class RestaurantsController extends ApiController {
     @Autowired
     RestaurantRepository restaurantRepository;
 
+    @Autowired
+    NdjsonExportService ndjsonExportService;
+
+    @Autowired
+    TableVersionService tableVersionService;
+
     /**
      * This method returns a list of all restaurants.
+     * @param request the request, answered with 304 Not Modified if its If-None-Match matches the current ETag
      * @return a list of all restaurants
      */
     @Operation(summary = "List all restaurants")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<Restaurant> allRestaurants() {
+    public Iterable<Restaurant> allRestaurants(WebRequest request) {
+        if (request.checkNotModified(tableVersionService.etag(Restaurant.class))) {
+            return null;
+        }
         Iterable<Restaurant> restaurants = restaurantRepository.findAll();
         return restaurants;
     }
 
+    /**
+     * List a page of restaurants, ordered by id
+     * 
+     * @param cursor the id of the last restaurant on the previous page (omit for the first page)
+     * @param size the maximum number of restaurants to return
+     * @return a page of Restaurant, with the cursor for the next page
+     */
+    @Operation(summary = "List a page of restaurants")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public CursorPage<Restaurant> pageRestaurants(
+            @Parameter(name = "cursor", description = "id of the last restaurant on the previous page; omit for the first page") @RequestParam(defaultValue = "0") long cursor,
+            @Parameter(name = "size") @RequestParam(defaultValue = "20") int size) {
+        Slice<Restaurant> page = restaurantRepository.findByIdGreaterThanOrderByIdAsc(cursor, keysetPageable(size));
+        return cursorPage(page, Restaurant::getId);
+    }
+
+    /**
+     * Stream all restaurants as newline-delimited JSON, for bulk exports.
+     * Selected when the request has {@code Accept: application/x-ndjson}.
+     * 
+     * @return a streaming response with one Restaurant per line
+     */
+    @Operation(summary = "Stream all restaurants as newline-delimited JSON")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", produces = NdjsonExportService.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportRestaurants() {
+        return ndjsonExportService.export(restaurantRepository::streamAllBy);
+    }
+
     /**
      * This method returns a single restaurant.
      * @param id id of the restaurant to get
+     * @param request the request, answered with 304 Not Modified if its If-None-Match matches the current ETag
      * @return a single restaurant
      */
     @Operation(summary = "Get a single restaurant")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
     public Restaurant getById(
-            @Parameter(name = "id") @RequestParam Long id) {
+            @Parameter(name = "id") @RequestParam Long id,
+            WebRequest request) {
+        if (request.checkNotModified(tableVersionService.etag(Restaurant.class))) {
+            return null;
+        }
         Restaurant restaurant = restaurantRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(Restaurant.class, id));
 
@@ -122,4 +178,53 @@ public class RestaurantsController extends ApiController {
 
         return restaurant;
     }
-}
\ No newline at end of file
+
+    /**
+     * Create a batch of restaurants in one transaction
+     * 
+     * @param incoming the restaurants to create; any ids in the request are ignored
+     * @return the result for each element of the request, with the id of the saved entity
+     */
+    @Operation(summary= "Create a batch of restaurants")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/batch")
+    @Transactional
+    public List<BatchItemResult> postRestaurantsBatch(
+            @RequestBody @Valid List<Restaurant> incoming) {
+        incoming.forEach(restaurant -> restaurant.setId(0));
+        return batchCreate(restaurantRepository, incoming, Restaurant::getId);
+    }
+
+    /**
+     * Update a batch of restaurants in one transaction
+     * 
+     * @param incoming the new values, each with the id of the entity to update
+     * @return the result for each element of the request; ids that do not exist are reported as not found
+     */
+    @Operation(summary= "Update a batch of restaurants")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/batch")
+    @Transactional
+    public List<BatchItemResult> updateRestaurantsBatch(
+            @RequestBody @Valid List<Restaurant> incoming) {
+        return batchUpdate(restaurantRepository, Restaurant.class, incoming, Restaurant::getId, (restaurant, update) -> {
+            restaurant.setName(update.getName());
+            restaurant.setDescription(update.getDescription());
+        });
+    }
+
+    /**
+     * Delete a batch of restaurants in one transaction
+     * 
+     * @param ids the ids of the restaurants to delete
+     * @return the result for each id; ids that do not exist are reported as not found
+     */
+    @Operation(summary= "Delete a batch of restaurants")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping("/batch")
+    @Transactional
+    public List<BatchItemResult> deleteRestaurantsBatch(
+            @RequestBody List<Long> ids) {
+        return batchDelete(restaurantRepository, Restaurant.class, ids, Restaurant::getId);
+    }
+}
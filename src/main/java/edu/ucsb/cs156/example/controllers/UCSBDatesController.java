@@ -2,7 +2,11 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchItemResult;
+import edu.ucsb.cs156.example.models.CursorPage;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import edu.ucsb.cs156.example.services.TableVersionService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -12,20 +16,30 @@ import lombok.extern.slf4j.Slf4j;
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.regex.Pattern;
 
 /**
  * This is a REST controller for UCSBDates
@@ -37,33 +51,127 @@ import java.time.LocalDateTime;
 @Slf4j
 public class UCSBDatesController extends ApiController {
 
+    private static final Pattern QUARTER = Pattern.compile("\\d{4}[1-4]");
+
     @Autowired
     UCSBDateRepository ucsbDateRepository;
 
+    @Autowired
+    NdjsonExportService ndjsonExportService;
+
+    @Autowired
+    TableVersionService tableVersionService;
+
     /**
      * List all UCSB dates
      * 
+     * @param request the request, answered with 304 Not Modified if its If-None-Match matches the current ETag
      * @return an iterable of UCSBDate
      */
     @Operation(summary= "List all ucsb dates")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<UCSBDate> allUCSBDates() {
+    public Iterable<UCSBDate> allUCSBDates(WebRequest request) {
+        if (request.checkNotModified(tableVersionService.etag(UCSBDate.class))) {
+            return null;
+        }
         Iterable<UCSBDate> dates = ucsbDateRepository.findAll();
         return dates;
     }
 
+    /**
+     * List the dates of one quarter, for the calendar.  Results are cached per quarter
+     * (see UCSBDateRepository.findByQuarterYYYYQOrderByLocalDateTimeAscIdAsc).
+     * 
+     * @param yyyyq the quarter in the format YYYYQ
+     * @param request the request, answered with 304 Not Modified if its If-None-Match matches the current ETag
+     * @return the dates of the quarter, in date order
+     */
+    @Operation(summary= "List the dates of a quarter")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/quarter/{yyyyq}")
+    public List<UCSBDate> quarterUCSBDates(
+            @Parameter(name="yyyyq", description="quarter in the format YYYYQ (e.g. 20244 for Fall 2024)") @PathVariable String yyyyq,
+            WebRequest request) {
+        if (!QUARTER.matcher(yyyyq).matches()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "yyyyq must be a quarter in the format YYYYQ");
+        }
+        if (request.checkNotModified(tableVersionService.etag(UCSBDate.class))) {
+            return null;
+        }
+        return ucsbDateRepository.findByQuarterYYYYQOrderByLocalDateTimeAscIdAsc(yyyyq);
+    }
+
+    /**
+     * List the dates between two date-times, inclusive, for calendar views that span quarters.
+     * 
+     * @param from the earliest date to return
+     * @param to the latest date to return
+     * @param request the request, answered with 304 Not Modified if its If-None-Match matches the current ETag
+     * @return the dates in the range, in date order
+     */
+    @Operation(summary= "List the dates in a range")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/range")
+    public List<UCSBDate> rangeUCSBDates(
+            @Parameter(name="from", description="earliest date (in iso format, e.g. YYYY-mm-ddTHH:MM:SS)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(name="to", description="latest date (in iso format, e.g. YYYY-mm-ddTHH:MM:SS)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            WebRequest request) {
+        if (from.isAfter(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from must not be after to");
+        }
+        if (request.checkNotModified(tableVersionService.etag(UCSBDate.class))) {
+            return null;
+        }
+        return ucsbDateRepository.findByLocalDateTimeBetweenOrderByLocalDateTimeAscIdAsc(from, to);
+    }
+
+    /**
+     * List a page of ucsb dates, ordered by id
+     * 
+     * @param cursor the id of the last date on the previous page (omit for the first page)
+     * @param size the maximum number of ucsb dates to return
+     * @return a page of UCSBDate, with the cursor for the next page
+     */
+    @Operation(summary= "List a page of ucsb dates")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public CursorPage<UCSBDate> pageUCSBDates(
+            @Parameter(name="cursor", description="id of the last date on the previous page; omit for the first page") @RequestParam(defaultValue = "0") long cursor,
+            @Parameter(name="size") @RequestParam(defaultValue = "20") int size) {
+        Slice<UCSBDate> page = ucsbDateRepository.findByIdGreaterThanOrderByIdAsc(cursor, keysetPageable(size));
+        return cursorPage(page, UCSBDate::getId);
+    }
+
+    /**
+     * Stream all ucsb dates as newline-delimited JSON, for bulk exports.
+     * Selected when the request has {@code Accept: application/x-ndjson}.
+     * 
+     * @return a streaming response with one UCSBDate per line
+     */
+    @Operation(summary= "Stream all ucsb dates as newline-delimited JSON")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", produces = NdjsonExportService.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportUCSBDates() {
+        return ndjsonExportService.export(ucsbDateRepository::streamAllBy);
+    }
+
     /**
      * Get a single date by id
      * 
      * @param id the id of the date
+     * @param request the request, answered with 304 Not Modified if its If-None-Match matches the current ETag
      * @return a UCSBDate
      */
     @Operation(summary= "Get a single date")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
     public UCSBDate getById(
-            @Parameter(name="id") @RequestParam Long id) {
+            @Parameter(name="id") @RequestParam Long id,
+            WebRequest request) {
+        if (request.checkNotModified(tableVersionService.etag(UCSBDate.class))) {
+            return null;
+        }
         UCSBDate ucsbDate = ucsbDateRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
 
@@ -145,4 +253,54 @@ public class UCSBDatesController extends ApiController {
 
         return ucsbDate;
     }
+
+    /**
+     * Create a batch of dates in one transaction
+     * 
+     * @param incoming the dates to create; any ids in the request are ignored
+     * @return the result for each element of the request, with the id of the saved entity
+     */
+    @Operation(summary= "Create a batch of dates")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/batch")
+    @Transactional
+    public List<BatchItemResult> postUCSBDatesBatch(
+            @RequestBody @Valid List<UCSBDate> incoming) {
+        incoming.forEach(ucsbDate -> ucsbDate.setId(0));
+        return batchCreate(ucsbDateRepository, incoming, UCSBDate::getId);
+    }
+
+    /**
+     * Update a batch of dates in one transaction
+     * 
+     * @param incoming the new values, each with the id of the entity to update
+     * @return the result for each element of the request; ids that do not exist are reported as not found
+     */
+    @Operation(summary= "Update a batch of dates")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/batch")
+    @Transactional
+    public List<BatchItemResult> updateUCSBDatesBatch(
+            @RequestBody @Valid List<UCSBDate> incoming) {
+        return batchUpdate(ucsbDateRepository, UCSBDate.class, incoming, UCSBDate::getId, (ucsbDate, update) -> {
+            ucsbDate.setQuarterYYYYQ(update.getQuarterYYYYQ());
+            ucsbDate.setName(update.getName());
+            ucsbDate.setLocalDateTime(update.getLocalDateTime());
+        });
+    }
+
+    /**
+     * Delete a batch of dates in one transaction
+     * 
+     * @param ids the ids of the dates to delete
+     * @return the result for each id; ids that do not exist are reported as not found
+     */
+    @Operation(summary= "Delete a batch of dates")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping("/batch")
+    @Transactional
+    public List<BatchItemResult> deleteUCSBDatesBatch(
+            @RequestBody List<Long> ids) {
+        return batchDelete(ucsbDateRepository, UCSBDate.class, ids, UCSBDate::getId);
+    }
 }
@@ -2,7 +2,13 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchItemResult;
+import edu.ucsb.cs156.example.models.CursorPage;
+import edu.ucsb.cs156.example.models.NearbyCommons;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.services.DiningCommonsLocationService;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import edu.ucsb.cs156.example.services.TableVersionService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -10,7 +16,11 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -19,9 +29,14 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
 
+import java.util.List;
+
 /**
  * This is a REST controller for UCSBDiningCommons
  */
@@ -35,28 +50,97 @@ public class UCSBDiningCommonsController extends ApiController {
     @Autowired
     UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
 
+    @Autowired
+    NdjsonExportService ndjsonExportService;
+
+    @Autowired
+    TableVersionService tableVersionService;
+
+    @Autowired
+    DiningCommonsLocationService diningCommonsLocationService;
+
     /**
      * THis method returns a list of all ucsbdiningcommons.
+     * @param request the request, answered with 304 Not Modified if its If-None-Match matches the current ETag
      * @return a list of all ucsbdiningcommons
      */
     @Operation(summary= "List all ucsb dining commons")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<UCSBDiningCommons> allCommonss() {
+    public Iterable<UCSBDiningCommons> allCommonss(WebRequest request) {
+        if (request.checkNotModified(tableVersionService.etag(UCSBDiningCommons.class))) {
+            return null;
+        }
         Iterable<UCSBDiningCommons> commons = ucsbDiningCommonsRepository.findAll();
         return commons;
     }
 
+    /**
+     * List a page of ucsb dining commons, ordered by code
+     * 
+     * @param cursor the code of the last commons on the previous page (omit for the first page)
+     * @param size the maximum number of ucsb dining commons to return
+     * @return a page of UCSBDiningCommons, with the cursor for the next page
+     */
+    @Operation(summary= "List a page of ucsb dining commons")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public CursorPage<UCSBDiningCommons> pageUCSBDiningCommons(
+            @Parameter(name="cursor", description="code of the last commons on the previous page; omit for the first page") @RequestParam(defaultValue = "") String cursor,
+            @Parameter(name="size") @RequestParam(defaultValue = "20") int size) {
+        Slice<UCSBDiningCommons> page = ucsbDiningCommonsRepository.findByCodeGreaterThanOrderByCodeAsc(cursor, keysetPageable(size));
+        return cursorPage(page, UCSBDiningCommons::getCode);
+    }
+
+    /**
+     * This method returns the commons nearest to a location, with their great-circle distances.
+     * Commons without a latitude and longitude are left out.
+     * @param lat latitude of the location, in degrees
+     * @param lon longitude of the location, in degrees
+     * @param limit the maximum number of commons to return
+     * @return the nearest commons, nearest first
+     */
+    @Operation(summary= "List the commons nearest to a location")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/nearby")
+    public List<NearbyCommons> nearbyCommons(
+            @Parameter(name="lat", description="latitude in degrees, -90 to 90") @RequestParam double lat,
+            @Parameter(name="lon", description="longitude in degrees, -180 to 180") @RequestParam double lon,
+            @Parameter(name="limit") @RequestParam(defaultValue = "5") int limit) {
+        if (!(Math.abs(lat) <= 90 && Math.abs(lon) <= 180)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "lat must be in [-90, 90] and lon in [-180, 180]");
+        }
+        return diningCommonsLocationService.nearby(lat, lon, pageSize(limit));
+    }
+
+    /**
+     * Stream all ucsb dining commons as newline-delimited JSON, for bulk exports.
+     * Selected when the request has {@code Accept: application/x-ndjson}.
+     * 
+     * @return a streaming response with one UCSBDiningCommons per line
+     */
+    @Operation(summary= "Stream all ucsb dining commons as newline-delimited JSON")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", produces = NdjsonExportService.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportCommons() {
+        return ndjsonExportService.export(ucsbDiningCommonsRepository::streamAllBy);
+    }
+
     /**
      * This method returns a single diningcommons.
      * @param code code of the diningcommons
+     * @param request the request, answered with 304 Not Modified if its If-None-Match matches the current ETag
      * @return a single diningcommons
      */
     @Operation(summary= "Get a single commons")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
     public UCSBDiningCommons getById(
-            @Parameter(name="code") @RequestParam String code) {
+            @Parameter(name="code") @RequestParam String code,
+            WebRequest request) {
+        if (request.checkNotModified(tableVersionService.etag(UCSBDiningCommons.class))) {
+            return null;
+        }
         UCSBDiningCommons commons = ucsbDiningCommonsRepository.findById(code)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
 
@@ -110,6 +194,7 @@ public class UCSBDiningCommonsController extends ApiController {
     @Operation(summary= "Delete a UCSBDiningCommons")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
+    @Transactional
     public Object deleteCommons(
             @Parameter(name="code") @RequestParam String code) {
         UCSBDiningCommons commons = ucsbDiningCommonsRepository.findById(code)
@@ -128,6 +213,7 @@ public class UCSBDiningCommonsController extends ApiController {
     @Operation(summary= "Update a single commons")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
+    @Transactional
     public UCSBDiningCommons updateCommons(
             @Parameter(name="code") @RequestParam String code,
             @RequestBody @Valid UCSBDiningCommons incoming) {
@@ -147,4 +233,56 @@ public class UCSBDiningCommonsController extends ApiController {
 
         return commons;
     }
+
+    /**
+     * Create a batch of commons in one transaction
+     * 
+     * @param incoming the commons to create
+     * @return the result for each element of the request, with the id of the saved entity; codes that already exist are reported as conflicts
+     */
+    @Operation(summary= "Create a batch of commons")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/batch")
+    @Transactional
+    public List<BatchItemResult> postCommonsBatch(
+            @RequestBody @Valid List<UCSBDiningCommons> incoming) {
+        return batchCreateWithAssignedIds(ucsbDiningCommonsRepository, UCSBDiningCommons.class, incoming, UCSBDiningCommons::getCode);
+    }
+
+    /**
+     * Update a batch of commons in one transaction
+     * 
+     * @param incoming the new values, each with the code of the entity to update
+     * @return the result for each element of the request; codes that do not exist are reported as not found
+     */
+    @Operation(summary= "Update a batch of commons")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/batch")
+    @Transactional
+    public List<BatchItemResult> updateCommonsBatch(
+            @RequestBody @Valid List<UCSBDiningCommons> incoming) {
+        return batchUpdate(ucsbDiningCommonsRepository, UCSBDiningCommons.class, incoming, UCSBDiningCommons::getCode, (commons, update) -> {
+            commons.setName(update.getName());
+            commons.setHasSackMeal(update.getHasSackMeal());
+            commons.setHasTakeOutMeal(update.getHasTakeOutMeal());
+            commons.setHasDiningCam(update.getHasDiningCam());
+            commons.setLatitude(update.getLatitude());
+            commons.setLongitude(update.getLongitude());
+        });
+    }
+
+    /**
+     * Delete a batch of commons in one transaction
+     * 
+     * @param codes the codes of the commons to delete
+     * @return the result for each code; codes that do not exist are reported as not found
+     */
+    @Operation(summary= "Delete a batch of commons")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping("/batch")
+    @Transactional
+    public List<BatchItemResult> deleteCommonsBatch(
+            @RequestBody List<String> codes) {
+        return batchDelete(ucsbDiningCommonsRepository, UCSBDiningCommons.class, codes, UCSBDiningCommons::getCode);
+    }
 }
@@ -3,7 +3,13 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchItemResult;
+import edu.ucsb.cs156.example.models.CsvImportResult;
+import edu.ucsb.cs156.example.models.CursorPage;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.services.CsvImportService;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import edu.ucsb.cs156.example.services.TableVersionService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -13,8 +19,12 @@ import lombok.extern.slf4j.Slf4j;
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -23,9 +33,15 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * This is a REST controller for UCSBDiningCommonsMenuItem
@@ -40,30 +56,97 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
     @Autowired
     UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
 
+    @Autowired
+    NdjsonExportService ndjsonExportService;
+
+    @Autowired
+    TableVersionService tableVersionService;
+
+    @Autowired
+    CsvImportService csvImportService;
+
     /**
      * List all UCSBDiningCommonsMenuItem
      * 
+     * @param request the request, answered with 304 Not Modified if its If-None-Match matches the current ETag
      * @return an iterable of UCSBDiningCommonsMenuItem
      */
     @Operation(summary= "List all ucsb dining items")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<UCSBDiningCommonsMenuItem> allUCSBDiningCommonsMenuItems() {
+    public Iterable<UCSBDiningCommonsMenuItem> allUCSBDiningCommonsMenuItems(WebRequest request) {
+        if (request.checkNotModified(tableVersionService.etag(UCSBDiningCommonsMenuItem.class))) {
+            return null;
+        }
         Iterable<UCSBDiningCommonsMenuItem> ucsbDiningCommonsMenuItems = ucsbDiningCommonsMenuItemRepository.findAll();
         return ucsbDiningCommonsMenuItems;
     }
+
+    /**
+     * List a page of ucsb dining items, ordered by id
+     * 
+     * @param cursor the id of the last item on the previous page (omit for the first page)
+     * @param size the maximum number of ucsb dining items to return
+     * @return a page of UCSBDiningCommonsMenuItem, with the cursor for the next page
+     */
+    @Operation(summary= "List a page of ucsb dining items")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public CursorPage<UCSBDiningCommonsMenuItem> pageUCSBDiningCommonsMenuItems(
+            @Parameter(name="cursor", description="id of the last item on the previous page; omit for the first page") @RequestParam(defaultValue = "0") long cursor,
+            @Parameter(name="size") @RequestParam(defaultValue = "20") int size) {
+        Slice<UCSBDiningCommonsMenuItem> page = ucsbDiningCommonsMenuItemRepository.findByIdGreaterThanOrderByIdAsc(cursor, keysetPageable(size));
+        return cursorPage(page, UCSBDiningCommonsMenuItem::getId);
+    }
+
+    /**
+     * List a page of ucsb dining items with the given dining commons code, ordered by id
+     * 
+     * @param diningCommonsCode the dining commons code to filter on
+     * @param cursor the id of the last item on the previous page (omit for the first page)
+     * @param size the maximum number of ucsb dining items to return
+     * @return a page of UCSBDiningCommonsMenuItem, with the cursor for the next page
+     */
+    @Operation(summary= "List a page of ucsb dining items with the given dining commons code")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/bydiningcommons")
+    public CursorPage<UCSBDiningCommonsMenuItem> pageUCSBDiningCommonsMenuItemsByDiningCommonsCode(
+            @Parameter(name="diningCommonsCode", description="code of the dining commons, e.g. ortega") @RequestParam String diningCommonsCode,
+            @Parameter(name="cursor", description="id of the last item on the previous page; omit for the first page") @RequestParam(defaultValue = "0") long cursor,
+            @Parameter(name="size") @RequestParam(defaultValue = "20") int size) {
+        Slice<UCSBDiningCommonsMenuItem> page = ucsbDiningCommonsMenuItemRepository.findByDiningCommonsCodeAndIdGreaterThanOrderByIdAsc(diningCommonsCode, cursor, keysetPageable(size));
+        return cursorPage(page, UCSBDiningCommonsMenuItem::getId);
+    }
+
+    /**
+     * Stream all ucsb dining items as newline-delimited JSON, for bulk exports.
+     * Selected when the request has {@code Accept: application/x-ndjson}.
+     * 
+     * @return a streaming response with one UCSBDiningCommonsMenuItem per line
+     */
+    @Operation(summary= "Stream all ucsb dining items as newline-delimited JSON")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", produces = NdjsonExportService.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportUCSBDiningCommonsMenuItems() {
+        return ndjsonExportService.export(ucsbDiningCommonsMenuItemRepository::streamAllBy);
+    }
     
     /**
      * Get a single date by id
      * 
      * @param id the id of the date
+     * @param request the request, answered with 304 Not Modified if its If-None-Match matches the current ETag
      * @return a UCSBDate
      */
     @Operation(summary= "Get a single Dining Commons MenuItem by id")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
     public UCSBDiningCommonsMenuItem getById(
-            @Parameter(name="id") @RequestParam Long id) {
+            @Parameter(name="id") @RequestParam Long id,
+            WebRequest request) {
+        if (request.checkNotModified(tableVersionService.etag(UCSBDiningCommonsMenuItem.class))) {
+            return null;
+        }
             UCSBDiningCommonsMenuItem ucsbDiningCommonsMenuItem = ucsbDiningCommonsMenuItemRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommonsMenuItem.class, id));
 
@@ -145,4 +228,77 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
 
         return ucsbDiningCommonsMenuItem;
     }
-}
\ No newline at end of file
+
+    /**
+     * Create a batch of menu items in one transaction
+     * 
+     * @param incoming the menu items to create; any ids in the request are ignored
+     * @return the result for each element of the request, with the id of the saved entity
+     */
+    @Operation(summary= "Create a batch of menu items")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/batch")
+    @Transactional
+    public List<BatchItemResult> postUCSBDiningCommonsMenuItemsBatch(
+            @RequestBody @Valid List<UCSBDiningCommonsMenuItem> incoming) {
+        incoming.forEach(ucsbDiningCommonsMenuItem -> ucsbDiningCommonsMenuItem.setId(0));
+        return batchCreate(ucsbDiningCommonsMenuItemRepository, incoming, UCSBDiningCommonsMenuItem::getId);
+    }
+
+    /**
+     * Update a batch of menu items in one transaction
+     * 
+     * @param incoming the new values, each with the id of the entity to update
+     * @return the result for each element of the request; ids that do not exist are reported as not found
+     */
+    @Operation(summary= "Update a batch of menu items")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/batch")
+    @Transactional
+    public List<BatchItemResult> updateUCSBDiningCommonsMenuItemsBatch(
+            @RequestBody @Valid List<UCSBDiningCommonsMenuItem> incoming) {
+        return batchUpdate(ucsbDiningCommonsMenuItemRepository, UCSBDiningCommonsMenuItem.class, incoming, UCSBDiningCommonsMenuItem::getId, (ucsbDiningCommonsMenuItem, update) -> {
+            ucsbDiningCommonsMenuItem.setDiningCommonsCode(update.getDiningCommonsCode());
+            ucsbDiningCommonsMenuItem.setName(update.getName());
+            ucsbDiningCommonsMenuItem.setStation(update.getStation());
+        });
+    }
+
+    /**
+     * Delete a batch of menu items in one transaction
+     * 
+     * @param ids the ids of the menu items to delete
+     * @return the result for each id; ids that do not exist are reported as not found
+     */
+    @Operation(summary= "Delete a batch of menu items")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping("/batch")
+    @Transactional
+    public List<BatchItemResult> deleteUCSBDiningCommonsMenuItemsBatch(
+            @RequestBody List<Long> ids) {
+        return batchDelete(ucsbDiningCommonsMenuItemRepository, UCSBDiningCommonsMenuItem.class, ids, UCSBDiningCommonsMenuItem::getId);
+    }
+
+    /**
+     * Import menu items from a CSV file, saving valid rows in chunks and skipping invalid ones
+     * 
+     * @param file a CSV file with a header row containing diningCommonsCode, name and station
+     * @return counts of rows imported and rejected, the reasons for the first rejections, and the import rate
+     * @throws IOException if the upload cannot be read
+     */
+    @Operation(summary= "Import menu items from a CSV file with columns diningCommonsCode, name, station")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public CsvImportResult importUCSBDiningCommonsMenuItems(
+            @Parameter(name="file") @RequestParam("file") MultipartFile file) throws IOException {
+        try (InputStream in = file.getInputStream()) {
+            return csvImportService.importCsv("ucsbdiningcommonsmenuitem", in, List.of("diningCommonsCode", "name", "station"),
+                record -> UCSBDiningCommonsMenuItem.builder()
+                    .diningCommonsCode(CsvImportService.required(record, "diningCommonsCode"))
+                    .name(CsvImportService.required(record, "name"))
+                    .station(CsvImportService.required(record, "station"))
+                    .build(),
+                ucsbDiningCommonsMenuItemRepository::saveAll);
+        }
+    }
+}
@@ -2,14 +2,24 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.UCSBOrganization;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchItemResult;
+import edu.ucsb.cs156.example.models.CsvImportResult;
+import edu.ucsb.cs156.example.models.CursorPage;
 import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.services.CsvImportService;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import edu.ucsb.cs156.example.services.TableVersionService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -18,8 +28,19 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * This is a REST controller for UCSBOrganization
@@ -34,28 +55,76 @@ public class UCSBOrganizationController extends ApiController {
     @Autowired
     UCSBOrganizationRepository ucsbOrganizationRepository;
 
+    @Autowired
+    NdjsonExportService ndjsonExportService;
+
+    @Autowired
+    TableVersionService tableVersionService;
+
+    @Autowired
+    CsvImportService csvImportService;
+
     /**
      * THis method returns a list of all ucsborganizations.
+     * @param request the request, answered with 304 Not Modified if its If-None-Match matches the current ETag
      * @return a list of all ucsborganizations
      */
     @Operation(summary= "List all organizations")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<UCSBOrganization> allOrganizations() {
+    public Iterable<UCSBOrganization> allOrganizations(WebRequest request) {
+        if (request.checkNotModified(tableVersionService.etag(UCSBOrganization.class))) {
+            return null;
+        }
         Iterable<UCSBOrganization> commons = ucsbOrganizationRepository.findAll();
         return commons;
     }
 
+    /**
+     * List a page of organizations, ordered by orgCode
+     * 
+     * @param cursor the orgCode of the last organization on the previous page (omit for the first page)
+     * @param size the maximum number of organizations to return
+     * @return a page of UCSBOrganization, with the cursor for the next page
+     */
+    @Operation(summary= "List a page of organizations")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public CursorPage<UCSBOrganization> pageOrganizations(
+            @Parameter(name="cursor", description="orgCode of the last organization on the previous page; omit for the first page") @RequestParam(defaultValue = "") String cursor,
+            @Parameter(name="size") @RequestParam(defaultValue = "20") int size) {
+        Slice<UCSBOrganization> page = ucsbOrganizationRepository.findByOrgCodeGreaterThanOrderByOrgCodeAsc(cursor, keysetPageable(size));
+        return cursorPage(page, UCSBOrganization::getOrgCode);
+    }
+
+    /**
+     * Stream all organizations as newline-delimited JSON, for bulk exports.
+     * Selected when the request has {@code Accept: application/x-ndjson}.
+     * 
+     * @return a streaming response with one UCSBOrganization per line
+     */
+    @Operation(summary= "Stream all organizations as newline-delimited JSON")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", produces = NdjsonExportService.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportOrganizations() {
+        return ndjsonExportService.export(ucsbOrganizationRepository::streamAllBy);
+    }
+
     /**
      * This method returns a single organization.
      * @param orgCode code of the organizatino
+     * @param request the request, answered with 304 Not Modified if its If-None-Match matches the current ETag
      * @return a single organization
      */
     @Operation(summary= "Get a single organization")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
     public UCSBOrganization getById(
-            @Parameter(name="orgCode") @RequestParam String orgCode) {
+            @Parameter(name="orgCode") @RequestParam String orgCode,
+            WebRequest request) {
+        if (request.checkNotModified(tableVersionService.etag(UCSBOrganization.class))) {
+            return null;
+        }
         UCSBOrganization organization = ucsbOrganizationRepository.findById(orgCode)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBOrganization.class, orgCode));
 
@@ -100,6 +169,7 @@ public class UCSBOrganizationController extends ApiController {
     @Operation(summary= "Delete a UCSBOrganization")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
+    @Transactional
     public Object deleteOrganization(
             @Parameter(name="orgCode") @RequestParam String orgCode) {
         UCSBOrganization organization = ucsbOrganizationRepository.findById(orgCode)
@@ -118,6 +188,7 @@ public class UCSBOrganizationController extends ApiController {
     @Operation(summary= "Update a single organization")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
+    @Transactional
     public UCSBOrganization updateOrganization(
             @Parameter(name="orgCode") @RequestParam String orgCode,
             @RequestBody @Valid UCSBOrganization incoming) {
@@ -135,4 +206,103 @@ public class UCSBOrganizationController extends ApiController {
 
         return organization;
     }
+
+    /**
+     * Create a batch of organizations in one transaction
+     * 
+     * @param incoming the organizations to create
+     * @return the result for each element of the request, with the id of the saved entity; org codes that already exist are reported as conflicts
+     */
+    @Operation(summary= "Create a batch of organizations")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/batch")
+    @Transactional
+    public List<BatchItemResult> postOrganizationsBatch(
+            @RequestBody @Valid List<UCSBOrganization> incoming) {
+        return batchCreateWithAssignedIds(ucsbOrganizationRepository, UCSBOrganization.class, incoming, UCSBOrganization::getOrgCode);
+    }
+
+    /**
+     * Update a batch of organizations in one transaction
+     * 
+     * @param incoming the new values, each with the org code of the entity to update
+     * @return the result for each element of the request; org codes that do not exist are reported as not found
+     */
+    @Operation(summary= "Update a batch of organizations")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/batch")
+    @Transactional
+    public List<BatchItemResult> updateOrganizationsBatch(
+            @RequestBody @Valid List<UCSBOrganization> incoming) {
+        return batchUpdate(ucsbOrganizationRepository, UCSBOrganization.class, incoming, UCSBOrganization::getOrgCode, (organization, update) -> {
+            organization.setOrgTranslationShort(update.getOrgTranslationShort());
+            organization.setOrgTranslation(update.getOrgTranslation());
+            organization.setInactive(update.getInactive());
+        });
+    }
+
+    /**
+     * Delete a batch of organizations in one transaction
+     * 
+     * @param orgCodes the org codes of the organizations to delete
+     * @return the result for each org code; org codes that do not exist are reported as not found
+     */
+    @Operation(summary= "Delete a batch of organizations")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping("/batch")
+    @Transactional
+    public List<BatchItemResult> deleteOrganizationsBatch(
+            @RequestBody List<String> orgCodes) {
+        return batchDelete(ucsbOrganizationRepository, UCSBOrganization.class, orgCodes, UCSBOrganization::getOrgCode);
+    }
+
+    /**
+     * Import organizations from a CSV file, saving valid rows in chunks and skipping invalid ones.
+     * Rows whose org code already exists replace the existing organization.
+     * 
+     * @param file a CSV file with a header row containing orgCode, orgTranslationShort, orgTranslation and inactive
+     * @return counts of rows imported and rejected, the reasons for the first rejections, and the import rate
+     * @throws IOException if the upload cannot be read
+     */
+    @Operation(summary= "Import organizations from a CSV file with columns orgCode, orgTranslationShort, orgTranslation, inactive")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public CsvImportResult importOrganizations(
+            @Parameter(name="file") @RequestParam("file") MultipartFile file) throws IOException {
+        try (InputStream in = file.getInputStream()) {
+            return csvImportService.importCsv("ucsborganization", in, List.of("orgCode", "orgTranslationShort", "orgTranslation", "inactive"),
+                record -> UCSBOrganization.builder()
+                    .orgCode(CsvImportService.required(record, "orgCode"))
+                    .orgTranslationShort(CsvImportService.required(record, "orgTranslationShort"))
+                    .orgTranslation(CsvImportService.required(record, "orgTranslation"))
+                    .inactive(CsvImportService.requiredBoolean(record, "inactive"))
+                    .build(),
+                this::upsertOrganizations);
+        }
+    }
+
+    // org codes are assigned ids, so saveAll would merge each row with a select of its own; instead the
+    // existing rows are loaded in one query per chunk and updated in place (they are written when the
+    // chunk's transaction commits), and only the new codes are inserted.  A code repeated in a chunk
+    // takes its last row.
+    private void upsertOrganizations(List<UCSBOrganization> organizations) {
+        Map<String, UCSBOrganization> incoming = new LinkedHashMap<>();
+        organizations.forEach(organization -> incoming.put(organization.getOrgCode(), organization));
+        Map<String, UCSBOrganization> existing = new HashMap<>();
+        ucsbOrganizationRepository.findAllById(new ArrayList<>(incoming.keySet()))
+                .forEach(organization -> existing.put(organization.getOrgCode(), organization));
+
+        List<UCSBOrganization> created = new ArrayList<>();
+        for (UCSBOrganization organization : incoming.values()) {
+            UCSBOrganization current = existing.get(organization.getOrgCode());
+            if (current == null) {
+                created.add(organization);
+            } else {
+                current.setOrgTranslationShort(organization.getOrgTranslationShort());
+                current.setOrgTranslation(organization.getOrgTranslation());
+                current.setInactive(organization.getInactive());
+            }
+        }
+        ucsbOrganizationRepository.insertAll(created);
+    }
 }
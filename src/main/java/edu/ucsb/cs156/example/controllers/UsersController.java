@@ -1,18 +1,21 @@
 package edu.ucsb.cs156.example.controllers;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.models.CursorPage;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
 /**
@@ -29,20 +32,45 @@ public class UsersController extends ApiController {
     UserRepository userRepository;
 
     @Autowired
-    ObjectMapper mapper;
+    NdjsonExportService ndjsonExportService;
 
     /**
      * This method returns a list of all users.  Accessible only to users with the role "ROLE_ADMIN".
      * @return a list of all users
-     * @throws JsonProcessingException if there is an error processing the JSON
      */
     @Operation(summary= "Get a list of all users")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @GetMapping("")
-    public ResponseEntity<String> users()
-            throws JsonProcessingException {
+    public Iterable<User> users() {
         Iterable<User> users = userRepository.findAll();
-        String body = mapper.writeValueAsString(users);
-        return ResponseEntity.ok().body(body);
+        return users;
+    }
+
+    /**
+     * This method streams all users as newline-delimited JSON.  Accessible only to users with the role "ROLE_ADMIN".
+     * Selected when the request has {@code Accept: application/x-ndjson}.
+     * @return a streaming response with one user per line
+     */
+    @Operation(summary= "Stream all users as newline-delimited JSON")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping(value = "", produces = NdjsonExportService.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportUsers() {
+        return ndjsonExportService.export(userRepository::streamAllBy);
+    }
+
+    /**
+     * This method returns a page of users, ordered by id.  Accessible only to users with the role "ROLE_ADMIN".
+     * @param cursor the id of the last user on the previous page (omit for the first page)
+     * @param size the maximum number of users to return
+     * @return a page of users, with the cursor for the next page
+     */
+    @Operation(summary= "Get a page of users")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/page")
+    public CursorPage<User> pageUsers(
+            @Parameter(name="cursor", description="id of the last user on the previous page; omit for the first page") @RequestParam(defaultValue = "0") long cursor,
+            @Parameter(name="size") @RequestParam(defaultValue = "20") int size) {
+        Slice<User> page = userRepository.findByIdGreaterThanOrderByIdAsc(cursor, keysetPageable(size));
+        return cursorPage(page, User::getId);
     }
-}
\ No newline at end of file
+}
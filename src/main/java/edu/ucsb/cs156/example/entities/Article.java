@@ -1,30 +1,42 @@
 package edu.ucsb.cs156.example.entities;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.Instant;
 import java.time.LocalDateTime;
 
 /** 
  * This is a JPA entity that represents an Article
  * 
  * An Article is a generic article
+ * 
+ * version and lastModified are maintained by Hibernate on every update; they give
+ * the ETag and Last-Modified of a single article, and version is also checked
+ * against concurrent updates (optimistic locking)
  */
 
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
+@EntityListeners(TableVersionListener.class)
 @Entity(name = "articles")
 public class Article {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "articles_seq")
+  @SequenceGenerator(name = "articles_seq", sequenceName = "ARTICLES_SEQ", allocationSize = 50)
   private long id;
   
   private String title;
@@ -32,4 +44,10 @@ public class Article {
   private String explanation;
   private String email;
   private LocalDateTime dateAdded;
+
+  @Version
+  private long version;
+
+  @UpdateTimestamp
+  private Instant lastModified;
 }
\ No newline at end of file
@@ -0,0 +1,46 @@
+package edu.ucsb.cs156.example.entities;
+
+import edu.ucsb.cs156.example.services.DiningCommonsLocationService;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+import org.springframework.context.annotation.Lazy;
+
+/**
+ * This is a JPA entity listener that keeps the nearby commons index (see {@link DiningCommonsLocationService})
+ * in step with inserts, updates and deletes of UCSBDiningCommons, whichever endpoint makes them.
+ * The service is injected lazily because it depends (through the repository) on the entity manager
+ * factory that creates this listener.
+ */
+public class DiningCommonsLocationListener {
+
+  private final DiningCommonsLocationService diningCommonsLocationService;
+
+  /**
+   * @param diningCommonsLocationService the service that keeps the index
+   */
+  public DiningCommonsLocationListener(@Lazy DiningCommonsLocationService diningCommonsLocationService) {
+    this.diningCommonsLocationService = diningCommonsLocationService;
+  }
+
+  /**
+   * This method is called by JPA after a commons is inserted or updated.
+   * @param commons the commons
+   */
+  @PostPersist
+  @PostUpdate
+  public void commonsSaved(UCSBDiningCommons commons) {
+    diningCommonsLocationService.commonsSaved(commons);
+  }
+
+  /**
+   * This method is called by JPA after a commons is deleted.
+   * @param commons the commons
+   */
+  @PostRemove
+  public void commonsDeleted(UCSBDiningCommons commons) {
+    diningCommonsLocationService.commonsDeleted(commons);
+  }
+}
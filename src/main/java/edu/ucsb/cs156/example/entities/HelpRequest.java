@@ -3,9 +3,11 @@ package edu.ucsb.cs156.example.entities;
 import java.time.LocalDateTime;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -21,10 +23,12 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
+@EntityListeners(TableVersionListener.class)
 @Entity(name = "helprequests")
 public class HelpRequest {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "helprequests_seq")
+  @SequenceGenerator(name = "helprequests_seq", sequenceName = "HELPREQUESTS_SEQ", allocationSize = 50)
   private long id;
   private String requesterEmail;
   private String teamId;
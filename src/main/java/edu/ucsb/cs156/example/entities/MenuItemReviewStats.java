@@ -0,0 +1,58 @@
+package edu.ucsb.cs156.example.entities;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a JPA entity that represents the rating aggregate for one menu item
+ *
+ * One row per itemId, maintained incrementally as MenuItemReviews are added, changed and deleted,
+ * so that reading the stats for every item does not require reading every review.
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@JsonPropertyOrder({ "itemId", "reviewCount", "starSum", "mean", "histogram" })
+@Entity(name = "menuitemreviewstats")
+public class MenuItemReviewStats {
+  @Id
+  private long itemId;
+  private long reviewCount;
+  private long starSum;
+
+  @JsonIgnore
+  private long stars1;
+  @JsonIgnore
+  private long stars2;
+  @JsonIgnore
+  private long stars3;
+  @JsonIgnore
+  private long stars4;
+  @JsonIgnore
+  private long stars5;
+
+  /**
+   * This method returns the mean number of stars.
+   * @return mean stars, or null if the item has no reviews
+   */
+  public Double getMean() {
+    return reviewCount == 0 ? null : (double) starSum / reviewCount;
+  }
+
+  /**
+   * This method returns the number of reviews with 1, 2, 3, 4 and 5 stars.
+   * @return array of five counts; index 0 is the number of 1-star reviews
+   */
+  public long[] getHistogram() {
+    return new long[] { stars1, stars2, stars3, stars4, stars5 };
+  }
+}
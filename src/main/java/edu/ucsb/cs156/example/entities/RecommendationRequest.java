@@ -1,9 +1,11 @@
 package edu.ucsb.cs156.example.entities;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -15,6 +17,7 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
+@EntityListeners(TableVersionListener.class)
 @Entity(name = "recommendationrequest")
 public class RecommendationRequest {
     private String requesterEmail;
@@ -25,6 +28,7 @@ public class RecommendationRequest {
     private boolean done;
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "recommendationrequest_seq")
+    @SequenceGenerator(name = "recommendationrequest_seq", sequenceName = "RECOMMENDATIONREQUEST_SEQ", allocationSize = 50)
     private long id;
 }
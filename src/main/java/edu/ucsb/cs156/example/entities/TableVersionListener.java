@@ -0,0 +1,37 @@
+package edu.ucsb.cs156.example.entities;
+
+import edu.ucsb.cs156.example.services.TableVersionService;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+import org.hibernate.Hibernate;
+
+/**
+ * This is a JPA entity listener that increments the table version (see {@link TableVersionService})
+ * whenever an entity is inserted, updated or deleted.  Hibernate creates it through Spring, so the
+ * service is injected.
+ */
+public class TableVersionListener {
+
+  private final TableVersionService tableVersionService;
+
+  /**
+   * @param tableVersionService the service that keeps the table versions
+   */
+  public TableVersionListener(TableVersionService tableVersionService) {
+    this.tableVersionService = tableVersionService;
+  }
+
+  /**
+   * This method is called by JPA after an entity is written.
+   * @param entity the entity
+   */
+  @PostPersist
+  @PostUpdate
+  @PostRemove
+  public void entityChanged(Object entity) {
+    tableVersionService.tableChanged(Hibernate.getClass(entity));
+  }
+}
@@ -1,29 +1,43 @@
 package edu.ucsb.cs156.example.entities;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import java.time.LocalDateTime;
 
 /**
  * This is a JPA entity that represents a UCSBDate, i.e. an entry
  * that comes from the UCSB API for academic calendar dates.
+ *
+ * Dates are rarely changed once a quarter is entered, so entities and the
+ * per-quarter query results are kept in the Hibernate second-level cache
+ * (see hibernate-cache.conf)
  */
 
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "ucsbdates")
+@EntityListeners(TableVersionListener.class)
 @Entity(name = "ucsbdates")
 public class UCSBDate {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ucsbdates_seq")
+  @SequenceGenerator(name = "ucsbdates_seq", sequenceName = "UCSBDATES_SEQ", allocationSize = 50)
   private long id;
 
   private String quarterYYYYQ;
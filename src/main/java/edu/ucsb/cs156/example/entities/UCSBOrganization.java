@@ -1,22 +1,33 @@
 package edu.ucsb.cs156.example.entities;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.Id;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 /** 
  * This is a JPA entity that represents a UCSBOrganization
  * 
  * A UCSBOrganization is an organization at UCSB
+ * 
+ * The table rarely changes, so entities and query results are kept in the
+ * Hibernate second-level cache (see hibernate-cache.conf)
  */
 
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "ucsborganization")
+@EntityListeners(TableVersionListener.class)
 @Entity(name = "ucsborganization")
 public class UCSBOrganization {
   @Id
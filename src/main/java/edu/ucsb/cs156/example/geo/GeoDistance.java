@@ -0,0 +1,29 @@
+package edu.ucsb.cs156.example.geo;
+
+/**
+ * Great-circle distances on a spherical Earth.
+ */
+public final class GeoDistance {
+
+  /** Mean Earth radius in meters. */
+  public static final double EARTH_RADIUS_METERS = 6_371_008.8;
+
+  private GeoDistance() {
+  }
+
+  /**
+   * This method returns the haversine (great-circle) distance between two points.
+   * @param lat1 latitude of the first point, in degrees
+   * @param lon1 longitude of the first point, in degrees
+   * @param lat2 latitude of the second point, in degrees
+   * @param lon2 longitude of the second point, in degrees
+   * @return the distance in meters
+   */
+  public static double haversineMeters(double lat1, double lon1, double lat2, double lon2) {
+    double dLat = Math.toRadians(lat2 - lat1);
+    double dLon = Math.toRadians(lon2 - lon1);
+    double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+        + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+    return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(a)));
+  }
+}
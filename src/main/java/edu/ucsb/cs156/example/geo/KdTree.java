@@ -0,0 +1,199 @@
+package edu.ucsb.cs156.example.geo;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * This is a k-d tree of points on the Earth's surface, keyed by K, for nearest neighbour queries.
+ *
+ * Points are stored as 3-d unit vectors rather than (latitude, longitude), so the straight-line
+ * distance between two points orders them the same way as their great-circle distance, with no
+ * special cases at the poles or the antimeridian.
+ *
+ * Puts and removes are incremental: new points are inserted below existing ones and removed points
+ * are only marked, so the tree rebuilds itself balanced once those changes outnumber the points it
+ * was built with.  Not thread-safe.
+ *
+ * @param <K> the type of the keys
+ */
+public class KdTree<K> {
+
+  /**
+   * A query result.
+   * @param <K> the type of the key
+   * @param key the key of the point
+   * @param distanceMeters the haversine distance from the query point
+   */
+  public record Neighbor<K>(K key, double distanceMeters) {
+  }
+
+  private static final class Node<K> {
+    final K key;
+    final double lat;
+    final double lon;
+    final double[] xyz;
+    boolean removed;
+    Node<K> left;
+    Node<K> right;
+
+    Node(K key, double lat, double lon) {
+      this.key = key;
+      this.lat = lat;
+      this.lon = lon;
+      this.xyz = unitVector(lat, lon);
+    }
+  }
+
+  private final Map<K, Node<K>> nodes = new HashMap<>();
+  private Node<K> root;
+  private int changesSinceBuild;
+
+  /**
+   * This method returns the number of points in the tree.
+   * @return the number of points
+   */
+  public int size() {
+    return nodes.size();
+  }
+
+  /**
+   * This method adds a point, replacing any point with the same key.
+   * @param key the key
+   * @param lat latitude in degrees
+   * @param lon longitude in degrees
+   */
+  public void put(K key, double lat, double lon) {
+    remove(key);
+    Node<K> node = new Node<>(key, lat, lon);
+    nodes.put(key, node);
+    root = insert(root, node, 0);
+    changed();
+  }
+
+  /**
+   * This method removes the point with a key, if there is one.
+   * @param key the key
+   */
+  public void remove(K key) {
+    Node<K> node = nodes.remove(key);
+    if (node != null) {
+      node.removed = true;
+      changed();
+    }
+  }
+
+  /**
+   * This method returns the points nearest to a location.
+   * @param lat latitude in degrees
+   * @param lon longitude in degrees
+   * @param limit the maximum number of points to return
+   * @return up to limit points, nearest first
+   */
+  public List<Neighbor<K>> nearest(double lat, double lon, int limit) {
+    double[] target = unitVector(lat, lon);
+    // farthest of the best so far at the head, so it is the one replaced
+    PriorityQueue<Candidate<K>> best = new PriorityQueue<>(
+        Comparator.comparingDouble((Candidate<K> c) -> c.squaredChord).reversed());
+    search(root, target, limit, best, 0);
+
+    List<Candidate<K>> sorted = new ArrayList<>(best);
+    sorted.sort(Comparator.comparingDouble(c -> c.squaredChord));
+    List<Neighbor<K>> neighbors = new ArrayList<>(sorted.size());
+    for (Candidate<K> candidate : sorted) {
+      Node<K> node = candidate.node;
+      neighbors.add(new Neighbor<>(node.key, GeoDistance.haversineMeters(lat, lon, node.lat, node.lon)));
+    }
+    return neighbors;
+  }
+
+  private record Candidate<K>(Node<K> node, double squaredChord) {
+  }
+
+  private void search(Node<K> node, double[] target, int limit, PriorityQueue<Candidate<K>> best, int axis) {
+    if (node == null) {
+      return;
+    }
+    if (!node.removed) {
+      double d = squaredDistance(node.xyz, target);
+      if (best.size() < limit) {
+        best.add(new Candidate<>(node, d));
+      } else if (d < best.peek().squaredChord) {
+        best.poll();
+        best.add(new Candidate<>(node, d));
+      }
+    }
+    double diff = target[axis] - node.xyz[axis];
+    Node<K> near = diff < 0 ? node.left : node.right;
+    Node<K> far = diff < 0 ? node.right : node.left;
+    int next = (axis + 1) % 3;
+    search(near, target, limit, best, next);
+    // the far side can only hold closer points if the splitting plane is closer than the worst kept so far
+    if (best.size() < limit || diff * diff < best.peek().squaredChord) {
+      search(far, target, limit, best, next);
+    }
+  }
+
+  private static <K> Node<K> insert(Node<K> node, Node<K> added, int axis) {
+    if (node == null) {
+      return added;
+    }
+    int next = (axis + 1) % 3;
+    if (added.xyz[axis] < node.xyz[axis]) {
+      node.left = insert(node.left, added, next);
+    } else {
+      node.right = insert(node.right, added, next);
+    }
+    return node;
+  }
+
+  private void changed() {
+    if (++changesSinceBuild > Math.max(16, nodes.size())) {
+      rebuild();
+    }
+  }
+
+  /**
+   * This method rebuilds the tree balanced, dropping removed points.
+   */
+  public void rebuild() {
+    List<Node<K>> live = new ArrayList<>(nodes.size());
+    for (Node<K> node : new ArrayList<>(nodes.values())) {
+      Node<K> copy = new Node<>(node.key, node.lat, node.lon);
+      nodes.put(node.key, copy);
+      live.add(copy);
+    }
+    root = build(live, 0, live.size(), 0);
+    changesSinceBuild = 0;
+  }
+
+  private static <K> Node<K> build(List<Node<K>> list, int from, int to, int axis) {
+    if (from >= to) {
+      return null;
+    }
+    List<Node<K>> range = list.subList(from, to);
+    range.sort(Comparator.comparingDouble(n -> n.xyz[axis]));
+    int middle = from + (to - from) / 2;
+    Node<K> node = list.get(middle);
+    int next = (axis + 1) % 3;
+    node.left = build(list, from, middle, next);
+    node.right = build(list, middle + 1, to, next);
+    return node;
+  }
+
+  private static double[] unitVector(double lat, double lon) {
+    double phi = Math.toRadians(lat);
+    double lambda = Math.toRadians(lon);
+    return new double[] { Math.cos(phi) * Math.cos(lambda), Math.cos(phi) * Math.sin(lambda), Math.sin(phi) };
+  }
+
+  private static double squaredDistance(double[] a, double[] b) {
+    double dx = a[0] - b[0];
+    double dy = a[1] - b[1];
+    double dz = a[2] - b[2];
+    return dx * dx + dy * dy + dz * dz;
+  }
+}
@@ -0,0 +1,191 @@
+package edu.ucsb.cs156.example.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * This is a servlet filter that records metrics for each /api request, tagged by the
+ * controller method that handled it:
+ *
+ * <ul>
+ * <li>{@code api.requests} latency timer, with p50/p95/p99 and a histogram for Prometheus</li>
+ * <li>{@code api.requests.errors} count of 4xx/5xx responses and exceptions</li>
+ * <li>{@code api.request.size} and {@code api.response.size} payload bytes</li>
+ * <li>{@code api.hibernate.queries} SQL statements issued while handling the request (see {@link QueryCountInspector})</li>
+ * </ul>
+ *
+ * For async requests (e.g. NDJSON exports) the timer and sizes are recorded when the response completes;
+ * the query count only covers the request thread.
+ */
+public class ApiMetricsFilter extends OncePerRequestFilter {
+
+  private final MeterRegistry registry;
+
+  /**
+   * @param registry the registry to record to
+   */
+  public ApiMetricsFilter(MeterRegistry registry) {
+    this.registry = registry;
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+      throws ServletException, IOException {
+    CountingResponseWrapper countingResponse = new CountingResponseWrapper(response);
+    Timer.Sample sample = Timer.start(registry);
+    QueryCountInspector.start();
+    Throwable error = null;
+    try {
+      chain.doFilter(request, countingResponse);
+    } catch (IOException | ServletException | RuntimeException e) {
+      error = e;
+      throw e;
+    } finally {
+      long queries = QueryCountInspector.stop();
+      if (request.isAsyncStarted()) {
+        request.getAsyncContext().addListener(new AsyncListener() {
+          private Throwable asyncError;
+
+          @Override
+          public void onComplete(AsyncEvent event) {
+            record(sample, request, countingResponse, queries, asyncError);
+          }
+
+          @Override
+          public void onError(AsyncEvent event) {
+            asyncError = event.getThrowable();
+          }
+
+          @Override
+          public void onTimeout(AsyncEvent event) {
+          }
+
+          @Override
+          public void onStartAsync(AsyncEvent event) {
+          }
+        });
+      } else {
+        record(sample, request, countingResponse, queries, error);
+      }
+    }
+  }
+
+  private void record(Timer.Sample sample, HttpServletRequest request, CountingResponseWrapper response,
+      long queries, Throwable error) {
+    String handler = handlerName(request);
+    int status = (error != null && response.getStatus() < 400) ? 500 : response.getStatus();
+    Tags handlerTags = Tags.of("handler", handler, "method", request.getMethod());
+    Tags tags = handlerTags.and("status", Integer.toString(status));
+
+    sample.stop(Timer.builder("api.requests")
+        .description("Latency of /api requests")
+        .tags(tags)
+        .publishPercentiles(0.5, 0.95, 0.99)
+        .publishPercentileHistogram()
+        .register(registry));
+
+    if (status >= 400) {
+      registry.counter("api.requests.errors",
+          tags.and("exception", error == null ? "none" : error.getClass().getSimpleName())).increment();
+    }
+
+    long requestBytes = request.getContentLengthLong();
+    if (requestBytes > 0) {
+      DistributionSummary.builder("api.request.size").baseUnit("bytes").tags(handlerTags)
+          .register(registry).record(requestBytes);
+    }
+    DistributionSummary.builder("api.response.size").baseUnit("bytes").tags(handlerTags)
+        .register(registry).record(response.getByteCount());
+    DistributionSummary.builder("api.hibernate.queries").tags(handlerTags)
+        .register(registry).record(queries);
+  }
+
+  /**
+   * This method returns "ControllerName.methodName" for the handler of the request,
+   * or "none" if no controller method matched (e.g. 404, or rejected by security).
+   * @param request the request
+   * @return the handler name
+   */
+  static String handlerName(HttpServletRequest request) {
+    Object handler = request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
+    if (handler instanceof HandlerMethod handlerMethod) {
+      return handlerMethod.getBeanType().getSimpleName() + "." + handlerMethod.getMethod().getName();
+    }
+    return "none";
+  }
+
+  /**
+   * Counts the bytes written to the response output stream (which is what the JSON message converters
+   * and StreamingResponseBody use).  Output through getWriter is passed through uncounted.
+   */
+  static class CountingResponseWrapper extends HttpServletResponseWrapper {
+    private long byteCount;
+    private ServletOutputStream outputStream;
+
+    CountingResponseWrapper(HttpServletResponse response) {
+      super(response);
+    }
+
+    long getByteCount() {
+      return byteCount;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+      if (outputStream == null) {
+        ServletOutputStream delegate = super.getOutputStream();
+        outputStream = new ServletOutputStream() {
+          @Override
+          public void write(int b) throws IOException {
+            delegate.write(b);
+            byteCount++;
+          }
+
+          @Override
+          public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+            byteCount += len;
+          }
+
+          @Override
+          public void flush() throws IOException {
+            delegate.flush();
+          }
+
+          @Override
+          public void close() throws IOException {
+            delegate.close();
+          }
+
+          @Override
+          public boolean isReady() {
+            return delegate.isReady();
+          }
+
+          @Override
+          public void setWriteListener(WriteListener writeListener) {
+            delegate.setWriteListener(writeListener);
+          }
+        };
+      }
+      return outputStream;
+    }
+  }
+}
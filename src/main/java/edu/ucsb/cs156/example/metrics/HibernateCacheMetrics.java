@@ -0,0 +1,61 @@
+package edu.ucsb.cs156.example.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+
+import java.util.function.ToLongFunction;
+
+/**
+ * This is a meter binder that publishes Hibernate second-level cache statistics for each cache region
+ * (one per cached entity, plus the query results region):
+ *
+ * <ul>
+ * <li>{@code hibernate.second.level.cache.requests} lookups, tagged result=hit or result=miss</li>
+ * <li>{@code hibernate.second.level.cache.puts} entries loaded into the cache</li>
+ * </ul>
+ *
+ * The hit rate of a region is hits / (hits + misses).  Counts stay at zero unless
+ * hibernate.generate_statistics is enabled, as the metrics profile does.
+ */
+public class HibernateCacheMetrics implements MeterBinder {
+
+  private final Statistics statistics;
+
+  /**
+   * @param statistics the statistics of the session factory
+   */
+  public HibernateCacheMetrics(Statistics statistics) {
+    this.statistics = statistics;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    for (String region : statistics.getSecondLevelCacheRegionNames()) {
+      // the update timestamps region has no statistics of its own
+      if (statistics.getCacheRegionStatistics(region) == null) {
+        continue;
+      }
+      counter("hibernate.second.level.cache.requests", region, CacheRegionStatistics::getHitCount)
+          .tag("result", "hit")
+          .description("Second-level cache lookups")
+          .register(registry);
+      counter("hibernate.second.level.cache.requests", region, CacheRegionStatistics::getMissCount)
+          .tag("result", "miss")
+          .description("Second-level cache lookups")
+          .register(registry);
+      counter("hibernate.second.level.cache.puts", region, CacheRegionStatistics::getPutCount)
+          .description("Entries put into the second-level cache")
+          .register(registry);
+    }
+  }
+
+  private FunctionCounter.Builder<Statistics> counter(String name, String region,
+      ToLongFunction<CacheRegionStatistics> count) {
+    return FunctionCounter.builder(name, statistics, s -> count.applyAsLong(s.getCacheRegionStatistics(region)))
+        .tag("region", region);
+  }
+}
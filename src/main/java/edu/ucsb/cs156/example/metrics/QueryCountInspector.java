@@ -0,0 +1,42 @@
+package edu.ucsb.cs156.example.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * This is a Hibernate StatementInspector that counts the SQL statements prepared on the current thread.
+ *
+ * It is registered with the property
+ * {@code spring.jpa.properties.hibernate.session_factory.statement_inspector}, and
+ * {@link ApiMetricsFilter} calls {@link #start()} and {@link #stop()} around each request
+ * to get the number of queries that request issued.  Statements outside a start/stop pair are not counted.
+ */
+public class QueryCountInspector implements StatementInspector {
+
+  private static final ThreadLocal<long[]> count = new ThreadLocal<>();
+
+  /**
+   * This method starts counting statements on the current thread.
+   */
+  public static void start() {
+    count.set(new long[1]);
+  }
+
+  /**
+   * This method stops counting statements on the current thread.
+   * @return the number of statements since {@link #start()}, or 0 if counting was not started
+   */
+  public static long stop() {
+    long[] c = count.get();
+    count.remove();
+    return c == null ? 0 : c[0];
+  }
+
+  @Override
+  public String inspect(String sql) {
+    long[] c = count.get();
+    if (c != null) {
+      c[0]++;
+    }
+    return sql;
+  }
+}
@@ -0,0 +1,110 @@
+package edu.ucsb.cs156.example.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * This is a meter binder for the sessions kept in the database with app.session.store=jdbc
+ * (see SessionConfig):
+ *
+ * <ul>
+ * <li>{@code sessions.stored} sessions in the SPRING_SESSION table, across all instances</li>
+ * <li>{@code sessions.stored.bytes} total size of the stored session attributes</li>
+ * <li>{@code sessions.attribute.size} bytes written per attribute save, tagged by the attribute's type
+ * (e.g. SecurityContextImpl for a login)</li>
+ * </ul>
+ *
+ * {@code sessions.stored} is read from the database when scraped.  {@code sessions.stored.bytes} sums
+ * every stored attribute, so it is read on a background thread every app.session.metrics.refreshInterval
+ * and scrapes report the last value read (none until the first read).  Expired sessions count until the
+ * cleanup job (once a minute) deletes them.
+ */
+@Slf4j
+public class SessionMetrics implements MeterBinder {
+
+  private static final String STORED_BYTES = "SELECT COALESCE(SUM(OCTET_LENGTH(ATTRIBUTE_BYTES)), 0) FROM SPRING_SESSION_ATTRIBUTES";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final Duration refreshInterval;
+  private volatile double storedBytes = Double.NaN;
+  private volatile MeterRegistry registry;
+
+  ScheduledExecutorService refresher;
+
+  /**
+   * @param jdbcTemplate queries the session tables
+   * @param refreshInterval how often the total size of the stored attributes is read
+   */
+  public SessionMetrics(JdbcTemplate jdbcTemplate, Duration refreshInterval) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.refreshInterval = refreshInterval;
+  }
+
+  @PostConstruct
+  void startRefresher() {
+    refresher = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("session-metrics-"));
+    refresher.scheduleWithFixedDelay(this::refreshStoredBytes, 0, refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  void stopRefresher() {
+    refresher.shutdownNow();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("sessions.stored", jdbcTemplate,
+        t -> t.queryForObject("SELECT COUNT(*) FROM SPRING_SESSION", Long.class))
+        .description("Sessions in the session store")
+        .register(registry);
+    Gauge.builder("sessions.stored.bytes", this, m -> m.storedBytes)
+        .description("Size of the session attributes in the session store")
+        .baseUnit("bytes")
+        .register(registry);
+    this.registry = registry;
+  }
+
+  /**
+   * This method reads the total size of the stored session attributes for the sessions.stored.bytes gauge.
+   */
+  void refreshStoredBytes() {
+    try {
+      storedBytes = jdbcTemplate.queryForObject(STORED_BYTES, Long.class);
+    } catch (DataAccessException e) {
+      log.warn("Could not read the size of the session store, will retry: {}", e.getMessage());
+    }
+  }
+
+  /**
+   * This method records the size of a session attribute as written to the store.  Sizes written
+   * before the binder is bound to a registry are not recorded.
+   * @param attribute the attribute value
+   * @param bytes its size once serialized
+   */
+  public void recordAttributeSize(Object attribute, int bytes) {
+    MeterRegistry meterRegistry = registry;
+    if (meterRegistry == null) {
+      return;
+    }
+    DistributionSummary.builder("sessions.attribute.size")
+        .tag("type", attribute.getClass().getSimpleName())
+        .description("Serialized size of session attributes")
+        .baseUnit("bytes")
+        .register(meterRegistry)
+        .record(bytes);
+  }
+}
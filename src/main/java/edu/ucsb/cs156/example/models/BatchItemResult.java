@@ -0,0 +1,32 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+/**
+ * This is a model class that represents the outcome for one element of a /batch request.
+ * 
+ * {@code index} is the position of the element in the request array, {@code id} the id
+ * of the entity it created, updated or deleted, and {@code status} one of
+ * "created", "updated", "deleted", or "not found" or "conflict" (with the reason in {@code message}).
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class BatchItemResult {
+  public static final String CREATED = "created";
+  public static final String UPDATED = "updated";
+  public static final String DELETED = "deleted";
+  public static final String NOT_FOUND = "not found";
+  public static final String CONFLICT = "conflict";
+
+  private int index;
+  private Object id;
+  private String status;
+  private String message;
+}
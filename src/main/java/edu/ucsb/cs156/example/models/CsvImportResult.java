@@ -0,0 +1,38 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+import java.util.List;
+
+/**
+ * This is a model class that summarizes a CSV import: how many rows were read, imported and rejected,
+ * how long the import took, and why the first few rejected rows were rejected.
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class CsvImportResult {
+  private long rowsRead;
+  private long rowsImported;
+  private long rowsRejected;
+  private List<RejectedRow> rejected;
+  private long elapsedMillis;
+  private double rowsPerSecond;
+
+  /**
+   * A row that failed validation; {@code record} is the 1-based data row number (not counting the header).
+   */
+  @Data
+  @AllArgsConstructor
+  @NoArgsConstructor(access = AccessLevel.PROTECTED)
+  public static class RejectedRow {
+    private long record;
+    private String message;
+  }
+}
@@ -0,0 +1,25 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+import java.util.List;
+
+/**
+ * This is a model class that represents one page of a cursor-paginated listing.
+ * 
+ * The {@code next} field is the cursor to pass back to get the following page,
+ * or null when there are no more results.
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class CursorPage<T> {
+  private List<T> content;
+  private String next;
+}
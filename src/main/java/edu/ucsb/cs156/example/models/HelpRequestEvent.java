@@ -0,0 +1,42 @@
+package edu.ucsb.cs156.example.models;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+/**
+ * This is a model class that represents a change to a help request, published by
+ * HelpRequestsController and pushed to the clients of /api/helprequests/stream.
+ * 
+ * {@code type} is one of "created", "updated", "solved" (an update that marked an open
+ * request as solved) or "deleted", and {@code helpRequest} the help request after the change.
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class HelpRequestEvent {
+  public static final String CREATED = "created";
+  public static final String UPDATED = "updated";
+  public static final String SOLVED = "solved";
+  public static final String DELETED = "deleted";
+
+  private String type;
+  private HelpRequest helpRequest;
+
+  /**
+   * This method returns the event for an update of a help request.
+   * @param wasSolved whether the help request was solved before the update
+   * @param helpRequest the help request after the update
+   * @return a solved event if the update marked the request as solved, otherwise an updated event
+   */
+  public static HelpRequestEvent updated(Boolean wasSolved, HelpRequest helpRequest) {
+    boolean solved = !Boolean.TRUE.equals(wasSolved) && Boolean.TRUE.equals(helpRequest.getSolved());
+    return new HelpRequestEvent(solved ? SOLVED : UPDATED, helpRequest);
+  }
+}
@@ -0,0 +1,23 @@
+package edu.ucsb.cs156.example.models;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+/**
+ * This is a model class that represents a dining commons found near a location,
+ * with its great-circle (haversine) distance from that location.
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class NearbyCommons {
+  private UCSBDiningCommons commons;
+  private double distanceMeters;
+}
@@ -0,0 +1,23 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+/**
+ * This is a model class that represents where a help request is in the open queue.
+ * 
+ * {@code position} is 1 for the request that has waited longest, or null if the
+ * request is not in the queue (it has been solved, or has no request time).
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class QueuePosition {
+  private long id;
+  private Long position;
+}
@@ -2,13 +2,67 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.Article;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
+
+import java.util.stream.Stream;
+
 /**
  * The ArticleRepository is a repository for Article entities.
  */
 
 @Repository
-public interface ArticleRepository extends CrudRepository<Article, Long> {
-}
\ No newline at end of file
+public interface ArticleRepository extends CrudRepository<Article, Long>, PagingAndSortingRepository<Article, Long> {
+  /**
+   * This method returns the Article entities whose id is greater than the cursor, in id order.
+   * Used for keyset pagination: pass the id of the last entity on the previous page as the cursor.
+   * @param cursor id of the last entity on the previous page
+   * @param pageable the page size (the page number should always be 0)
+   * @return a slice of Article entities
+   */
+  Slice<Article> findByIdGreaterThanOrderByIdAsc(long cursor, Pageable pageable);
+
+  /**
+   * This method streams every Article entity, for exports that must not load the whole table into memory.
+   * The stream must be consumed (and closed) inside a transaction.
+   * @return a stream of all Article entities
+   */
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+  Stream<Article> streamAllBy();
+
+  /**
+   * This method searches the title and explanation of Articles with Postgres full-text search,
+   * best matches (title matches weighted above explanation matches) first.
+   * Uses the SEARCH_VECTOR column and its GIN index, which only exist on Postgres.
+   * @param query the words to search for, in web search syntax (quoted phrases, -word, or)
+   * @param pageable the page to return
+   * @return a slice of matching Article entities
+   */
+  @Query(value = "SELECT ID, TITLE, URL, EXPLANATION, EMAIL, DATE_ADDED, VERSION, LAST_MODIFIED"
+      + " FROM ARTICLES, websearch_to_tsquery('english', :query) QUERY"
+      + " WHERE SEARCH_VECTOR @@ QUERY"
+      + " ORDER BY ts_rank(SEARCH_VECTOR, QUERY) DESC, ID",
+      nativeQuery = true)
+  Slice<Article> searchRanked(@Param("query") String query, Pageable pageable);
+
+  /**
+   * This method searches the title and explanation of Articles for a substring, title matches first.
+   * A portable fallback for databases without full-text search (H2 in development); it scans the table.
+   * @param pattern a lower case LIKE pattern, with ! as the escape character
+   * @param pageable the page to return
+   * @return a slice of matching Article entities
+   */
+  @Query("SELECT a FROM articles a"
+      + " WHERE LOWER(a.title) LIKE :pattern ESCAPE '!' OR LOWER(a.explanation) LIKE :pattern ESCAPE '!'"
+      + " ORDER BY CASE WHEN LOWER(a.title) LIKE :pattern ESCAPE '!' THEN 0 ELSE 1 END, a.id")
+  Slice<Article> searchByPattern(@Param("pattern") String pattern, Pageable pageable);
+}
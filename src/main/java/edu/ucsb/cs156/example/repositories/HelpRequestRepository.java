@@ -2,13 +2,103 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.HelpRequest;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
+
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
 /**
  * The HelpRequestRepository is a repository for HelpRequest entities
  */
 @Repository
-public interface HelpRequestRepository extends CrudRepository<HelpRequest, Long> {
-  
-}
\ No newline at end of file
+public interface HelpRequestRepository extends CrudRepository<HelpRequest, Long>, PagingAndSortingRepository<HelpRequest, Long> {
+  /**
+   * This method returns the HelpRequest entities whose id is greater than the cursor, in id order.
+   * Used for keyset pagination: pass the id of the last entity on the previous page as the cursor.
+   * @param cursor id of the last entity on the previous page
+   * @param pageable the page size (the page number should always be 0)
+   * @return a slice of HelpRequest entities
+   */
+  Slice<HelpRequest> findByIdGreaterThanOrderByIdAsc(long cursor, Pageable pageable);
+
+  /**
+   * This method returns the HelpRequest entities with the given team id whose id is greater than the cursor, in id order.
+   * Backed by an index on (TEAM_ID, ID).
+   * @param teamId the team id to filter on
+   * @param cursor id of the last entity on the previous page
+   * @param pageable the page size (the page number should always be 0)
+   * @return a slice of HelpRequest entities
+   */
+  Slice<HelpRequest> findByTeamIdAndIdGreaterThanOrderByIdAsc(String teamId, long cursor, Pageable pageable);
+
+  /**
+   * This method returns the HelpRequest entities with the given solved status whose id is greater than the cursor, in id order.
+   * Backed by an index on (SOLVED, ID).
+   * @param solved the solved status to filter on
+   * @param cursor id of the last entity on the previous page
+   * @param pageable the page size (the page number should always be 0)
+   * @return a slice of HelpRequest entities
+   */
+  Slice<HelpRequest> findBySolvedAndIdGreaterThanOrderByIdAsc(boolean solved, long cursor, Pageable pageable);
+
+  /**
+   * This method returns the open (unsolved) HelpRequest entities after the given position in the queue,
+   * in order of request time, then id.  Pass the request time and id of the last entity on the previous page.
+   * Backed by HELPREQUESTS_OPEN_IDX (on Postgres, a partial index of the open requests only), so the work
+   * done depends on the number of open requests, not on how many have been solved.  The redundant
+   * {@code requestTime >= :requestTime} gives the databases an index range to start from, which they
+   * do not derive from the OR alone.
+   * @param requestTime request time of the last entity on the previous page
+   * @param id id of the last entity on the previous page
+   * @param pageable the page size (the page number should always be 0)
+   * @return a slice of HelpRequest entities
+   */
+  @Query("SELECT h FROM helprequests h WHERE h.solved = false"
+      + " AND h.requestTime >= :requestTime AND (h.requestTime > :requestTime OR h.id > :id)"
+      + " ORDER BY h.requestTime, h.id")
+  Slice<HelpRequest> findOpenAfter(@Param("requestTime") LocalDateTime requestTime, @Param("id") long id, Pageable pageable);
+
+  /**
+   * This method returns the open HelpRequest entities of a team after the given position in the queue,
+   * in order of request time, then id.  Backed by HELPREQUESTS_OPEN_IDX.
+   * @param teamId the team id to filter on
+   * @param requestTime request time of the last entity on the previous page
+   * @param id id of the last entity on the previous page
+   * @param pageable the page size (the page number should always be 0)
+   * @return a slice of HelpRequest entities
+   */
+  @Query("SELECT h FROM helprequests h WHERE h.solved = false AND h.teamId = :teamId"
+      + " AND h.requestTime >= :requestTime AND (h.requestTime > :requestTime OR h.id > :id)"
+      + " ORDER BY h.requestTime, h.id")
+  Slice<HelpRequest> findOpenByTeamIdAfter(@Param("teamId") String teamId, @Param("requestTime") LocalDateTime requestTime,
+      @Param("id") long id, Pageable pageable);
+
+  /**
+   * This method counts the open HelpRequest entities ahead of the given position in the queue.
+   * Backed by HELPREQUESTS_OPEN_IDX.
+   * @param requestTime request time of the help request
+   * @param id id of the help request
+   * @return the number of open help requests before it
+   */
+  @Query("SELECT COUNT(h) FROM helprequests h WHERE h.solved = false"
+      + " AND h.requestTime <= :requestTime AND (h.requestTime < :requestTime OR h.id < :id)")
+  long countOpenAhead(@Param("requestTime") LocalDateTime requestTime, @Param("id") long id);
+
+  /**
+   * This method streams every HelpRequest entity, for exports that must not load the whole table into memory.
+   * The stream must be consumed (and closed) inside a transaction.
+   * @return a stream of all HelpRequest entities
+   */
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+  Stream<HelpRequest> streamAllBy();
+}
@@ -0,0 +1,16 @@
+package edu.ucsb.cs156.example.repositories;
+
+/**
+ * This is a repository fragment for entities with assigned ids (such as codes).  CrudRepository.save
+ * merges such entities: it looks up each id first, one query per entity, and overwrites any existing row.
+ *
+ * @param <T> the type of the entities
+ */
+public interface InsertRepository<T> {
+  /**
+   * This method inserts new entities without looking up their ids.  Check that the ids do not
+   * exist first: an existing id fails with a primary key violation when the inserts are flushed.
+   * @param entities the entities to insert
+   */
+  void insertAll(Iterable<T> entities);
+}
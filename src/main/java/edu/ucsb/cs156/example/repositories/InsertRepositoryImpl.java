@@ -0,0 +1,24 @@
+package edu.ucsb.cs156.example.repositories;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * This is the implementation of {@link InsertRepository}, which Spring Data adds to every repository
+ * that extends it.
+ *
+ * @param <T> the type of the entities
+ */
+public class InsertRepositoryImpl<T> implements InsertRepository<T> {
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Override
+  @Transactional
+  public void insertAll(Iterable<T> entities) {
+    entities.forEach(entityManager::persist);
+  }
+}
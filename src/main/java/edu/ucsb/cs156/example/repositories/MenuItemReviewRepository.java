@@ -2,13 +2,57 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.MenuItemReview;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
+
+import java.util.stream.Stream;
+
 /**
  * The MenuItemReviewRepository is a repository for MenuItemReview entities
  */
 @Repository
-public interface MenuItemReviewRepository extends CrudRepository<MenuItemReview, Long> {
+public interface MenuItemReviewRepository extends CrudRepository<MenuItemReview, Long>, PagingAndSortingRepository<MenuItemReview, Long> {
+  /**
+   * This method returns the MenuItemReview entities whose id is greater than the cursor, in id order.
+   * Used for keyset pagination: pass the id of the last entity on the previous page as the cursor.
+   * @param cursor id of the last entity on the previous page
+   * @param pageable the page size (the page number should always be 0)
+   * @return a slice of MenuItemReview entities
+   */
+  Slice<MenuItemReview> findByIdGreaterThanOrderByIdAsc(long cursor, Pageable pageable);
+
+  /**
+   * This method returns the MenuItemReview entities with the given item id whose id is greater than the cursor, in id order.
+   * Backed by an index on (ITEM_ID, ID).
+   * @param itemId the item id to filter on
+   * @param cursor id of the last entity on the previous page
+   * @param pageable the page size (the page number should always be 0)
+   * @return a slice of MenuItemReview entities
+   */
+  Slice<MenuItemReview> findByItemIdAndIdGreaterThanOrderByIdAsc(long itemId, long cursor, Pageable pageable);
+
+  /**
+   * This method returns the MenuItemReview entities with the given reviewer email whose id is greater than the cursor, in id order.
+   * Backed by an index on (REVIEWER_EMAIL, ID).
+   * @param reviewerEmail the reviewer email to filter on
+   * @param cursor id of the last entity on the previous page
+   * @param pageable the page size (the page number should always be 0)
+   * @return a slice of MenuItemReview entities
+   */
+  Slice<MenuItemReview> findByReviewerEmailAndIdGreaterThanOrderByIdAsc(String reviewerEmail, long cursor, Pageable pageable);
 
-}
\ No newline at end of file
+  /**
+   * This method streams every MenuItemReview entity, for exports that must not load the whole table into memory.
+   * The stream must be consumed (and closed) inside a transaction.
+   * @return a stream of all MenuItemReview entities
+   */
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+  Stream<MenuItemReview> streamAllBy();
+}
@@ -0,0 +1,68 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.MenuItemReviewStats;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * The MenuItemReviewStatsRepository is a repository for MenuItemReviewStats entities
+ */
+@Repository
+public interface MenuItemReviewStatsRepository extends CrudRepository<MenuItemReviewStats, Long> {
+  /**
+   * This method returns the stats for every item with more than a given number of reviews, in itemId order.
+   * @param reviewCount the number of reviews to exceed; 0 for every item that has reviews
+   * @return an iterable of MenuItemReviewStats
+   */
+  Iterable<MenuItemReviewStats> findAllByReviewCountGreaterThanOrderByItemIdAsc(long reviewCount);
+
+  /**
+   * This method inserts a stats row with no reviews for an item, unless it already has one.  Unlike save,
+   * which merges an entity with an assigned id, it never overwrites an existing row; and unlike a plain
+   * insert, a row inserted by a concurrent transaction is not an error that aborts this one (on Postgres,
+   * this waits for that transaction and then does nothing).  H2 accepts ON CONFLICT in PostgreSQL mode.
+   * @param itemId id of the menu item
+   * @return the number of rows inserted (0 if the item already had a row)
+   */
+  @Modifying
+  @Query(value = "INSERT INTO MENUITEMREVIEWSTATS"
+      + " (ITEM_ID, REVIEW_COUNT, STAR_SUM, STARS1, STARS2, STARS3, STARS4, STARS5)"
+      + " VALUES (:itemId, 0, 0, 0, 0, 0, 0, 0)"
+      + " ON CONFLICT DO NOTHING",
+      nativeQuery = true)
+  int insertEmptyIfAbsent(@Param("itemId") long itemId);
+
+  /**
+   * This method atomically adds (delta &gt; 0) or removes (delta &lt; 0) delta reviews with the given stars
+   * to the stats row for an item.  The update is done in the database so that concurrent reviews
+   * of the same item are not lost.
+   * @param itemId id of the menu item
+   * @param stars number of stars in the review
+   * @param delta the number of reviews to add, or minus the number to remove
+   * @return the number of rows updated (0 if the item has no stats row yet)
+   */
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("update menuitemreviewstats s set "
+      + "s.reviewCount = s.reviewCount + :delta, "
+      + "s.starSum = s.starSum + :stars * :delta, "
+      + "s.stars1 = s.stars1 + case when :stars = 1 then :delta else 0 end, "
+      + "s.stars2 = s.stars2 + case when :stars = 2 then :delta else 0 end, "
+      + "s.stars3 = s.stars3 + case when :stars = 3 then :delta else 0 end, "
+      + "s.stars4 = s.stars4 + case when :stars = 4 then :delta else 0 end, "
+      + "s.stars5 = s.stars5 + case when :stars = 5 then :delta else 0 end "
+      + "where s.itemId = :itemId")
+  int adjust(@Param("itemId") long itemId, @Param("stars") long stars, @Param("delta") long delta);
+
+  /**
+   * This method deletes the stats row for an item once its last review has been removed.
+   * @param itemId id of the menu item
+   * @return the number of rows deleted
+   */
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("delete from menuitemreviewstats s where s.itemId = :itemId and s.reviewCount <= 0")
+  int deleteIfEmpty(@Param("itemId") long itemId);
+}
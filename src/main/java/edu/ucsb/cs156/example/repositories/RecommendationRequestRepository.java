@@ -2,14 +2,58 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.RecommendationRequest;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
+
+import java.util.stream.Stream;
+
 /**
  * The RecommendationRequestRepository is a repository for RecommendationRequest entities.
  */
 
 @Repository
-public interface RecommendationRequestRepository extends CrudRepository<RecommendationRequest, Long> {
-    
+public interface RecommendationRequestRepository extends CrudRepository<RecommendationRequest, Long>, PagingAndSortingRepository<RecommendationRequest, Long> {
+  /**
+   * This method returns the RecommendationRequest entities whose id is greater than the cursor, in id order.
+   * Used for keyset pagination: pass the id of the last entity on the previous page as the cursor.
+   * @param cursor id of the last entity on the previous page
+   * @param pageable the page size (the page number should always be 0)
+   * @return a slice of RecommendationRequest entities
+   */
+  Slice<RecommendationRequest> findByIdGreaterThanOrderByIdAsc(long cursor, Pageable pageable);
+
+  /**
+   * This method returns the RecommendationRequest entities with the given professor email whose id is greater than the cursor, in id order.
+   * Backed by an index on (PROFESSOR_EMAIL, ID).
+   * @param professorEmail the professor email to filter on
+   * @param cursor id of the last entity on the previous page
+   * @param pageable the page size (the page number should always be 0)
+   * @return a slice of RecommendationRequest entities
+   */
+  Slice<RecommendationRequest> findByProfessorEmailAndIdGreaterThanOrderByIdAsc(String professorEmail, long cursor, Pageable pageable);
+
+  /**
+   * This method returns the RecommendationRequest entities with the given done status whose id is greater than the cursor, in id order.
+   * Backed by an index on (DONE, ID).
+   * @param done the done status to filter on
+   * @param cursor id of the last entity on the previous page
+   * @param pageable the page size (the page number should always be 0)
+   * @return a slice of RecommendationRequest entities
+   */
+  Slice<RecommendationRequest> findByDoneAndIdGreaterThanOrderByIdAsc(boolean done, long cursor, Pageable pageable);
+
+  /**
+   * This method streams every RecommendationRequest entity, for exports that must not load the whole table into memory.
+   * The stream must be consumed (and closed) inside a transaction.
+   * @return a stream of all RecommendationRequest entities
+   */
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+  Stream<RecommendationRequest> streamAllBy();
 }
@@ -2,12 +2,37 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.Restaurant;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
+
+import java.util.stream.Stream;
+
 /**
  * The RestaurantRepository is a repository for Restaurant entities
  */
 @Repository
-public interface RestaurantRepository extends CrudRepository<Restaurant, Long> {
+public interface RestaurantRepository extends CrudRepository<Restaurant, Long>, PagingAndSortingRepository<Restaurant, Long> {
+  /**
+   * This method returns the Restaurant entities whose id is greater than the cursor, in id order.
+   * Used for keyset pagination: pass the id of the last entity on the previous page as the cursor.
+   * @param cursor id of the last entity on the previous page
+   * @param pageable the page size (the page number should always be 0)
+   * @return a slice of Restaurant entities
+   */
+  Slice<Restaurant> findByIdGreaterThanOrderByIdAsc(long cursor, Pageable pageable);
+
+  /**
+   * This method streams every Restaurant entity, for exports that must not load the whole table into memory.
+   * The stream must be consumed (and closed) inside a transaction.
+   * @return a stream of all Restaurant entities
+   */
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+  Stream<Restaurant> streamAllBy();
 }
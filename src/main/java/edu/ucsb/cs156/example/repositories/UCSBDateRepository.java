@@ -2,19 +2,68 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBDate;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
 /**
  * The UCSBDateRepository is a repository for UCSBDate entities.
  */
 
 @Repository
-public interface UCSBDateRepository extends CrudRepository<UCSBDate, Long> {
+public interface UCSBDateRepository extends CrudRepository<UCSBDate, Long>, PagingAndSortingRepository<UCSBDate, Long> {
   /**
    * This method returns all UCSBDate entities with a given quarterYYYYQ.
    * @param quarterYYYYQ quarter in the format YYYYQ (e.g. 20241 for Winter 2024, 20242 for Spring 2024, 20243 for Summer 2024, 20244 for Fall 2024)
    * @return all UCSBDate entities with a given quarterYYYYQ
    */
   Iterable<UCSBDate> findAllByQuarterYYYYQ(String quarterYYYYQ);
-}
\ No newline at end of file
+
+  /**
+   * This method returns the UCSBDate entities of a quarter in date order, using UCSBDATES_QUARTER_DATE_IDX.
+   * The result is kept in the ucsbdatesbyquarter query cache region, keyed by quarter, until the table is next written.
+   * @param quarterYYYYQ quarter in the format YYYYQ
+   * @return the UCSBDate entities of the quarter, ordered by localDateTime then id
+   */
+  @QueryHints({
+      @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+      @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "ucsbdatesbyquarter")
+  })
+  List<UCSBDate> findByQuarterYYYYQOrderByLocalDateTimeAscIdAsc(String quarterYYYYQ);
+
+  /**
+   * This method returns the UCSBDate entities between two date-times (inclusive) in date order,
+   * using UCSBDATES_DATE_IDX.
+   * @param from the earliest localDateTime to return
+   * @param to the latest localDateTime to return
+   * @return the UCSBDate entities in the range, ordered by localDateTime then id
+   */
+  List<UCSBDate> findByLocalDateTimeBetweenOrderByLocalDateTimeAscIdAsc(LocalDateTime from, LocalDateTime to);
+
+  /**
+   * This method returns the UCSBDate entities whose id is greater than the cursor, in id order.
+   * Used for keyset pagination: pass the id of the last entity on the previous page as the cursor.
+   * @param cursor id of the last entity on the previous page
+   * @param pageable the page size (the page number should always be 0)
+   * @return a slice of UCSBDate entities
+   */
+  Slice<UCSBDate> findByIdGreaterThanOrderByIdAsc(long cursor, Pageable pageable);
+
+  /**
+   * This method streams every UCSBDate entity, for exports that must not load the whole table into memory.
+   * The stream must be consumed (and closed) inside a transaction.
+   * @return a stream of all UCSBDate entities
+   */
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+  Stream<UCSBDate> streamAllBy();
+}
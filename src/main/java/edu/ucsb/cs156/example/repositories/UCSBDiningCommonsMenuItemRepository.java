@@ -3,13 +3,47 @@ package edu.ucsb.cs156.example.repositories;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
 
 import org.springframework.beans.propertyeditors.StringArrayPropertyEditor;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
+
+import java.util.stream.Stream;
+
 /**
  * The UCSBDiningCommonsMenuItemsRepository is a repository for UCSBDiningCommonsMenuItem entities
  */
 @Repository
-public interface UCSBDiningCommonsMenuItemRepository extends CrudRepository<UCSBDiningCommonsMenuItem, Long>{
+public interface UCSBDiningCommonsMenuItemRepository extends CrudRepository<UCSBDiningCommonsMenuItem, Long>, PagingAndSortingRepository<UCSBDiningCommonsMenuItem, Long> {
+  /**
+   * This method returns the UCSBDiningCommonsMenuItem entities whose id is greater than the cursor, in id order.
+   * Used for keyset pagination: pass the id of the last entity on the previous page as the cursor.
+   * @param cursor id of the last entity on the previous page
+   * @param pageable the page size (the page number should always be 0)
+   * @return a slice of UCSBDiningCommonsMenuItem entities
+   */
+  Slice<UCSBDiningCommonsMenuItem> findByIdGreaterThanOrderByIdAsc(long cursor, Pageable pageable);
+
+  /**
+   * This method returns the UCSBDiningCommonsMenuItem entities with the given dining commons code whose id is greater than the cursor, in id order.
+   * Backed by an index on (DINING_COMMONS_CODE, ID).
+   * @param diningCommonsCode the dining commons code to filter on
+   * @param cursor id of the last entity on the previous page
+   * @param pageable the page size (the page number should always be 0)
+   * @return a slice of UCSBDiningCommonsMenuItem entities
+   */
+  Slice<UCSBDiningCommonsMenuItem> findByDiningCommonsCodeAndIdGreaterThanOrderByIdAsc(String diningCommonsCode, long cursor, Pageable pageable);
 
-}
\ No newline at end of file
+  /**
+   * This method streams every UCSBDiningCommonsMenuItem entity, for exports that must not load the whole table into memory.
+   * The stream must be consumed (and closed) inside a transaction.
+   * @return a stream of all UCSBDiningCommonsMenuItem entities
+   */
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+  Stream<UCSBDiningCommonsMenuItem> streamAllBy();
+}
@@ -3,13 +3,48 @@ package edu.ucsb.cs156.example.repositories;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
 
 import org.springframework.beans.propertyeditors.StringArrayPropertyEditor;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
+
+import java.util.stream.Stream;
+
 /**
  * The UCSBDiningCommonsRepository is a repository for UCSBDiningCommons entities
  */
 @Repository
-public interface UCSBDiningCommonsRepository extends CrudRepository<UCSBDiningCommons, String> {
- 
-}
\ No newline at end of file
+public interface UCSBDiningCommonsRepository extends CrudRepository<UCSBDiningCommons, String>, PagingAndSortingRepository<UCSBDiningCommons, String>,
+    InsertRepository<UCSBDiningCommons> {
+  /**
+   * This method returns all UCSBDiningCommons entities.  The result is kept in the query cache
+   * until the table is next written.
+   * @return all UCSBDiningCommons entities
+   */
+  @Override
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+  Iterable<UCSBDiningCommons> findAll();
+
+  /**
+   * This method returns the UCSBDiningCommons entities whose code is greater than the cursor, in code order.
+   * Used for keyset pagination: pass the code of the last entity on the previous page as the cursor.
+   * @param cursor code of the last entity on the previous page
+   * @param pageable the page size (the page number should always be 0)
+   * @return a slice of UCSBDiningCommons entities
+   */
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+  Slice<UCSBDiningCommons> findByCodeGreaterThanOrderByCodeAsc(String cursor, Pageable pageable);
+
+  /**
+   * This method streams every UCSBDiningCommons entity, for exports that must not load the whole table into memory.
+   * The stream must be consumed (and closed) inside a transaction.
+   * @return a stream of all UCSBDiningCommons entities
+   */
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+  Stream<UCSBDiningCommons> streamAllBy();
+}
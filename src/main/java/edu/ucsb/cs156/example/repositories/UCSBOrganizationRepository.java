@@ -3,13 +3,48 @@ package edu.ucsb.cs156.example.repositories;
 import edu.ucsb.cs156.example.entities.UCSBOrganization;
 
 import org.springframework.beans.propertyeditors.StringArrayPropertyEditor;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
+
+import java.util.stream.Stream;
+
 /**
  * The UCSBOrganizationRepository is a repository for UCSBOrganization entities
  */
 @Repository
-public interface UCSBOrganizationRepository extends CrudRepository<UCSBOrganization, String> {
- 
-}
\ No newline at end of file
+public interface UCSBOrganizationRepository extends CrudRepository<UCSBOrganization, String>, PagingAndSortingRepository<UCSBOrganization, String>,
+    InsertRepository<UCSBOrganization> {
+  /**
+   * This method returns all UCSBOrganization entities.  The result is kept in the query cache
+   * until the table is next written.
+   * @return all UCSBOrganization entities
+   */
+  @Override
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+  Iterable<UCSBOrganization> findAll();
+
+  /**
+   * This method returns the UCSBOrganization entities whose orgCode is greater than the cursor, in orgCode order.
+   * Used for keyset pagination: pass the orgCode of the last entity on the previous page as the cursor.
+   * @param cursor orgCode of the last entity on the previous page
+   * @param pageable the page size (the page number should always be 0)
+   * @return a slice of UCSBOrganization entities
+   */
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+  Slice<UCSBOrganization> findByOrgCodeGreaterThanOrderByOrgCodeAsc(String cursor, Pageable pageable);
+
+  /**
+   * This method streams every UCSBOrganization entity, for exports that must not load the whole table into memory.
+   * The stream must be consumed (and closed) inside a transaction.
+   * @return a stream of all UCSBOrganization entities
+   */
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+  Stream<UCSBOrganization> streamAllBy();
+}
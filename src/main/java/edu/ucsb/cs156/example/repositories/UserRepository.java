@@ -1,20 +1,56 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.User;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
+
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * The UserRepository is a repository for User entities.
  */
 @Repository
-public interface UserRepository extends CrudRepository<User, Long> {
+public interface UserRepository extends CrudRepository<User, Long>, PagingAndSortingRepository<User, Long> {
   /**
    * This method returns a User entity with a given email.
+   * Email is unique (index USERS_EMAIL_IDX), but if duplicate rows ever exist the oldest one is returned
+   * rather than failing with IncorrectResultSizeDataAccessException.
+   * @param email email address of the user
+   * @return Optional of User (empty if not found)
+   */
+  default Optional<User> findByEmail(String email) {
+    return findFirstByEmailOrderByIdAsc(email);
+  }
+
+  /**
+   * This method returns the User entity with the lowest id for a given email.
    * @param email email address of the user
    * @return Optional of User (empty if not found)
    */
-  Optional<User> findByEmail(String email);
+  Optional<User> findFirstByEmailOrderByIdAsc(String email);
+
+  /**
+   * This method returns the User entities whose id is greater than the cursor, in id order.
+   * Used for keyset pagination: pass the id of the last entity on the previous page as the cursor.
+   * @param cursor id of the last entity on the previous page
+   * @param pageable the page size (the page number should always be 0)
+   * @return a slice of User entities
+   */
+  Slice<User> findByIdGreaterThanOrderByIdAsc(long cursor, Pageable pageable);
+
+  /**
+   * This method streams every User entity, for exports that must not load the whole table into memory.
+   * The stream must be consumed (and closed) inside a transaction.
+   * @return a stream of all User entities
+   */
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+  Stream<User> streamAllBy();
 }
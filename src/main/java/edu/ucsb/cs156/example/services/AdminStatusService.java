@@ -0,0 +1,118 @@
+package edu.ucsb.cs156.example.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import jakarta.annotation.PostConstruct;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * This is a service that decides whether a user is an admin, for the roles granted at login
+ * (see SecurityConfig.userAuthoritiesMapper) and when a session token is renewed.
+ *
+ * A user is an admin if their email is in app.admin.emails, or if their row in the users table
+ * has admin set.  It also keeps the one cached lookup of the users table by email, which
+ * CurrentUserServiceImpl uses too: the row (or its absence) is reused for app.users.cacheTtl,
+ * so that neither a burst of logins (e.g. at the start of a lab section) nor polling /api/currentUser
+ * queries the table for each request.  The cache holds detached copies of the rows, and hands out
+ * copies, so that callers cannot change each other's User.  Code that saves a User calls {@link #userSaved(User)};
+ * a change made directly in the table applies after app.users.cacheTtl, or after {@link #invalidate(String)}.
+ */
+
+@Service("adminStatus")
+public class AdminStatusService {
+
+  @Autowired
+  UserRepository userRepository;
+
+  @Value("${app.admin.emails}")
+  Set<String> adminEmails = new HashSet<>();
+
+  @Value("${app.users.cacheTtl:PT5M}")
+  Duration cacheTtl = Duration.ofMinutes(5);
+
+  Ticker ticker = Ticker.systemTicker();
+
+  private Cache<String, Optional<User>> usersByEmail;
+
+  @PostConstruct
+  void buildCache() {
+    usersByEmail = Caffeine.newBuilder()
+        .expireAfterWrite(cacheTtl)
+        .maximumSize(10_000)
+        .ticker(ticker)
+        .build();
+  }
+
+  /**
+   * This method checks if the given email belongs to an admin user, either from
+   * app.admin.emails or (cached) from the user repository.
+   *
+   * @param email email address of the user
+   * @return whether the user with the given email is an admin
+   */
+  public boolean isAdmin(String email) {
+    return isListedAdmin(email) || findUser(email).map(User::getAdmin).orElse(false);
+  }
+
+  /**
+   * This method checks if the given email is in app.admin.emails.
+   *
+   * @param email email address of the user
+   * @return whether the email is listed as an admin's
+   */
+  public boolean isListedAdmin(String email) {
+    return adminEmails.contains(email);
+  }
+
+  /**
+   * This method returns the user with the given email from the users table, cached.
+   *
+   * @param email email address of the user
+   * @return a copy of the user, or empty if there is no row for the email
+   */
+  public Optional<User> findUser(String email) {
+    return usersByEmail.get(email, e -> userRepository.findByEmail(e).map(AdminStatusService::copy))
+        .map(AdminStatusService::copy);
+  }
+
+  /**
+   * This method replaces the cached row for a user that has just been saved (created, or
+   * made an admin).
+   * @param user the saved user
+   */
+  public void userSaved(User user) {
+    usersByEmail.put(user.getEmail(), Optional.of(copy(user)));
+  }
+
+  /**
+   * This method drops the cached row for the given email, so that the next lookup
+   * re-reads it from the database.
+   * @param email email address of the user
+   */
+  public void invalidate(String email) {
+    usersByEmail.invalidate(email);
+  }
+
+  /**
+   * This method drops all cached rows.
+   */
+  public void invalidateAll() {
+    usersByEmail.invalidateAll();
+  }
+
+  private static User copy(User user) {
+    return user.toBuilder().build();
+  }
+}
@@ -0,0 +1,56 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.Article;
+import edu.ucsb.cs156.example.repositories.ArticleRepository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * This is a service that searches Articles by title and explanation.
+ *
+ * On Postgres (production) it uses full-text search over a generated tsvector column with a GIN index,
+ * ranked with ts_rank, so searches stay fast as the table grows.  Other databases (H2 in development
+ * and tests) fall back to a case-insensitive substring match that ranks title matches first.
+ */
+
+@Service("articleSearch")
+public class ArticleSearchService {
+
+  @Autowired
+  ArticleRepository articleRepository;
+
+  @Value("${spring.datasource.url:}")
+  String datasourceUrl;
+
+  /**
+   * This method returns a page of the Articles matching a query, best matches first.
+   * @param query the words to search for
+   * @param pageable the page to return
+   * @return a slice of matching Articles; empty if the query is blank
+   */
+  public Slice<Article> search(String query, Pageable pageable) {
+    if (query.isBlank()) {
+      return new SliceImpl<>(List.of(), pageable, false);
+    }
+    if (datasourceUrl.startsWith("jdbc:postgresql:")) {
+      return articleRepository.searchRanked(query, pageable);
+    }
+    return articleRepository.searchByPattern(likePattern(query), pageable);
+  }
+
+  static String likePattern(String query) {
+    String escaped = query.strip().toLowerCase(Locale.ROOT)
+        .replace("!", "!!")
+        .replace("%", "!%")
+        .replace("_", "!_");
+    return "%" + escaped + "%";
+  }
+}
@@ -0,0 +1,181 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.models.CsvImportResult;
+import edu.ucsb.cs156.example.models.CsvImportResult.RejectedRow;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * This is a service that imports entities from a CSV file with a header row.
+ *
+ * The file is parsed one record at a time, so memory use does not depend on the size of the file.
+ * Valid rows are written in chunks of {@code app.import.chunkSize}, each chunk in its own transaction
+ * (and, with hibernate.jdbc.batch_size set, as JDBC batches); invalid rows are counted and skipped.
+ * A chunk that fails to write stops the import; the chunks before it stay committed.
+ */
+
+@Slf4j
+@Service("csvImport")
+public class CsvImportService {
+
+  private static final CSVFormat FORMAT = CSVFormat.DEFAULT.builder()
+      .setHeader()
+      .setSkipHeaderRecord(true)
+      .setIgnoreEmptyLines(true)
+      .setTrim(true)
+      .build();
+
+  private static final int MAX_LENGTH = 255;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Value("${app.import.chunkSize:500}")
+  private int chunkSize = 500;
+
+  @Value("${app.import.maxRejectedReported:100}")
+  private int maxRejectedReported = 100;
+
+  /**
+   * This method imports the rows of a CSV file.
+   *
+   * @param <T> the type of entity each row becomes
+   * @param entity name of the entity, used to tag the csv.import.rows metric
+   * @param in the CSV file; read to the end but not closed
+   * @param columns the columns the header row must contain
+   * @param parseRow converts a record to an entity, throwing IllegalArgumentException if the row is invalid
+   * @param writeChunk saves a chunk of entities; called inside a transaction
+   * @return counts of rows read, imported and rejected, and the import throughput
+   * @throws ResponseStatusException (400) if a column is missing, the header row has an empty or repeated
+   *         column name, or the file is not valid CSV
+   */
+  public <T> CsvImportResult importCsv(String entity, InputStream in, List<String> columns,
+      Function<CSVRecord, T> parseRow, Consumer<List<T>> writeChunk) {
+    long start = System.nanoTime();
+    TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+    List<RejectedRow> rejected = new ArrayList<>();
+    List<T> chunk = new ArrayList<>(chunkSize);
+    long rowsRead = 0;
+    long rowsImported = 0;
+    long rowsRejected = 0;
+
+    try (CSVParser parser = parse(in)) {
+      List<String> missing = columns.stream().filter(c -> !parser.getHeaderNames().contains(c)).toList();
+      if (!missing.isEmpty()) {
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "CSV is missing column(s) " + missing);
+      }
+      for (CSVRecord record : parser) {
+        rowsRead++;
+        try {
+          chunk.add(parseRow.apply(record));
+        } catch (IllegalArgumentException e) {
+          rowsRejected++;
+          if (rejected.size() < maxRejectedReported) {
+            rejected.add(new RejectedRow(record.getRecordNumber(), e.getMessage()));
+          }
+        }
+        if (chunk.size() == chunkSize) {
+          rowsImported += writeChunk(transactionTemplate, chunk, writeChunk);
+        }
+      }
+      rowsImported += writeChunk(transactionTemplate, chunk, writeChunk);
+    } catch (IOException | UncheckedIOException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+          "CSV could not be parsed after row %d: %s".formatted(rowsRead, e.getMessage()));
+    } finally {
+      meterRegistry.counter("csv.import.rows", "entity", entity, "outcome", "imported").increment(rowsImported);
+      meterRegistry.counter("csv.import.rows", "entity", entity, "outcome", "rejected").increment(rowsRejected);
+    }
+
+    long elapsedNanos = System.nanoTime() - start;
+    CsvImportResult result = CsvImportResult.builder()
+        .rowsRead(rowsRead)
+        .rowsImported(rowsImported)
+        .rowsRejected(rowsRejected)
+        .rejected(rejected)
+        .elapsedMillis(elapsedNanos / 1_000_000)
+        .rowsPerSecond(rowsImported * 1e9 / Math.max(elapsedNanos, 1))
+        .build();
+    log.info("imported {}: {}", entity, result);
+    return result;
+  }
+
+  private static CSVParser parse(InputStream in) throws IOException {
+    try {
+      return FORMAT.parse(new InputStreamReader(in, StandardCharsets.UTF_8));
+    } catch (IllegalArgumentException e) {
+      // commons-csv rejects empty and repeated header names this way
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "CSV header row is invalid: " + e.getMessage());
+    }
+  }
+
+  private <T> int writeChunk(TransactionTemplate transactionTemplate, List<T> chunk, Consumer<List<T>> writeChunk) {
+    int size = chunk.size();
+    if (size > 0) {
+      transactionTemplate.executeWithoutResult(status -> writeChunk.accept(chunk));
+      chunk.clear();
+    }
+    return size;
+  }
+
+  /**
+   * This method returns the value of a column that must not be blank or longer than a VARCHAR(255).
+   * @param record the CSV record
+   * @param column the column name
+   * @return the (trimmed) value
+   * @throws IllegalArgumentException if the value is blank or too long
+   */
+  public static String required(CSVRecord record, String column) {
+    String value = record.get(column);
+    if (value.isEmpty()) {
+      throw new IllegalArgumentException(column + " is required");
+    }
+    if (value.length() > MAX_LENGTH) {
+      throw new IllegalArgumentException(column + " is longer than " + MAX_LENGTH + " characters");
+    }
+    return value;
+  }
+
+  /**
+   * This method returns the value of a column that must be true or false (ignoring case).
+   * @param record the CSV record
+   * @param column the column name
+   * @return the value
+   * @throws IllegalArgumentException if the value is not true or false
+   */
+  public static boolean requiredBoolean(CSVRecord record, String column) {
+    String value = record.get(column);
+    if (value.equalsIgnoreCase("true")) {
+      return true;
+    }
+    if (value.equalsIgnoreCase("false")) {
+      return false;
+    }
+    throw new IllegalArgumentException(column + " must be true or false, not '" + value + "'");
+  }
+}
@@ -1,18 +1,19 @@
 package edu.ucsb.cs156.example.services;
 
+import edu.ucsb.cs156.example.config.SessionTokenAuthentication;
 import edu.ucsb.cs156.example.entities.User;
 import edu.ucsb.cs156.example.models.CurrentUser;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.authentication.event.LogoutSuccessEvent;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContext;
@@ -25,6 +26,11 @@ import org.springframework.stereotype.Service;
  * This is a service that provides information about the current user.
  * 
  * This is the version of the service used in production.
+ *
+ * The User is looked up through {@link AdminStatusService}, which caches the users table by email
+ * (the same lookup that decides admin status at login), so that polling /api/currentUser does not
+ * query the users table on every request.  The entry is dropped when the principal logs out.
+ * In stateless mode (app.session.stateless) the User is taken from the session token instead.
  */
 
 @Slf4j
@@ -32,13 +38,29 @@ import org.springframework.stereotype.Service;
 @Primary
 public class CurrentUserServiceImpl extends CurrentUserService {
   @Autowired
-  private UserRepository userRepository;
+  UserRepository userRepository;
 
   @Autowired
   GrantedAuthoritiesService grantedAuthoritiesService;
 
-  @Value("${app.admin.emails}")
-  final private List<String> adminEmails = new ArrayList<String>();
+  @Autowired
+  AdminStatusService adminStatusService;
+
+  /**
+   * This method drops the cached User when an OAuth2 principal logs out, so that their next
+   * login re-reads it.  A login itself keeps it: the roles of that login were just computed
+   * from the same cached row.
+   * @param event the logout event (published by Spring Security)
+   */
+  @EventListener
+  public void onLogout(LogoutSuccessEvent event) {
+    if (event.getAuthentication().getPrincipal() instanceof OAuth2User oAuthUser) {
+      String email = oAuthUser.getAttribute("email");
+      if (email != null) {
+        adminStatusService.invalidate(email);
+      }
+    }
+  }
 
   /**
    * This method returns the current user as a User object.
@@ -49,7 +71,7 @@ public class CurrentUserServiceImpl extends CurrentUserService {
       .user(this.getUser())
       .roles(this.getRoles())
       .build();
-    log.info("getCurrentUser returns {}",cu);
+    log.debug("getCurrentUser returns {}",cu);
     return cu;
   }
 
@@ -58,6 +80,8 @@ public class CurrentUserServiceImpl extends CurrentUserService {
    * The parameters are automatically injected by Spring.
    * 
    * This method also has a side effect of storing the user in the database if they are not already there.
+   * The result is cached per email; see {@link AdminStatusService#findUser(String)}.  A login restored from
+   * a session token already carries the User, as it was at login.
    * 
    * @param securityContext the security context (provided by Spring)
    * @param authentication the authentication token (provided by Spring)
@@ -65,7 +89,19 @@ public class CurrentUserServiceImpl extends CurrentUserService {
    */
   
   public User getOAuth2AuthenticatedUser(SecurityContext securityContext, Authentication authentication) {
+    if (authentication instanceof SessionTokenAuthentication token && token.getUser() != null) {
+      return token.getUser();
+    }
     OAuth2User oAuthUser = ((OAuth2AuthenticationToken) authentication).getPrincipal();
+    String email = oAuthUser.getAttribute("email");
+    Optional<User> ou = adminStatusService.findUser(email);
+    if (ou.isPresent() && (ou.get().getAdmin() || !adminStatusService.isListedAdmin(email))) {
+      return ou.get();
+    }
+    return saveUser(oAuthUser, ou);
+  }
+
+  private User saveUser(OAuth2User oAuthUser, Optional<User> ou) {
     String email = oAuthUser.getAttribute("email");
     String googleSub = oAuthUser.getAttribute("sub");
     String pictureUrl = oAuthUser.getAttribute("picture");
@@ -77,15 +113,14 @@ public class CurrentUserServiceImpl extends CurrentUserService {
     String hostedDomain = oAuthUser.getAttribute("hd");
 
     java.util.Map<java.lang.String,java.lang.Object> attrs = oAuthUser.getAttributes();
-    log.info("attrs={}",attrs);
+    log.debug("attrs={}",attrs);
 
-    Optional<User> ou = userRepository.findByEmail(email);
     if (ou.isPresent()) {
+      // listed in app.admin.emails, but not yet an admin in the users table
       User u = ou.get();
-      if (adminEmails.contains(email) && !u.getAdmin()) {
-        u.setAdmin(true);
-        userRepository.save(u);
-      }
+      u.setAdmin(true);
+      userRepository.save(u);
+      adminStatusService.userSaved(u);
       return u;
     }
 
@@ -99,9 +134,15 @@ public class CurrentUserServiceImpl extends CurrentUserService {
         .emailVerified(emailVerified)
         .locale(locale)
         .hostedDomain(hostedDomain)
-        .admin(adminEmails.contains(email))
+        .admin(adminStatusService.isListedAdmin(email))
         .build();
-    userRepository.save(u);
+    try {
+      userRepository.save(u);
+    } catch (DataIntegrityViolationException e) {
+      // another request created this user first (USERS_EMAIL_IDX is unique)
+      u = userRepository.findByEmail(email).orElseThrow(() -> e);
+    }
+    adminStatusService.userSaved(u);
     return u;
   }
 
@@ -0,0 +1,169 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.geo.KdTree;
+import edu.ucsb.cs156.example.models.NearbyCommons;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * This is a service that finds the dining commons nearest to a location, from an in-memory
+ * spatial index ({@link KdTree}) of the commons that have a latitude and longitude.
+ *
+ * The index is built from the repository on first use.  Changes made through JPA on this instance
+ * are applied to it incrementally once their transaction commits
+ * (see {@link edu.ucsb.cs156.example.entities.DiningCommonsLocationListener}); it is also rebuilt
+ * every app.diningCommons.indexTtl, which bounds how long changes made by other instances go unseen,
+ * as for the second-level cache of the same table.
+ */
+
+@Service("diningCommonsLocations")
+public class DiningCommonsLocationService {
+
+  @Autowired
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @Value("${app.diningCommons.indexTtl:PT10M}")
+  Duration indexTtl = Duration.ofMinutes(10);
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private KdTree<String> tree;
+  private Map<String, UCSBDiningCommons> commons;
+  private long builtAt;
+
+  /**
+   * This method returns the commons nearest to a location.
+   * @param lat latitude in degrees
+   * @param lon longitude in degrees
+   * @param limit the maximum number of commons to return
+   * @return up to limit commons, nearest first, with their distances
+   */
+  public List<NearbyCommons> nearby(double lat, double lon, int limit) {
+    ensureBuilt();
+    lock.readLock().lock();
+    try {
+      return tree.nearest(lat, lon, limit).stream()
+          .map(n -> NearbyCommons.builder().commons(commons.get(n.key())).distanceMeters(n.distanceMeters()).build())
+          .toList();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * This method updates the index for a saved commons, once the current transaction (if any) commits.
+   * @param saved the commons that was inserted or updated
+   */
+  public void commonsSaved(UCSBDiningCommons saved) {
+    UCSBDiningCommons copy = copy(saved);
+    afterCommit(() -> put(copy));
+  }
+
+  /**
+   * This method removes a deleted commons from the index, once the current transaction (if any) commits.
+   * @param deleted the commons that was deleted
+   */
+  public void commonsDeleted(UCSBDiningCommons deleted) {
+    String code = deleted.getCode();
+    afterCommit(() -> {
+      lock.writeLock().lock();
+      try {
+        if (tree != null) {
+          tree.remove(code);
+          commons.remove(code);
+        }
+      } finally {
+        lock.writeLock().unlock();
+      }
+    });
+  }
+
+  private boolean fresh() {
+    return tree != null && System.nanoTime() - builtAt < indexTtl.toNanos();
+  }
+
+  private void ensureBuilt() {
+    lock.readLock().lock();
+    try {
+      if (fresh()) {
+        return;
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    lock.writeLock().lock();
+    try {
+      // another caller may have rebuilt the index while this one waited for the lock
+      if (fresh()) {
+        return;
+      }
+      tree = new KdTree<>();
+      commons = new HashMap<>();
+      for (UCSBDiningCommons c : ucsbDiningCommonsRepository.findAll()) {
+        index(copy(c));
+      }
+      tree.rebuild();
+      builtAt = System.nanoTime();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void put(UCSBDiningCommons c) {
+    lock.writeLock().lock();
+    try {
+      if (tree != null) {
+        tree.remove(c.getCode());
+        commons.remove(c.getCode());
+        index(c);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void index(UCSBDiningCommons c) {
+    if (c.getLatitude() != null && c.getLongitude() != null) {
+      tree.put(c.getCode(), c.getLatitude(), c.getLongitude());
+      commons.put(c.getCode(), c);
+    }
+  }
+
+  /** The listener sees the managed entity, which may change again before the transaction commits. */
+  private static UCSBDiningCommons copy(UCSBDiningCommons c) {
+    return UCSBDiningCommons.builder()
+        .code(c.getCode())
+        .name(c.getName())
+        .hasSackMeal(c.getHasSackMeal())
+        .hasTakeOutMeal(c.getHasTakeOutMeal())
+        .hasDiningCam(c.getHasDiningCam())
+        .latitude(c.getLatitude())
+        .longitude(c.getLongitude())
+        .build();
+  }
+
+  private static void afterCommit(Runnable change) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          change.run();
+        }
+      });
+    } else {
+      change.run();
+    }
+  }
+}
@@ -0,0 +1,256 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.models.HelpRequestEvent;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This is a service that pushes changes to help requests to the clients of /api/helprequests/stream
+ * as server-sent events, so that they do not have to poll /api/helprequests/all.
+ *
+ * Each {@link HelpRequestEvent} is serialized once, when its transaction commits, and the same bytes
+ * are written to every subscriber; subscribers cause no database queries.  Events are numbered, and the
+ * last app.helpRequests.stream.replayBuffer of them are kept so that a client reconnecting with
+ * Last-Event-ID receives the events it missed.  Event ids have the form {@code <epoch>-<number>}, where
+ * the epoch is chosen at random when this instance starts.  If the missed events are no longer available,
+ * or the Last-Event-ID has a different epoch (it was numbered before a restart, or by another instance),
+ * the client is sent a "reset" event, telling it to reload the help requests before applying further events.
+ *
+ * Events are written to the streams by a pool of app.helpRequests.stream.senderThreads threads, not by
+ * the request thread that made the change, and each stream has its own queue of events not yet written
+ * to it, so a slow client delays neither the change nor the other clients.  A stream whose queue
+ * reaches app.helpRequests.stream.subscriberQueue events is completed (the client reconnects and
+ * resumes, or is reset).
+ *
+ * Events are only delivered to clients connected to the instance that made the change.
+ */
+
+@Service("helpRequestStream")
+public class HelpRequestStreamService {
+
+  /** Sent to a new subscriber, with the id of the latest event, so that it can resume from there. */
+  public static final String READY = "ready";
+
+  /** Sent to a resuming subscriber when the events it missed are no longer available. */
+  public static final String RESET = "reset";
+
+  @Autowired
+  ObjectMapper mapper;
+
+  @Value("${app.helpRequests.stream.replayBuffer:1000}")
+  int replayBuffer = 1000;
+
+  @Value("${app.helpRequests.stream.timeout:PT30M}")
+  Duration timeout = Duration.ofMinutes(30);
+
+  @Value("${app.helpRequests.stream.subscriberQueue:1000}")
+  int subscriberQueue = 1000;
+
+  @Value("${app.helpRequests.stream.senderThreads:8}")
+  int senderThreads = 8;
+
+  Executor sender;
+
+  private record BufferedEvent(long id, Set<DataWithMediaType> frame) {
+  }
+
+  private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+  private final Deque<BufferedEvent> buffer = new ArrayDeque<>();
+  private long lastId;
+
+  /** The first part of every event id sent by this instance since it started. */
+  final String epoch = Long.toUnsignedString(ThreadLocalRandom.current().nextLong(), 36);
+
+  @PostConstruct
+  void startSender() {
+    ThreadPoolExecutor pool = new ThreadPoolExecutor(senderThreads, senderThreads, 60, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(), new CustomizableThreadFactory("helprequest-stream-"));
+    pool.allowCoreThreadTimeOut(true);
+    sender = pool;
+  }
+
+  @PreDestroy
+  void stopSender() {
+    ((ThreadPoolExecutor) sender).shutdownNow();
+  }
+
+  /**
+   * This method opens a stream of help request events.
+   * @param lastEventId the id of the last event the client received, or null for a new client
+   * @return the emitter for the stream
+   */
+  public SseEmitter subscribe(String lastEventId) {
+    return subscribe(new SseEmitter(timeout.toMillis()), lastEventId);
+  }
+
+  /**
+   * This method sends the events after lastEventId (or a ready or reset event) to an emitter,
+   * then adds it to the subscribers.
+   * @param emitter the emitter for the stream
+   * @param lastEventId the id of the last event the client received, or null for a new client
+   * @return the emitter
+   */
+  SseEmitter subscribe(SseEmitter emitter, String lastEventId) {
+    Long lastNumber = lastEventId == null ? null : number(lastEventId);
+    synchronized (buffer) {
+      List<Set<DataWithMediaType>> frames;
+      if (lastEventId == null) {
+        frames = List.of(control(READY));
+      } else if (lastNumber == null || lastNumber > lastId || lastNumber < lastId - buffer.size()) {
+        frames = List.of(control(RESET));
+      } else {
+        frames = buffer.stream().filter(event -> event.id() > lastNumber).map(BufferedEvent::frame).toList();
+      }
+      Subscriber subscriber = new Subscriber(emitter, Math.max(subscriberQueue, frames.size()));
+      emitter.onCompletion(subscriber::close);
+      emitter.onTimeout(emitter::complete);
+      emitter.onError(e -> subscriber.close());
+      subscribers.add(subscriber);
+      frames.forEach(subscriber::offer);
+    }
+    return emitter;
+  }
+
+  /**
+   * This method numbers an event, keeps it for replay and queues it for every subscriber.
+   * It runs after the transaction that published the event commits, or immediately if there was none;
+   * events of transactions that roll back are never sent.
+   * @param event the change to a help request
+   */
+  @TransactionalEventListener(fallbackExecution = true)
+  public void helpRequestChanged(HelpRequestEvent event) {
+    String json;
+    try {
+      json = mapper.writeValueAsString(event.getHelpRequest());
+    } catch (JsonProcessingException e) {
+      throw new UncheckedIOException(e);
+    }
+    synchronized (buffer) {
+      lastId++;
+      Set<DataWithMediaType> frame = SseEmitter.event().id(eventId(lastId)).name(event.getType())
+          .data(json, MediaType.APPLICATION_JSON).build();
+      if (buffer.size() >= replayBuffer) {
+        buffer.pollFirst();
+      }
+      buffer.addLast(new BufferedEvent(lastId, frame));
+      for (Subscriber subscriber : subscribers) {
+        subscriber.offer(frame);
+      }
+    }
+  }
+
+  /**
+   * This method returns the number of open streams.
+   * @return the number of subscribers
+   */
+  public int subscriberCount() {
+    return subscribers.size();
+  }
+
+  /**
+   * A stream and the frames queued for it.  Each queued frame is written by its own task on the sender
+   * pool, and a task is only submitted when the previous one has finished, so frames are written in order
+   * and at most one sender thread is ever busy with (or stuck on) a stream.
+   */
+  private final class Subscriber implements Runnable {
+    private final SseEmitter emitter;
+    private final BlockingQueue<Set<DataWithMediaType>> pending;
+    private final AtomicInteger queued = new AtomicInteger();
+    private volatile boolean closed;
+
+    Subscriber(SseEmitter emitter, int capacity) {
+      this.emitter = emitter;
+      this.pending = new LinkedBlockingQueue<>(capacity);
+    }
+
+    void offer(Set<DataWithMediaType> frame) {
+      if (!pending.offer(frame)) {
+        // too far behind: complete the stream on a sender thread, as it may be stuck writing to it
+        close();
+        sender.execute(emitter::complete);
+      } else if (queued.getAndIncrement() == 0) {
+        sender.execute(this);
+      }
+    }
+
+    void close() {
+      closed = true;
+      subscribers.remove(this);
+    }
+
+    @Override
+    public void run() {
+      Set<DataWithMediaType> frame = pending.poll();
+      if (!closed && !send(emitter, frame)) {
+        close();
+      }
+      if (queued.decrementAndGet() > 0) {
+        sender.execute(this);
+      }
+    }
+  }
+
+  private Set<DataWithMediaType> control(String name) {
+    return SseEmitter.event().id(eventId(lastId)).name(name).data(eventId(lastId)).build();
+  }
+
+  private String eventId(long number) {
+    return epoch + "-" + number;
+  }
+
+  /**
+   * This method returns the number of an event id sent by this instance since it started.
+   * @param eventId the event id
+   * @return the number, or null if the id has another epoch or is not an event id
+   */
+  private Long number(String eventId) {
+    String prefix = epoch + "-";
+    if (!eventId.startsWith(prefix)) {
+      return null;
+    }
+    try {
+      return Long.parseLong(eventId.substring(prefix.length()));
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  private static boolean send(SseEmitter emitter, Set<DataWithMediaType> frame) {
+    try {
+      emitter.send(frame);
+      return true;
+    } catch (IOException | IllegalStateException e) {
+      // the client has gone away, or the stream has timed out; the container completes the emitter
+      return false;
+    }
+  }
+}
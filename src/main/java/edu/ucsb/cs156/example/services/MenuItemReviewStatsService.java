@@ -0,0 +1,141 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.MenuItemReviewStats;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewStatsRepository;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * This is a service that keeps the per-item rating aggregates (MenuItemReviewStats)
+ * in step with the MenuItemReview table.
+ *
+ * Callers should invoke it in the same transaction as the change to the review,
+ * so that the aggregate and the reviews commit (or roll back) together.  That includes the empty row
+ * created for the first review of an item: it is inserted with ON CONFLICT DO NOTHING, so that when two
+ * first reviews arrive together the second waits for the first and then counts itself in its row, in the
+ * same transaction and on the same connection.
+ */
+
+@Slf4j
+@Service("menuItemReviewStats")
+public class MenuItemReviewStatsService {
+
+  /** The lowest number of stars a review can have. */
+  public static final int MIN_STARS = 1;
+
+  /** The highest number of stars a review can have. */
+  public static final int MAX_STARS = 5;
+
+  @Autowired
+  MenuItemReviewStatsRepository menuItemReviewStatsRepository;
+
+  /**
+   * This method counts a newly saved review in the stats for its item.
+   * @param review the review that was added
+   * @throws IllegalArgumentException if the review does not have between 1 and 5 stars
+   */
+  @Transactional
+  public void reviewAdded(MenuItemReview review) {
+    add(review.getItemId(), review.getStars(), 1);
+  }
+
+  /**
+   * This method counts a batch of newly saved reviews, with one update per distinct (item, stars) pair
+   * rather than one per review.
+   * @param reviews the reviews that were added
+   * @throws IllegalArgumentException if a review does not have between 1 and 5 stars
+   */
+  @Transactional
+  public void reviewsAdded(Collection<MenuItemReview> reviews) {
+    countByItemAndStars(reviews).forEach((key, count) -> add(key.itemId(), key.stars(), count));
+  }
+
+  /**
+   * This method removes a deleted review from the stats for its item.
+   * @param review the review that was removed
+   */
+  @Transactional
+  public void reviewRemoved(MenuItemReview review) {
+    reviewRemoved(review.getItemId(), review.getStars());
+  }
+
+  /**
+   * This method removes a batch of deleted reviews from the stats, with one update per distinct (item, stars) pair
+   * rather than one per review.
+   * @param reviews the reviews that were removed
+   */
+  @Transactional
+  public void reviewsRemoved(Collection<MenuItemReview> reviews) {
+    Map<ItemStars, Long> counts = countByItemAndStars(reviews);
+    counts.forEach((key, count) -> menuItemReviewStatsRepository.adjust(key.itemId(), key.stars(), -count));
+    counts.keySet().stream().map(ItemStars::itemId).distinct().forEach(menuItemReviewStatsRepository::deleteIfEmpty);
+  }
+
+  /**
+   * This method moves a review from its old item and star rating to its new ones.
+   * Nothing is written if neither changed.
+   * @param oldItemId item id before the update
+   * @param oldStars stars before the update
+   * @param updated the review after the update
+   * @throws IllegalArgumentException if the updated review does not have between 1 and 5 stars
+   */
+  @Transactional
+  public void reviewChanged(long oldItemId, int oldStars, MenuItemReview updated) {
+    if (oldItemId == updated.getItemId() && oldStars == updated.getStars()) {
+      return;
+    }
+    reviewRemoved(oldItemId, oldStars);
+    reviewAdded(updated);
+  }
+
+  /**
+   * This method returns the stats for every reviewed item.
+   * @return an iterable of MenuItemReviewStats, in itemId order
+   */
+  @Transactional(readOnly = true)
+  public Iterable<MenuItemReviewStats> allStats() {
+    return menuItemReviewStatsRepository.findAllByReviewCountGreaterThanOrderByItemIdAsc(0);
+  }
+
+  /**
+   * This method checks that a number of stars is one a review can have.
+   * @param stars the number of stars
+   * @return true if stars is between 1 and 5
+   */
+  public static boolean isValidStars(int stars) {
+    return stars >= MIN_STARS && stars <= MAX_STARS;
+  }
+
+  private record ItemStars(long itemId, int stars) {
+  }
+
+  private static Map<ItemStars, Long> countByItemAndStars(Collection<MenuItemReview> reviews) {
+    return reviews.stream().collect(Collectors.groupingBy(
+        review -> new ItemStars(review.getItemId(), review.getStars()), LinkedHashMap::new, Collectors.counting()));
+  }
+
+  private void add(long itemId, int stars, long count) {
+    if (!isValidStars(stars)) {
+      throw new IllegalArgumentException("stars must be between %d and %d, not %d".formatted(MIN_STARS, MAX_STARS, stars));
+    }
+    if (menuItemReviewStatsRepository.adjust(itemId, stars, count) == 0) {
+      log.debug("first review for itemId={}", itemId);
+      menuItemReviewStatsRepository.insertEmptyIfAbsent(itemId);
+      menuItemReviewStatsRepository.adjust(itemId, stars, count);
+    }
+  }
+
+  private void reviewRemoved(long itemId, int stars) {
+    menuItemReviewStatsRepository.adjust(itemId, stars, -1);
+    menuItemReviewStatsRepository.deleteIfEmpty(itemId);
+  }
+}
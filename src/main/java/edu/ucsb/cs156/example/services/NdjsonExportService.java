@@ -0,0 +1,98 @@
+package edu.ucsb.cs156.example.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * This is a service that exports entity collections as newline-delimited JSON (NDJSON).
+ *
+ * Rows are read from a repository {@code Stream} inside a read-only transaction and written
+ * to the response one at a time; each entity is detached once it has been written so that the
+ * persistence context (and the heap) does not grow with the size of the table.
+ */
+
+@Slf4j
+@Service("ndjsonExport")
+public class NdjsonExportService {
+
+  /**
+   * Media type for newline-delimited JSON
+   */
+  public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  @Autowired
+  private ObjectMapper mapper;
+
+  /**
+   * This method returns a response that streams the given rows as NDJSON.
+   * The rows are not read until the response body is written.
+   *
+   * @param <T> the type of the rows
+   * @param rows supplier of the stream of rows, e.g. a repository method reference
+   * @return response entity with a streaming body
+   */
+  public <T> ResponseEntity<StreamingResponseBody> export(Supplier<Stream<T>> rows) {
+    StreamingResponseBody body = out -> write(rows, out);
+    return ResponseEntity.ok()
+        .contentType(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE))
+        .body(body);
+  }
+
+  /**
+   * This method writes the given rows to the output stream, one JSON document per line.
+   *
+   * @param <T> the type of the rows
+   * @param rows supplier of the stream of rows
+   * @param out the output stream to write to (not closed by this method)
+   */
+  public <T> void write(Supplier<Stream<T>> rows, OutputStream out) {
+    TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+    transactionTemplate.setReadOnly(true);
+    ObjectWriter writer = mapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+    transactionTemplate.executeWithoutResult(status -> {
+      try (Stream<T> stream = rows.get();
+          JsonGenerator generator = mapper.getFactory().createGenerator(out)) {
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+        stream.forEach(row -> {
+          try {
+            writer.writeValue(generator, row);
+            generator.writeRaw('\n');
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+          entityManager.detach(row);
+        });
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+  }
+}
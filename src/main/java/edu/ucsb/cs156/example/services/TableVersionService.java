@@ -0,0 +1,147 @@
+package edu.ucsb.cs156.example.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.Entity;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This is a service that keeps a version number for each entity table, used to answer conditional
+ * GETs (If-None-Match) without loading or serializing the entities.
+ *
+ * Every insert, update or delete made through JPA (see {@link edu.ucsb.cs156.example.entities.TableVersionListener})
+ * adds a row for its table to TABLE_VERSION_CHANGES, once per table per transaction and in the same
+ * transaction, so the change is recorded exactly when the committed contents change, whichever instance
+ * made it.  Bulk JPQL/SQL updates bypass the listener and must call {@link #tableChanged(Class)} themselves.
+ *
+ * The version of a table is its TABLE_VERSIONS row plus its rows in TABLE_VERSION_CHANGES, read in one
+ * statement.  Writers only insert, so they never queue on the TABLE_VERSIONS row while they run (a batch
+ * or CSV import would otherwise hold it for the whole import).  Every app.tableVersions.foldInterval, each
+ * instance folds the recorded changes into TABLE_VERSIONS and deletes them, in one transaction, which
+ * leaves the version unchanged.
+ *
+ * ETags are built from the version alone, so every instance gives the same ETag for the same data.
+ * The TABLE_VERSIONS rows are seeded by the TableVersions changelog, which needs a row for every
+ * entity with the listener.
+ */
+
+@Slf4j
+@Service("tableVersions")
+public class TableVersionService {
+
+  private static final String VERSION = "SELECT COALESCE((SELECT VERSION FROM TABLE_VERSIONS WHERE TABLE_NAME = ?), 0)"
+      + " + (SELECT COUNT(*) FROM TABLE_VERSION_CHANGES WHERE TABLE_NAME = ?)";
+  private static final String RECORD_CHANGE = "INSERT INTO TABLE_VERSION_CHANGES (TABLE_NAME) VALUES (?)";
+  private static final String CHANGED_TABLES = "SELECT DISTINCT TABLE_NAME FROM TABLE_VERSION_CHANGES";
+  private static final String DELETE_CHANGES = "DELETE FROM TABLE_VERSION_CHANGES WHERE TABLE_NAME = ?";
+  private static final String ADD_CHANGES = "UPDATE TABLE_VERSIONS SET VERSION = VERSION + ? WHERE TABLE_NAME = ?";
+
+  @Autowired
+  JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  @Value("${app.tableVersions.foldInterval:PT10S}")
+  Duration foldInterval = Duration.ofSeconds(10);
+
+  ScheduledExecutorService folder;
+
+  @PostConstruct
+  void startFolder() {
+    folder = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("table-versions-"));
+    folder.scheduleWithFixedDelay(this::foldChanges, foldInterval.toMillis(), foldInterval.toMillis(),
+        TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  void stopFolder() {
+    folder.shutdownNow();
+  }
+
+  /**
+   * This method returns a weak ETag for the current contents of an entity's table.  It is weak because
+   * the bytes sent depend on the response encoding; Tomcat does not compress responses with strong ETags.
+   * @param entityType the entity class
+   * @return the ETag, including W/ and quotes
+   */
+  public String etag(Class<?> entityType) {
+    String table = tableName(entityType);
+    return "W/\"%d\"".formatted(jdbcTemplate.queryForObject(VERSION, Long.class, table, table));
+  }
+
+  /**
+   * This method records that an entity's table changed.  Inside a transaction the change is recorded
+   * once per table, however many rows change, and commits (or rolls back) with the rows.
+   * @param entityType the entity class
+   */
+  public void tableChanged(Class<?> entityType) {
+    String table = tableName(entityType);
+    if (TransactionSynchronizationManager.isSynchronizationActive() && !changedTables().add(table)) {
+      return;
+    }
+    jdbcTemplate.update(RECORD_CHANGE, table);
+  }
+
+  /**
+   * This method folds the changes recorded for each table into its TABLE_VERSIONS row.  Instances may
+   * fold at the same time: a change row is deleted, and so counted, by only one of them.
+   */
+  void foldChanges() {
+    try {
+      for (String table : jdbcTemplate.queryForList(CHANGED_TABLES, String.class)) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+          int changes = jdbcTemplate.update(DELETE_CHANGES, table);
+          if (changes > 0 && jdbcTemplate.update(ADD_CHANGES, changes, table) == 0) {
+            log.warn("No TABLE_VERSIONS row for {}; add one to the TableVersions changelog", table);
+            status.setRollbackOnly();
+          }
+        });
+      }
+    } catch (DataAccessException | TransactionException e) {
+      log.warn("Could not fold table version changes, will retry: {}", e.getMessage());
+    }
+  }
+
+  private static Set<String> changedTables() {
+    for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+      if (synchronization instanceof ChangedTables changed) {
+        return changed.tables;
+      }
+    }
+    ChangedTables changed = new ChangedTables();
+    TransactionSynchronizationManager.registerSynchronization(changed);
+    return changed.tables;
+  }
+
+  /**
+   * The tables already recorded as changed in the current transaction.  Registered as a synchronization
+   * so that it is discarded when the transaction completes.
+   */
+  private static class ChangedTables implements TransactionSynchronization {
+    private final Set<String> tables = new HashSet<>();
+  }
+
+  static String tableName(Class<?> entityType) {
+    return entityType.getAnnotation(Entity.class).name();
+  }
+}
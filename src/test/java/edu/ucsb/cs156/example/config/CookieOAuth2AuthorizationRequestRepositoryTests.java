@@ -0,0 +1,119 @@
+package edu.ucsb.cs156.example.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import jakarta.servlet.http.Cookie;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationRequest;
+
+class CookieOAuth2AuthorizationRequestRepositoryTests {
+
+  private final CookieOAuth2AuthorizationRequestRepository repository = new CookieOAuth2AuthorizationRequestRepository(
+      new SecretKeySpec("a unit test key that is 32+ bytes".getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+
+  private final OAuth2AuthorizationRequest authorizationRequest = OAuth2AuthorizationRequest.authorizationCode()
+      .authorizationUri("https://accounts.example.org/authorize")
+      .clientId("client-id")
+      .redirectUri("http://localhost:8080/login/oauth2/code/my-oauth-provider")
+      .scopes(Set.of("email", "profile"))
+      .state("state-1")
+      .additionalParameters(Map.of("prompt", "select_account"))
+      .attributes(Map.of("registration_id", "my-oauth-provider"))
+      .build();
+
+  @Test
+  void test_saved_request_is_loaded_by_a_callback_with_the_same_state() {
+    String cookie = save(repository, authorizationRequest);
+
+    OAuth2AuthorizationRequest loaded = repository.loadAuthorizationRequest(callback(cookie, "state-1"));
+
+    assertEquals("state-1", loaded.getState());
+    assertEquals(Set.of("email", "profile"), loaded.getScopes());
+    assertEquals("my-oauth-provider", loaded.getAttribute("registration_id"));
+    assertNull(repository.loadAuthorizationRequest(callback(cookie, "state-2")));
+  }
+
+  @Test
+  void test_cookie_signed_with_another_key_is_ignored() {
+    CookieOAuth2AuthorizationRequestRepository otherKey = new CookieOAuth2AuthorizationRequestRepository(
+        new SecretKeySpec("some other key that is 32+ bytes".getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+    String cookie = save(otherKey, authorizationRequest);
+
+    assertNull(repository.loadAuthorizationRequest(callback(cookie, "state-1")));
+  }
+
+  @Test
+  void test_cookie_issued_more_than_max_age_ago_is_ignored() throws IOException {
+    Instant issuedAt = Instant.now().minus(CookieOAuth2AuthorizationRequestRepository.MAX_AGE).minusSeconds(1);
+    String cookie = signed(issuedAt, authorizationRequest);
+
+    assertNull(repository.loadAuthorizationRequest(callback(cookie, "state-1")));
+  }
+
+  @Test
+  void test_signed_cookie_with_other_classes_is_not_deserialized() throws IOException {
+    List<Object> notAnAuthorizationRequest = new ArrayList<>(List.of(authorizationRequest));
+    String cookie = signed(Instant.now(), notAnAuthorizationRequest);
+
+    assertNull(repository.loadAuthorizationRequest(callback(cookie, "state-1")));
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialize(notAnAuthorizationRequest)))) {
+      in.setObjectInputFilter(CookieOAuth2AuthorizationRequestRepository.FILTER);
+      assertThrows(InvalidClassException.class, in::readObject);
+    }
+  }
+
+  private static String save(CookieOAuth2AuthorizationRequestRepository repository,
+      OAuth2AuthorizationRequest authorizationRequest) {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    repository.saveAuthorizationRequest(authorizationRequest, new MockHttpServletRequest(), response);
+    String setCookie = response.getHeader(HttpHeaders.SET_COOKIE);
+    return setCookie.substring(setCookie.indexOf('=') + 1, setCookie.indexOf(';'));
+  }
+
+  /** Builds a cookie value as the repository does, signed with its key, for any issue time and object. */
+  private String signed(Instant issuedAt, Object object) throws IOException {
+    ByteArrayOutputStream payload = new ByteArrayOutputStream();
+    payload.writeBytes(ByteBuffer.allocate(Long.BYTES).putLong(issuedAt.toEpochMilli()).array());
+    payload.writeBytes(serialize(object));
+    Base64.Encoder base64 = Base64.getUrlEncoder().withoutPadding();
+    return base64.encodeToString(payload.toByteArray()) + "." + base64.encodeToString(repository.mac(payload.toByteArray()));
+  }
+
+  private static byte[] serialize(Object object) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(object);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static MockHttpServletRequest callback(String cookie, String state) {
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    request.setCookies(new Cookie(CookieOAuth2AuthorizationRequestRepository.COOKIE, cookie));
+    request.setParameter("state", state);
+    return request;
+  }
+}
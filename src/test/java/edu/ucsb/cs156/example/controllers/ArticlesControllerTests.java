@@ -1,8 +1,13 @@
 package edu.ucsb.cs156.example.controllers;
 
+import edu.ucsb.cs156.example.models.BatchItemResult;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.services.ArticleSearchService;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import edu.ucsb.cs156.example.services.TableVersionService;
+import edu.ucsb.cs156.example.models.CursorPage;
 import edu.ucsb.cs156.example.entities.Article;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.repositories.ArticleRepository;
@@ -10,19 +15,30 @@ import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.stream.Stream;
+import java.util.function.Supplier;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
 
 import java.util.Optional;
@@ -41,6 +57,15 @@ public class ArticlesControllerTests extends ControllerTestCase {
         @MockBean
         ArticleRepository articleRepository;
 
+        @MockBean
+        NdjsonExportService ndjsonExportService;
+
+        @MockBean
+        TableVersionService tableVersionService;
+
+        @MockBean
+        ArticleSearchService articleSearchService;
+
         @MockBean
         UserRepository userRepository;
 
@@ -333,4 +358,400 @@ public class ArticlesControllerTests extends ControllerTestCase {
                 assertEquals("Article with id 67 not found", json.get("message"));
 
         }
+
+        // Tests for /page
+
+        @Test
+        public void logged_out_users_cannot_get_page() throws Exception {
+                mockMvc.perform(get("/api/articles/page"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_first_page_of_articles() throws Exception {
+
+                // arrange
+
+                Article first = Article.builder().id(1L).title("title1").url("url1").explanation("explanation1").email("email1").dateAdded(LocalDateTime.parse("2022-01-03T00:00:00")).build();
+                Article second = Article.builder().id(2L).title("title2").url("url2").explanation("explanation2").email("email2").dateAdded(LocalDateTime.parse("2022-03-11T00:00:00")).build();
+
+                ArrayList<Article> expected = new ArrayList<>();
+                expected.addAll(Arrays.asList(first, second));
+
+                when(articleRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, 2))))
+                                .thenReturn(new SliceImpl<>(expected, PageRequest.of(0, 2), true));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/articles/page?size=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(articleRepository, times(1)).findByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, 2)));
+                String expectedJson = mapper.writeValueAsString(CursorPage.<Article>builder().content(expected).next("2").build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_last_page_of_articles_with_size_capped() throws Exception {
+
+                // arrange
+
+                Article last = Article.builder().id(2L).title("title2").url("url2").explanation("explanation2").email("email2").dateAdded(LocalDateTime.parse("2022-03-11T00:00:00")).build();
+
+                ArrayList<Article> expected = new ArrayList<>();
+                expected.add(last);
+
+                when(articleRepository.findByIdGreaterThanOrderByIdAsc(eq(1L), eq(PageRequest.of(0, 100))))
+                                .thenReturn(new SliceImpl<>(expected, PageRequest.of(0, 100), false));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/articles/page?cursor=1&size=5000"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(articleRepository, times(1)).findByIdGreaterThanOrderByIdAsc(eq(1L), eq(PageRequest.of(0, 100)));
+                String expectedJson = mapper.writeValueAsString(CursorPage.<Article>builder().content(expected).next(null).build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for /all as NDJSON
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_export_all_articles_as_ndjson() throws Exception {
+
+                // arrange
+
+                StreamingResponseBody body = out -> out.write("{\"id\":1}\n{\"id\":2}\n".getBytes());
+                when(ndjsonExportService.export(any())).thenReturn(ResponseEntity.ok()
+                                .contentType(MediaType.parseMediaType(NdjsonExportService.APPLICATION_NDJSON_VALUE)).body(body));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/articles/all").accept(NdjsonExportService.APPLICATION_NDJSON_VALUE))
+                                .andExpect(request().asyncStarted()).andReturn();
+                mockMvc.perform(asyncDispatch(response))
+                                .andExpect(status().isOk())
+                                .andExpect(content().contentType(NdjsonExportService.APPLICATION_NDJSON_VALUE))
+                                .andExpect(content().string("{\"id\":1}\n{\"id\":2}\n"));
+
+                // assert
+
+                ArgumentCaptor<Supplier<Stream<Article>>> rows = ArgumentCaptor.captor();
+                verify(ndjsonExportService, times(1)).export(rows.capture());
+                rows.getValue().get();
+                verify(articleRepository, times(1)).streamAllBy();
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void browser_accept_header_still_gets_json_array_of_articles() throws Exception {
+
+                // arrange
+
+                when(articleRepository.findAll()).thenReturn(new ArrayList<>());
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/articles/all").accept("application/json, text/plain, */*"))
+                                .andExpect(status().isOk())
+                                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON)).andReturn();
+
+                // assert
+
+                verify(articleRepository, times(1)).findAll();
+                assertEquals("[]", response.getResponse().getContentAsString());
+        }
+
+        // Tests for /batch
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_post_batch() throws Exception {
+                mockMvc.perform(post("/api/articles/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[]")
+                                .with(csrf()))
+                                .andExpect(status().is(403)); // only admins can post
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_post_a_batch_of_articles() throws Exception {
+                // arrange
+
+                Article first = Article.builder().title("first").build();
+                Article second = Article.builder().title("second").build();
+                Article firstSaved = Article.builder().id(1L).title("first").build();
+                Article secondSaved = Article.builder().id(2L).title("second").build();
+
+                String requestBody = mapper.writeValueAsString(Arrays.asList(Article.builder().id(99L).title("first").build(), second));
+                when(articleRepository.saveAll(eq(Arrays.asList(first, second)))).thenReturn(Arrays.asList(firstSaved, secondSaved));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/articles/batch")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(articleRepository, times(1)).saveAll(Arrays.asList(first, second));
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(
+                                BatchItemResult.builder().index(0).id(1L).status(BatchItemResult.CREATED).build(),
+                                BatchItemResult.builder().index(1).id(2L).status(BatchItemResult.CREATED).build()));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_put_a_batch_of_articles_and_missing_ones_are_reported() throws Exception {
+                // arrange
+
+                Article orig = Article.builder().id(67L).title("before").build();
+                Article edited = Article.builder().id(67L).title("after").build();
+                Article missing = Article.builder().id(68L).title("missing").build();
+
+                String requestBody = mapper.writeValueAsString(Arrays.asList(edited, missing));
+                when(articleRepository.findAllById(eq(Arrays.asList(67L, 68L)))).thenReturn(Arrays.asList(orig));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/articles/batch")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(articleRepository, times(1)).saveAll(Arrays.asList(edited));
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(
+                                BatchItemResult.builder().index(0).id(67L).status(BatchItemResult.UPDATED).build(),
+                                BatchItemResult.builder().index(1).id(68L).status(BatchItemResult.NOT_FOUND)
+                                                .message("Article with id 68 not found").build()));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_delete_a_batch_of_articles_and_missing_ones_are_reported() throws Exception {
+                // arrange
+
+                Article existing = Article.builder().id(67L).title("existing").build();
+                when(articleRepository.findAllById(eq(Arrays.asList(67L, 68L)))).thenReturn(Arrays.asList(existing));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/articles/batch")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(mapper.writeValueAsString(Arrays.asList(67L, 68L)))
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(articleRepository, times(1)).deleteAll(Arrays.asList(existing));
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(
+                                BatchItemResult.builder().index(0).id(67L).status(BatchItemResult.DELETED).build(),
+                                BatchItemResult.builder().index(1).id(68L).status(BatchItemResult.NOT_FOUND)
+                                                .message("Article with id 68 not found").build()));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        // Tests for conditional GET
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void all_articles_are_not_sent_again_while_the_etag_matches() throws Exception {
+                // arrange
+
+                when(tableVersionService.etag(Article.class)).thenReturn("W/\"abc-3\"");
+
+                // act
+                mockMvc.perform(get("/api/articles/all").header("If-None-Match", "W/\"abc-3\""))
+                                .andExpect(status().isNotModified())
+                                .andExpect(header().string("ETag", "W/\"abc-3\""))
+                                .andExpect(content().string(""));
+
+                // assert
+                verify(articleRepository, times(0)).findAll();
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void all_articles_are_sent_with_the_new_etag_after_a_change() throws Exception {
+                // arrange
+
+                when(tableVersionService.etag(Article.class)).thenReturn("W/\"abc-4\"");
+                when(articleRepository.findAll()).thenReturn(new ArrayList<>());
+
+                // act
+                mockMvc.perform(get("/api/articles/all").header("If-None-Match", "W/\"abc-3\""))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", "W/\"abc-4\""))
+                                .andExpect(content().string("[]"));
+
+                // assert
+                verify(articleRepository, times(1)).findAll();
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void a_single_article_is_sent_with_its_version_and_last_modified_time() throws Exception {
+                // arrange
+
+                Article article = Article.builder().id(7L).title("title").version(2L)
+                                .lastModified(Instant.parse("2024-10-01T12:00:00Z")).build();
+                when(articleRepository.findById(eq(7L))).thenReturn(Optional.of(article));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/articles?id=7").header("If-None-Match", "\"1\""))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", "\"2\""))
+                                .andExpect(header().string("Last-Modified", "Tue, 01 Oct 2024 12:00:00 GMT"))
+                                .andReturn();
+
+                // assert
+                assertEquals(mapper.writeValueAsString(article), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void a_single_article_is_not_sent_again_while_its_version_is_unchanged() throws Exception {
+                // arrange
+
+                Article article = Article.builder().id(7L).title("title").version(2L)
+                                .lastModified(Instant.parse("2024-10-01T12:00:00Z")).build();
+                when(articleRepository.findById(eq(7L))).thenReturn(Optional.of(article));
+
+                // act / assert
+                mockMvc.perform(get("/api/articles?id=7").header("If-None-Match", "\"2\""))
+                                .andExpect(status().isNotModified())
+                                .andExpect(content().string(""));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_edit_an_article_that_changed_since_it_was_read() throws Exception {
+                // arrange
+
+                Article articleOrig = Article.builder().id(67L).title("before").version(3L).build();
+                Article articleEdited = Article.builder().id(67L).title("after").build();
+                when(articleRepository.findById(eq(67L))).thenReturn(Optional.of(articleOrig));
+
+                // act
+                mockMvc.perform(
+                                put("/api/articles?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .header("If-Match", "\"2\"")
+                                                .content(mapper.writeValueAsString(articleEdited))
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed());
+
+                // assert
+                verify(articleRepository, times(0)).save(any());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_edit_an_article_when_if_match_has_the_current_version() throws Exception {
+                // arrange
+
+                Article articleOrig = Article.builder().id(67L).title("before").version(3L).build();
+                Article articleEdited = Article.builder().id(67L).title("after").version(3L).build();
+                when(articleRepository.findById(eq(67L))).thenReturn(Optional.of(articleOrig));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/articles?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .header("If-Match", "\"3\"")
+                                                .content(mapper.writeValueAsString(articleEdited))
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(articleRepository, times(1)).save(articleEdited);
+                assertEquals(mapper.writeValueAsString(articleEdited), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void concurrent_edit_of_an_article_gets_conflict() throws Exception {
+                // arrange
+
+                Article articleOrig = Article.builder().id(67L).title("before").version(3L).build();
+                Article articleEdited = Article.builder().id(67L).title("after").build();
+                when(articleRepository.findById(eq(67L))).thenReturn(Optional.of(articleOrig));
+                when(articleRepository.save(any())).thenThrow(new ObjectOptimisticLockingFailureException(Article.class, 67L));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/articles?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(mapper.writeValueAsString(articleEdited))
+                                                .with(csrf()))
+                                .andExpect(status().isConflict()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("ObjectOptimisticLockingFailureException", json.get("type"));
+        }
+
+        // Tests for GET /api/articles/search
+
+        @Test
+        public void logged_out_users_cannot_search() throws Exception {
+                mockMvc.perform(get("/api/articles/search?q=gaucho"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_search_articles_and_gets_the_next_page_number() throws Exception {
+                // arrange
+
+                Article first = Article.builder().id(3L).title("Gaucho news").build();
+                Article second = Article.builder().id(1L).title("Campus").explanation("about gauchos").build();
+                List<Article> expected = Arrays.asList(first, second);
+                when(articleSearchService.search(eq("gaucho"), eq(PageRequest.of(1, 2))))
+                                .thenReturn(new SliceImpl<>(expected, PageRequest.of(1, 2), true));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/articles/search?q=gaucho&page=1&size=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                String expectedJson = mapper.writeValueAsString(CursorPage.<Article>builder().content(expected).next("2").build());
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_last_page_of_search_results_with_page_and_size_clamped() throws Exception {
+                // arrange
+
+                Article only = Article.builder().id(3L).title("Gaucho news").build();
+                List<Article> expected = Arrays.asList(only);
+                when(articleSearchService.search(eq("gaucho"), eq(PageRequest.of(0, 100))))
+                                .thenReturn(new SliceImpl<>(expected, PageRequest.of(0, 100), false));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/articles/search?q=gaucho&page=-1&size=1000"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                String expectedJson = mapper.writeValueAsString(CursorPage.<Article>builder().content(expected).next(null).build());
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
 }
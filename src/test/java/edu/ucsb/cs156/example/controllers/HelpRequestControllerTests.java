@@ -1,29 +1,48 @@
 package edu.ucsb.cs156.example.controllers;
 
+import edu.ucsb.cs156.example.models.BatchItemResult;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.services.HelpRequestStreamService;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import edu.ucsb.cs156.example.services.TableVersionService;
+import edu.ucsb.cs156.example.models.CursorPage;
+import edu.ucsb.cs156.example.models.HelpRequestEvent;
+import edu.ucsb.cs156.example.models.QueuePosition;
 import edu.ucsb.cs156.example.entities.HelpRequest;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.stream.Stream;
+import java.util.function.Supplier;
 import java.util.Map;
 
 import org.h2.command.dml.Help;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 
@@ -33,18 +52,33 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @WebMvcTest(controllers = HelpRequestsController.class)
 @Import(TestConfig.class)
+@RecordApplicationEvents
 public class HelpRequestControllerTests extends ControllerTestCase {
 
         @MockBean
         HelpRequestRepository helpRequestRepository;
 
+        @MockBean
+        NdjsonExportService ndjsonExportService;
+
+        @MockBean
+        TableVersionService tableVersionService;
+
+        @MockBean
+        HelpRequestStreamService helpRequestStreamService;
+
+        @Autowired
+        ApplicationEvents applicationEvents;
+
         @MockBean
         UserRepository userRepository;
 
@@ -208,6 +242,8 @@ public class HelpRequestControllerTests extends ControllerTestCase {
 
                 // assert
                 verify(helpRequestRepository, times(1)).save(helpRequest1);
+                assertEquals(Arrays.asList(new HelpRequestEvent(HelpRequestEvent.CREATED, helpRequest1)),
+                                applicationEvents.stream(HelpRequestEvent.class).toList());
                 String expectedJson = mapper.writeValueAsString(helpRequest1);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
@@ -240,6 +276,8 @@ public class HelpRequestControllerTests extends ControllerTestCase {
                 // assert
                 verify(helpRequestRepository, times(1)).findById(15L);
                 verify(helpRequestRepository, times(1)).delete(any());
+                assertEquals(Arrays.asList(new HelpRequestEvent(HelpRequestEvent.DELETED, helpRequest1)),
+                                applicationEvents.stream(HelpRequestEvent.class).toList());
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("HelpRequest with id 15 deleted", json.get("message"));
@@ -307,10 +345,36 @@ public class HelpRequestControllerTests extends ControllerTestCase {
                 // assert
                 verify(helpRequestRepository, times(1)).findById(67L);
                 verify(helpRequestRepository, times(1)).save(helpRequestEdited); // should be saved with correct user
+                assertEquals(Arrays.asList(new HelpRequestEvent(HelpRequestEvent.SOLVED, helpRequestEdited)),
+                                applicationEvents.stream(HelpRequestEvent.class).toList());
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(requestBody, responseString);
         }
 
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void editing_a_solved_helprequest_publishes_an_updated_event() throws Exception {
+                // arrange
+
+                HelpRequest helpRequestOrig = HelpRequest.builder().id(67L).explanation("before").solved(true).build();
+                HelpRequest helpRequestEdited = HelpRequest.builder().id(67L).explanation("after").solved(true).build();
+
+                when(helpRequestRepository.findById(eq(67L))).thenReturn(Optional.of(helpRequestOrig));
+
+                // act
+                mockMvc.perform(
+                                put("/api/helprequests?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(mapper.writeValueAsString(helpRequestEdited))
+                                                .with(csrf()))
+                                .andExpect(status().isOk());
+
+                // assert
+                assertEquals(Arrays.asList(new HelpRequestEvent(HelpRequestEvent.UPDATED, helpRequestEdited)),
+                                applicationEvents.stream(HelpRequestEvent.class).toList());
+        }
+
         @WithMockUser(roles = { "ADMIN", "USER" })
         @Test
         public void admin_cannot_edit_helprequest_that_does_not_exist() throws Exception {
@@ -346,4 +410,470 @@ public class HelpRequestControllerTests extends ControllerTestCase {
                 assertEquals("HelpRequest with id 67 not found", json.get("message"));
 
         }
+
+        // Tests for /page
+
+        @Test
+        public void logged_out_users_cannot_get_page() throws Exception {
+                mockMvc.perform(get("/api/helprequests/page"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_first_page_of_help_requests() throws Exception {
+
+                // arrange
+
+                HelpRequest first = HelpRequest.builder().id(1L).requesterEmail("cgaucho@ucsb.edu").teamId("s22-5pm-3").tableOrBreakoutRoom("7").requestTime(LocalDateTime.parse("2022-01-03T00:00:00")).explanation("Need help with Swagger-ui").solved(false).build();
+                HelpRequest second = HelpRequest.builder().id(2L).requesterEmail("ldelplaya@ucsb.edu").teamId("s22-6pm-4").tableOrBreakoutRoom("11").requestTime(LocalDateTime.parse("2022-03-11T00:00:00")).explanation("Dokku problems").solved(true).build();
+
+                ArrayList<HelpRequest> expected = new ArrayList<>();
+                expected.addAll(Arrays.asList(first, second));
+
+                when(helpRequestRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, 2))))
+                                .thenReturn(new SliceImpl<>(expected, PageRequest.of(0, 2), true));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/helprequests/page?size=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(helpRequestRepository, times(1)).findByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, 2)));
+                String expectedJson = mapper.writeValueAsString(CursorPage.<HelpRequest>builder().content(expected).next("2").build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_last_page_of_help_requests_with_size_capped() throws Exception {
+
+                // arrange
+
+                HelpRequest last = HelpRequest.builder().id(2L).requesterEmail("ldelplaya@ucsb.edu").teamId("s22-6pm-4").tableOrBreakoutRoom("11").requestTime(LocalDateTime.parse("2022-03-11T00:00:00")).explanation("Dokku problems").solved(true).build();
+
+                ArrayList<HelpRequest> expected = new ArrayList<>();
+                expected.add(last);
+
+                when(helpRequestRepository.findByIdGreaterThanOrderByIdAsc(eq(1L), eq(PageRequest.of(0, 100))))
+                                .thenReturn(new SliceImpl<>(expected, PageRequest.of(0, 100), false));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/helprequests/page?cursor=1&size=5000"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(helpRequestRepository, times(1)).findByIdGreaterThanOrderByIdAsc(eq(1L), eq(PageRequest.of(0, 100)));
+                String expectedJson = mapper.writeValueAsString(CursorPage.<HelpRequest>builder().content(expected).next(null).build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for /all as NDJSON
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_export_all_help_requests_as_ndjson() throws Exception {
+
+                // arrange
+
+                StreamingResponseBody body = out -> out.write("{\"id\":1}\n{\"id\":2}\n".getBytes());
+                when(ndjsonExportService.export(any())).thenReturn(ResponseEntity.ok()
+                                .contentType(MediaType.parseMediaType(NdjsonExportService.APPLICATION_NDJSON_VALUE)).body(body));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/helprequests/all").accept(NdjsonExportService.APPLICATION_NDJSON_VALUE))
+                                .andExpect(request().asyncStarted()).andReturn();
+                mockMvc.perform(asyncDispatch(response))
+                                .andExpect(status().isOk())
+                                .andExpect(content().contentType(NdjsonExportService.APPLICATION_NDJSON_VALUE))
+                                .andExpect(content().string("{\"id\":1}\n{\"id\":2}\n"));
+
+                // assert
+
+                ArgumentCaptor<Supplier<Stream<HelpRequest>>> rows = ArgumentCaptor.captor();
+                verify(ndjsonExportService, times(1)).export(rows.capture());
+                rows.getValue().get();
+                verify(helpRequestRepository, times(1)).streamAllBy();
+        }
+
+        // Tests for filtered pages
+
+        @Test
+        public void logged_out_users_cannot_get_page_by_team_id() throws Exception {
+                mockMvc.perform(get("/api/helprequests/byteam?teamId=s22-5pm-3"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_page_of_help_requests_by_team_id() throws Exception {
+
+                // arrange
+
+                HelpRequest first = HelpRequest.builder().id(1L).requesterEmail("cgaucho@ucsb.edu").teamId("s22-5pm-3").tableOrBreakoutRoom("7").requestTime(LocalDateTime.parse("2022-01-03T00:00:00")).explanation("Need help with Swagger-ui").solved(false).build();
+
+                ArrayList<HelpRequest> expected = new ArrayList<>();
+                expected.add(first);
+
+                when(helpRequestRepository.findByTeamIdAndIdGreaterThanOrderByIdAsc(eq("s22-5pm-3"), eq(0L), eq(PageRequest.of(0, 1))))
+                                .thenReturn(new SliceImpl<>(expected, PageRequest.of(0, 1), true));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/helprequests/byteam?teamId=s22-5pm-3&size=1"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(helpRequestRepository, times(1)).findByTeamIdAndIdGreaterThanOrderByIdAsc(eq("s22-5pm-3"), eq(0L), eq(PageRequest.of(0, 1)));
+                String expectedJson = mapper.writeValueAsString(CursorPage.<HelpRequest>builder().content(expected).next("1").build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @Test
+        public void logged_out_users_cannot_get_page_by_solved() throws Exception {
+                mockMvc.perform(get("/api/helprequests/bysolved?solved=false"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_page_of_help_requests_by_solved() throws Exception {
+
+                // arrange
+
+                HelpRequest first = HelpRequest.builder().id(1L).requesterEmail("cgaucho@ucsb.edu").teamId("s22-5pm-3").tableOrBreakoutRoom("7").requestTime(LocalDateTime.parse("2022-01-03T00:00:00")).explanation("Need help with Swagger-ui").solved(false).build();
+
+                ArrayList<HelpRequest> expected = new ArrayList<>();
+                expected.add(first);
+
+                when(helpRequestRepository.findBySolvedAndIdGreaterThanOrderByIdAsc(eq(false), eq(0L), eq(PageRequest.of(0, 1))))
+                                .thenReturn(new SliceImpl<>(expected, PageRequest.of(0, 1), true));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/helprequests/bysolved?solved=false&size=1"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(helpRequestRepository, times(1)).findBySolvedAndIdGreaterThanOrderByIdAsc(eq(false), eq(0L), eq(PageRequest.of(0, 1)));
+                String expectedJson = mapper.writeValueAsString(CursorPage.<HelpRequest>builder().content(expected).next("1").build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for /open
+
+        @Test
+        public void logged_out_users_cannot_get_open_queue() throws Exception {
+                mockMvc.perform(get("/api/helprequests/open"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_first_page_of_open_queue() throws Exception {
+
+                // arrange
+
+                HelpRequest first = HelpRequest.builder().id(2L).teamId("f24-07").requestTime(LocalDateTime.parse("2022-01-03T00:00:00")).solved(false).build();
+                HelpRequest second = HelpRequest.builder().id(1L).teamId("f24-08").requestTime(LocalDateTime.parse("2022-01-03T00:05:30")).solved(false).build();
+                ArrayList<HelpRequest> expected = new ArrayList<>(Arrays.asList(first, second));
+
+                when(helpRequestRepository.findOpenAfter(eq(LocalDateTime.of(1, 1, 1, 0, 0)), eq(0L), eq(PageRequest.of(0, 2))))
+                                .thenReturn(new SliceImpl<>(expected, PageRequest.of(0, 2), true));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/helprequests/open?size=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                String expectedJson = mapper.writeValueAsString(CursorPage.<HelpRequest>builder().content(expected).next("2022-01-03T00:05:30,1").build());
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_next_page_of_open_queue_for_a_team() throws Exception {
+
+                // arrange
+
+                HelpRequest third = HelpRequest.builder().id(5L).teamId("f24-07").requestTime(LocalDateTime.parse("2022-01-03T00:07:00")).solved(false).build();
+                ArrayList<HelpRequest> expected = new ArrayList<>(Arrays.asList(third));
+
+                when(helpRequestRepository.findOpenByTeamIdAfter(eq("f24-07"), eq(LocalDateTime.parse("2022-01-03T00:05:30")), eq(1L), eq(PageRequest.of(0, 20))))
+                                .thenReturn(new SliceImpl<>(expected, PageRequest.of(0, 20), false));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/helprequests/open")
+                                .param("teamId", "f24-07")
+                                .param("cursor", "2022-01-03T00:05:30,1"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                String expectedJson = mapper.writeValueAsString(CursorPage.<HelpRequest>builder().content(expected).next(null).build());
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void open_queue_rejects_a_malformed_cursor() throws Exception {
+                for (String cursor : Arrays.asList("nonsense", "2022-01-03T00:05:30,one", "yesterday,1")) {
+                        mockMvc.perform(get("/api/helprequests/open").param("cursor", cursor))
+                                        .andExpect(status().isBadRequest());
+                }
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_position_in_open_queue() throws Exception {
+
+                // arrange
+
+                LocalDateTime requestTime = LocalDateTime.parse("2022-01-03T00:05:30");
+                HelpRequest helpRequest = HelpRequest.builder().id(7L).requestTime(requestTime).solved(false).build();
+                when(helpRequestRepository.findById(eq(7L))).thenReturn(Optional.of(helpRequest));
+                when(helpRequestRepository.countOpenAhead(eq(requestTime), eq(7L))).thenReturn(2L);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/helprequests/open/position?id=7"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                String expectedJson = mapper.writeValueAsString(QueuePosition.builder().id(7L).position(3L).build());
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void help_requests_that_are_solved_or_without_request_time_have_no_position() throws Exception {
+
+                // arrange
+
+                HelpRequest solved = HelpRequest.builder().id(7L).requestTime(LocalDateTime.parse("2022-01-03T00:05:30")).solved(true).build();
+                HelpRequest noTime = HelpRequest.builder().id(8L).solved(false).build();
+                when(helpRequestRepository.findById(eq(7L))).thenReturn(Optional.of(solved));
+                when(helpRequestRepository.findById(eq(8L))).thenReturn(Optional.of(noTime));
+
+                // act and assert
+
+                mockMvc.perform(get("/api/helprequests/open/position?id=7"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.position").isEmpty());
+                mockMvc.perform(get("/api/helprequests/open/position?id=8"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.position").isEmpty());
+                verify(helpRequestRepository, times(0)).countOpenAhead(any(), anyLong());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void position_of_help_request_that_does_not_exist_is_not_found() throws Exception {
+                when(helpRequestRepository.findById(eq(7L))).thenReturn(Optional.empty());
+
+                mockMvc.perform(get("/api/helprequests/open/position?id=7"))
+                                .andExpect(status().isNotFound());
+        }
+
+        // Tests for /batch
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_post_batch() throws Exception {
+                mockMvc.perform(post("/api/helprequests/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[]")
+                                .with(csrf()))
+                                .andExpect(status().is(403)); // only admins can post
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_post_a_batch_of_help_requests() throws Exception {
+                // arrange
+
+                HelpRequest first = HelpRequest.builder().explanation("first").build();
+                HelpRequest second = HelpRequest.builder().explanation("second").build();
+                HelpRequest firstSaved = HelpRequest.builder().id(1L).explanation("first").build();
+                HelpRequest secondSaved = HelpRequest.builder().id(2L).explanation("second").build();
+
+                String requestBody = mapper.writeValueAsString(Arrays.asList(HelpRequest.builder().id(99L).explanation("first").build(), second));
+                when(helpRequestRepository.saveAll(eq(Arrays.asList(first, second)))).thenReturn(Arrays.asList(firstSaved, secondSaved));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/helprequests/batch")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(1)).saveAll(Arrays.asList(first, second));
+                assertEquals(Arrays.asList(new HelpRequestEvent(HelpRequestEvent.CREATED, first), new HelpRequestEvent(HelpRequestEvent.CREATED, second)),
+                                applicationEvents.stream(HelpRequestEvent.class).toList());
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(
+                                BatchItemResult.builder().index(0).id(1L).status(BatchItemResult.CREATED).build(),
+                                BatchItemResult.builder().index(1).id(2L).status(BatchItemResult.CREATED).build()));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_put_a_batch_of_help_requests_and_missing_ones_are_reported() throws Exception {
+                // arrange
+
+                HelpRequest orig = HelpRequest.builder().id(67L).explanation("before").solved(false).build();
+                HelpRequest edited = HelpRequest.builder().id(67L).explanation("after").solved(true).build();
+                HelpRequest missing = HelpRequest.builder().id(68L).explanation("missing").build();
+
+                String requestBody = mapper.writeValueAsString(Arrays.asList(edited, missing));
+                when(helpRequestRepository.findAllById(eq(Arrays.asList(67L, 68L)))).thenReturn(Arrays.asList(orig));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/helprequests/batch")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(1)).saveAll(Arrays.asList(edited));
+                assertEquals(Arrays.asList(new HelpRequestEvent(HelpRequestEvent.SOLVED, edited)),
+                                applicationEvents.stream(HelpRequestEvent.class).toList());
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(
+                                BatchItemResult.builder().index(0).id(67L).status(BatchItemResult.UPDATED).build(),
+                                BatchItemResult.builder().index(1).id(68L).status(BatchItemResult.NOT_FOUND)
+                                                .message("HelpRequest with id 68 not found").build()));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_delete_a_batch_of_help_requests_and_missing_ones_are_reported() throws Exception {
+                // arrange
+
+                HelpRequest existing = HelpRequest.builder().id(67L).explanation("existing").build();
+                when(helpRequestRepository.findAllById(eq(Arrays.asList(67L, 68L)))).thenReturn(Arrays.asList(existing));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/helprequests/batch")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(mapper.writeValueAsString(Arrays.asList(67L, 68L)))
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(1)).deleteAll(Arrays.asList(existing));
+                assertEquals(Arrays.asList(new HelpRequestEvent(HelpRequestEvent.DELETED, existing)),
+                                applicationEvents.stream(HelpRequestEvent.class).toList());
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(
+                                BatchItemResult.builder().index(0).id(67L).status(BatchItemResult.DELETED).build(),
+                                BatchItemResult.builder().index(1).id(68L).status(BatchItemResult.NOT_FOUND)
+                                                .message("HelpRequest with id 68 not found").build()));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        // Tests for /stream
+
+        @Test
+        public void logged_out_users_cannot_get_stream() throws Exception {
+                mockMvc.perform(get("/api/helprequests/stream"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_open_stream() throws Exception {
+                // arrange
+
+                when(helpRequestStreamService.subscribe(isNull())).thenReturn(new SseEmitter());
+
+                // act
+                mockMvc.perform(get("/api/helprequests/stream").accept(MediaType.TEXT_EVENT_STREAM))
+                                .andExpect(request().asyncStarted());
+
+                // assert
+                verify(helpRequestStreamService, times(1)).subscribe(null);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_resume_stream_from_last_event_id() throws Exception {
+                // arrange
+
+                when(helpRequestStreamService.subscribe(eq("3k9x-42"))).thenReturn(new SseEmitter());
+
+                // act
+                mockMvc.perform(get("/api/helprequests/stream").header("Last-Event-ID", "3k9x-42"))
+                                .andExpect(request().asyncStarted());
+
+                // assert
+                verify(helpRequestStreamService, times(1)).subscribe("3k9x-42");
+        }
+
+        // Tests for conditional GET
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void all_help_requests_are_not_sent_again_while_the_etag_matches() throws Exception {
+                // arrange
+
+                when(tableVersionService.etag(HelpRequest.class)).thenReturn("W/\"abc-3\"");
+
+                // act
+                mockMvc.perform(get("/api/helprequests/all").header("If-None-Match", "W/\"abc-3\""))
+                                .andExpect(status().isNotModified())
+                                .andExpect(header().string("ETag", "W/\"abc-3\""))
+                                .andExpect(content().string(""));
+
+                // assert
+                verify(helpRequestRepository, times(0)).findAll();
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void all_help_requests_are_sent_with_the_new_etag_after_a_change() throws Exception {
+                // arrange
+
+                when(tableVersionService.etag(HelpRequest.class)).thenReturn("W/\"abc-4\"");
+                when(helpRequestRepository.findAll()).thenReturn(new ArrayList<>());
+
+                // act
+                mockMvc.perform(get("/api/helprequests/all").header("If-None-Match", "W/\"abc-3\""))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", "W/\"abc-4\""))
+                                .andExpect(content().string("[]"));
+
+                // assert
+                verify(helpRequestRepository, times(1)).findAll();
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void a_single_helpRequest_is_not_sent_again_while_the_etag_matches() throws Exception {
+                // arrange
+
+                when(tableVersionService.etag(HelpRequest.class)).thenReturn("W/\"abc-3\"");
+
+                // act
+                mockMvc.perform(get("/api/helprequests?id=7").header("If-None-Match", "W/\"abc-3\""))
+                                .andExpect(status().isNotModified())
+                                .andExpect(content().string(""));
+
+                // assert
+                verify(helpRequestRepository, times(0)).findById(any());
+        }
 }
@@ -1,23 +1,37 @@
 package edu.ucsb.cs156.example.controllers;
 
+import edu.ucsb.cs156.example.models.BatchItemResult;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.services.MenuItemReviewStatsService;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import edu.ucsb.cs156.example.services.TableVersionService;
+import edu.ucsb.cs156.example.models.CursorPage;
 import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.MenuItemReviewStats;
 import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.stream.Stream;
+import java.util.function.Supplier;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 
@@ -27,7 +41,10 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -39,6 +56,15 @@ public class MenuItemReviewControllerTests extends ControllerTestCase{
         @MockBean
         MenuItemReviewRepository menuItemReviewRepository;
 
+        @MockBean
+        NdjsonExportService ndjsonExportService;
+
+        @MockBean
+        TableVersionService tableVersionService;
+
+        @MockBean
+        MenuItemReviewStatsService menuItemReviewStatsService;
+
         @MockBean
         UserRepository userRepository;
 
@@ -182,7 +208,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase{
                 MenuItemReview menuItemReview1 = MenuItemReview.builder()
                                 .itemId(-43)
                                 .reviewerEmail("reviewerEmail1")
-                                .stars(6)
+                                .stars(5)
                                 .comments("comments1")
                                 .dateReviewed(ldt1)
                                 .build();
@@ -191,17 +217,59 @@ public class MenuItemReviewControllerTests extends ControllerTestCase{
 
                 // act
                 MvcResult response = mockMvc.perform(
-                                post("/api/menuitemreview/post?itemId=-43&reviewerEmail=reviewerEmail1&stars=6&comments=comments1&dateReviewed=2022-01-03T00:00:00")
+                                post("/api/menuitemreview/post?itemId=-43&reviewerEmail=reviewerEmail1&stars=5&comments=comments1&dateReviewed=2022-01-03T00:00:00")
                                                 .with(csrf()))
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
                 verify(menuItemReviewRepository, times(1)).save(menuItemReview1);
+                verify(menuItemReviewStatsService, times(1)).reviewAdded(menuItemReview1);
                 String expectedJson = mapper.writeValueAsString(menuItemReview1);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
         }
 
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_post_a_review_with_stars_outside_1_to_5() throws Exception {
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/menuitemreview/post?itemId=-43&reviewerEmail=reviewerEmail1&stars=6&comments=comments1&dateReviewed=2022-01-03T00:00:00")
+                                                .with(csrf()))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, never()).save(any());
+                verify(menuItemReviewStatsService, never()).reviewAdded(any());
+                assertEquals("stars must be between 1 and 5", response.getResponse().getErrorMessage());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_edit_a_review_to_stars_outside_1_to_5() throws Exception {
+                // arrange
+                MenuItemReview menuItemReview = MenuItemReview.builder()
+                                .itemId(-42)
+                                .reviewerEmail("reviewerEmail")
+                                .stars(0)
+                                .comments("comments")
+                                .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .build();
+
+                // act
+                mockMvc.perform(
+                                put("/api/menuitemreview?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(mapper.writeValueAsString(menuItemReview))
+                                                .with(csrf()))
+                                .andExpect(status().isBadRequest());
+
+                // assert
+                verify(menuItemReviewRepository, never()).findById(any());
+                verify(menuItemReviewStatsService, never()).reviewChanged(anyLong(), anyInt(), any());
+        }
+
         @WithMockUser(roles = { "ADMIN", "USER" })
         @Test
         public void admin_can_edit_an_existing_review() throws Exception {
@@ -242,6 +310,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase{
                 // assert
                 verify(menuItemReviewRepository, times(1)).findById(67L);
                 verify(menuItemReviewRepository, times(1)).save(menuItemReviewEdited); // should be saved with correct user
+                verify(menuItemReviewStatsService, times(1)).reviewChanged(-43L, 1, menuItemReviewEdited);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(requestBody, responseString);
         }
@@ -256,7 +325,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase{
                 MenuItemReview menuItemReview = MenuItemReview.builder()
                                 .itemId(-42)
                                 .reviewerEmail("reviewerEmail")
-                                .stars(7)
+                                .stars(4)
                                 .comments("comments")
                                 .dateReviewed(ldt1)
                                 .build();
@@ -307,6 +376,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase{
                 // assert
                 verify(menuItemReviewRepository, times(1)).findById(15L);
                 verify(menuItemReviewRepository, times(1)).delete(any());
+                verify(menuItemReviewStatsService, times(1)).reviewRemoved(menuItemReview);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("MenuItemReview with id 15 deleted", json.get("message"));
@@ -331,5 +401,377 @@ public class MenuItemReviewControllerTests extends ControllerTestCase{
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("MenuItemReview with id 15 not found", json.get("message"));
         }
-}
 
+        // Tests for /page
+
+        @Test
+        public void logged_out_users_cannot_get_page() throws Exception {
+                mockMvc.perform(get("/api/menuitemreview/page"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_first_page_of_reviews() throws Exception {
+
+                // arrange
+
+                MenuItemReview first = MenuItemReview.builder().id(1L).itemId(27L).reviewerEmail("cgaucho@ucsb.edu").stars(3).dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00")).comments("bland af").build();
+                MenuItemReview second = MenuItemReview.builder().id(2L).itemId(29L).reviewerEmail("ldelplaya@ucsb.edu").stars(5).dateReviewed(LocalDateTime.parse("2022-03-11T00:00:00")).comments("best apple pie ever").build();
+
+                ArrayList<MenuItemReview> expected = new ArrayList<>();
+                expected.addAll(Arrays.asList(first, second));
+
+                when(menuItemReviewRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, 2))))
+                                .thenReturn(new SliceImpl<>(expected, PageRequest.of(0, 2), true));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreview/page?size=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(menuItemReviewRepository, times(1)).findByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, 2)));
+                String expectedJson = mapper.writeValueAsString(CursorPage.<MenuItemReview>builder().content(expected).next("2").build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_last_page_of_reviews_with_size_capped() throws Exception {
+
+                // arrange
+
+                MenuItemReview last = MenuItemReview.builder().id(2L).itemId(29L).reviewerEmail("ldelplaya@ucsb.edu").stars(5).dateReviewed(LocalDateTime.parse("2022-03-11T00:00:00")).comments("best apple pie ever").build();
+
+                ArrayList<MenuItemReview> expected = new ArrayList<>();
+                expected.add(last);
+
+                when(menuItemReviewRepository.findByIdGreaterThanOrderByIdAsc(eq(1L), eq(PageRequest.of(0, 100))))
+                                .thenReturn(new SliceImpl<>(expected, PageRequest.of(0, 100), false));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreview/page?cursor=1&size=5000"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(menuItemReviewRepository, times(1)).findByIdGreaterThanOrderByIdAsc(eq(1L), eq(PageRequest.of(0, 100)));
+                String expectedJson = mapper.writeValueAsString(CursorPage.<MenuItemReview>builder().content(expected).next(null).build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for /all as NDJSON
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_export_all_menu_item_reviews_as_ndjson() throws Exception {
+
+                // arrange
+
+                StreamingResponseBody body = out -> out.write("{\"id\":1}\n{\"id\":2}\n".getBytes());
+                when(ndjsonExportService.export(any())).thenReturn(ResponseEntity.ok()
+                                .contentType(MediaType.parseMediaType(NdjsonExportService.APPLICATION_NDJSON_VALUE)).body(body));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreview/all").accept(NdjsonExportService.APPLICATION_NDJSON_VALUE))
+                                .andExpect(request().asyncStarted()).andReturn();
+                mockMvc.perform(asyncDispatch(response))
+                                .andExpect(status().isOk())
+                                .andExpect(content().contentType(NdjsonExportService.APPLICATION_NDJSON_VALUE))
+                                .andExpect(content().string("{\"id\":1}\n{\"id\":2}\n"));
+
+                // assert
+
+                ArgumentCaptor<Supplier<Stream<MenuItemReview>>> rows = ArgumentCaptor.captor();
+                verify(ndjsonExportService, times(1)).export(rows.capture());
+                rows.getValue().get();
+                verify(menuItemReviewRepository, times(1)).streamAllBy();
+        }
+
+        // Tests for filtered pages
+
+        @Test
+        public void logged_out_users_cannot_get_page_by_item_id() throws Exception {
+                mockMvc.perform(get("/api/menuitemreview/byitem?itemId=27"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_page_of_reviews_by_item_id() throws Exception {
+
+                // arrange
+
+                MenuItemReview first = MenuItemReview.builder().id(1L).itemId(27L).reviewerEmail("cgaucho@ucsb.edu").stars(3).dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00")).comments("bland af").build();
+
+                ArrayList<MenuItemReview> expected = new ArrayList<>();
+                expected.add(first);
+
+                when(menuItemReviewRepository.findByItemIdAndIdGreaterThanOrderByIdAsc(eq(27L), eq(0L), eq(PageRequest.of(0, 1))))
+                                .thenReturn(new SliceImpl<>(expected, PageRequest.of(0, 1), true));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreview/byitem?itemId=27&size=1"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(menuItemReviewRepository, times(1)).findByItemIdAndIdGreaterThanOrderByIdAsc(eq(27L), eq(0L), eq(PageRequest.of(0, 1)));
+                String expectedJson = mapper.writeValueAsString(CursorPage.<MenuItemReview>builder().content(expected).next("1").build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @Test
+        public void logged_out_users_cannot_get_page_by_reviewer_email() throws Exception {
+                mockMvc.perform(get("/api/menuitemreview/byreviewer?reviewerEmail=cgaucho@ucsb.edu"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_page_of_reviews_by_reviewer_email() throws Exception {
+
+                // arrange
+
+                MenuItemReview first = MenuItemReview.builder().id(1L).itemId(27L).reviewerEmail("cgaucho@ucsb.edu").stars(3).dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00")).comments("bland af").build();
+
+                ArrayList<MenuItemReview> expected = new ArrayList<>();
+                expected.add(first);
+
+                when(menuItemReviewRepository.findByReviewerEmailAndIdGreaterThanOrderByIdAsc(eq("cgaucho@ucsb.edu"), eq(0L), eq(PageRequest.of(0, 1))))
+                                .thenReturn(new SliceImpl<>(expected, PageRequest.of(0, 1), true));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreview/byreviewer?reviewerEmail=cgaucho@ucsb.edu&size=1"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(menuItemReviewRepository, times(1)).findByReviewerEmailAndIdGreaterThanOrderByIdAsc(eq("cgaucho@ucsb.edu"), eq(0L), eq(PageRequest.of(0, 1)));
+                String expectedJson = mapper.writeValueAsString(CursorPage.<MenuItemReview>builder().content(expected).next("1").build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for /stats
+
+        @Test
+        public void logged_out_users_cannot_get_stats() throws Exception {
+                mockMvc.perform(get("/api/menuitemreview/stats"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_stats() throws Exception {
+
+                // arrange
+
+                MenuItemReviewStats stats1 = MenuItemReviewStats.builder().itemId(1L).reviewCount(3).starSum(11).stars3(1).stars4(2).build();
+                MenuItemReviewStats stats2 = MenuItemReviewStats.builder().itemId(2L).reviewCount(1).starSum(5).stars5(1).build();
+
+                ArrayList<MenuItemReviewStats> expectedStats = new ArrayList<>();
+                expectedStats.addAll(Arrays.asList(stats1, stats2));
+
+                when(menuItemReviewStatsService.allStats()).thenReturn(expectedStats);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreview/stats"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(menuItemReviewStatsService, times(1)).allStats();
+                String expectedJson = "[{\"itemId\":1,\"reviewCount\":3,\"starSum\":11,\"mean\":3.6666666666666665,\"histogram\":[0,0,1,2,0]},"
+                                + "{\"itemId\":2,\"reviewCount\":1,\"starSum\":5,\"mean\":5.0,\"histogram\":[0,0,0,0,1]}]";
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for /batch
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_post_batch() throws Exception {
+                mockMvc.perform(post("/api/menuitemreview/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[]")
+                                .with(csrf()))
+                                .andExpect(status().is(403)); // only admins can post
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_post_a_batch_of_reviews() throws Exception {
+                // arrange
+
+                MenuItemReview first = MenuItemReview.builder().comments("first").itemId(7L).stars(4).build();
+                MenuItemReview second = MenuItemReview.builder().comments("second").itemId(7L).stars(4).build();
+                MenuItemReview firstSaved = MenuItemReview.builder().id(1L).comments("first").itemId(7L).stars(4).build();
+                MenuItemReview secondSaved = MenuItemReview.builder().id(2L).comments("second").itemId(7L).stars(4).build();
+
+                String requestBody = mapper.writeValueAsString(Arrays.asList(MenuItemReview.builder().id(99L).comments("first").itemId(7L).stars(4).build(), second));
+                when(menuItemReviewRepository.saveAll(eq(Arrays.asList(first, second)))).thenReturn(Arrays.asList(firstSaved, secondSaved));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/menuitemreview/batch")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, times(1)).saveAll(Arrays.asList(first, second));
+                verify(menuItemReviewStatsService, times(1)).reviewsAdded(Arrays.asList(first, second));
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(
+                                BatchItemResult.builder().index(0).id(1L).status(BatchItemResult.CREATED).build(),
+                                BatchItemResult.builder().index(1).id(2L).status(BatchItemResult.CREATED).build()));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_put_a_batch_of_reviews_and_missing_ones_are_reported() throws Exception {
+                // arrange
+
+                MenuItemReview orig = MenuItemReview.builder().id(67L).comments("before").itemId(7L).stars(4).build();
+                MenuItemReview edited = MenuItemReview.builder().id(67L).comments("after").itemId(8L).stars(5).build();
+                MenuItemReview missing = MenuItemReview.builder().id(68L).comments("missing").itemId(8L).stars(5).build();
+
+                String requestBody = mapper.writeValueAsString(Arrays.asList(edited, missing));
+                when(menuItemReviewRepository.findAllById(eq(Arrays.asList(67L, 68L)))).thenReturn(Arrays.asList(orig));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/menuitemreview/batch")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, times(1)).saveAll(Arrays.asList(edited));
+                verify(menuItemReviewStatsService, times(1)).reviewsRemoved(Arrays.asList(MenuItemReview.builder().itemId(7L).stars(4).build()));
+                verify(menuItemReviewStatsService, times(1)).reviewsAdded(Arrays.asList(edited));
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(
+                                BatchItemResult.builder().index(0).id(67L).status(BatchItemResult.UPDATED).build(),
+                                BatchItemResult.builder().index(1).id(68L).status(BatchItemResult.NOT_FOUND)
+                                                .message("MenuItemReview with id 68 not found").build()));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_delete_a_batch_of_reviews_and_missing_ones_are_reported() throws Exception {
+                // arrange
+
+                MenuItemReview existing = MenuItemReview.builder().id(67L).comments("existing").itemId(7L).stars(4).build();
+                when(menuItemReviewRepository.findAllById(eq(Arrays.asList(67L, 68L)))).thenReturn(Arrays.asList(existing));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/menuitemreview/batch")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(mapper.writeValueAsString(Arrays.asList(67L, 68L)))
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, times(1)).deleteAll(Arrays.asList(existing));
+                verify(menuItemReviewStatsService, times(1)).reviewsRemoved(Arrays.asList(existing));
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(
+                                BatchItemResult.builder().index(0).id(67L).status(BatchItemResult.DELETED).build(),
+                                BatchItemResult.builder().index(1).id(68L).status(BatchItemResult.NOT_FOUND)
+                                                .message("MenuItemReview with id 68 not found").build()));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void batch_put_only_moves_stats_for_reviews_whose_item_or_stars_changed() throws Exception {
+                // arrange
+
+                MenuItemReview commentOrig = MenuItemReview.builder().id(67L).itemId(7L).stars(4).comments("before").build();
+                MenuItemReview commentEdited = MenuItemReview.builder().id(67L).itemId(7L).stars(4).comments("after").build();
+                MenuItemReview starsOrig = MenuItemReview.builder().id(68L).itemId(7L).stars(4).comments("same").build();
+                MenuItemReview starsEdited = MenuItemReview.builder().id(68L).itemId(7L).stars(2).comments("same").build();
+
+                String requestBody = mapper.writeValueAsString(Arrays.asList(commentEdited, starsEdited));
+                when(menuItemReviewRepository.findAllById(eq(Arrays.asList(67L, 68L)))).thenReturn(Arrays.asList(commentOrig, starsOrig));
+
+                // act
+                mockMvc.perform(
+                                put("/api/menuitemreview/batch")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk());
+
+                // assert
+                verify(menuItemReviewRepository, times(1)).saveAll(Arrays.asList(commentEdited, starsEdited));
+                verify(menuItemReviewStatsService, times(1)).reviewsRemoved(Arrays.asList(MenuItemReview.builder().itemId(7L).stars(4).build()));
+                verify(menuItemReviewStatsService, times(1)).reviewsAdded(Arrays.asList(starsEdited));
+        }
+
+        // Tests for conditional GET
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void all_menu_item_reviews_are_not_sent_again_while_the_etag_matches() throws Exception {
+                // arrange
+
+                when(tableVersionService.etag(MenuItemReview.class)).thenReturn("W/\"abc-3\"");
+
+                // act
+                mockMvc.perform(get("/api/menuitemreview/all").header("If-None-Match", "W/\"abc-3\""))
+                                .andExpect(status().isNotModified())
+                                .andExpect(header().string("ETag", "W/\"abc-3\""))
+                                .andExpect(content().string(""));
+
+                // assert
+                verify(menuItemReviewRepository, times(0)).findAll();
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void all_menu_item_reviews_are_sent_with_the_new_etag_after_a_change() throws Exception {
+                // arrange
+
+                when(tableVersionService.etag(MenuItemReview.class)).thenReturn("W/\"abc-4\"");
+                when(menuItemReviewRepository.findAll()).thenReturn(new ArrayList<>());
+
+                // act
+                mockMvc.perform(get("/api/menuitemreview/all").header("If-None-Match", "W/\"abc-3\""))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", "W/\"abc-4\""))
+                                .andExpect(content().string("[]"));
+
+                // assert
+                verify(menuItemReviewRepository, times(1)).findAll();
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void a_single_menuItemReview_is_not_sent_again_while_the_etag_matches() throws Exception {
+                // arrange
+
+                when(tableVersionService.etag(MenuItemReview.class)).thenReturn("W/\"abc-3\"");
+
+                // act
+                mockMvc.perform(get("/api/menuitemreview?id=7").header("If-None-Match", "W/\"abc-3\""))
+                                .andExpect(status().isNotModified())
+                                .andExpect(content().string(""));
+
+                // assert
+                verify(menuItemReviewRepository, times(0)).findById(any());
+        }
+}
@@ -1,23 +1,35 @@
 package edu.ucsb.cs156.example.controllers;
 
+import edu.ucsb.cs156.example.models.BatchItemResult;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import edu.ucsb.cs156.example.services.TableVersionService;
+import edu.ucsb.cs156.example.models.CursorPage;
 import edu.ucsb.cs156.example.entities.RecommendationRequest;
 import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.stream.Stream;
+import java.util.function.Supplier;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 
@@ -38,6 +50,12 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
     @MockBean
     RecommendationRequestRepository recommendationRequestRepository;
 
+    @MockBean
+    NdjsonExportService ndjsonExportService;
+
+    @MockBean
+    TableVersionService tableVersionService;
+
     @MockBean
     UserRepository userRepository;
 
@@ -346,4 +364,310 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
             Map<String, Object> json = responseToJson(response);
             assertEquals("RecommendationRequest with id 67 not found", json.get("message"));
     }
+
+    // Tests for /page
+
+    @Test
+    public void logged_out_users_cannot_get_page() throws Exception {
+        mockMvc.perform(get("/api/recommendationrequest/page"))
+                .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_can_get_first_page_of_requests() throws Exception {
+
+        // arrange
+
+        RecommendationRequest first = RecommendationRequest.builder().id(1L).requesterEmail("cgaucho@ucsb.edu").professorEmail("phtcon@ucsb.edu").explanation("BS/MS program").dateRequested(LocalDateTime.parse("2022-04-20T00:00:00")).dateNeeded(LocalDateTime.parse("2022-05-01T00:00:00")).done(false).build();
+        RecommendationRequest second = RecommendationRequest.builder().id(2L).requesterEmail("ldelplaya@ucsb.edu").professorEmail("richert@ucsb.edu").explanation("PhD CS Stanford").dateRequested(LocalDateTime.parse("2022-05-20T00:00:00")).dateNeeded(LocalDateTime.parse("2022-11-15T00:00:00")).done(true).build();
+
+        ArrayList<RecommendationRequest> expected = new ArrayList<>();
+        expected.addAll(Arrays.asList(first, second));
+
+        when(recommendationRequestRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, 2))))
+                .thenReturn(new SliceImpl<>(expected, PageRequest.of(0, 2), true));
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/recommendationrequest/page?size=2"))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+
+        verify(recommendationRequestRepository, times(1)).findByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, 2)));
+        String expectedJson = mapper.writeValueAsString(CursorPage.<RecommendationRequest>builder().content(expected).next("2").build());
+        String responseString = response.getResponse().getContentAsString();
+        assertEquals(expectedJson, responseString);
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_last_page_of_requests_with_size_capped() throws Exception {
+
+        // arrange
+
+        RecommendationRequest last = RecommendationRequest.builder().id(2L).requesterEmail("ldelplaya@ucsb.edu").professorEmail("richert@ucsb.edu").explanation("PhD CS Stanford").dateRequested(LocalDateTime.parse("2022-05-20T00:00:00")).dateNeeded(LocalDateTime.parse("2022-11-15T00:00:00")).done(true).build();
+
+        ArrayList<RecommendationRequest> expected = new ArrayList<>();
+        expected.add(last);
+
+        when(recommendationRequestRepository.findByIdGreaterThanOrderByIdAsc(eq(1L), eq(PageRequest.of(0, 100))))
+                .thenReturn(new SliceImpl<>(expected, PageRequest.of(0, 100), false));
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/recommendationrequest/page?cursor=1&size=5000"))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+
+        verify(recommendationRequestRepository, times(1)).findByIdGreaterThanOrderByIdAsc(eq(1L), eq(PageRequest.of(0, 100)));
+        String expectedJson = mapper.writeValueAsString(CursorPage.<RecommendationRequest>builder().content(expected).next(null).build());
+        String responseString = response.getResponse().getContentAsString();
+        assertEquals(expectedJson, responseString);
+    }
+
+    // Tests for /all as NDJSON
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_can_export_all_recommendation_requests_as_ndjson() throws Exception {
+
+        // arrange
+
+        StreamingResponseBody body = out -> out.write("{\"id\":1}\n{\"id\":2}\n".getBytes());
+        when(ndjsonExportService.export(any())).thenReturn(ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NdjsonExportService.APPLICATION_NDJSON_VALUE)).body(body));
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/recommendationrequest/all").accept(NdjsonExportService.APPLICATION_NDJSON_VALUE))
+                .andExpect(request().asyncStarted()).andReturn();
+        mockMvc.perform(asyncDispatch(response))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(NdjsonExportService.APPLICATION_NDJSON_VALUE))
+                .andExpect(content().string("{\"id\":1}\n{\"id\":2}\n"));
+
+        // assert
+
+        ArgumentCaptor<Supplier<Stream<RecommendationRequest>>> rows = ArgumentCaptor.captor();
+        verify(ndjsonExportService, times(1)).export(rows.capture());
+        rows.getValue().get();
+        verify(recommendationRequestRepository, times(1)).streamAllBy();
+    }
+
+    // Tests for filtered pages
+
+    @Test
+    public void logged_out_users_cannot_get_page_by_professor_email() throws Exception {
+        mockMvc.perform(get("/api/recommendationrequest/byprofessor?professorEmail=phtcon@ucsb.edu"))
+                .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_can_get_page_of_requests_by_professor_email() throws Exception {
+
+        // arrange
+
+        RecommendationRequest first = RecommendationRequest.builder().id(1L).requesterEmail("cgaucho@ucsb.edu").professorEmail("phtcon@ucsb.edu").explanation("BS/MS program").dateRequested(LocalDateTime.parse("2022-04-20T00:00:00")).dateNeeded(LocalDateTime.parse("2022-05-01T00:00:00")).done(false).build();
+
+        ArrayList<RecommendationRequest> expected = new ArrayList<>();
+        expected.add(first);
+
+        when(recommendationRequestRepository.findByProfessorEmailAndIdGreaterThanOrderByIdAsc(eq("phtcon@ucsb.edu"), eq(0L), eq(PageRequest.of(0, 1))))
+                .thenReturn(new SliceImpl<>(expected, PageRequest.of(0, 1), true));
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/recommendationrequest/byprofessor?professorEmail=phtcon@ucsb.edu&size=1"))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+
+        verify(recommendationRequestRepository, times(1)).findByProfessorEmailAndIdGreaterThanOrderByIdAsc(eq("phtcon@ucsb.edu"), eq(0L), eq(PageRequest.of(0, 1)));
+        String expectedJson = mapper.writeValueAsString(CursorPage.<RecommendationRequest>builder().content(expected).next("1").build());
+        String responseString = response.getResponse().getContentAsString();
+        assertEquals(expectedJson, responseString);
+    }
+
+    @Test
+    public void logged_out_users_cannot_get_page_by_done() throws Exception {
+        mockMvc.perform(get("/api/recommendationrequest/bydone?done=false"))
+                .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_can_get_page_of_requests_by_done() throws Exception {
+
+        // arrange
+
+        RecommendationRequest first = RecommendationRequest.builder().id(1L).requesterEmail("cgaucho@ucsb.edu").professorEmail("phtcon@ucsb.edu").explanation("BS/MS program").dateRequested(LocalDateTime.parse("2022-04-20T00:00:00")).dateNeeded(LocalDateTime.parse("2022-05-01T00:00:00")).done(false).build();
+
+        ArrayList<RecommendationRequest> expected = new ArrayList<>();
+        expected.add(first);
+
+        when(recommendationRequestRepository.findByDoneAndIdGreaterThanOrderByIdAsc(eq(false), eq(0L), eq(PageRequest.of(0, 1))))
+                .thenReturn(new SliceImpl<>(expected, PageRequest.of(0, 1), true));
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/recommendationrequest/bydone?done=false&size=1"))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+
+        verify(recommendationRequestRepository, times(1)).findByDoneAndIdGreaterThanOrderByIdAsc(eq(false), eq(0L), eq(PageRequest.of(0, 1)));
+        String expectedJson = mapper.writeValueAsString(CursorPage.<RecommendationRequest>builder().content(expected).next("1").build());
+        String responseString = response.getResponse().getContentAsString();
+        assertEquals(expectedJson, responseString);
+    }
+
+        // Tests for /batch
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_post_batch() throws Exception {
+                mockMvc.perform(post("/api/recommendationrequest/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[]")
+                                .with(csrf()))
+                                .andExpect(status().is(403)); // only admins can post
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_post_a_batch_of_requests() throws Exception {
+                // arrange
+
+                RecommendationRequest first = RecommendationRequest.builder().explanation("first").build();
+                RecommendationRequest second = RecommendationRequest.builder().explanation("second").build();
+                RecommendationRequest firstSaved = RecommendationRequest.builder().id(1L).explanation("first").build();
+                RecommendationRequest secondSaved = RecommendationRequest.builder().id(2L).explanation("second").build();
+
+                String requestBody = mapper.writeValueAsString(Arrays.asList(RecommendationRequest.builder().id(99L).explanation("first").build(), second));
+                when(recommendationRequestRepository.saveAll(eq(Arrays.asList(first, second)))).thenReturn(Arrays.asList(firstSaved, secondSaved));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/recommendationrequest/batch")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(recommendationRequestRepository, times(1)).saveAll(Arrays.asList(first, second));
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(
+                                BatchItemResult.builder().index(0).id(1L).status(BatchItemResult.CREATED).build(),
+                                BatchItemResult.builder().index(1).id(2L).status(BatchItemResult.CREATED).build()));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_put_a_batch_of_requests_and_missing_ones_are_reported() throws Exception {
+                // arrange
+
+                RecommendationRequest orig = RecommendationRequest.builder().id(67L).explanation("before").build();
+                RecommendationRequest edited = RecommendationRequest.builder().id(67L).explanation("after").build();
+                RecommendationRequest missing = RecommendationRequest.builder().id(68L).explanation("missing").build();
+
+                String requestBody = mapper.writeValueAsString(Arrays.asList(edited, missing));
+                when(recommendationRequestRepository.findAllById(eq(Arrays.asList(67L, 68L)))).thenReturn(Arrays.asList(orig));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/recommendationrequest/batch")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(recommendationRequestRepository, times(1)).saveAll(Arrays.asList(edited));
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(
+                                BatchItemResult.builder().index(0).id(67L).status(BatchItemResult.UPDATED).build(),
+                                BatchItemResult.builder().index(1).id(68L).status(BatchItemResult.NOT_FOUND)
+                                                .message("RecommendationRequest with id 68 not found").build()));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_delete_a_batch_of_requests_and_missing_ones_are_reported() throws Exception {
+                // arrange
+
+                RecommendationRequest existing = RecommendationRequest.builder().id(67L).explanation("existing").build();
+                when(recommendationRequestRepository.findAllById(eq(Arrays.asList(67L, 68L)))).thenReturn(Arrays.asList(existing));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/recommendationrequest/batch")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(mapper.writeValueAsString(Arrays.asList(67L, 68L)))
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(recommendationRequestRepository, times(1)).deleteAll(Arrays.asList(existing));
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(
+                                BatchItemResult.builder().index(0).id(67L).status(BatchItemResult.DELETED).build(),
+                                BatchItemResult.builder().index(1).id(68L).status(BatchItemResult.NOT_FOUND)
+                                                .message("RecommendationRequest with id 68 not found").build()));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        // Tests for conditional GET
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void all_recommendation_requests_are_not_sent_again_while_the_etag_matches() throws Exception {
+                // arrange
+
+                when(tableVersionService.etag(RecommendationRequest.class)).thenReturn("W/\"abc-3\"");
+
+                // act
+                mockMvc.perform(get("/api/recommendationrequest/all").header("If-None-Match", "W/\"abc-3\""))
+                                .andExpect(status().isNotModified())
+                                .andExpect(header().string("ETag", "W/\"abc-3\""))
+                                .andExpect(content().string(""));
+
+                // assert
+                verify(recommendationRequestRepository, times(0)).findAll();
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void all_recommendation_requests_are_sent_with_the_new_etag_after_a_change() throws Exception {
+                // arrange
+
+                when(tableVersionService.etag(RecommendationRequest.class)).thenReturn("W/\"abc-4\"");
+                when(recommendationRequestRepository.findAll()).thenReturn(new ArrayList<>());
+
+                // act
+                mockMvc.perform(get("/api/recommendationrequest/all").header("If-None-Match", "W/\"abc-3\""))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", "W/\"abc-4\""))
+                                .andExpect(content().string("[]"));
+
+                // assert
+                verify(recommendationRequestRepository, times(1)).findAll();
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void a_single_recommendationRequest_is_not_sent_again_while_the_etag_matches() throws Exception {
+                // arrange
+
+                when(tableVersionService.etag(RecommendationRequest.class)).thenReturn("W/\"abc-3\"");
+
+                // act
+                mockMvc.perform(get("/api/recommendationrequest?id=7").header("If-None-Match", "W/\"abc-3\""))
+                                .andExpect(status().isNotModified())
+                                .andExpect(content().string(""));
+
+                // assert
+                verify(recommendationRequestRepository, times(0)).findById(any());
+        }
 }
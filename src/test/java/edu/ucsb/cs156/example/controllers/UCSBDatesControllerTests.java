@@ -1,23 +1,35 @@
 package edu.ucsb.cs156.example.controllers;
 
+import edu.ucsb.cs156.example.models.BatchItemResult;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import edu.ucsb.cs156.example.services.TableVersionService;
+import edu.ucsb.cs156.example.models.CursorPage;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.stream.Stream;
+import java.util.function.Supplier;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 
@@ -39,6 +51,12 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
         @MockBean
         UCSBDateRepository ucsbDateRepository;
 
+        @MockBean
+        NdjsonExportService ndjsonExportService;
+
+        @MockBean
+        TableVersionService tableVersionService;
+
         @MockBean
         UserRepository userRepository;
 
@@ -315,4 +333,360 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                 assertEquals("UCSBDate with id 67 not found", json.get("message"));
 
         }
+
+        // Tests for /page
+
+        @Test
+        public void logged_out_users_cannot_get_page() throws Exception {
+                mockMvc.perform(get("/api/ucsbdates/page"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_first_page_of_ucsbdates() throws Exception {
+
+                // arrange
+
+                UCSBDate first = UCSBDate.builder().id(1L).name("firstDayOfClasses").quarterYYYYQ("20222").localDateTime(LocalDateTime.parse("2022-01-03T00:00:00")).build();
+                UCSBDate second = UCSBDate.builder().id(2L).name("lastDayOfClasses").quarterYYYYQ("20222").localDateTime(LocalDateTime.parse("2022-03-11T00:00:00")).build();
+
+                ArrayList<UCSBDate> expected = new ArrayList<>();
+                expected.addAll(Arrays.asList(first, second));
+
+                when(ucsbDateRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, 2))))
+                                .thenReturn(new SliceImpl<>(expected, PageRequest.of(0, 2), true));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/page?size=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(ucsbDateRepository, times(1)).findByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, 2)));
+                String expectedJson = mapper.writeValueAsString(CursorPage.<UCSBDate>builder().content(expected).next("2").build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_last_page_of_ucsbdates_with_size_capped() throws Exception {
+
+                // arrange
+
+                UCSBDate last = UCSBDate.builder().id(2L).name("lastDayOfClasses").quarterYYYYQ("20222").localDateTime(LocalDateTime.parse("2022-03-11T00:00:00")).build();
+
+                ArrayList<UCSBDate> expected = new ArrayList<>();
+                expected.add(last);
+
+                when(ucsbDateRepository.findByIdGreaterThanOrderByIdAsc(eq(1L), eq(PageRequest.of(0, 100))))
+                                .thenReturn(new SliceImpl<>(expected, PageRequest.of(0, 100), false));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/page?cursor=1&size=5000"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(ucsbDateRepository, times(1)).findByIdGreaterThanOrderByIdAsc(eq(1L), eq(PageRequest.of(0, 100)));
+                String expectedJson = mapper.writeValueAsString(CursorPage.<UCSBDate>builder().content(expected).next(null).build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for /all as NDJSON
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_export_all_ucsbdates_as_ndjson() throws Exception {
+
+                // arrange
+
+                StreamingResponseBody body = out -> out.write("{\"id\":1}\n{\"id\":2}\n".getBytes());
+                when(ndjsonExportService.export(any())).thenReturn(ResponseEntity.ok()
+                                .contentType(MediaType.parseMediaType(NdjsonExportService.APPLICATION_NDJSON_VALUE)).body(body));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/all").accept(NdjsonExportService.APPLICATION_NDJSON_VALUE))
+                                .andExpect(request().asyncStarted()).andReturn();
+                mockMvc.perform(asyncDispatch(response))
+                                .andExpect(status().isOk())
+                                .andExpect(content().contentType(NdjsonExportService.APPLICATION_NDJSON_VALUE))
+                                .andExpect(content().string("{\"id\":1}\n{\"id\":2}\n"));
+
+                // assert
+
+                ArgumentCaptor<Supplier<Stream<UCSBDate>>> rows = ArgumentCaptor.captor();
+                verify(ndjsonExportService, times(1)).export(rows.capture());
+                rows.getValue().get();
+                verify(ucsbDateRepository, times(1)).streamAllBy();
+        }
+
+        // Tests for /batch
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_post_batch() throws Exception {
+                mockMvc.perform(post("/api/ucsbdates/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[]")
+                                .with(csrf()))
+                                .andExpect(status().is(403)); // only admins can post
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_post_a_batch_of_dates() throws Exception {
+                // arrange
+
+                UCSBDate first = UCSBDate.builder().name("first").build();
+                UCSBDate second = UCSBDate.builder().name("second").build();
+                UCSBDate firstSaved = UCSBDate.builder().id(1L).name("first").build();
+                UCSBDate secondSaved = UCSBDate.builder().id(2L).name("second").build();
+
+                String requestBody = mapper.writeValueAsString(Arrays.asList(UCSBDate.builder().id(99L).name("first").build(), second));
+                when(ucsbDateRepository.saveAll(eq(Arrays.asList(first, second)))).thenReturn(Arrays.asList(firstSaved, secondSaved));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/ucsbdates/batch")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(1)).saveAll(Arrays.asList(first, second));
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(
+                                BatchItemResult.builder().index(0).id(1L).status(BatchItemResult.CREATED).build(),
+                                BatchItemResult.builder().index(1).id(2L).status(BatchItemResult.CREATED).build()));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_put_a_batch_of_dates_and_missing_ones_are_reported() throws Exception {
+                // arrange
+
+                UCSBDate orig = UCSBDate.builder().id(67L).name("before").build();
+                UCSBDate edited = UCSBDate.builder().id(67L).name("after").build();
+                UCSBDate missing = UCSBDate.builder().id(68L).name("missing").build();
+
+                String requestBody = mapper.writeValueAsString(Arrays.asList(edited, missing));
+                when(ucsbDateRepository.findAllById(eq(Arrays.asList(67L, 68L)))).thenReturn(Arrays.asList(orig));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/ucsbdates/batch")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(1)).saveAll(Arrays.asList(edited));
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(
+                                BatchItemResult.builder().index(0).id(67L).status(BatchItemResult.UPDATED).build(),
+                                BatchItemResult.builder().index(1).id(68L).status(BatchItemResult.NOT_FOUND)
+                                                .message("UCSBDate with id 68 not found").build()));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_delete_a_batch_of_dates_and_missing_ones_are_reported() throws Exception {
+                // arrange
+
+                UCSBDate existing = UCSBDate.builder().id(67L).name("existing").build();
+                when(ucsbDateRepository.findAllById(eq(Arrays.asList(67L, 68L)))).thenReturn(Arrays.asList(existing));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/ucsbdates/batch")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(mapper.writeValueAsString(Arrays.asList(67L, 68L)))
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(1)).deleteAll(Arrays.asList(existing));
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(
+                                BatchItemResult.builder().index(0).id(67L).status(BatchItemResult.DELETED).build(),
+                                BatchItemResult.builder().index(1).id(68L).status(BatchItemResult.NOT_FOUND)
+                                                .message("UCSBDate with id 68 not found").build()));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        // Tests for conditional GET
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void all_ucsbdates_are_not_sent_again_while_the_etag_matches() throws Exception {
+                // arrange
+
+                when(tableVersionService.etag(UCSBDate.class)).thenReturn("W/\"abc-3\"");
+
+                // act
+                mockMvc.perform(get("/api/ucsbdates/all").header("If-None-Match", "W/\"abc-3\""))
+                                .andExpect(status().isNotModified())
+                                .andExpect(header().string("ETag", "W/\"abc-3\""))
+                                .andExpect(content().string(""));
+
+                // assert
+                verify(ucsbDateRepository, times(0)).findAll();
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void all_ucsbdates_are_sent_with_the_new_etag_after_a_change() throws Exception {
+                // arrange
+
+                when(tableVersionService.etag(UCSBDate.class)).thenReturn("W/\"abc-4\"");
+                when(ucsbDateRepository.findAll()).thenReturn(new ArrayList<>());
+
+                // act
+                mockMvc.perform(get("/api/ucsbdates/all").header("If-None-Match", "W/\"abc-3\""))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", "W/\"abc-4\""))
+                                .andExpect(content().string("[]"));
+
+                // assert
+                verify(ucsbDateRepository, times(1)).findAll();
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void a_single_uCSBDate_is_not_sent_again_while_the_etag_matches() throws Exception {
+                // arrange
+
+                when(tableVersionService.etag(UCSBDate.class)).thenReturn("W/\"abc-3\"");
+
+                // act
+                mockMvc.perform(get("/api/ucsbdates?id=7").header("If-None-Match", "W/\"abc-3\""))
+                                .andExpect(status().isNotModified())
+                                .andExpect(content().string(""));
+
+                // assert
+                verify(ucsbDateRepository, times(0)).findById(any());
+        }
+
+        // Tests for the calendar endpoints
+
+        @Test
+        public void logged_out_users_cannot_get_a_quarter() throws Exception {
+                mockMvc.perform(get("/api/ucsbdates/quarter/20222"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_the_dates_of_a_quarter() throws Exception {
+
+                // arrange
+
+                UCSBDate ucsbDate1 = UCSBDate.builder().id(1L).name("firstDayOfClasses").quarterYYYYQ("20222")
+                                .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00")).build();
+                UCSBDate ucsbDate2 = UCSBDate.builder().id(2L).name("lastDayOfClasses").quarterYYYYQ("20222")
+                                .localDateTime(LocalDateTime.parse("2022-03-11T00:00:00")).build();
+                when(ucsbDateRepository.findByQuarterYYYYQOrderByLocalDateTimeAscIdAsc("20222"))
+                                .thenReturn(Arrays.asList(ucsbDate1, ucsbDate2));
+
+                // act
+
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/quarter/20222"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(ucsbDateRepository, times(1)).findByQuarterYYYYQOrderByLocalDateTimeAscIdAsc("20222");
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(ucsbDate1, ucsbDate2));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void quarter_must_be_in_the_format_yyyyq() throws Exception {
+                for (String quarter : Arrays.asList("2022", "202205", "20225", "2022W")) {
+                        mockMvc.perform(get("/api/ucsbdates/quarter/" + quarter))
+                                        .andExpect(status().isBadRequest());
+                }
+                verify(ucsbDateRepository, times(0)).findByQuarterYYYYQOrderByLocalDateTimeAscIdAsc(any());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void the_dates_of_a_quarter_are_not_sent_again_while_the_etag_matches() throws Exception {
+                // arrange
+
+                when(tableVersionService.etag(UCSBDate.class)).thenReturn("W/\"abc-3\"");
+
+                // act
+                mockMvc.perform(get("/api/ucsbdates/quarter/20222").header("If-None-Match", "W/\"abc-3\""))
+                                .andExpect(status().isNotModified())
+                                .andExpect(header().string("ETag", "W/\"abc-3\""))
+                                .andExpect(content().string(""));
+
+                // assert
+                verify(ucsbDateRepository, times(0)).findByQuarterYYYYQOrderByLocalDateTimeAscIdAsc(any());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_the_dates_in_a_range() throws Exception {
+
+                // arrange
+
+                LocalDateTime from = LocalDateTime.parse("2022-01-01T00:00:00");
+                LocalDateTime to = LocalDateTime.parse("2022-01-31T23:59:59");
+                UCSBDate ucsbDate = UCSBDate.builder().id(1L).name("firstDayOfClasses").quarterYYYYQ("20222")
+                                .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00")).build();
+                when(ucsbDateRepository.findByLocalDateTimeBetweenOrderByLocalDateTimeAscIdAsc(from, to))
+                                .thenReturn(Arrays.asList(ucsbDate));
+
+                // act
+
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/range")
+                                .param("from", "2022-01-01T00:00:00")
+                                .param("to", "2022-01-31T23:59:59"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(ucsbDateRepository, times(1)).findByLocalDateTimeBetweenOrderByLocalDateTimeAscIdAsc(from, to);
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(ucsbDate));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void range_must_not_end_before_it_starts() throws Exception {
+                mockMvc.perform(get("/api/ucsbdates/range")
+                                .param("from", "2022-02-01T00:00:00")
+                                .param("to", "2022-01-01T00:00:00"))
+                                .andExpect(status().isBadRequest());
+                verify(ucsbDateRepository, times(0)).findByLocalDateTimeBetweenOrderByLocalDateTimeAscIdAsc(any(), any());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void the_dates_in_a_range_are_not_sent_again_while_the_etag_matches() throws Exception {
+                // arrange
+
+                when(tableVersionService.etag(UCSBDate.class)).thenReturn("W/\"abc-3\"");
+
+                // act
+                mockMvc.perform(get("/api/ucsbdates/range")
+                                .param("from", "2022-01-01T00:00:00")
+                                .param("to", "2022-01-01T00:00:00")
+                                .header("If-None-Match", "W/\"abc-3\""))
+                                .andExpect(status().isNotModified())
+                                .andExpect(content().string(""));
+
+                // assert
+                verify(ucsbDateRepository, times(0)).findByLocalDateTimeBetweenOrderByLocalDateTimeAscIdAsc(any(), any());
+        }
 }
@@ -1,23 +1,38 @@
 package edu.ucsb.cs156.example.controllers;
 
+import edu.ucsb.cs156.example.models.BatchItemResult;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.services.DiningCommonsLocationService;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import edu.ucsb.cs156.example.services.TableVersionService;
+import edu.ucsb.cs156.example.models.CursorPage;
+import edu.ucsb.cs156.example.models.NearbyCommons;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.stream.Stream;
+import java.util.function.Supplier;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 
@@ -26,6 +41,7 @@ import java.util.Optional;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -37,6 +53,15 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
         @MockBean
         UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
 
+        @MockBean
+        NdjsonExportService ndjsonExportService;
+
+        @MockBean
+        TableVersionService tableVersionService;
+
+        @MockBean
+        DiningCommonsLocationService diningCommonsLocationService;
+
         @MockBean
         UserRepository userRepository;
 
@@ -332,4 +357,296 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                 assertEquals("UCSBDiningCommons with id munger-hall not found", json.get("message"));
 
         }
+
+        // Tests for /page
+
+        @Test
+        public void logged_out_users_cannot_get_page() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommons/page"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_first_page_of_commons() throws Exception {
+
+                // arrange
+
+                UCSBDiningCommons first = UCSBDiningCommons.builder().code("carrillo").name("Carrillo").hasSackMeal(false).hasTakeOutMeal(false).hasDiningCam(true).latitude(34.409953).longitude(-119.85277).build();
+                UCSBDiningCommons second = UCSBDiningCommons.builder().code("de-la-guerra").name("De La Guerra").hasSackMeal(false).hasTakeOutMeal(false).hasDiningCam(true).latitude(34.409811).longitude(-119.845026).build();
+
+                ArrayList<UCSBDiningCommons> expected = new ArrayList<>();
+                expected.addAll(Arrays.asList(first, second));
+
+                when(ucsbDiningCommonsRepository.findByCodeGreaterThanOrderByCodeAsc(eq(""), eq(PageRequest.of(0, 2))))
+                                .thenReturn(new SliceImpl<>(expected, PageRequest.of(0, 2), true));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/page?size=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(ucsbDiningCommonsRepository, times(1)).findByCodeGreaterThanOrderByCodeAsc(eq(""), eq(PageRequest.of(0, 2)));
+                String expectedJson = mapper.writeValueAsString(CursorPage.<UCSBDiningCommons>builder().content(expected).next("de-la-guerra").build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_last_page_of_commons_with_size_capped() throws Exception {
+
+                // arrange
+
+                UCSBDiningCommons last = UCSBDiningCommons.builder().code("de-la-guerra").name("De La Guerra").hasSackMeal(false).hasTakeOutMeal(false).hasDiningCam(true).latitude(34.409811).longitude(-119.845026).build();
+
+                ArrayList<UCSBDiningCommons> expected = new ArrayList<>();
+                expected.add(last);
+
+                when(ucsbDiningCommonsRepository.findByCodeGreaterThanOrderByCodeAsc(eq("carrillo"), eq(PageRequest.of(0, 100))))
+                                .thenReturn(new SliceImpl<>(expected, PageRequest.of(0, 100), false));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/page?cursor=carrillo&size=5000"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(ucsbDiningCommonsRepository, times(1)).findByCodeGreaterThanOrderByCodeAsc(eq("carrillo"), eq(PageRequest.of(0, 100)));
+                String expectedJson = mapper.writeValueAsString(CursorPage.<UCSBDiningCommons>builder().content(expected).next(null).build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for /all as NDJSON
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_export_all_ucsbdiningcommons_as_ndjson() throws Exception {
+
+                // arrange
+
+                StreamingResponseBody body = out -> out.write("{\"id\":1}\n{\"id\":2}\n".getBytes());
+                when(ndjsonExportService.export(any())).thenReturn(ResponseEntity.ok()
+                                .contentType(MediaType.parseMediaType(NdjsonExportService.APPLICATION_NDJSON_VALUE)).body(body));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/all").accept(NdjsonExportService.APPLICATION_NDJSON_VALUE))
+                                .andExpect(request().asyncStarted()).andReturn();
+                mockMvc.perform(asyncDispatch(response))
+                                .andExpect(status().isOk())
+                                .andExpect(content().contentType(NdjsonExportService.APPLICATION_NDJSON_VALUE))
+                                .andExpect(content().string("{\"id\":1}\n{\"id\":2}\n"));
+
+                // assert
+
+                ArgumentCaptor<Supplier<Stream<UCSBDiningCommons>>> rows = ArgumentCaptor.captor();
+                verify(ndjsonExportService, times(1)).export(rows.capture());
+                rows.getValue().get();
+                verify(ucsbDiningCommonsRepository, times(1)).streamAllBy();
+        }
+
+        // Tests for /batch
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_post_batch() throws Exception {
+                mockMvc.perform(post("/api/ucsbdiningcommons/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[]")
+                                .with(csrf()))
+                                .andExpect(status().is(403)); // only admins can post
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_post_a_batch_of_commons_and_existing_codes_are_conflicts() throws Exception {
+                // arrange
+
+                UCSBDiningCommons existing = UCSBDiningCommons.builder().code("ortega").name("existing").build();
+                UCSBDiningCommons first = UCSBDiningCommons.builder().code("ortega").name("first").build();
+                UCSBDiningCommons second = UCSBDiningCommons.builder().code("carrillo").name("second").build();
+                UCSBDiningCommons repeated = UCSBDiningCommons.builder().code("carrillo").name("repeated").build();
+
+                String requestBody = mapper.writeValueAsString(Arrays.asList(first, second, repeated));
+                when(ucsbDiningCommonsRepository.findAllById(eq(Arrays.asList("ortega", "carrillo", "carrillo")))).thenReturn(Arrays.asList(existing));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/ucsbdiningcommons/batch")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(1)).insertAll(Arrays.asList(second));
+                verify(ucsbDiningCommonsRepository, never()).saveAll(any());
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(
+                                BatchItemResult.builder().index(0).id("ortega").status(BatchItemResult.CONFLICT)
+                                                .message("UCSBDiningCommons with id ortega already exists").build(),
+                                BatchItemResult.builder().index(1).id("carrillo").status(BatchItemResult.CREATED).build(),
+                                BatchItemResult.builder().index(2).id("carrillo").status(BatchItemResult.CONFLICT)
+                                                .message("UCSBDiningCommons with id carrillo already exists").build()));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_put_a_batch_of_commons_and_missing_ones_are_reported() throws Exception {
+                // arrange
+
+                UCSBDiningCommons orig = UCSBDiningCommons.builder().code("ortega").name("before").build();
+                UCSBDiningCommons edited = UCSBDiningCommons.builder().code("ortega").name("after").build();
+                UCSBDiningCommons missing = UCSBDiningCommons.builder().code("XYZ").name("missing").build();
+
+                String requestBody = mapper.writeValueAsString(Arrays.asList(edited, missing));
+                when(ucsbDiningCommonsRepository.findAllById(eq(Arrays.asList("ortega", "XYZ")))).thenReturn(Arrays.asList(orig));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/ucsbdiningcommons/batch")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(1)).saveAll(Arrays.asList(edited));
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(
+                                BatchItemResult.builder().index(0).id("ortega").status(BatchItemResult.UPDATED).build(),
+                                BatchItemResult.builder().index(1).id("XYZ").status(BatchItemResult.NOT_FOUND)
+                                                .message("UCSBDiningCommons with id XYZ not found").build()));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_delete_a_batch_of_commons_and_missing_ones_are_reported() throws Exception {
+                // arrange
+
+                UCSBDiningCommons existing = UCSBDiningCommons.builder().code("ortega").name("existing").build();
+                when(ucsbDiningCommonsRepository.findAllById(eq(Arrays.asList("ortega", "XYZ")))).thenReturn(Arrays.asList(existing));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/ucsbdiningcommons/batch")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(mapper.writeValueAsString(Arrays.asList("ortega", "XYZ")))
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(1)).deleteAll(Arrays.asList(existing));
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(
+                                BatchItemResult.builder().index(0).id("ortega").status(BatchItemResult.DELETED).build(),
+                                BatchItemResult.builder().index(1).id("XYZ").status(BatchItemResult.NOT_FOUND)
+                                                .message("UCSBDiningCommons with id XYZ not found").build()));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        // Tests for conditional GET
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void all_commons_are_not_sent_again_while_the_etag_matches() throws Exception {
+                // arrange
+
+                when(tableVersionService.etag(UCSBDiningCommons.class)).thenReturn("W/\"abc-3\"");
+
+                // act
+                mockMvc.perform(get("/api/ucsbdiningcommons/all").header("If-None-Match", "W/\"abc-3\""))
+                                .andExpect(status().isNotModified())
+                                .andExpect(header().string("ETag", "W/\"abc-3\""))
+                                .andExpect(content().string(""));
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(0)).findAll();
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void all_commons_are_sent_with_the_new_etag_after_a_change() throws Exception {
+                // arrange
+
+                when(tableVersionService.etag(UCSBDiningCommons.class)).thenReturn("W/\"abc-4\"");
+                when(ucsbDiningCommonsRepository.findAll()).thenReturn(new ArrayList<>());
+
+                // act
+                mockMvc.perform(get("/api/ucsbdiningcommons/all").header("If-None-Match", "W/\"abc-3\""))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", "W/\"abc-4\""))
+                                .andExpect(content().string("[]"));
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(1)).findAll();
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void a_single_uCSBDiningCommons_is_not_sent_again_while_the_etag_matches() throws Exception {
+                // arrange
+
+                when(tableVersionService.etag(UCSBDiningCommons.class)).thenReturn("W/\"abc-3\"");
+
+                // act
+                mockMvc.perform(get("/api/ucsbdiningcommons?code=ortega").header("If-None-Match", "W/\"abc-3\""))
+                                .andExpect(status().isNotModified())
+                                .andExpect(content().string(""));
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(0)).findById(any());
+        }
+
+        // Tests for GET /api/ucsbdiningcommons/nearby
+
+        @Test
+        public void logged_out_users_cannot_get_nearby() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommons/nearby?lat=34.4125&lon=-119.8486"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_nearby_commons_with_distances() throws Exception {
+                // arrange
+
+                UCSBDiningCommons ortega = UCSBDiningCommons.builder().code("ortega").name("Ortega").hasSackMeal(true).hasTakeOutMeal(true).hasDiningCam(true).latitude(34.410987).longitude(-119.84709).build();
+                List<NearbyCommons> expected = Arrays.asList(NearbyCommons.builder().commons(ortega).distanceMeters(217.9).build());
+                when(diningCommonsLocationService.nearby(34.4125, -119.8486, 1)).thenReturn(expected);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/nearby?lat=34.4125&lon=-119.8486&limit=1"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void nearby_limit_is_capped() throws Exception {
+                // act
+                mockMvc.perform(get("/api/ucsbdiningcommons/nearby?lat=-90&lon=180&limit=1000"))
+                                .andExpect(status().isOk());
+
+                // assert
+                verify(diningCommonsLocationService, times(1)).nearby(-90, 180, 100);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void nearby_rejects_coordinates_out_of_range() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommons/nearby?lat=90.5&lon=0"))
+                                .andExpect(status().isBadRequest());
+                mockMvc.perform(get("/api/ucsbdiningcommons/nearby?lat=0&lon=-180.5"))
+                                .andExpect(status().isBadRequest());
+                mockMvc.perform(get("/api/ucsbdiningcommons/nearby?lat=NaN&lon=0"))
+                                .andExpect(status().isBadRequest());
+                verify(diningCommonsLocationService, times(0)).nearby(any(Double.class), any(Double.class), any(Integer.class));
+        }
 }
@@ -1,24 +1,46 @@
 package edu.ucsb.cs156.example.controllers;
 
+import edu.ucsb.cs156.example.models.BatchItemResult;
+import edu.ucsb.cs156.example.models.CsvImportResult;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.services.CsvImportService;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import edu.ucsb.cs156.example.services.TableVersionService;
+import edu.ucsb.cs156.example.models.CursorPage;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
 
+import java.io.InputStream;
+import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Arrays;
+import java.util.stream.Stream;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.Map;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVRecord;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 
@@ -39,6 +61,15 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
         @MockBean
         UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
 
+        @MockBean
+        NdjsonExportService ndjsonExportService;
+
+        @MockBean
+        TableVersionService tableVersionService;
+
+        @MockBean
+        CsvImportService csvImportService;
+
         @MockBean
         UserRepository userRepository;
 
@@ -315,4 +346,321 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
                 assertEquals("UCSBDiningCommonsMenuItem with id 67 not found", json.get("message"));
 
         }
-    }
+
+        // Tests for /page
+
+        @Test
+        public void logged_out_users_cannot_get_page() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommonsmenuitems/page"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_first_page_of_menu_items() throws Exception {
+
+                // arrange
+
+                UCSBDiningCommonsMenuItem first = UCSBDiningCommonsMenuItem.builder().id(1L).diningCommonsCode("ortega").name("Baked Pesto Pasta with Chicken").station("Entree Specials").build();
+                UCSBDiningCommonsMenuItem second = UCSBDiningCommonsMenuItem.builder().id(2L).diningCommonsCode("portola").name("Tofu Banh Mi Sandwich (v)").station("Entree Specials").build();
+
+                ArrayList<UCSBDiningCommonsMenuItem> expected = new ArrayList<>();
+                expected.addAll(Arrays.asList(first, second));
+
+                when(ucsbDiningCommonsMenuItemRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, 2))))
+                                .thenReturn(new SliceImpl<>(expected, PageRequest.of(0, 2), true));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitems/page?size=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(ucsbDiningCommonsMenuItemRepository, times(1)).findByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, 2)));
+                String expectedJson = mapper.writeValueAsString(CursorPage.<UCSBDiningCommonsMenuItem>builder().content(expected).next("2").build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_last_page_of_menu_items_with_size_capped() throws Exception {
+
+                // arrange
+
+                UCSBDiningCommonsMenuItem last = UCSBDiningCommonsMenuItem.builder().id(2L).diningCommonsCode("portola").name("Tofu Banh Mi Sandwich (v)").station("Entree Specials").build();
+
+                ArrayList<UCSBDiningCommonsMenuItem> expected = new ArrayList<>();
+                expected.add(last);
+
+                when(ucsbDiningCommonsMenuItemRepository.findByIdGreaterThanOrderByIdAsc(eq(1L), eq(PageRequest.of(0, 100))))
+                                .thenReturn(new SliceImpl<>(expected, PageRequest.of(0, 100), false));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitems/page?cursor=1&size=5000"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(ucsbDiningCommonsMenuItemRepository, times(1)).findByIdGreaterThanOrderByIdAsc(eq(1L), eq(PageRequest.of(0, 100)));
+                String expectedJson = mapper.writeValueAsString(CursorPage.<UCSBDiningCommonsMenuItem>builder().content(expected).next(null).build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for /all as NDJSON
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_export_all_ucsbdiningcommonsmenuitems_as_ndjson() throws Exception {
+
+                // arrange
+
+                StreamingResponseBody body = out -> out.write("{\"id\":1}\n{\"id\":2}\n".getBytes());
+                when(ndjsonExportService.export(any())).thenReturn(ResponseEntity.ok()
+                                .contentType(MediaType.parseMediaType(NdjsonExportService.APPLICATION_NDJSON_VALUE)).body(body));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitems/all").accept(NdjsonExportService.APPLICATION_NDJSON_VALUE))
+                                .andExpect(request().asyncStarted()).andReturn();
+                mockMvc.perform(asyncDispatch(response))
+                                .andExpect(status().isOk())
+                                .andExpect(content().contentType(NdjsonExportService.APPLICATION_NDJSON_VALUE))
+                                .andExpect(content().string("{\"id\":1}\n{\"id\":2}\n"));
+
+                // assert
+
+                ArgumentCaptor<Supplier<Stream<UCSBDiningCommonsMenuItem>>> rows = ArgumentCaptor.captor();
+                verify(ndjsonExportService, times(1)).export(rows.capture());
+                rows.getValue().get();
+                verify(ucsbDiningCommonsMenuItemRepository, times(1)).streamAllBy();
+        }
+
+        // Tests for filtered pages
+
+        @Test
+        public void logged_out_users_cannot_get_page_by_dining_commons_code() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommonsmenuitems/bydiningcommons?diningCommonsCode=ortega"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_page_of_menu_items_by_dining_commons_code() throws Exception {
+
+                // arrange
+
+                UCSBDiningCommonsMenuItem first = UCSBDiningCommonsMenuItem.builder().id(1L).diningCommonsCode("ortega").name("Baked Pesto Pasta with Chicken").station("Entree Specials").build();
+
+                ArrayList<UCSBDiningCommonsMenuItem> expected = new ArrayList<>();
+                expected.add(first);
+
+                when(ucsbDiningCommonsMenuItemRepository.findByDiningCommonsCodeAndIdGreaterThanOrderByIdAsc(eq("ortega"), eq(0L), eq(PageRequest.of(0, 1))))
+                                .thenReturn(new SliceImpl<>(expected, PageRequest.of(0, 1), true));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitems/bydiningcommons?diningCommonsCode=ortega&size=1"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(ucsbDiningCommonsMenuItemRepository, times(1)).findByDiningCommonsCodeAndIdGreaterThanOrderByIdAsc(eq("ortega"), eq(0L), eq(PageRequest.of(0, 1)));
+                String expectedJson = mapper.writeValueAsString(CursorPage.<UCSBDiningCommonsMenuItem>builder().content(expected).next("1").build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for /batch
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_post_batch() throws Exception {
+                mockMvc.perform(post("/api/ucsbdiningcommonsmenuitems/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[]")
+                                .with(csrf()))
+                                .andExpect(status().is(403)); // only admins can post
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_post_a_batch_of_menu_items() throws Exception {
+                // arrange
+
+                UCSBDiningCommonsMenuItem first = UCSBDiningCommonsMenuItem.builder().name("first").build();
+                UCSBDiningCommonsMenuItem second = UCSBDiningCommonsMenuItem.builder().name("second").build();
+                UCSBDiningCommonsMenuItem firstSaved = UCSBDiningCommonsMenuItem.builder().id(1L).name("first").build();
+                UCSBDiningCommonsMenuItem secondSaved = UCSBDiningCommonsMenuItem.builder().id(2L).name("second").build();
+
+                String requestBody = mapper.writeValueAsString(Arrays.asList(UCSBDiningCommonsMenuItem.builder().id(99L).name("first").build(), second));
+                when(ucsbDiningCommonsMenuItemRepository.saveAll(eq(Arrays.asList(first, second)))).thenReturn(Arrays.asList(firstSaved, secondSaved));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/ucsbdiningcommonsmenuitems/batch")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsMenuItemRepository, times(1)).saveAll(Arrays.asList(first, second));
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(
+                                BatchItemResult.builder().index(0).id(1L).status(BatchItemResult.CREATED).build(),
+                                BatchItemResult.builder().index(1).id(2L).status(BatchItemResult.CREATED).build()));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_put_a_batch_of_menu_items_and_missing_ones_are_reported() throws Exception {
+                // arrange
+
+                UCSBDiningCommonsMenuItem orig = UCSBDiningCommonsMenuItem.builder().id(67L).name("before").build();
+                UCSBDiningCommonsMenuItem edited = UCSBDiningCommonsMenuItem.builder().id(67L).name("after").build();
+                UCSBDiningCommonsMenuItem missing = UCSBDiningCommonsMenuItem.builder().id(68L).name("missing").build();
+
+                String requestBody = mapper.writeValueAsString(Arrays.asList(edited, missing));
+                when(ucsbDiningCommonsMenuItemRepository.findAllById(eq(Arrays.asList(67L, 68L)))).thenReturn(Arrays.asList(orig));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/ucsbdiningcommonsmenuitems/batch")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsMenuItemRepository, times(1)).saveAll(Arrays.asList(edited));
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(
+                                BatchItemResult.builder().index(0).id(67L).status(BatchItemResult.UPDATED).build(),
+                                BatchItemResult.builder().index(1).id(68L).status(BatchItemResult.NOT_FOUND)
+                                                .message("UCSBDiningCommonsMenuItem with id 68 not found").build()));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_delete_a_batch_of_menu_items_and_missing_ones_are_reported() throws Exception {
+                // arrange
+
+                UCSBDiningCommonsMenuItem existing = UCSBDiningCommonsMenuItem.builder().id(67L).name("existing").build();
+                when(ucsbDiningCommonsMenuItemRepository.findAllById(eq(Arrays.asList(67L, 68L)))).thenReturn(Arrays.asList(existing));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/ucsbdiningcommonsmenuitems/batch")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(mapper.writeValueAsString(Arrays.asList(67L, 68L)))
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsMenuItemRepository, times(1)).deleteAll(Arrays.asList(existing));
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(
+                                BatchItemResult.builder().index(0).id(67L).status(BatchItemResult.DELETED).build(),
+                                BatchItemResult.builder().index(1).id(68L).status(BatchItemResult.NOT_FOUND)
+                                                .message("UCSBDiningCommonsMenuItem with id 68 not found").build()));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        // Tests for /import
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_import() throws Exception {
+                MockMultipartFile file = new MockMultipartFile("file", "menu_items.csv", "text/csv", "diningCommonsCode,name,station\n".getBytes());
+                mockMvc.perform(multipart("/api/ucsbdiningcommonsmenuitems/import").file(file).with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_import_menu_items_from_csv() throws Exception {
+                // arrange
+
+                String csv = "diningCommonsCode,name,station\nortega,Baked Pesto Pasta with Chicken,Entree Specials\n";
+                MockMultipartFile file = new MockMultipartFile("file", "menu_items.csv", "text/csv", csv.getBytes());
+                CsvImportResult result = CsvImportResult.builder().rowsRead(1).rowsImported(1).rejected(List.of()).build();
+                when(csvImportService.importCsv(eq("ucsbdiningcommonsmenuitem"), any(), eq(List.of("diningCommonsCode", "name", "station")), any(), any())).thenReturn(result);
+
+                // act
+                MvcResult response = mockMvc.perform(multipart("/api/ucsbdiningcommonsmenuitems/import").file(file).with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                assertEquals(mapper.writeValueAsString(result), response.getResponse().getContentAsString());
+
+                ArgumentCaptor<InputStream> in = ArgumentCaptor.captor();
+                ArgumentCaptor<Function<CSVRecord, UCSBDiningCommonsMenuItem>> parseRow = ArgumentCaptor.captor();
+                ArgumentCaptor<Consumer<List<UCSBDiningCommonsMenuItem>>> writeChunk = ArgumentCaptor.captor();
+                verify(csvImportService, times(1)).importCsv(eq("ucsbdiningcommonsmenuitem"), in.capture(), eq(List.of("diningCommonsCode", "name", "station")), parseRow.capture(), writeChunk.capture());
+                assertEquals(csv, new String(in.getValue().readAllBytes()));
+
+                CSVRecord record = CSVFormat.DEFAULT.builder().setHeader().setSkipHeaderRecord(true).build()
+                                .parse(new StringReader(csv)).getRecords().get(0);
+                UCSBDiningCommonsMenuItem expected = UCSBDiningCommonsMenuItem.builder().diningCommonsCode("ortega").name("Baked Pesto Pasta with Chicken")
+                                .station("Entree Specials").build();
+                assertEquals(expected, parseRow.getValue().apply(record));
+
+                writeChunk.getValue().accept(List.of(expected));
+                verify(ucsbDiningCommonsMenuItemRepository, times(1)).saveAll(List.of(expected));
+        }
+
+        // Tests for conditional GET
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void all_menu_items_are_not_sent_again_while_the_etag_matches() throws Exception {
+                // arrange
+
+                when(tableVersionService.etag(UCSBDiningCommonsMenuItem.class)).thenReturn("W/\"abc-3\"");
+
+                // act
+                mockMvc.perform(get("/api/ucsbdiningcommonsmenuitems/all").header("If-None-Match", "W/\"abc-3\""))
+                                .andExpect(status().isNotModified())
+                                .andExpect(header().string("ETag", "W/\"abc-3\""))
+                                .andExpect(content().string(""));
+
+                // assert
+                verify(ucsbDiningCommonsMenuItemRepository, times(0)).findAll();
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void all_menu_items_are_sent_with_the_new_etag_after_a_change() throws Exception {
+                // arrange
+
+                when(tableVersionService.etag(UCSBDiningCommonsMenuItem.class)).thenReturn("W/\"abc-4\"");
+                when(ucsbDiningCommonsMenuItemRepository.findAll()).thenReturn(new ArrayList<>());
+
+                // act
+                mockMvc.perform(get("/api/ucsbdiningcommonsmenuitems/all").header("If-None-Match", "W/\"abc-3\""))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", "W/\"abc-4\""))
+                                .andExpect(content().string("[]"));
+
+                // assert
+                verify(ucsbDiningCommonsMenuItemRepository, times(1)).findAll();
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void a_single_uCSBDiningCommonsMenuItem_is_not_sent_again_while_the_etag_matches() throws Exception {
+                // arrange
+
+                when(tableVersionService.etag(UCSBDiningCommonsMenuItem.class)).thenReturn("W/\"abc-3\"");
+
+                // act
+                mockMvc.perform(get("/api/ucsbdiningcommonsmenuitems?id=7").header("If-None-Match", "W/\"abc-3\""))
+                                .andExpect(status().isNotModified())
+                                .andExpect(content().string(""));
+
+                // assert
+                verify(ucsbDiningCommonsMenuItemRepository, times(0)).findById(any());
+        }
+}
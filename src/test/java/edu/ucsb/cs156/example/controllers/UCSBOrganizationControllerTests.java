@@ -1,23 +1,45 @@
 package edu.ucsb.cs156.example.controllers;
 
+import edu.ucsb.cs156.example.models.BatchItemResult;
+import edu.ucsb.cs156.example.models.CsvImportResult;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.services.CsvImportService;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import edu.ucsb.cs156.example.services.TableVersionService;
+import edu.ucsb.cs156.example.models.CursorPage;
 import edu.ucsb.cs156.example.entities.UCSBOrganization;
 import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
 
+import java.io.InputStream;
+import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Arrays;
+import java.util.stream.Stream;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.Map;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVRecord;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 
@@ -26,6 +48,7 @@ import java.util.Optional;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -36,6 +59,15 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
 	@MockBean
 	UCSBOrganizationRepository ucsbOrganizationRepository;
 
+	@MockBean
+	NdjsonExportService ndjsonExportService;
+
+	@MockBean
+	TableVersionService tableVersionService;
+
+	@MockBean
+	CsvImportService csvImportService;
+
 	@MockBean
 	UserRepository userRepository;
 
@@ -307,4 +339,326 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
 		Map<String, Object> json = responseToJson(response);
 		assertEquals("UCSBOrganization with id ZPR not found", json.get("message"));
 	}
+
+	// Tests for /page
+
+	@Test
+	public void logged_out_users_cannot_get_page() throws Exception {
+		mockMvc.perform(get("/api/ucsborganization/page"))
+				.andExpect(status().is(403));
+	}
+
+	@WithMockUser(roles = { "USER" })
+	@Test
+	public void logged_in_user_can_get_first_page_of_organizations() throws Exception {
+
+		// arrange
+
+		UCSBOrganization first = UCSBOrganization.builder().orgCode("ZPR").orgTranslationShort("ZETA PHI RHO").orgTranslation("ZETA PHI RHO").inactive(false).build();
+		UCSBOrganization second = UCSBOrganization.builder().orgCode("ZZZ").orgTranslationShort("ZZZ CLUB").orgTranslation("ZZZ CLUB AT UCSB").inactive(true).build();
+
+		ArrayList<UCSBOrganization> expected = new ArrayList<>();
+		expected.addAll(Arrays.asList(first, second));
+
+		when(ucsbOrganizationRepository.findByOrgCodeGreaterThanOrderByOrgCodeAsc(eq(""), eq(PageRequest.of(0, 2))))
+				.thenReturn(new SliceImpl<>(expected, PageRequest.of(0, 2), true));
+
+		// act
+		MvcResult response = mockMvc.perform(get("/api/ucsborganization/page?size=2"))
+				.andExpect(status().isOk()).andReturn();
+
+		// assert
+
+		verify(ucsbOrganizationRepository, times(1)).findByOrgCodeGreaterThanOrderByOrgCodeAsc(eq(""), eq(PageRequest.of(0, 2)));
+		String expectedJson = mapper.writeValueAsString(CursorPage.<UCSBOrganization>builder().content(expected).next("ZZZ").build());
+		String responseString = response.getResponse().getContentAsString();
+		assertEquals(expectedJson, responseString);
+	}
+
+	@WithMockUser(roles = { "USER" })
+	@Test
+	public void logged_in_user_gets_last_page_of_organizations_with_size_capped() throws Exception {
+
+		// arrange
+
+		UCSBOrganization last = UCSBOrganization.builder().orgCode("ZZZ").orgTranslationShort("ZZZ CLUB").orgTranslation("ZZZ CLUB AT UCSB").inactive(true).build();
+
+		ArrayList<UCSBOrganization> expected = new ArrayList<>();
+		expected.add(last);
+
+		when(ucsbOrganizationRepository.findByOrgCodeGreaterThanOrderByOrgCodeAsc(eq("ZPR"), eq(PageRequest.of(0, 100))))
+				.thenReturn(new SliceImpl<>(expected, PageRequest.of(0, 100), false));
+
+		// act
+		MvcResult response = mockMvc.perform(get("/api/ucsborganization/page?cursor=ZPR&size=5000"))
+				.andExpect(status().isOk()).andReturn();
+
+		// assert
+
+		verify(ucsbOrganizationRepository, times(1)).findByOrgCodeGreaterThanOrderByOrgCodeAsc(eq("ZPR"), eq(PageRequest.of(0, 100)));
+		String expectedJson = mapper.writeValueAsString(CursorPage.<UCSBOrganization>builder().content(expected).next(null).build());
+		String responseString = response.getResponse().getContentAsString();
+		assertEquals(expectedJson, responseString);
+	}
+
+	// Tests for /all as NDJSON
+
+	@WithMockUser(roles = { "USER" })
+	@Test
+	public void logged_in_user_can_export_all_organizations_as_ndjson() throws Exception {
+
+		// arrange
+
+		StreamingResponseBody body = out -> out.write("{\"id\":1}\n{\"id\":2}\n".getBytes());
+		when(ndjsonExportService.export(any())).thenReturn(ResponseEntity.ok()
+				.contentType(MediaType.parseMediaType(NdjsonExportService.APPLICATION_NDJSON_VALUE)).body(body));
+
+		// act
+		MvcResult response = mockMvc.perform(get("/api/ucsborganization/all").accept(NdjsonExportService.APPLICATION_NDJSON_VALUE))
+				.andExpect(request().asyncStarted()).andReturn();
+		mockMvc.perform(asyncDispatch(response))
+				.andExpect(status().isOk())
+				.andExpect(content().contentType(NdjsonExportService.APPLICATION_NDJSON_VALUE))
+				.andExpect(content().string("{\"id\":1}\n{\"id\":2}\n"));
+
+		// assert
+
+		ArgumentCaptor<Supplier<Stream<UCSBOrganization>>> rows = ArgumentCaptor.captor();
+		verify(ndjsonExportService, times(1)).export(rows.capture());
+		rows.getValue().get();
+		verify(ucsbOrganizationRepository, times(1)).streamAllBy();
+	}
+
+        // Tests for /batch
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_post_batch() throws Exception {
+                mockMvc.perform(post("/api/ucsborganization/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[]")
+                                .with(csrf()))
+                                .andExpect(status().is(403)); // only admins can post
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_post_a_batch_of_organizations_and_existing_orgCodes_are_conflicts() throws Exception {
+                // arrange
+
+                UCSBOrganization existing = UCSBOrganization.builder().orgCode("ZPR").orgTranslation("existing").build();
+                UCSBOrganization first = UCSBOrganization.builder().orgCode("ZPR").orgTranslation("first").build();
+                UCSBOrganization second = UCSBOrganization.builder().orgCode("SKY").orgTranslation("second").build();
+                UCSBOrganization repeated = UCSBOrganization.builder().orgCode("SKY").orgTranslation("repeated").build();
+
+                String requestBody = mapper.writeValueAsString(Arrays.asList(first, second, repeated));
+                when(ucsbOrganizationRepository.findAllById(eq(Arrays.asList("ZPR", "SKY", "SKY")))).thenReturn(Arrays.asList(existing));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/ucsborganization/batch")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbOrganizationRepository, times(1)).insertAll(Arrays.asList(second));
+                verify(ucsbOrganizationRepository, never()).saveAll(any());
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(
+                                BatchItemResult.builder().index(0).id("ZPR").status(BatchItemResult.CONFLICT)
+                                                .message("UCSBOrganization with id ZPR already exists").build(),
+                                BatchItemResult.builder().index(1).id("SKY").status(BatchItemResult.CREATED).build(),
+                                BatchItemResult.builder().index(2).id("SKY").status(BatchItemResult.CONFLICT)
+                                                .message("UCSBOrganization with id SKY already exists").build()));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_put_a_batch_of_organizations_and_missing_ones_are_reported() throws Exception {
+                // arrange
+
+                UCSBOrganization orig = UCSBOrganization.builder().orgCode("ZPR").orgTranslation("before").build();
+                UCSBOrganization edited = UCSBOrganization.builder().orgCode("ZPR").orgTranslation("after").build();
+                UCSBOrganization missing = UCSBOrganization.builder().orgCode("XYZ").orgTranslation("missing").build();
+
+                String requestBody = mapper.writeValueAsString(Arrays.asList(edited, missing));
+                when(ucsbOrganizationRepository.findAllById(eq(Arrays.asList("ZPR", "XYZ")))).thenReturn(Arrays.asList(orig));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/ucsborganization/batch")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbOrganizationRepository, times(1)).saveAll(Arrays.asList(edited));
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(
+                                BatchItemResult.builder().index(0).id("ZPR").status(BatchItemResult.UPDATED).build(),
+                                BatchItemResult.builder().index(1).id("XYZ").status(BatchItemResult.NOT_FOUND)
+                                                .message("UCSBOrganization with id XYZ not found").build()));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_delete_a_batch_of_organizations_and_missing_ones_are_reported() throws Exception {
+                // arrange
+
+                UCSBOrganization existing = UCSBOrganization.builder().orgCode("ZPR").orgTranslation("existing").build();
+                when(ucsbOrganizationRepository.findAllById(eq(Arrays.asList("ZPR", "XYZ")))).thenReturn(Arrays.asList(existing));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/ucsborganization/batch")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(mapper.writeValueAsString(Arrays.asList("ZPR", "XYZ")))
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbOrganizationRepository, times(1)).deleteAll(Arrays.asList(existing));
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(
+                                BatchItemResult.builder().index(0).id("ZPR").status(BatchItemResult.DELETED).build(),
+                                BatchItemResult.builder().index(1).id("XYZ").status(BatchItemResult.NOT_FOUND)
+                                                .message("UCSBOrganization with id XYZ not found").build()));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        // Tests for /import
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_import() throws Exception {
+                MockMultipartFile file = new MockMultipartFile("file", "organizations.csv", "text/csv", "orgCode,orgTranslationShort,orgTranslation,inactive\n".getBytes());
+                mockMvc.perform(multipart("/api/ucsborganization/import").file(file).with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_import_organizations_from_csv() throws Exception {
+                // arrange
+
+                String csv = "orgCode,orgTranslationShort,orgTranslation,inactive\nZPR,Zeta Phi Rho,Zeta Phi Rho Fraternity,false\n";
+                MockMultipartFile file = new MockMultipartFile("file", "organizations.csv", "text/csv", csv.getBytes());
+                CsvImportResult result = CsvImportResult.builder().rowsRead(1).rowsImported(1).rejected(List.of()).build();
+                when(csvImportService.importCsv(eq("ucsborganization"), any(), eq(List.of("orgCode", "orgTranslationShort", "orgTranslation", "inactive")), any(), any())).thenReturn(result);
+
+                // act
+                MvcResult response = mockMvc.perform(multipart("/api/ucsborganization/import").file(file).with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                assertEquals(mapper.writeValueAsString(result), response.getResponse().getContentAsString());
+
+                ArgumentCaptor<InputStream> in = ArgumentCaptor.captor();
+                ArgumentCaptor<Function<CSVRecord, UCSBOrganization>> parseRow = ArgumentCaptor.captor();
+                ArgumentCaptor<Consumer<List<UCSBOrganization>>> writeChunk = ArgumentCaptor.captor();
+                verify(csvImportService, times(1)).importCsv(eq("ucsborganization"), in.capture(), eq(List.of("orgCode", "orgTranslationShort", "orgTranslation", "inactive")), parseRow.capture(), writeChunk.capture());
+                assertEquals(csv, new String(in.getValue().readAllBytes()));
+
+                CSVRecord record = CSVFormat.DEFAULT.builder().setHeader().setSkipHeaderRecord(true).build()
+                                .parse(new StringReader(csv)).getRecords().get(0);
+                UCSBOrganization expected = UCSBOrganization.builder().orgCode("ZPR").orgTranslationShort("Zeta Phi Rho")
+                                .orgTranslation("Zeta Phi Rho Fraternity").inactive(false).build();
+                assertEquals(expected, parseRow.getValue().apply(record));
+
+                writeChunk.getValue().accept(List.of(expected));
+                verify(ucsbOrganizationRepository, times(1)).findAllById(List.of("ZPR"));
+                verify(ucsbOrganizationRepository, times(1)).insertAll(List.of(expected));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void import_updates_existing_organizations_in_place_and_inserts_new_ones() throws Exception {
+                // arrange
+
+                MockMultipartFile file = new MockMultipartFile("file", "organizations.csv", "text/csv", "orgCode\n".getBytes());
+                when(csvImportService.importCsv(eq("ucsborganization"), any(), any(), any(), any()))
+                                .thenReturn(CsvImportResult.builder().rejected(List.of()).build());
+                mockMvc.perform(multipart("/api/ucsborganization/import").file(file).with(csrf()))
+                                .andExpect(status().isOk());
+                ArgumentCaptor<Consumer<List<UCSBOrganization>>> writeChunk = ArgumentCaptor.captor();
+                verify(csvImportService, times(1)).importCsv(eq("ucsborganization"), any(), any(), any(), writeChunk.capture());
+
+                UCSBOrganization stored = UCSBOrganization.builder().orgCode("ZPR").orgTranslationShort("Zeta Phi Rho")
+                                .orgTranslation("Zeta Phi Rho Fraternity").inactive(false).build();
+                UCSBOrganization renamed = UCSBOrganization.builder().orgCode("ZPR").orgTranslationShort("ZPR")
+                                .orgTranslation("Zeta Phi Rho").inactive(true).build();
+                UCSBOrganization added = UCSBOrganization.builder().orgCode("SKY").orgTranslationShort("Skydiving Club")
+                                .orgTranslation("Skydiving Club at UCSB").inactive(false).build();
+                UCSBOrganization addedAgain = UCSBOrganization.builder().orgCode("SKY").orgTranslationShort("Skydiving")
+                                .orgTranslation("Skydiving Club at UCSB").inactive(false).build();
+                when(ucsbOrganizationRepository.findAllById(List.of("ZPR", "SKY"))).thenReturn(List.of(stored));
+
+                // act
+
+                writeChunk.getValue().accept(List.of(renamed, added, addedAgain));
+
+                // assert
+
+                assertEquals(renamed, stored);
+                verify(ucsbOrganizationRepository, times(1)).insertAll(List.of(addedAgain));
+                verify(ucsbOrganizationRepository, never()).saveAll(any());
+        }
+
+        // Tests for conditional GET
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void all_organizations_are_not_sent_again_while_the_etag_matches() throws Exception {
+                // arrange
+
+                when(tableVersionService.etag(UCSBOrganization.class)).thenReturn("W/\"abc-3\"");
+
+                // act
+                mockMvc.perform(get("/api/ucsborganization/all").header("If-None-Match", "W/\"abc-3\""))
+                                .andExpect(status().isNotModified())
+                                .andExpect(header().string("ETag", "W/\"abc-3\""))
+                                .andExpect(content().string(""));
+
+                // assert
+                verify(ucsbOrganizationRepository, times(0)).findAll();
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void all_organizations_are_sent_with_the_new_etag_after_a_change() throws Exception {
+                // arrange
+
+                when(tableVersionService.etag(UCSBOrganization.class)).thenReturn("W/\"abc-4\"");
+                when(ucsbOrganizationRepository.findAll()).thenReturn(new ArrayList<>());
+
+                // act
+                mockMvc.perform(get("/api/ucsborganization/all").header("If-None-Match", "W/\"abc-3\""))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", "W/\"abc-4\""))
+                                .andExpect(content().string("[]"));
+
+                // assert
+                verify(ucsbOrganizationRepository, times(1)).findAll();
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void a_single_uCSBOrganization_is_not_sent_again_while_the_etag_matches() throws Exception {
+                // arrange
+
+                when(tableVersionService.etag(UCSBOrganization.class)).thenReturn("W/\"abc-3\"");
+
+                // act
+                mockMvc.perform(get("/api/ucsborganization?orgCode=ZPR").header("If-None-Match", "W/\"abc-3\""))
+                                .andExpect(status().isNotModified())
+                                .andExpect(content().string(""));
+
+                // assert
+                verify(ucsbOrganizationRepository, times(0)).findById(any());
+        }
 }
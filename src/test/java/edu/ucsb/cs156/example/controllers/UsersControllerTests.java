@@ -1,26 +1,39 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import edu.ucsb.cs156.example.models.CursorPage;
 import edu.ucsb.cs156.example.entities.User;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.stream.Stream;
+import java.util.function.Supplier;
 
 @WebMvcTest(controllers = UsersController.class)
 @Import(TestConfig.class)
@@ -29,6 +42,9 @@ public class UsersControllerTests extends ControllerTestCase {
   @MockBean
   UserRepository userRepository;
 
+  @MockBean
+  NdjsonExportService ndjsonExportService;
+
   @Test
   public void users__logged_out() throws Exception {
     mockMvc.perform(get("/api/admin/users"))
@@ -70,4 +86,112 @@ public class UsersControllerTests extends ControllerTestCase {
     assertEquals(expectedJson, responseString);
 
   }
+
+  // Tests for /page
+
+  @Test
+  public void logged_out_users_cannot_get_page() throws Exception {
+    mockMvc.perform(get("/api/admin/users/page"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void logged_in_user_can_get_first_page_of_users() throws Exception {
+
+    // arrange
+
+    User first = User.builder().id(1L).build();
+    User second = User.builder().id(2L).build();
+
+    ArrayList<User> expected = new ArrayList<>();
+    expected.addAll(Arrays.asList(first, second));
+
+    when(userRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, 2))))
+        .thenReturn(new SliceImpl<>(expected, PageRequest.of(0, 2), true));
+
+    // act
+    MvcResult response = mockMvc.perform(get("/api/admin/users/page?size=2"))
+        .andExpect(status().isOk()).andReturn();
+
+    // assert
+
+    verify(userRepository, times(1)).findByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, 2)));
+    String expectedJson = mapper.writeValueAsString(CursorPage.<User>builder().content(expected).next("2").build());
+    String responseString = response.getResponse().getContentAsString();
+    assertEquals(expectedJson, responseString);
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void logged_in_user_gets_last_page_of_users_with_size_capped() throws Exception {
+
+    // arrange
+
+    User last = User.builder().id(2L).build();
+
+    ArrayList<User> expected = new ArrayList<>();
+    expected.add(last);
+
+    when(userRepository.findByIdGreaterThanOrderByIdAsc(eq(1L), eq(PageRequest.of(0, 100))))
+        .thenReturn(new SliceImpl<>(expected, PageRequest.of(0, 100), false));
+
+    // act
+    MvcResult response = mockMvc.perform(get("/api/admin/users/page?cursor=1&size=5000"))
+        .andExpect(status().isOk()).andReturn();
+
+    // assert
+
+    verify(userRepository, times(1)).findByIdGreaterThanOrderByIdAsc(eq(1L), eq(PageRequest.of(0, 100)));
+    String expectedJson = mapper.writeValueAsString(CursorPage.<User>builder().content(expected).next(null).build());
+    String responseString = response.getResponse().getContentAsString();
+    assertEquals(expectedJson, responseString);
+  }
+
+  // Tests for /all as NDJSON
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void logged_in_user_can_export_all_users_as_ndjson() throws Exception {
+
+    // arrange
+
+    StreamingResponseBody body = out -> out.write("{\"id\":1}\n{\"id\":2}\n".getBytes());
+    when(ndjsonExportService.export(any())).thenReturn(ResponseEntity.ok()
+        .contentType(MediaType.parseMediaType(NdjsonExportService.APPLICATION_NDJSON_VALUE)).body(body));
+
+    // act
+    MvcResult response = mockMvc.perform(get("/api/admin/users").accept(NdjsonExportService.APPLICATION_NDJSON_VALUE))
+        .andExpect(request().asyncStarted()).andReturn();
+    mockMvc.perform(asyncDispatch(response))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(NdjsonExportService.APPLICATION_NDJSON_VALUE))
+        .andExpect(content().string("{\"id\":1}\n{\"id\":2}\n"));
+
+    // assert
+
+    ArgumentCaptor<Supplier<Stream<User>>> rows = ArgumentCaptor.captor();
+    verify(ndjsonExportService, times(1)).export(rows.capture());
+    rows.getValue().get();
+    verify(userRepository, times(1)).streamAllBy();
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void browser_accept_header_still_gets_json_array_of_users() throws Exception {
+
+    // arrange
+
+    when(userRepository.findAll()).thenReturn(new ArrayList<>());
+
+    // act
+    MvcResult response = mockMvc.perform(get("/api/admin/users").accept("application/json, text/plain, */*"))
+        .andExpect(status().isOk())
+        .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON)).andReturn();
+
+    // assert
+
+    verify(userRepository, times(1)).findAll();
+    assertEquals("[]", response.getResponse().getContentAsString());
+  }
 }
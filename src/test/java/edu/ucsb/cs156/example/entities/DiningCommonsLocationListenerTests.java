@@ -0,0 +1,39 @@
+package edu.ucsb.cs156.example.entities;
+
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import edu.ucsb.cs156.example.services.DiningCommonsLocationService;
+
+@ExtendWith(MockitoExtension.class)
+class DiningCommonsLocationListenerTests {
+
+  @Mock
+  DiningCommonsLocationService diningCommonsLocationService;
+
+  @InjectMocks
+  DiningCommonsLocationListener diningCommonsLocationListener;
+
+  private final UCSBDiningCommons ortega = UCSBDiningCommons.builder().code("ortega").latitude(34.41).longitude(-119.84).build();
+
+  @Test
+  void test_commonsSaved_updates_the_index() {
+    diningCommonsLocationListener.commonsSaved(ortega);
+
+    verify(diningCommonsLocationService, times(1)).commonsSaved(ortega);
+  }
+
+  @Test
+  void test_commonsDeleted_updates_the_index() {
+    diningCommonsLocationListener.commonsDeleted(ortega);
+
+    verify(diningCommonsLocationService, times(1)).commonsDeleted(ortega);
+  }
+
+}
@@ -0,0 +1,30 @@
+package edu.ucsb.cs156.example.entities;
+
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import edu.ucsb.cs156.example.services.TableVersionService;
+
+@ExtendWith(MockitoExtension.class)
+class TableVersionListenerTests {
+
+  @Mock
+  TableVersionService tableVersionService;
+
+  @InjectMocks
+  TableVersionListener tableVersionListener;
+
+  @Test
+  void test_entityChanged_increments_the_entity_table() {
+    tableVersionListener.entityChanged(Restaurant.builder().name("Freebirds").build());
+
+    verify(tableVersionService, times(1)).tableChanged(Restaurant.class);
+  }
+
+}
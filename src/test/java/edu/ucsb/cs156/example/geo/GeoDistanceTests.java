@@ -0,0 +1,25 @@
+package edu.ucsb.cs156.example.geo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class GeoDistanceTests {
+
+  @Test
+  void test_one_degree_of_latitude() {
+    assertEquals(111_195, GeoDistance.haversineMeters(34.0, -119.8, 35.0, -119.8), 1);
+  }
+
+  @Test
+  void test_across_the_antimeridian() {
+    assertEquals(GeoDistance.haversineMeters(0, 179.5, 0, 180.5),
+        GeoDistance.haversineMeters(0, 179.5, 0, -179.5), 1e-6);
+  }
+
+  @Test
+  void test_antipodes_are_half_the_circumference_apart() {
+    assertEquals(Math.PI * GeoDistance.EARTH_RADIUS_METERS, GeoDistance.haversineMeters(34.4, -119.8, -34.4, 60.2), 1);
+  }
+
+}
@@ -0,0 +1,110 @@
+package edu.ucsb.cs156.example.geo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class KdTreeTests {
+
+  private final Random random = new Random(42);
+
+  private double[] randomPoint() {
+    // uniform on the sphere, so the poles and the antimeridian are covered
+    return new double[] { Math.toDegrees(Math.asin(2 * random.nextDouble() - 1)), 360 * random.nextDouble() - 180 };
+  }
+
+  private static List<String> bruteForce(Map<String, double[]> points, double lat, double lon, int limit) {
+    return points.entrySet().stream()
+        .sorted(Comparator.comparingDouble(
+            (Map.Entry<String, double[]> e) -> GeoDistance.haversineMeters(lat, lon, e.getValue()[0], e.getValue()[1])))
+        .limit(limit)
+        .map(Map.Entry::getKey)
+        .toList();
+  }
+
+  private static void assertNearest(KdTree<String> tree, Map<String, double[]> points, double lat, double lon, int limit) {
+    List<KdTree.Neighbor<String>> nearest = tree.nearest(lat, lon, limit);
+    assertEquals(bruteForce(points, lat, lon, limit), nearest.stream().map(KdTree.Neighbor::key).toList());
+    for (KdTree.Neighbor<String> neighbor : nearest) {
+      double[] p = points.get(neighbor.key());
+      assertEquals(GeoDistance.haversineMeters(lat, lon, p[0], p[1]), neighbor.distanceMeters(), 1e-6);
+    }
+  }
+
+  @Test
+  void test_nearest_matches_brute_force_after_rebuild() {
+    KdTree<String> tree = new KdTree<>();
+    Map<String, double[]> points = new HashMap<>();
+    for (int i = 0; i < 2000; i++) {
+      double[] p = randomPoint();
+      points.put("p" + i, p);
+      tree.put("p" + i, p[0], p[1]);
+    }
+    tree.rebuild();
+
+    assertEquals(2000, tree.size());
+    for (int q = 0; q < 200; q++) {
+      double[] target = randomPoint();
+      assertNearest(tree, points, target[0], target[1], 1 + q % 10);
+    }
+  }
+
+  @Test
+  void test_nearest_matches_brute_force_through_incremental_puts_moves_and_removes() {
+    KdTree<String> tree = new KdTree<>();
+    Map<String, double[]> points = new HashMap<>();
+    List<String> keys = new ArrayList<>();
+    for (int step = 0; step < 3000; step++) {
+      int action = random.nextInt(4);
+      if (action == 0 && !keys.isEmpty()) {
+        String key = keys.remove(random.nextInt(keys.size()));
+        tree.remove(key);
+        points.remove(key);
+      } else if (action == 1 && !keys.isEmpty()) {
+        String key = keys.get(random.nextInt(keys.size()));
+        double[] p = randomPoint();
+        tree.put(key, p[0], p[1]);
+        points.put(key, p);
+      } else {
+        String key = "p" + step;
+        double[] p = randomPoint();
+        tree.put(key, p[0], p[1]);
+        points.put(key, p);
+        keys.add(key);
+      }
+      if (step % 50 == 0) {
+        double[] target = randomPoint();
+        assertNearest(tree, points, target[0], target[1], 5);
+      }
+    }
+    assertEquals(points.size(), tree.size());
+  }
+
+  @Test
+  void test_removing_a_missing_key_does_nothing() {
+    KdTree<String> tree = new KdTree<>();
+    tree.put("storke", 34.4125, -119.8486);
+
+    tree.remove("ortega");
+
+    assertEquals(1, tree.size());
+    assertEquals("storke", tree.nearest(34.4, -119.8, 5).get(0).key());
+  }
+
+  @Test
+  void test_empty_tree_has_no_neighbors() {
+    KdTree<String> tree = new KdTree<>();
+    tree.rebuild();
+
+    assertTrue(tree.nearest(34.4, -119.8, 5).isEmpty());
+  }
+
+}
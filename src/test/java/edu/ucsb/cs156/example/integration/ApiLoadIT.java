@@ -0,0 +1,403 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.net.CookieManager;
+import java.net.HttpCookie;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import edu.ucsb.cs156.example.ExampleApplication;
+import edu.ucsb.cs156.example.entities.Article;
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.RecommendationRequest;
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+
+/**
+ * Mixed read/write load over real HTTP across the /api controllers, as a repeatable local stand-in
+ * for production traffic.
+ *
+ * The app is started with the wiremock and integration profiles: an in-memory H2 database, and the
+ * fake OAuth provider of WiremockServiceImpl on port 8090.  SESSIONS sessions log in through that
+ * provider as a browser would (as admingaucho@ucsb.edu), rows are seeded through the /batch endpoints,
+ * and then the clients send a weighted mix of requests (about one in six a write) for the given time.
+ * Throughput, latency percentiles and errors are printed per endpoint.
+ *
+ * Each client draws its requests from a Random seeded with its number, so every run sends the same
+ * mix; only the interleaving differs.
+ *
+ * Skipped by default; run with
+ *
+ *   mvn test -Dtest=ApiLoadIT -Dbenchmark=true
+ *
+ * Optionally set -Dload.clients (default 200), -Dload.seconds (default 30, after 10 seconds of warm-up)
+ * and -Dload.scale (a multiplier for the seeded row counts, default 1).
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class ApiLoadIT {
+
+        private static final int CLIENTS = Integer.getInteger("load.clients", 200);
+        private static final int SECONDS = Integer.getInteger("load.seconds", 30);
+        private static final int WARMUP_SECONDS = 10;
+        private static final int SCALE = Integer.getInteger("load.scale", 1);
+        private static final int SESSIONS = 10;
+        private static final int BATCH_SIZE = 500;
+
+        private static final String PROVIDER = "http://localhost:8090";
+        private static final String EMAIL = "admingaucho@ucsb.edu";
+        private static final LocalDateTime START = LocalDateTime.parse("2015-01-05T08:00:00");
+        private static final List<String> COMMONS = Arrays.asList("carrillo", "de-la-guerra", "ortega", "portola");
+        private static final List<String> STATIONS = Arrays.asList("Entrees", "Grill", "Salad Bar", "Desserts");
+        private static final List<String> WORDS = Arrays.asList("spring", "java", "react", "postgres", "testing",
+                        "security", "docker", "kubernetes", "performance", "caching", "oauth", "liquibase");
+
+        private final ObjectMapper mapper = JsonMapper.builder().findAndAddModules()
+                        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+
+        /** An authenticated session: the cookies of one login, and the CSRF token to send back. */
+        private record Session(HttpClient http, String csrf) {
+        }
+
+        /** The ids of the seeded rows that requests refer to. */
+        private record Seeded(List<Long> menuItems, List<Long> helpRequests, List<Long> restaurants, List<Long> dates,
+                        ConcurrentLinkedQueue<Long> deletableRestaurants) {
+        }
+
+        private record Call(String method, String path, Object body) {
+        }
+
+        @FunctionalInterface
+        private interface CallFactory {
+                Call next(Random random, Seeded seeded);
+        }
+
+        private record Endpoint(String name, int weight, CallFactory calls) {
+        }
+
+        /** Latencies (in nanoseconds) and errors for one endpoint. */
+        private static class Stats {
+                final ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+                final AtomicInteger errors = new AtomicInteger();
+        }
+
+        private static final List<Endpoint> MIX = Arrays.asList(
+                        new Endpoint("GET /api/currentUser", 10, (r, s) -> new Call("GET", "/api/currentUser", null)),
+                        new Endpoint("GET /api/systemInfo", 2, (r, s) -> new Call("GET", "/api/systemInfo", null)),
+                        new Endpoint("GET /api/ucsbdates/quarter/{yyyyq}", 6, (r, s) -> new Call("GET",
+                                        "/api/ucsbdates/quarter/" + (2015 + r.nextInt(11)) + (1 + r.nextInt(4)), null)),
+                        new Endpoint("GET /api/ucsbdates?id=", 2, (r, s) -> new Call("GET", "/api/ucsbdates?id=" + pick(r, s.dates()), null)),
+                        new Endpoint("GET /api/ucsbdates/page", 1, (r, s) -> new Call("GET", "/api/ucsbdates/page?size=20", null)),
+                        new Endpoint("GET /api/ucsbdiningcommons/all", 4, (r, s) -> new Call("GET", "/api/ucsbdiningcommons/all", null)),
+                        new Endpoint("GET /api/ucsbdiningcommons/nearby", 3, (r, s) -> new Call("GET", "/api/ucsbdiningcommons/nearby?lat="
+                                        + (34.40 + r.nextDouble() * 0.03) + "&lon=" + (-119.87 + r.nextDouble() * 0.03), null)),
+                        new Endpoint("GET /api/ucsbdiningcommonsmenuitems/bydiningcommons", 4, (r, s) -> new Call("GET",
+                                        "/api/ucsbdiningcommonsmenuitems/bydiningcommons?diningCommonsCode=" + pick(r, COMMONS), null)),
+                        new Endpoint("GET /api/menuitemreview/byitem", 4, (r, s) -> new Call("GET",
+                                        "/api/menuitemreview/byitem?itemId=" + pick(r, s.menuItems()), null)),
+                        new Endpoint("GET /api/menuitemreview/stats", 2, (r, s) -> new Call("GET", "/api/menuitemreview/stats", null)),
+                        new Endpoint("GET /api/helprequests/open", 6, (r, s) -> new Call("GET", "/api/helprequests/open?size=20", null)),
+                        new Endpoint("GET /api/helprequests/open/position", 3, (r, s) -> new Call("GET",
+                                        "/api/helprequests/open/position?id=" + pick(r, s.helpRequests()), null)),
+                        new Endpoint("GET /api/helprequests/byteam", 2, (r, s) -> new Call("GET",
+                                        "/api/helprequests/byteam?teamId=f24-" + r.nextInt(20), null)),
+                        new Endpoint("GET /api/articles/page", 3, (r, s) -> new Call("GET", "/api/articles/page?size=20", null)),
+                        new Endpoint("GET /api/articles/search", 3, (r, s) -> new Call("GET", "/api/articles/search?q=" + pick(r, WORDS), null)),
+                        new Endpoint("GET /api/recommendationrequest/byprofessor", 2, (r, s) -> new Call("GET",
+                                        "/api/recommendationrequest/byprofessor?professorEmail=prof" + r.nextInt(50) + "@ucsb.edu", null)),
+                        new Endpoint("GET /api/restaurants?id=", 2, (r, s) -> new Call("GET", "/api/restaurants?id=" + pick(r, s.restaurants()), null)),
+                        new Endpoint("GET /api/ucsborganization/all", 3, (r, s) -> new Call("GET", "/api/ucsborganization/all", null)),
+                        new Endpoint("GET /api/admin/users/page", 1, (r, s) -> new Call("GET", "/api/admin/users/page?size=20", null)),
+                        new Endpoint("POST /api/helprequests/post", 3, (r, s) -> new Call("POST", "/api/helprequests/post?requesterEmail=" + EMAIL
+                                        + "&teamId=f24-" + r.nextInt(20) + "&tableOrBreakoutRoom=" + r.nextInt(10)
+                                        + "&explanation=stuck&solved=false&requestTime=" + LocalDateTime.now().withNano(0), null)),
+                        new Endpoint("PUT /api/helprequests", 2, (r, s) -> {
+                                long id = pick(r, s.helpRequests());
+                                return new Call("PUT", "/api/helprequests?id=" + id, helpRequest((int) id, true));
+                        }),
+                        new Endpoint("POST /api/menuitemreview/post", 3, (r, s) -> new Call("POST", "/api/menuitemreview/post?itemId="
+                                        + pick(r, s.menuItems()) + "&reviewerEmail=" + EMAIL + "&stars=" + (1 + r.nextInt(5))
+                                        + "&comments=tasty&dateReviewed=" + LocalDateTime.now().withNano(0), null)),
+                        new Endpoint("POST /api/articles/post", 1, (r, s) -> new Call("POST", "/api/articles/post?title="
+                                        + pick(r, WORDS) + "+notes&url=https://example.org/" + r.nextInt(1_000_000) + "&explanation="
+                                        + pick(r, WORDS) + "+and+" + pick(r, WORDS) + "&email=" + EMAIL + "&dateAdded=" + LocalDateTime.now().withNano(0), null)),
+                        new Endpoint("POST /api/recommendationrequest/post", 1, (r, s) -> new Call("POST",
+                                        "/api/recommendationrequest/post?requesterEmail=" + EMAIL + "&professorEmail=prof" + r.nextInt(50)
+                                        + "@ucsb.edu&explanation=grad+school&dateRequested=" + LocalDateTime.now().withNano(0)
+                                        + "&dateNeeded=" + LocalDateTime.now().plusDays(30).withNano(0) + "&done=false", null)),
+                        new Endpoint("PUT /api/restaurants", 1, (r, s) -> {
+                                long id = pick(r, s.restaurants());
+                                return new Call("PUT", "/api/restaurants?id=" + id, restaurant((int) id));
+                        }),
+                        new Endpoint("DELETE /api/restaurants", 1, (r, s) -> {
+                                Long id = s.deletableRestaurants().poll();
+                                return new Call("DELETE", "/api/restaurants?id=" + (id == null ? pick(r, s.restaurants()) : id), null);
+                        }));
+
+        @Test
+        public void mixed_traffic_across_the_api() throws Exception {
+                try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ExampleApplication.class)
+                                .profiles("wiremock", "integration")
+                                .run("--server.port=0", "--logging.level.root=WARN", "--logging.level.sql=WARN",
+                                                "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+                                                "--server.tomcat.accept-count=" + CLIENTS,
+                                                "--spring.security.oauth2.client.registration.my-oauth-provider.redirect-uri={baseUrl}/login/oauth2/code/{registrationId}");
+                                ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+                        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+                        String base = "http://localhost:" + port;
+
+                        List<Session> sessions = new ArrayList<>();
+                        for (int i = 0; i < SESSIONS; i++) {
+                                sessions.add(login(base, clients));
+                        }
+
+                        long seedStart = System.nanoTime();
+                        Seeded seeded = seed(base, sessions.get(0));
+                        System.out.printf("seeded in %.1f s%n", (System.nanoTime() - seedStart) / 1e9);
+
+                        run(base, sessions, seeded, clients, WARMUP_SECONDS);
+                        long start = System.nanoTime();
+                        Map<String, Stats> stats = run(base, sessions, seeded, clients, SECONDS);
+                        double seconds = (System.nanoTime() - start) / 1e9;
+
+                        int errors = report(stats, seconds);
+                        assertEquals(0, errors);
+                }
+        }
+
+        private Session login(String base, ExecutorService executor) throws Exception {
+                CookieManager cookies = new CookieManager();
+                HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).cookieHandler(cookies)
+                                .followRedirects(HttpClient.Redirect.NEVER).executor(executor).build();
+                login(http, base);
+
+                HttpResponse<String> currentUser = http.send(HttpRequest.newBuilder(URI.create(base + "/api/currentUser")).build(),
+                                HttpResponse.BodyHandlers.ofString());
+                assertEquals(200, currentUser.statusCode());
+                String csrf = cookies.getCookieStore().getCookies().stream()
+                                .filter(c -> c.getName().equals("XSRF-TOKEN"))
+                                .map(HttpCookie::getValue)
+                                .findFirst().orElseThrow();
+                return new Session(http, csrf);
+        }
+
+        /**
+         * Logs in through the fake OAuth provider, following the redirects a browser would: to the provider's
+         * authorization endpoint, whose login form posts the state and redirect uri back to the provider, which
+         * redirects to the app with an authorization code for the app to exchange.  The client must keep
+         * cookies and must not follow redirects itself.
+         */
+        static void login(HttpClient http, String base) throws Exception {
+                URI authorize = location(http.send(HttpRequest.newBuilder(URI.create(base + "/oauth2/authorization/my-oauth-provider")).build(),
+                                HttpResponse.BodyHandlers.discarding()));
+                Map<String, String> query = query(authorize);
+                String form = "state=" + encode(query.get("state")) + "&redirectUri=" + encode(query.get("redirect_uri"))
+                                + "&username=" + encode(EMAIL) + "&password=password";
+                URI callback = location(http.send(HttpRequest.newBuilder(URI.create(PROVIDER + "/login"))
+                                .header("Content-Type", "application/x-www-form-urlencoded")
+                                .POST(HttpRequest.BodyPublishers.ofString(form)).build(), HttpResponse.BodyHandlers.discarding()));
+                URI home = location(http.send(HttpRequest.newBuilder(callback).build(), HttpResponse.BodyHandlers.discarding()));
+                assertFalse(home.toString().contains("error"), "login failed: " + home);
+        }
+
+        private Seeded seed(String base, Session session) throws Exception {
+                Random random = new Random(42);
+                seed(base, session, "/api/ucsborganization/batch", 300 * SCALE, i -> UCSBOrganization.builder()
+                                .orgCode("ORG" + i).orgTranslationShort("Org " + i).orgTranslation("Student Organization " + i)
+                                .inactive(i % 10 == 0).build());
+                seed(base, session, "/api/ucsbdiningcommons/batch", COMMONS.size(), i -> UCSBDiningCommons.builder()
+                                .code(COMMONS.get(i)).name(COMMONS.get(i)).hasSackMeal(i % 2 == 0).hasTakeOutMeal(true).hasDiningCam(true)
+                                .latitude(34.405 + 0.005 * i).longitude(-119.86 + 0.005 * i).build());
+                List<Long> menuItems = seed(base, session, "/api/ucsbdiningcommonsmenuitems/batch", 2_000 * SCALE,
+                                i -> UCSBDiningCommonsMenuItem.builder().diningCommonsCode(COMMONS.get(i % COMMONS.size()))
+                                                .name("Menu item " + i).station(STATIONS.get(i % STATIONS.size())).build());
+                seed(base, session, "/api/menuitemreview/batch", 20_000 * SCALE, i -> MenuItemReview.builder()
+                                .itemId(menuItems.get(random.nextInt(menuItems.size()))).reviewerEmail("student" + (i % 500) + "@ucsb.edu")
+                                .stars(1 + random.nextInt(5)).dateReviewed(START.plusHours(i)).comments("review " + i).build());
+                // ten dates a quarter, Winter 2015 through Fall 2025
+                List<Long> dates = seed(base, session, "/api/ucsbdates/batch", 440 * SCALE, i -> UCSBDate.builder()
+                                .quarterYYYYQ("" + (2015 + (i / 40) % 11) + (1 + (i / 10) % 4)).name("date " + i)
+                                .localDateTime(START.plusDays(i * 9L)).build());
+                List<Long> helpRequests = seed(base, session, "/api/helprequests/batch", 10_000 * SCALE,
+                                i -> helpRequest(i, i % 20 != 0));
+                seed(base, session, "/api/recommendationrequest/batch", 2_000 * SCALE, i -> RecommendationRequest.builder()
+                                .requesterEmail("student" + (i % 500) + "@ucsb.edu").professorEmail("prof" + (i % 50) + "@ucsb.edu")
+                                .explanation("grad school " + i).dateRequested(START.plusDays(i)).dateNeeded(START.plusDays(i + 30))
+                                .done(i % 3 == 0).build());
+                List<Long> restaurants = seed(base, session, "/api/restaurants/batch", 500 * SCALE, i -> restaurant(i));
+                seed(base, session, "/api/articles/batch", 3_000 * SCALE, i -> Article.builder()
+                                .title(WORDS.get(i % WORDS.size()) + " notes " + i).url("https://example.org/articles/" + i)
+                                .explanation("On " + WORDS.get(random.nextInt(WORDS.size())) + " and " + WORDS.get(random.nextInt(WORDS.size())))
+                                .email("student" + (i % 500) + "@ucsb.edu").dateAdded(START.plusHours(i)).build());
+
+                // the restaurants the delete requests remove, so that each is deleted once
+                ConcurrentLinkedQueue<Long> deletable = new ConcurrentLinkedQueue<>(restaurants.subList(restaurants.size() / 2, restaurants.size()));
+                return new Seeded(menuItems, helpRequests, restaurants.subList(0, restaurants.size() / 2), dates, deletable);
+        }
+
+        private List<Long> seed(String base, Session session, String path, int count, IntFunction<Object> factory) throws Exception {
+                List<Long> ids = new ArrayList<>(count);
+                for (int first = 0; first < count; first += BATCH_SIZE) {
+                        List<Object> batch = new ArrayList<>();
+                        for (int i = first; i < Math.min(count, first + BATCH_SIZE); i++) {
+                                batch.add(factory.apply(i));
+                        }
+                        HttpResponse<String> response = send(base, session, new Call("POST", path, batch));
+                        assertEquals(200, response.statusCode(), path);
+                        for (JsonNode result : mapper.readTree(response.body())) {
+                                if (result.get("id").isNumber()) {
+                                        ids.add(result.get("id").asLong());
+                                }
+                        }
+                }
+                return ids;
+        }
+
+        private Map<String, Stats> run(String base, List<Session> sessions, Seeded seeded, ExecutorService clients, int seconds)
+                        throws Exception {
+                Map<String, Stats> stats = new ConcurrentHashMap<>();
+                int totalWeight = MIX.stream().mapToInt(Endpoint::weight).sum();
+                long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+                List<Future<?>> futures = new ArrayList<>();
+                for (int i = 0; i < CLIENTS; i++) {
+                        Session session = sessions.get(i % sessions.size());
+                        Random random = new Random(i);
+                        futures.add(clients.submit(() -> {
+                                while (System.nanoTime() < deadline) {
+                                        Endpoint endpoint = choose(random, totalWeight);
+                                        Call call = endpoint.calls().next(random, seeded);
+                                        long start = System.nanoTime();
+                                        HttpResponse<String> response = send(base, session, call);
+                                        Stats endpointStats = stats.computeIfAbsent(endpoint.name(), name -> new Stats());
+                                        endpointStats.latencies.add(System.nanoTime() - start);
+                                        if (response.statusCode() != 200) {
+                                                endpointStats.errors.incrementAndGet();
+                                        }
+                                }
+                                return null;
+                        }));
+                }
+                for (Future<?> future : futures) {
+                        future.get();
+                }
+                return stats;
+        }
+
+        private int report(Map<String, Stats> stats, double seconds) {
+                System.out.printf("%d clients, %d sessions, %.0f s, seed scale %d:%n", CLIENTS, SESSIONS, seconds, SCALE);
+                System.out.printf("  %-55s %9s %9s %9s %9s %9s %6s%n", "endpoint", "req/s", "p50 us", "p95 us", "p99 us", "max us", "errors");
+                List<Long> all = new ArrayList<>();
+                int errors = 0;
+                for (Map.Entry<String, Stats> entry : new TreeMap<>(stats).entrySet()) {
+                        long[] latencies = entry.getValue().latencies.stream().mapToLong(Long::longValue).toArray();
+                        Arrays.sort(latencies);
+                        Arrays.stream(latencies).forEach(all::add);
+                        errors += entry.getValue().errors.get();
+                        print(entry.getKey(), latencies, seconds, entry.getValue().errors.get());
+                }
+                long[] latencies = all.stream().mapToLong(Long::longValue).sorted().toArray();
+                print("all", latencies, seconds, errors);
+                return errors;
+        }
+
+        private static void print(String name, long[] sorted, double seconds, int errors) {
+                System.out.printf("  %-55s %,9.0f %,9d %,9d %,9d %,9d %6d%n", name, sorted.length / seconds, percentile(sorted, 50),
+                                percentile(sorted, 95), percentile(sorted, 99), sorted[sorted.length - 1] / 1_000, errors);
+        }
+
+        private static long percentile(long[] sorted, int p) {
+                return sorted[(int) Math.min(sorted.length - 1, (long) sorted.length * p / 100)] / 1_000;
+        }
+
+        private static Endpoint choose(Random random, int totalWeight) {
+                int n = random.nextInt(totalWeight);
+                for (Endpoint endpoint : MIX) {
+                        n -= endpoint.weight();
+                        if (n < 0) {
+                                return endpoint;
+                        }
+                }
+                throw new IllegalStateException();
+        }
+
+        private HttpResponse<String> send(String base, Session session, Call call) throws Exception {
+                HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(base + call.path()))
+                                .header("X-XSRF-TOKEN", session.csrf());
+                if (call.body() != null) {
+                        request.header("Content-Type", "application/json")
+                                        .method(call.method(), HttpRequest.BodyPublishers.ofString(mapper.writeValueAsString(call.body())));
+                } else {
+                        request.method(call.method(), HttpRequest.BodyPublishers.noBody());
+                }
+                return session.http().send(request.build(), HttpResponse.BodyHandlers.ofString());
+        }
+
+        private static HelpRequest helpRequest(int i, boolean solved) {
+                return HelpRequest.builder().requesterEmail("student" + (i % 500) + "@ucsb.edu").teamId("f24-" + (i % 20))
+                                .tableOrBreakoutRoom("" + (i % 10)).requestTime(START.plusMinutes(i)).explanation("stuck on " + i)
+                                .solved(solved).build();
+        }
+
+        private static Restaurant restaurant(int i) {
+                return Restaurant.builder().name("Restaurant " + i).description("Tacos and burritos").build();
+        }
+
+        private static <T> T pick(Random random, List<T> items) {
+                return items.get(random.nextInt(items.size()));
+        }
+
+        private static URI location(HttpResponse<?> response) {
+                return URI.create(response.headers().firstValue("Location").orElseThrow(
+                                () -> new IllegalStateException("expected a redirect, got " + response.statusCode() + " from " + response.uri())))
+                                .normalize();
+        }
+
+        private static Map<String, String> query(URI uri) {
+                Map<String, String> parameters = new HashMap<>();
+                for (String parameter : uri.getRawQuery().split("&")) {
+                        String[] pair = parameter.split("=", 2);
+                        parameters.put(URLDecoder.decode(pair[0], StandardCharsets.UTF_8), URLDecoder.decode(pair[1], StandardCharsets.UTF_8));
+                }
+                return parameters;
+        }
+
+        private static String encode(String value) {
+                return URLEncoder.encode(value, StandardCharsets.UTF_8);
+        }
+}
@@ -0,0 +1,100 @@
+package edu.ucsb.cs156.example.integration;
+
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import edu.ucsb.cs156.example.entities.Article;
+import edu.ucsb.cs156.example.repositories.ArticleRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.CurrentUserService;
+import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+
+/**
+ * Article search against H2, which uses the substring fallback (see ArticleSearchService).
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+public class ArticleSearchIT {
+        @Autowired
+        public CurrentUserService currentUserService;
+
+        @Autowired
+        public GrantedAuthoritiesService grantedAuthoritiesService;
+
+        @Autowired
+        public MockMvc mockMvc;
+
+        @Autowired
+        ArticleRepository articleRepository;
+
+        @MockBean
+        UserRepository userRepository;
+
+        private Article article(String title, String explanation) {
+                return articleRepository.save(Article.builder().title(title).explanation(explanation).url("url")
+                                .email("email").dateAdded(LocalDateTime.parse("2022-01-03T00:00:00")).build());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void title_matches_rank_above_explanation_matches_and_pages_follow() throws Exception {
+                // arrange
+
+                Article inExplanation = article("Campus news", "The Gauchos won again");
+                article("Weather", "Sunny");
+                Article inTitle = article("Gaucho basketball", "Season preview");
+                Article inBoth = article("GAUCHO pride", "gauchos everywhere");
+
+                // act and assert
+
+                mockMvc.perform(get("/api/articles/search?q=gaucho&size=2"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.content.length()").value(2))
+                                .andExpect(jsonPath("$.content[0].id").value(inTitle.getId()))
+                                .andExpect(jsonPath("$.content[1].id").value(inBoth.getId()))
+                                .andExpect(jsonPath("$.next").value("1"));
+
+                mockMvc.perform(get("/api/articles/search?q=gaucho&size=2&page=1"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.content.length()").value(1))
+                                .andExpect(jsonPath("$.content[0].id").value(inExplanation.getId()))
+                                .andExpect(jsonPath("$.next").doesNotExist());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void like_wildcards_in_the_query_are_matched_literally() throws Exception {
+                // arrange
+
+                Article percent = article("100% Gaucho", "explanation");
+                article("1000 Gauchos", "explanation");
+
+                // act and assert
+
+                mockMvc.perform(get("/api/articles/search").param("q", "100%"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.content.length()").value(1))
+                                .andExpect(jsonPath("$.content[0].id").value(percent.getId()));
+        }
+}
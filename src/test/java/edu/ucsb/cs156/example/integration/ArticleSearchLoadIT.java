@@ -0,0 +1,132 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import edu.ucsb.cs156.example.ExampleApplication;
+import edu.ucsb.cs156.example.services.ArticleSearchService;
+
+/**
+ * Latency of Postgres full-text article search at ARTICLES rows.
+ *
+ * Needs a Postgres database, which is migrated and filled with generated articles
+ * (only up to ARTICLES, so it can be reused between runs).  Skipped by default; run with
+ *
+ *   mvn test -Dtest=ArticleSearchLoadIT -Dbenchmark.postgres.url=jdbc:postgresql://localhost:5432/search
+ *       -Dbenchmark.postgres.username=... -Dbenchmark.postgres.password=...
+ */
+@EnabledIfSystemProperty(named = "benchmark.postgres.url", matches = "jdbc:postgresql:.+")
+public class ArticleSearchLoadIT {
+
+        private static final int ARTICLES = 1_000_000;
+        private static final int BATCH = 10_000;
+        private static final int WARMUP_QUERIES = 200;
+        private static final int QUERIES = 2_000;
+        private static final long P95_LIMIT_MICROS = 50_000;
+
+        private static final int VOCABULARY = 20_000;
+        private static final String[] SYLLABLES = { "ga", "u", "cho", "sto", "rke", "la", "go", "on", "is", "vis",
+                        "ta", "por", "car", "ril", "lo", "or", "te", "ca", "mpu", "s" };
+
+        /** Word i of the generated vocabulary; words are drawn with Zipf frequencies, word 0 being the most common. */
+        private static final String[] WORDS = IntStream.range(0, VOCABULARY).mapToObj(ArticleSearchLoadIT::word)
+                        .toArray(String[]::new);
+        private static final double[] CUMULATIVE = new double[VOCABULARY];
+
+        static {
+                double total = 0;
+                for (int i = 0; i < VOCABULARY; i++) {
+                        total += 1.0 / (i + 1);
+                        CUMULATIVE[i] = total;
+                }
+                for (int i = 0; i < VOCABULARY; i++) {
+                        CUMULATIVE[i] /= total;
+                }
+        }
+
+        @Test
+        public void p95_search_latency_is_under_50ms() throws Exception {
+                try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ExampleApplication.class)
+                                .profiles("production")
+                                .run("--server.port=0", "--logging.level.root=WARN",
+                                                "--spring.datasource.url=" + System.getProperty("benchmark.postgres.url"),
+                                                "--spring.datasource.username=" + System.getProperty("benchmark.postgres.username", "postgres"),
+                                                "--spring.datasource.password=" + System.getProperty("benchmark.postgres.password", ""))) {
+                        fill(context.getBean(JdbcTemplate.class));
+                        ArticleSearchService search = context.getBean(ArticleSearchService.class);
+
+                        Random random = new Random(42);
+                        for (int i = 0; i < WARMUP_QUERIES; i++) {
+                                search.search(query(random), PageRequest.of(0, 20)).getContent();
+                        }
+                        long[] micros = new long[QUERIES];
+                        for (int i = 0; i < QUERIES; i++) {
+                                String query = query(random);
+                                long start = System.nanoTime();
+                                search.search(query, PageRequest.of(random.nextInt(3), 20)).getContent();
+                                micros[i] = (System.nanoTime() - start) / 1_000;
+                        }
+                        Arrays.sort(micros);
+                        long p50 = micros[QUERIES / 2];
+                        long p95 = micros[QUERIES * 95 / 100];
+                        System.out.printf("%,d articles, %,d searches: p50 %,d us  p95 %,d us  max %,d us%n",
+                                        ARTICLES, QUERIES, p50, p95, micros[QUERIES - 1]);
+                        assertTrue(p95 < P95_LIMIT_MICROS, "p95 " + p95 + " us");
+                }
+        }
+
+        /**
+         * Query words are drawn uniformly from the vocabulary, so like real searches most are selective;
+         * the few most frequent words of the corpus behave like stop words.
+         */
+        private static String query(Random random) {
+                String word = WORDS[random.nextInt(VOCABULARY)];
+                return random.nextBoolean() ? word : word + " " + WORDS[random.nextInt(VOCABULARY)];
+        }
+
+        private static String word(int i) {
+                StringBuilder word = new StringBuilder();
+                do {
+                        word.append(SYLLABLES[i % SYLLABLES.length]);
+                        i /= SYLLABLES.length;
+                } while (i > 0);
+                return word.append("o").toString();
+        }
+
+        private static void fill(JdbcTemplate jdbcTemplate) {
+                Random random = new Random(7);
+                Timestamp dateAdded = Timestamp.valueOf(LocalDateTime.parse("2024-01-01T00:00:00"));
+                int existing = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM ARTICLES", Integer.class);
+                for (int from = existing; from < ARTICLES; from += BATCH) {
+                        List<Object[]> rows = IntStream.range(from, Math.min(from + BATCH, ARTICLES))
+                                        .mapToObj(i -> new Object[] { sentence(random, 4), "https://example.org/" + i,
+                                                        sentence(random, 25), "author" + (i % 1000) + "@ucsb.edu", dateAdded })
+                                        .toList();
+                        jdbcTemplate.batchUpdate("INSERT INTO ARTICLES (ID, TITLE, URL, EXPLANATION, EMAIL, DATE_ADDED)"
+                                        + " VALUES (nextval('ARTICLES_SEQ'), ?, ?, ?, ?, ?)", rows);
+                }
+                jdbcTemplate.execute("ANALYZE ARTICLES");
+        }
+
+        private static String sentence(Random random, int words) {
+                StringBuilder sentence = new StringBuilder();
+                for (int i = 0; i < words; i++) {
+                        int index = Arrays.binarySearch(CUMULATIVE, random.nextDouble());
+                        sentence.append(i == 0 ? "" : " ").append(WORDS[index < 0 ? -index - 1 : index]);
+                }
+                return sentence.toString();
+        }
+}
@@ -0,0 +1,119 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import edu.ucsb.cs156.example.ExampleApplication;
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+
+/**
+ * Bytes on the wire and time to first byte with response compression off (the previous setting)
+ * and on, for a JSON list and for a precompressed frontend asset.
+ *
+ * Skipped by default; run with
+ *
+ *   mvn test -Dtest=CompressionLoadIT -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class CompressionLoadIT {
+
+        private static final int RESTAURANTS = 2_000;
+        private static final int WARMUP_REQUESTS = 200;
+        private static final int REQUESTS = 500;
+
+        private static final String ALL = "/api/restaurants/all";
+        private static final String ASSET = "/static/js/main.3f2a1b9c.js";
+
+        record Result(long bytes, long ttfbP50Micros, long totalP50Micros) {
+        }
+
+        @Test
+        public void compare_bytes_and_ttfb_with_and_without_compression() throws Exception {
+                List<Result> before = run(false);
+                List<Result> after = run(true);
+
+                System.out.printf("%d restaurants, %d requests each:%n", RESTAURANTS, REQUESTS);
+                print(ALL + " uncompressed", before.get(0));
+                print(ALL + " gzip", after.get(0));
+                print(ASSET + " identity", before.get(1));
+                print(ASSET + " br", after.get(1));
+
+                assertTrue(after.get(0).bytes() < before.get(0).bytes());
+                assertTrue(after.get(1).bytes() < before.get(1).bytes());
+        }
+
+        private static void print(String label, Result result) {
+                System.out.printf("  %-40s %,9d bytes  ttfb p50 %,6d us  total p50 %,6d us%n",
+                                label, result.bytes(), result.ttfbP50Micros(), result.totalP50Micros());
+        }
+
+        private List<Result> run(boolean compression) throws Exception {
+                try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ExampleApplication.class,
+                                VirtualThreadsLoadIT.LoadTestLogin.class)
+                                .profiles("integration", "loadtest")
+                                .run("--server.port=0", "--logging.level.root=WARN", "--logging.level.sql=WARN",
+                                                "--server.compression.enabled=" + compression)) {
+                        RestaurantRepository restaurantRepository = context.getBean(RestaurantRepository.class);
+                        restaurantRepository.deleteAll();
+                        restaurantRepository.saveAll(IntStream.range(0, RESTAURANTS)
+                                        .mapToObj(i -> Restaurant.builder().name("Restaurant " + i)
+                                                        .description("Serves dish number " + i + " and several others").build())
+                                        .toList());
+                        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+                        String base = "http://localhost:" + port;
+                        String encoding = compression ? "br, gzip" : "identity";
+
+                        HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).cookieHandler(new CookieManager()).build();
+                        http.send(HttpRequest.newBuilder(URI.create(base + "/loadtest/login")).build(),
+                                        HttpResponse.BodyHandlers.discarding());
+                        return List.of(measure(http, base + ALL, encoding), measure(http, base + ASSET, encoding));
+                }
+        }
+
+        private static Result measure(HttpClient http, String url, String encoding) throws Exception {
+                HttpRequest request = HttpRequest.newBuilder(URI.create(url)).header("Accept-Encoding", encoding).build();
+                for (int i = 0; i < WARMUP_REQUESTS; i++) {
+                        http.send(request, HttpResponse.BodyHandlers.discarding());
+                }
+                long bytes = 0;
+                List<Long> ttfb = new ArrayList<>();
+                List<Long> total = new ArrayList<>();
+                for (int i = 0; i < REQUESTS; i++) {
+                        long start = System.nanoTime();
+                        long[] firstByte = new long[1];
+                        // the client does not decompress, so the body length is the bytes on the wire
+                        HttpResponse<byte[]> response = http.send(request, info -> {
+                                firstByte[0] = System.nanoTime();
+                                return HttpResponse.BodySubscribers.ofByteArray();
+                        });
+                        total.add(System.nanoTime() - start);
+                        ttfb.add(firstByte[0] - start);
+                        assertEquals(200, response.statusCode());
+                        bytes = response.body().length;
+                }
+                return new Result(bytes, median(ttfb), median(total));
+        }
+
+        private static long median(List<Long> nanos) {
+                long[] sorted = nanos.stream().mapToLong(Long::longValue).toArray();
+                Arrays.sort(sorted);
+                return sorted[sorted.length / 2] / 1_000;
+        }
+}
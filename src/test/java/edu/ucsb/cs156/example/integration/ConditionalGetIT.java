@@ -0,0 +1,170 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.metamodel.EntityType;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+
+import edu.ucsb.cs156.example.entities.Article;
+import edu.ucsb.cs156.example.entities.TableVersionListener;
+import edu.ucsb.cs156.example.repositories.ArticleRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.CurrentUserService;
+import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "app.tableVersions.foldInterval=PT0.05S")
+@AutoConfigureMockMvc
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+public class ConditionalGetIT {
+        @Autowired
+        public CurrentUserService currentUserService;
+
+        @Autowired
+        public GrantedAuthoritiesService grantedAuthoritiesService;
+
+        @Autowired
+        public MockMvc mockMvc;
+
+        @Autowired
+        ArticleRepository articleRepository;
+
+        @MockBean
+        UserRepository userRepository;
+
+        @Autowired
+        EntityManagerFactory entityManagerFactory;
+
+        @Autowired
+        JdbcTemplate jdbcTemplate;
+
+        @Test
+        public void every_versioned_table_has_a_row_seeded_by_the_changelog() {
+                List<String> versioned = entityManagerFactory.getMetamodel().getEntities().stream()
+                                .map(EntityType::getJavaType)
+                                .filter(type -> type.isAnnotationPresent(EntityListeners.class) && Arrays
+                                                .asList(type.getAnnotation(EntityListeners.class).value()).contains(TableVersionListener.class))
+                                .map(type -> type.getAnnotation(Entity.class).name())
+                                .sorted()
+                                .toList();
+
+                assertEquals(9, versioned.size());
+                assertEquals(versioned, jdbcTemplate.queryForList(
+                                "SELECT TABLE_NAME FROM TABLE_VERSIONS ORDER BY TABLE_NAME", String.class));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void all_restaurants_are_revalidated_until_a_restaurant_is_added() throws Exception {
+                // arrange
+
+                String etag = mockMvc.perform(get("/api/restaurants/all"))
+                                .andExpect(status().isOk())
+                                .andReturn().getResponse().getHeader("ETag");
+
+                // act and assert
+
+                mockMvc.perform(get("/api/restaurants/all").header("If-None-Match", etag))
+                                .andExpect(status().isNotModified());
+
+                mockMvc.perform(post("/api/restaurants/post?name=Freebirds&description=Burritos").with(csrf()))
+                                .andExpect(status().isOk());
+
+                String newEtag = mockMvc.perform(get("/api/restaurants/all").header("If-None-Match", etag))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$[0].name").value("Freebirds"))
+                                .andReturn().getResponse().getHeader("ETag");
+                assertNotEquals(etag, newEtag);
+
+                // a write that rolls back (here, a 404) leaves the version alone
+                mockMvc.perform(delete("/api/restaurants?id=12345").with(csrf()))
+                                .andExpect(status().isNotFound());
+                mockMvc.perform(get("/api/restaurants/all").header("If-None-Match", newEtag))
+                                .andExpect(status().isNotModified());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void etag_is_unchanged_when_recorded_changes_are_folded() throws Exception {
+                // arrange
+
+                mockMvc.perform(post("/api/restaurants/post?name=Freebirds&description=Burritos").with(csrf()))
+                                .andExpect(status().isOk());
+                String etag = mockMvc.perform(get("/api/restaurants/all"))
+                                .andExpect(status().isOk())
+                                .andReturn().getResponse().getHeader("ETag");
+
+                // act
+
+                long deadline = System.currentTimeMillis() + 5000;
+                while (jdbcTemplate.queryForObject("SELECT COUNT(*) FROM TABLE_VERSION_CHANGES", Long.class) > 0
+                                && System.currentTimeMillis() < deadline) {
+                        Thread.sleep(10);
+                }
+
+                // assert
+
+                assertEquals(0L, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM TABLE_VERSION_CHANGES", Long.class));
+                assertEquals(1L, jdbcTemplate.queryForObject(
+                                "SELECT VERSION FROM TABLE_VERSIONS WHERE TABLE_NAME = 'restaurants'", Long.class));
+                assertEquals("W/\"1\"", etag);
+                mockMvc.perform(get("/api/restaurants/all").header("If-None-Match", etag))
+                                .andExpect(status().isNotModified());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void stale_article_edits_are_rejected() throws Exception {
+                // arrange
+
+                Article article = articleRepository.save(Article.builder().title("before").url("url").explanation("explanation")
+                                .email("email").dateAdded(LocalDateTime.parse("2022-01-03T00:00:00")).build());
+                String url = "/api/articles?id=" + article.getId();
+                String etag = mockMvc.perform(get(url))
+                                .andExpect(status().isOk())
+                                .andExpect(header().exists("Last-Modified"))
+                                .andReturn().getResponse().getHeader("ETag");
+                String body = "{\"title\":\"after\",\"url\":\"url\",\"explanation\":\"explanation\",\"email\":\"email\",\"dateAdded\":\"2022-01-03T00:00:00\"}";
+
+                // act and assert
+
+                mockMvc.perform(put(url).header("If-Match", etag).contentType(MediaType.APPLICATION_JSON).content(body).with(csrf()))
+                                .andExpect(status().isOk());
+                mockMvc.perform(put(url).header("If-Match", etag).contentType(MediaType.APPLICATION_JSON).content(body).with(csrf()))
+                                .andExpect(status().isPreconditionFailed());
+
+                Article saved = articleRepository.findById(article.getId()).orElseThrow();
+                assertEquals("after", saved.getTitle());
+                assertEquals(article.getVersion() + 1, saved.getVersion());
+        }
+}
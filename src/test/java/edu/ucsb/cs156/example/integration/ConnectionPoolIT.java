@@ -0,0 +1,61 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+@ActiveProfiles("integration")
+public class ConnectionPoolIT {
+
+        @Autowired
+        public MockMvc mockMvc;
+
+        @Autowired
+        MeterRegistry meterRegistry;
+
+        @Autowired
+        UCSBOrganizationRepository ucsbOrganizationRepository;
+
+        @Test
+        public void pool_metrics_are_published_with_acquire_time_histograms() throws Exception {
+                // act
+
+                ucsbOrganizationRepository.count();
+                String scrape = mockMvc.perform(get("/actuator/prometheus"))
+                                .andExpect(status().isOk())
+                                .andReturn().getResponse().getContentAsString();
+
+                // assert
+
+                assertTrue(meterRegistry.get("hikaricp.connections.acquire").tag("pool", "team01").timer().count() > 0);
+                assertTrue(scrape.contains("hikaricp_connections_max{pool=\"team01\"}"), "pool gauges are scraped");
+                assertTrue(scrape.contains("hikaricp_connections_acquire_seconds_bucket{pool=\"team01\""),
+                                "acquire time histogram is scraped");
+        }
+
+        @Test
+        public void sql_is_not_logged_without_the_sqltrace_profile() {
+                assertFalse(LoggerFactory.getLogger("org.hibernate.SQL").isDebugEnabled());
+                assertFalse(LoggerFactory.getLogger("org.hibernate.orm.jdbc.bind").isTraceEnabled());
+        }
+}
@@ -0,0 +1,121 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.CurrentUserService;
+import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+public class CsvImportIT {
+        @Autowired
+        public CurrentUserService currentUserService;
+
+        @Autowired
+        public GrantedAuthoritiesService grantedAuthoritiesService;
+
+        @Autowired
+        public MockMvc mockMvc;
+
+        @Autowired
+        UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
+
+        @Autowired
+        UCSBOrganizationRepository ucsbOrganizationRepository;
+
+        @MockBean
+        UserRepository userRepository;
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void menu_items_are_imported_across_chunks_and_invalid_rows_are_skipped() throws Exception {
+                // arrange
+
+                StringBuilder csv = new StringBuilder("diningCommonsCode,name,station\n");
+                for (int i = 1; i <= 1200; i++) {
+                        csv.append(i == 700 ? "ortega,,Entrees\n" : "ortega,\"Dish " + i + ", with rice\",Entrees\n");
+                }
+                MockMultipartFile file = new MockMultipartFile("file", "menu_items.csv", "text/csv", csv.toString().getBytes());
+
+                // act
+                mockMvc.perform(multipart("/api/ucsbdiningcommonsmenuitems/import").file(file).with(csrf()))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.rowsRead").value(1200))
+                                .andExpect(jsonPath("$.rowsImported").value(1199))
+                                .andExpect(jsonPath("$.rowsRejected").value(1))
+                                .andExpect(jsonPath("$.rejected[0].record").value(700))
+                                .andExpect(jsonPath("$.rejected[0].message").value("name is required"));
+
+                // assert
+                assertEquals(1199, ucsbDiningCommonsMenuItemRepository.count());
+                assertEquals("Dish 1200, with rice", ucsbDiningCommonsMenuItemRepository.findById(1199L).get().getName());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void organizations_are_upserted_by_org_code() throws Exception {
+                // arrange
+
+                ucsbOrganizationRepository.save(UCSBOrganization.builder().orgCode("ZPR").orgTranslationShort("old")
+                                .orgTranslation("old").inactive(true).build());
+                String csv = "orgCode,orgTranslationShort,orgTranslation,inactive\n"
+                                + "ZPR,Zeta Phi Rho,Zeta Phi Rho Fraternity,false\n"
+                                + "SKY,Skydiving Club,Skydiving Club at UCSB,maybe\n"
+                                + "OSLI,Student Life,Office of Student Life,false\n";
+                MockMultipartFile file = new MockMultipartFile("file", "organizations.csv", "text/csv", csv.getBytes());
+
+                // act
+                mockMvc.perform(multipart("/api/ucsborganization/import").file(file).with(csrf()))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.rowsImported").value(2))
+                                .andExpect(jsonPath("$.rejected[0].message").value("inactive must be true or false, not 'maybe'"));
+
+                // assert
+                assertEquals(2, ucsbOrganizationRepository.count());
+                assertEquals(UCSBOrganization.builder().orgCode("ZPR").orgTranslationShort("Zeta Phi Rho")
+                                .orgTranslation("Zeta Phi Rho Fraternity").inactive(false).build(),
+                                ucsbOrganizationRepository.findById("ZPR").get());
+                assertEquals(UCSBOrganization.builder().orgCode("OSLI").orgTranslationShort("Student Life")
+                                .orgTranslation("Office of Student Life").inactive(false).build(),
+                                ucsbOrganizationRepository.findById("OSLI").get());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void file_without_required_columns_is_rejected() throws Exception {
+                MockMultipartFile file = new MockMultipartFile("file", "menu_items.csv", "text/csv", "name\nPizza\n".getBytes());
+
+                mockMvc.perform(multipart("/api/ucsbdiningcommonsmenuitems/import").file(file).with(csrf()))
+                                .andExpect(status().isBadRequest());
+
+                assertEquals(0, ucsbDiningCommonsMenuItemRepository.count());
+        }
+}
@@ -0,0 +1,101 @@
+package edu.ucsb.cs156.example.integration;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.time.LocalDateTime;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.CurrentUserService;
+import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+public class HelpRequestOpenQueueIT {
+        @Autowired
+        public CurrentUserService currentUserService;
+
+        @Autowired
+        public GrantedAuthoritiesService grantedAuthoritiesService;
+
+        @Autowired
+        public MockMvc mockMvc;
+
+        @Autowired
+        HelpRequestRepository helpRequestRepository;
+
+        @Autowired
+        JdbcTemplate jdbcTemplate;
+
+        @MockBean
+        UserRepository userRepository;
+
+        private HelpRequest save(String explanation, String teamId, String requestTime, boolean solved) {
+                return helpRequestRepository.save(HelpRequest.builder().requesterEmail("cgaucho@ucsb.edu").teamId(teamId)
+                                .tableOrBreakoutRoom("7").explanation(explanation).requestTime(LocalDateTime.parse(requestTime))
+                                .solved(solved).build());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void open_queue_is_ordered_by_request_time_and_pages_by_cursor() throws Exception {
+                // arrange
+
+                helpRequestRepository.deleteAll();
+                save("third", "f24-07", "2024-10-23T12:10:00", false);
+                save("long solved", "f24-07", "2024-10-23T11:00:00", true);
+                HelpRequest first = save("first", "f24-08", "2024-10-23T12:00:00", false);
+                HelpRequest second = save("second", "f24-07", "2024-10-23T12:05:00", false);
+
+                // act and assert
+
+                mockMvc.perform(get("/api/helprequests/open?size=2"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.content[*].explanation").value(contains("first", "second")))
+                                .andExpect(jsonPath("$.next").value("2024-10-23T12:05," + second.getId()));
+                mockMvc.perform(get("/api/helprequests/open").param("size", "2").param("cursor", "2024-10-23T12:05," + second.getId()))
+                                .andExpect(jsonPath("$.content[*].explanation").value(contains("third")))
+                                .andExpect(jsonPath("$.next").isEmpty());
+                mockMvc.perform(get("/api/helprequests/open?teamId=f24-07"))
+                                .andExpect(jsonPath("$.content[*].explanation").value(contains("second", "third")));
+
+                mockMvc.perform(get("/api/helprequests/open/position?id=" + first.getId()))
+                                .andExpect(jsonPath("$.position").value(1));
+                mockMvc.perform(get("/api/helprequests/open/position?id=" + second.getId()))
+                                .andExpect(jsonPath("$.position").value(2));
+        }
+
+        @Test
+        public void open_queue_query_uses_the_open_index() {
+                String plan = jdbcTemplate.queryForObject(
+                                "EXPLAIN SELECT * FROM HELPREQUESTS WHERE SOLVED = FALSE"
+                                                + " AND REQUEST_TIME >= TIMESTAMP '2024-10-23 12:00:00' AND (REQUEST_TIME > TIMESTAMP '2024-10-23 12:00:00' OR ID > 7)"
+                                                + " ORDER BY REQUEST_TIME, ID LIMIT 20", String.class);
+                assertThat(plan, containsString("HELPREQUESTS_OPEN_IDX"));
+        }
+}
@@ -0,0 +1,120 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+
+/**
+ * Benchmark of the open help request queue (a page of the queue, and the position of an open request)
+ * with OPEN requests open, as the number of solved requests grows from 10k to 500k.  At 500k it is
+ * measured again with only HELPREQUESTS_SOLVED_IDX (which finds the open rows but not in queue order)
+ * and with neither index.
+ *
+ * Skipped by default; run with
+ *
+ *   mvn test -Dtest=HelpRequestOpenQueueLoadIT -Dbenchmark=true
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = { "logging.level.sql=INFO" })
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class HelpRequestOpenQueueLoadIT {
+
+        private static final int OPEN = 50;
+        private static final int SOLVED_BEFORE = 10_000;
+        private static final int SOLVED_AFTER = 500_000;
+        private static final int WARMUP_QUERIES = 2_000;
+        private static final int QUERIES = 1_000;
+
+        private static final LocalDateTime START = LocalDateTime.parse("2024-01-01T00:00:00");
+        private static final LocalDateTime QUEUE_START = LocalDateTime.of(1, 1, 1, 0, 0);
+
+        @Autowired
+        HelpRequestRepository helpRequestRepository;
+
+        @Autowired
+        JdbcTemplate jdbcTemplate;
+
+        @Test
+        public void open_queue_does_not_slow_down_as_solved_requests_accumulate() {
+
+                // arrange
+
+                helpRequestRepository.deleteAll();
+                insert(0, SOLVED_BEFORE, true);
+                // the open requests are the newest, as in a live queue
+                insert(SOLVED_AFTER, OPEN, false);
+                List<HelpRequest> open = helpRequestRepository.findOpenAfter(QUEUE_START, 0, PageRequest.of(0, OPEN)).getContent();
+
+                // act
+
+                double before = meanQueryMicros(open);
+                insert(SOLVED_BEFORE, SOLVED_AFTER - SOLVED_BEFORE, true);
+                double after = meanQueryMicros(open);
+                jdbcTemplate.execute("DROP INDEX HELPREQUESTS_OPEN_IDX");
+                double solvedIndexOnly = meanQueryMicros(open);
+                jdbcTemplate.execute("DROP INDEX HELPREQUESTS_SOLVED_IDX");
+                double withoutIndex = meanQueryMicros(open);
+                jdbcTemplate.execute("CREATE INDEX HELPREQUESTS_SOLVED_IDX ON HELPREQUESTS (SOLVED, ID)");
+                jdbcTemplate.execute("CREATE INDEX HELPREQUESTS_OPEN_IDX ON HELPREQUESTS (SOLVED, REQUEST_TIME, ID)");
+
+                // assert
+
+                System.out.printf("open queue page + position, %d open requests:%n", OPEN);
+                System.out.printf("  %,d solved: %.1f us%n", SOLVED_BEFORE, before);
+                System.out.printf("  %,d solved: %.1f us%n", SOLVED_AFTER, after);
+                System.out.printf("  %,d solved, HELPREQUESTS_SOLVED_IDX only: %.1f us%n", SOLVED_AFTER, solvedIndexOnly);
+                System.out.printf("  %,d solved, no index: %.1f us%n", SOLVED_AFTER, withoutIndex);
+                assertTrue(after < before * 3, "cost does not grow with solved requests");
+                assertTrue(after * 10 < withoutIndex);
+        }
+
+        private void insert(int first, int count, boolean solved) {
+                List<Object[]> rows = new ArrayList<>(count);
+                for (int i = first; i < first + count; i++) {
+                        rows.add(new Object[] { "cgaucho@ucsb.edu", "f24-" + (i % 20), "table " + (i % 10),
+                                        Timestamp.valueOf(START.plusMinutes(i)), "request " + i, solved });
+                }
+                jdbcTemplate.batchUpdate("INSERT INTO HELPREQUESTS (ID, REQUESTER_EMAIL, TEAM_ID, TABLE_OR_BREAKOUT_ROOM, REQUEST_TIME, EXPLANATION, SOLVED)"
+                                + " VALUES (NEXT VALUE FOR HELPREQUESTS_SEQ, ?, ?, ?, ?, ?, ?)", rows);
+        }
+
+        private double meanQueryMicros(List<HelpRequest> open) {
+                for (int i = 0; i < WARMUP_QUERIES; i++) {
+                        query(open, i);
+                }
+                long start = System.nanoTime();
+                for (int i = 0; i < QUERIES; i++) {
+                        query(open, i);
+                }
+                return (System.nanoTime() - start) / 1_000.0 / QUERIES;
+        }
+
+        // the cursor moves on each query, so that H2 cannot reuse the previous result
+        private void query(List<HelpRequest> open, int i) {
+                HelpRequest after = open.get(i % (OPEN - 20));
+                HelpRequest request = open.get(i % OPEN);
+                assertEquals(20, helpRequestRepository.findOpenAfter(after.getRequestTime(), after.getId(), PageRequest.of(0, 20)).getContent().size());
+                assertEquals(i % OPEN, helpRequestRepository.countOpenAhead(request.getRequestTime(), request.getId()));
+        }
+}
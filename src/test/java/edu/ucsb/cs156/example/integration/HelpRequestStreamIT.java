@@ -0,0 +1,116 @@
+package edu.ucsb.cs156.example.integration;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.CurrentUserService;
+import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+public class HelpRequestStreamIT {
+        private static final Pattern EVENT = Pattern.compile("id:([0-9a-z]+)-(\\d+)\nevent:(\\w+)\n");
+
+        @Autowired
+        public CurrentUserService currentUserService;
+
+        @Autowired
+        public GrantedAuthoritiesService grantedAuthoritiesService;
+
+        @Autowired
+        public MockMvc mockMvc;
+
+        @MockBean
+        UserRepository userRepository;
+
+        private static List<String> events(MvcResult stream) throws Exception {
+                Matcher matcher = EVENT.matcher(stream.getResponse().getContentAsString());
+                return matcher.results().map(m -> m.group(2) + " " + m.group(3)).toList();
+        }
+
+        /** The events of a stream once there are count of them; they are written by the sender pool. */
+        private static List<String> events(MvcResult stream, int count) throws Exception {
+                long deadline = System.currentTimeMillis() + 5_000;
+                while (events(stream).size() < count && System.currentTimeMillis() < deadline) {
+                        Thread.sleep(10);
+                }
+                return events(stream);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void stream_receives_created_solved_and_deleted_events_and_resumes_after_reconnect() throws Exception {
+                // arrange
+
+                MvcResult stream = mockMvc.perform(get("/api/helprequests/stream").accept(MediaType.TEXT_EVENT_STREAM))
+                                .andExpect(request().asyncStarted())
+                                .andReturn();
+
+                // act
+
+                String created = mockMvc.perform(post("/api/helprequests/post?requesterEmail=cgaucho@ucsb.edu&teamId=f24-07&tableOrBreakoutRoom=7&explanation=stuck&solved=false&requestTime=2024-10-23T12:00:00").with(csrf()))
+                                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+                String id = created.replaceAll(".*\"id\":(\\d+).*", "$1");
+                mockMvc.perform(put("/api/helprequests/batch").with(csrf())
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[{\"id\":" + id + ",\"requesterEmail\":\"cgaucho@ucsb.edu\",\"teamId\":\"f24-07\",\"tableOrBreakoutRoom\":\"7\",\"explanation\":\"stuck\",\"solved\":true,\"requestTime\":\"2024-10-23T12:00:00\"}]"))
+                                .andExpect(status().isOk());
+                mockMvc.perform(delete("/api/helprequests?id=" + id).with(csrf()))
+                                .andExpect(status().isOk());
+                // a failed change publishes nothing
+                mockMvc.perform(delete("/api/helprequests?id=" + id).with(csrf()))
+                                .andExpect(status().isNotFound());
+
+                // assert
+
+                assertEquals(Arrays.asList("0 ready", "1 created", "2 solved", "3 deleted"), events(stream, 4));
+                assertThat(stream.getResponse().getHeader("Content-Type"), startsWith(MediaType.TEXT_EVENT_STREAM_VALUE));
+                String content = stream.getResponse().getContentAsString();
+                assertEquals(true, content.contains("data:" + created + "\n"));
+
+                Matcher first = EVENT.matcher(content);
+                first.find();
+                String epoch = first.group(1);
+                MvcResult resumed = mockMvc.perform(get("/api/helprequests/stream").header("Last-Event-ID", epoch + "-1"))
+                                .andExpect(request().asyncStarted())
+                                .andReturn();
+                assertEquals(Arrays.asList("2 solved", "3 deleted"), events(resumed, 2));
+
+                // an id numbered before a restart is reset, even though this instance has sent an event 1
+                MvcResult reset = mockMvc.perform(get("/api/helprequests/stream").header("Last-Event-ID", "previousepoch-1"))
+                                .andExpect(request().asyncStarted())
+                                .andReturn();
+                assertEquals(Arrays.asList("3 reset"), events(reset, 1));
+        }
+}
@@ -0,0 +1,156 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.CookieManager;
+import java.net.HttpCookie;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import jakarta.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import edu.ucsb.cs156.example.ExampleApplication;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+
+/**
+ * Fan-out of /api/helprequests/stream over real HTTP: SUBSCRIBERS clients hold a stream open while
+ * EVENTS help requests are created, and the time from each POST until every subscriber has the event
+ * is measured, along with the SQL statements Hibernate issued.  For comparison, the statements for
+ * one round of SUBSCRIBERS clients polling /api/helprequests/all are counted too.
+ *
+ * Skipped by default; run with
+ *
+ *   mvn test -Dtest=HelpRequestStreamLoadIT -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class HelpRequestStreamLoadIT {
+
+        private static final int SUBSCRIBERS = 500;
+        private static final int WARMUP_EVENTS = 20;
+        private static final int EVENTS = 200;
+
+        @Test
+        public void fan_out_to_subscribers_without_per_subscriber_queries() throws Exception {
+                try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ExampleApplication.class,
+                                VirtualThreadsLoadIT.LoadTestLogin.class)
+                                .profiles("integration", "loadtest")
+                                .run("--server.port=0", "--logging.level.root=WARN", "--logging.level.sql=WARN")) {
+                        context.getBean(HelpRequestRepository.class).deleteAll();
+                        Statistics statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+                        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+                        run("http://localhost:" + port, statistics);
+                }
+        }
+
+        private void run(String base, Statistics statistics) throws Exception {
+                CookieManager cookies = new CookieManager();
+                ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+                HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).cookieHandler(cookies).executor(clients).build();
+                try {
+                        http.send(HttpRequest.newBuilder(URI.create(base + "/loadtest/login")).build(), HttpResponse.BodyHandlers.discarding());
+                        String csrf = cookies.getCookieStore().getCookies().stream()
+                                        .filter(c -> c.getName().equals("XSRF-TOKEN"))
+                                        .map(HttpCookie::getValue)
+                                        .findFirst().orElseThrow();
+
+                        // latches[0] counts the ready events, latches[n] the deliveries of event n
+                        CountDownLatch[] latches = new CountDownLatch[WARMUP_EVENTS + EVENTS + 1];
+                        for (int i = 0; i < latches.length; i++) {
+                                latches[i] = new CountDownLatch(SUBSCRIBERS);
+                        }
+                        for (int i = 0; i < SUBSCRIBERS; i++) {
+                                clients.submit(() -> subscribe(http, base, latches));
+                        }
+                        assertTrue(latches[0].await(60, TimeUnit.SECONDS), "subscribers connected");
+
+                        for (int i = 1; i <= WARMUP_EVENTS; i++) {
+                                post(http, base, csrf, latches[i]);
+                        }
+
+                        long statementsBefore = statistics.getPrepareStatementCount();
+                        long[] latencies = new long[EVENTS];
+                        long start = System.nanoTime();
+                        for (int i = 0; i < EVENTS; i++) {
+                                latencies[i] = post(http, base, csrf, latches[WARMUP_EVENTS + 1 + i]);
+                        }
+                        double seconds = (System.nanoTime() - start) / 1e9;
+                        long streamStatements = statistics.getPrepareStatementCount() - statementsBefore;
+
+                        statementsBefore = statistics.getPrepareStatementCount();
+                        List<Future<Integer>> polls = new ArrayList<>();
+                        for (int i = 0; i < SUBSCRIBERS; i++) {
+                                polls.add(clients.submit(() -> http.send(HttpRequest.newBuilder(URI.create(base + "/api/helprequests/all")).build(),
+                                                HttpResponse.BodyHandlers.discarding()).statusCode()));
+                        }
+                        for (Future<Integer> poll : polls) {
+                                assertEquals(200, poll.get());
+                        }
+                        long pollStatements = statistics.getPrepareStatementCount() - statementsBefore;
+
+                        Arrays.sort(latencies);
+                        System.out.printf("%d subscribers, %d events (%,.0f events/s, %,.0f deliveries/s):%n",
+                                        SUBSCRIBERS, EVENTS, EVENTS / seconds, EVENTS * SUBSCRIBERS / seconds);
+                        System.out.printf("  POST to delivered to all subscribers: p50 %,d us  p95 %,d us  p99 %,d us%n",
+                                        percentile(latencies, 50), percentile(latencies, 95), percentile(latencies, 99));
+                        System.out.printf("  SQL statements while streaming: %d (%.1f per event)%n",
+                                        streamStatements, (double) streamStatements / EVENTS);
+                        System.out.printf("  SQL statements for one round of polling /all: %d%n", pollStatements);
+
+                        assertTrue(streamStatements < EVENTS * 5L, "statements do not grow with subscribers");
+                } finally {
+                        http.shutdownNow();
+                        clients.shutdownNow();
+                }
+        }
+
+        private static long post(HttpClient http, String base, String csrf, CountDownLatch delivered) throws Exception {
+                long start = System.nanoTime();
+                HttpResponse<Void> response = http.send(HttpRequest.newBuilder(URI.create(base
+                                + "/api/helprequests/post?requesterEmail=cgaucho@ucsb.edu&teamId=f24-07&tableOrBreakoutRoom=7"
+                                + "&explanation=stuck&solved=false&requestTime=2024-10-23T12:00:00"))
+                                .header("X-XSRF-TOKEN", csrf)
+                                .POST(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.discarding());
+                assertEquals(200, response.statusCode());
+                assertTrue(delivered.await(30, TimeUnit.SECONDS), "event delivered to every subscriber");
+                return System.nanoTime() - start;
+        }
+
+        private static Void subscribe(HttpClient http, String base, CountDownLatch[] latches) throws Exception {
+                HttpResponse<Stream<String>> response = http.send(
+                                HttpRequest.newBuilder(URI.create(base + "/api/helprequests/stream")).build(),
+                                HttpResponse.BodyHandlers.ofLines());
+                response.body().forEach(line -> {
+                        if (line.startsWith("id:")) {
+                                int id = Integer.parseInt(line.substring(3));
+                                if (id < latches.length) {
+                                        latches[id].countDown();
+                                }
+                        }
+                });
+                return null;
+        }
+
+        private static long percentile(long[] sorted, int p) {
+                return sorted[(int) Math.min(sorted.length - 1, (long) sorted.length * p / 100)] / 1_000;
+        }
+}
@@ -0,0 +1,130 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.CookieManager;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import jakarta.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import edu.ucsb.cs156.example.ExampleApplication;
+import edu.ucsb.cs156.example.services.AdminStatusService;
+
+/**
+ * Login throughput over real HTTP, as in a login storm at the start of a lab section: CLIENTS clients
+ * log in through the fake OAuth provider of WiremockServiceImpl over and over for the given time,
+ * first with the admin status cache of AdminStatusService disabled (a zero TTL) and then enabled.
+ * Logins per second, latency percentiles and SQL statements per login are printed for both.
+ *
+ * The fake provider always logs in admingaucho@ucsb.edu, so the app is started with a different
+ * app.admin.emails to make the authorities mapper look the user up in the users table.
+ * Against in-memory H2 that lookup is cheap, so the difference in logins per second is within the
+ * noise of the OAuth round trips; the statements per login show what a Postgres deployment saves
+ * (a round trip to the database per login).
+ *
+ * Skipped by default; run with
+ *
+ *   mvn test -Dtest=LoginLoadIT -Dbenchmark=true
+ *
+ * Optionally set -Dload.clients (default 50) and -Dload.seconds (default 20).
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class LoginLoadIT {
+
+        private static final int CLIENTS = Integer.getInteger("load.clients", 50);
+        private static final int SECONDS = Integer.getInteger("load.seconds", 20);
+        private static final int WARMUP_SECONDS = 10;
+
+        @Test
+        public void logins_do_not_query_the_users_table_for_admin_status() throws Exception {
+                try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ExampleApplication.class)
+                                .profiles("wiremock", "integration")
+                                .run("--server.port=0", "--logging.level.root=WARN", "--logging.level.sql=WARN",
+                                                "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+                                                "--app.admin.emails=phtcon@ucsb.edu",
+                                                "--spring.security.oauth2.client.registration.my-oauth-provider.redirect-uri={baseUrl}/login/oauth2/code/{registrationId}");
+                                ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+                        String base = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+                        Statistics statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+                        AdminStatusService adminStatus = context.getBean(AdminStatusService.class);
+
+                        run(base, clients, WARMUP_SECONDS);
+
+                        cache(adminStatus, Duration.ZERO);
+                        long statementsBefore = statistics.getPrepareStatementCount();
+                        long[] uncached = run(base, clients, SECONDS);
+                        double uncachedStatements = (double) (statistics.getPrepareStatementCount() - statementsBefore) / uncached.length;
+
+                        cache(adminStatus, Duration.ofMinutes(5));
+                        statementsBefore = statistics.getPrepareStatementCount();
+                        long[] cached = run(base, clients, SECONDS);
+                        double cachedStatements = (double) (statistics.getPrepareStatementCount() - statementsBefore) / cached.length;
+
+                        System.out.printf("%d clients logging in for %d s:%n", CLIENTS, SECONDS);
+                        print("admin status cache disabled", uncached, uncachedStatements);
+                        print("admin status cache enabled", cached, cachedStatements);
+
+                        // not quite one per login without the cache, since concurrent logins share a lookup in progress
+                        assertTrue(uncachedStatements > 0.5, "logins look up the user without the cache");
+                        assertTrue(cachedStatements < 0.1, "logins do not look up the user with the cache");
+                }
+        }
+
+        private static void cache(AdminStatusService adminStatus, Duration ttl) {
+                ReflectionTestUtils.setField(adminStatus, "cacheTtl", ttl);
+                ReflectionTestUtils.invokeMethod(adminStatus, "buildCache");
+        }
+
+        /** Logs in repeatedly from each client until the time is up, returning the sorted login latencies. */
+        private static long[] run(String base, ExecutorService clients, int seconds) throws Exception {
+                long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+                List<Future<List<Long>>> futures = new ArrayList<>();
+                for (int i = 0; i < CLIENTS; i++) {
+                        futures.add(clients.submit(() -> {
+                                CookieManager cookies = new CookieManager();
+                                List<Long> latencies = new ArrayList<>();
+                                try (HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).cookieHandler(cookies)
+                                                .followRedirects(HttpClient.Redirect.NEVER).executor(clients).build()) {
+                                        while (System.nanoTime() < deadline) {
+                                                // a new browser each time: no session to reuse
+                                                cookies.getCookieStore().removeAll();
+                                                long start = System.nanoTime();
+                                                ApiLoadIT.login(http, base);
+                                                latencies.add(System.nanoTime() - start);
+                                        }
+                                }
+                                return latencies;
+                        }));
+                }
+                List<Long> all = new ArrayList<>();
+                for (Future<List<Long>> future : futures) {
+                        all.addAll(future.get());
+                }
+                return all.stream().mapToLong(Long::longValue).sorted().toArray();
+        }
+
+        private static void print(String name, long[] sorted, double statementsPerLogin) {
+                System.out.printf("  %s: %,.0f logins/s  p50 %,d us  p95 %,d us  p99 %,d us  %.2f SQL statements per login%n",
+                                name, sorted.length / (double) SECONDS, percentile(sorted, 50), percentile(sorted, 95),
+                                percentile(sorted, 99), statementsPerLogin);
+        }
+
+        private static long percentile(long[] sorted, int p) {
+                return sorted[(int) Math.min(sorted.length - 1, (long) sorted.length * p / 100)] / 1_000;
+        }
+}
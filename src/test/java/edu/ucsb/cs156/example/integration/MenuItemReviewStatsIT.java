@@ -0,0 +1,176 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.CurrentUserService;
+import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+public class MenuItemReviewStatsIT {
+        @Autowired
+        public CurrentUserService currentUserService;
+
+        @Autowired
+        public GrantedAuthoritiesService grantedAuthoritiesService;
+
+        @Autowired
+        public MockMvc mockMvc;
+
+        @MockBean
+        UserRepository userRepository;
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void stats_follow_reviews_as_they_are_posted_edited_and_deleted() throws Exception {
+                // arrange
+
+                postReview(10, 5);
+                postReview(10, 3);
+                postReview(20, 1);
+
+                // act
+                mockMvc.perform(
+                                put("/api/menuitemreview?id=2")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content("{\"itemId\":20,\"reviewerEmail\":\"cgaucho@ucsb.edu\",\"stars\":4,\"comments\":\"better\",\"dateReviewed\":\"2022-01-04T00:00:00\"}")
+                                                .with(csrf()))
+                                .andExpect(status().isOk());
+                mockMvc.perform(delete("/api/menuitemreview?id=3").with(csrf()))
+                                .andExpect(status().isOk());
+
+                // assert
+                MvcResult response = mockMvc.perform(get("/api/menuitemreview/stats"))
+                                .andExpect(status().isOk()).andReturn();
+                String expectedJson = "[{\"itemId\":10,\"reviewCount\":1,\"starSum\":5,\"mean\":5.0,\"histogram\":[0,0,0,0,1]},"
+                                + "{\"itemId\":20,\"reviewCount\":1,\"starSum\":4,\"mean\":4.0,\"histogram\":[0,0,0,1,0]}]";
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void stats_follow_batch_posts_edits_and_deletes() throws Exception {
+                // arrange
+
+                MvcResult posted = mockMvc.perform(
+                                post("/api/menuitemreview/batch")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content("[" + reviewJson(0, 10, 5) + "," + reviewJson(0, 10, 3) + "," + reviewJson(0, 20, 1) + "]")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+                assertEquals("[{\"index\":0,\"id\":1,\"status\":\"created\",\"message\":null},"
+                                + "{\"index\":1,\"id\":2,\"status\":\"created\",\"message\":null},"
+                                + "{\"index\":2,\"id\":3,\"status\":\"created\",\"message\":null}]",
+                                posted.getResponse().getContentAsString());
+
+                // act
+
+                mockMvc.perform(
+                                put("/api/menuitemreview/batch")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content("[" + reviewJson(2, 20, 4) + "," + reviewJson(99, 20, 4) + "]")
+                                                .with(csrf()))
+                                .andExpect(status().isOk());
+                mockMvc.perform(
+                                delete("/api/menuitemreview/batch")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .content("[3, 99]")
+                                                .with(csrf()))
+                                .andExpect(status().isOk());
+
+                // assert
+                MvcResult response = mockMvc.perform(get("/api/menuitemreview/stats"))
+                                .andExpect(status().isOk()).andReturn();
+                String expectedJson = "[{\"itemId\":10,\"reviewCount\":1,\"starSum\":5,\"mean\":5.0,\"histogram\":[0,0,0,0,1]},"
+                                + "{\"itemId\":20,\"reviewCount\":1,\"starSum\":4,\"mean\":4.0,\"histogram\":[0,0,0,1,0]}]";
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void simultaneous_first_reviews_of_an_item_are_all_counted() throws Exception {
+                // arrange
+                int reviews = 8;
+                CountDownLatch start = new CountDownLatch(1);
+                ExecutorService executor = Executors.newFixedThreadPool(reviews);
+                List<Future<Integer>> statuses = new ArrayList<>();
+
+                // act
+                try {
+                        for (int i = 0; i < reviews; i++) {
+                                int stars = 1 + i % 5;
+                                statuses.add(executor.submit(() -> {
+                                        start.await();
+                                        return mockMvc.perform(
+                                                        post("/api/menuitemreview/post?itemId=30&reviewerEmail=cgaucho@ucsb.edu&stars=%d&comments=ok&dateReviewed=2022-01-03T00:00:00"
+                                                                        .formatted(stars))
+                                                                        .with(user("admin").roles("ADMIN", "USER"))
+                                                                        .with(csrf()))
+                                                        .andReturn().getResponse().getStatus();
+                                }));
+                        }
+                        start.countDown();
+                        for (Future<Integer> status : statuses) {
+                                assertEquals(200, status.get());
+                        }
+                } finally {
+                        executor.shutdownNow();
+                }
+
+                // assert
+                MvcResult response = mockMvc.perform(get("/api/menuitemreview/stats"))
+                                .andExpect(status().isOk()).andReturn();
+                String expectedJson = "[{\"itemId\":30,\"reviewCount\":8,\"starSum\":21,\"mean\":2.625,\"histogram\":[2,2,2,1,1]}]";
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        private String reviewJson(long id, long itemId, int stars) {
+                return "{\"id\":%d,\"itemId\":%d,\"reviewerEmail\":\"cgaucho@ucsb.edu\",\"stars\":%d,\"comments\":\"ok\",\"dateReviewed\":\"2022-01-03T00:00:00\"}"
+                                .formatted(id, itemId, stars);
+        }
+
+        private void postReview(long itemId, int stars) throws Exception {
+                mockMvc.perform(
+                                post("/api/menuitemreview/post?itemId=%d&reviewerEmail=cgaucho@ucsb.edu&stars=%d&comments=ok&dateReviewed=2022-01-03T00:00:00"
+                                                .formatted(itemId, stars))
+                                                .with(csrf()))
+                                .andExpect(status().isOk());
+        }
+}
@@ -0,0 +1,92 @@
+package edu.ucsb.cs156.example.integration;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.contains;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.CurrentUserService;
+import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+public class NearbyCommonsIT {
+        // Storke Tower
+        private static final String NEARBY = "/api/ucsbdiningcommons/nearby?lat=34.4125&lon=-119.8486";
+
+        @Autowired
+        public CurrentUserService currentUserService;
+
+        @Autowired
+        public GrantedAuthoritiesService grantedAuthoritiesService;
+
+        @Autowired
+        public MockMvc mockMvc;
+
+        @MockBean
+        UserRepository userRepository;
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void nearby_commons_follow_posts_updates_deletes_and_batches() throws Exception {
+                // arrange
+
+                mockMvc.perform(post("/api/ucsbdiningcommons/post?code=portola&name=Portola&hasSackMeal=true&hasTakeOutMeal=true&hasDiningCam=true&latitude=34.417723&longitude=-119.867427").with(csrf()))
+                                .andExpect(status().isOk());
+                mockMvc.perform(post("/api/ucsbdiningcommons/post?code=ortega&name=Ortega&hasSackMeal=true&hasTakeOutMeal=true&hasDiningCam=true&latitude=34.410987&longitude=-119.84709").with(csrf()))
+                                .andExpect(status().isOk());
+
+                // act and assert
+
+                mockMvc.perform(get(NEARBY))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.length()").value(2))
+                                .andExpect(jsonPath("$[0].commons.code").value("ortega"))
+                                .andExpect(jsonPath("$[0].distanceMeters").value(closeTo(217.9, 0.1)))
+                                .andExpect(jsonPath("$[1].commons.code").value("portola"));
+
+                mockMvc.perform(put("/api/ucsbdiningcommons?code=ortega").with(csrf())
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"code\":\"ortega\",\"name\":\"Ortega\",\"hasSackMeal\":true,\"hasTakeOutMeal\":true,\"hasDiningCam\":true,\"latitude\":34.43,\"longitude\":-119.9}"))
+                                .andExpect(status().isOk());
+                mockMvc.perform(post("/api/ucsbdiningcommons/batch").with(csrf())
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[{\"code\":\"carrillo\",\"name\":\"Carrillo\",\"hasSackMeal\":false,\"hasTakeOutMeal\":false,\"hasDiningCam\":true,\"latitude\":34.409953,\"longitude\":-119.85277}]"))
+                                .andExpect(status().isOk());
+
+                mockMvc.perform(get(NEARBY))
+                                .andExpect(jsonPath("$[*].commons.code").value(contains("carrillo", "portola", "ortega")));
+
+                mockMvc.perform(delete("/api/ucsbdiningcommons?code=carrillo").with(csrf()))
+                                .andExpect(status().isOk());
+                // a rolled back change (here, not found) leaves the index alone
+                mockMvc.perform(delete("/api/ucsbdiningcommons?code=de-la-guerra").with(csrf()))
+                                .andExpect(status().isNotFound());
+
+                mockMvc.perform(get(NEARBY + "&limit=1"))
+                                .andExpect(jsonPath("$.length()").value(1))
+                                .andExpect(jsonPath("$[0].commons.code").value("portola"));
+        }
+}
@@ -0,0 +1,125 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.CurrentUserService;
+import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+public class ReferenceCacheIT {
+        private static final String COMMONS_REGION = "ucsbdiningcommons";
+        private static final String QUERY_REGION = "default-query-results-region";
+
+        @Autowired
+        public CurrentUserService currentUserService;
+
+        @Autowired
+        public GrantedAuthoritiesService grantedAuthoritiesService;
+
+        @Autowired
+        public MockMvc mockMvc;
+
+        @Autowired
+        MeterRegistry meterRegistry;
+
+        @Autowired
+        UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+        @Autowired
+        UCSBOrganizationRepository ucsbOrganizationRepository;
+
+        @MockBean
+        UserRepository userRepository;
+
+        private double requests(String region, String result) {
+                return meterRegistry.get("hibernate.second.level.cache.requests")
+                                .tags("region", region, "result", result).functionCounter().count();
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void commons_are_served_from_the_cache_and_puts_and_deletes_are_seen_immediately() throws Exception {
+                // arrange
+
+                ucsbDiningCommonsRepository.save(UCSBDiningCommons.builder().code("ortega").name("Ortega").build());
+
+                // act and assert
+
+                mockMvc.perform(get("/api/ucsbdiningcommons?code=ortega"))
+                                .andExpect(status().isOk()).andExpect(jsonPath("$.name").value("Ortega"));
+                double hits = requests(COMMONS_REGION, "hit");
+                mockMvc.perform(get("/api/ucsbdiningcommons?code=ortega"))
+                                .andExpect(status().isOk()).andExpect(jsonPath("$.name").value("Ortega"));
+                assertEquals(hits + 1, requests(COMMONS_REGION, "hit"));
+
+                mockMvc.perform(put("/api/ucsbdiningcommons?code=ortega")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"code\":\"ortega\",\"name\":\"Ortega Commons\",\"hasSackMeal\":true,\"hasTakeOutMeal\":true,\"hasDiningCam\":false}")
+                                .with(csrf()))
+                                .andExpect(status().isOk());
+                mockMvc.perform(get("/api/ucsbdiningcommons?code=ortega"))
+                                .andExpect(status().isOk()).andExpect(jsonPath("$.name").value("Ortega Commons"));
+
+                mockMvc.perform(delete("/api/ucsbdiningcommons?code=ortega").with(csrf()))
+                                .andExpect(status().isOk());
+                mockMvc.perform(get("/api/ucsbdiningcommons?code=ortega"))
+                                .andExpect(status().isNotFound());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void all_organizations_are_served_from_the_query_cache_until_the_table_changes() throws Exception {
+                // arrange
+
+                ucsbOrganizationRepository.save(UCSBOrganization.builder().orgCode("ZPR").orgTranslationShort("Zeta Phi Rho")
+                                .orgTranslation("Zeta Phi Rho Fraternity").build());
+
+                // act and assert
+
+                mockMvc.perform(get("/api/ucsborganization/all"))
+                                .andExpect(status().isOk()).andExpect(jsonPath("$.length()").value(1));
+                double hits = requests(QUERY_REGION, "hit");
+                mockMvc.perform(get("/api/ucsborganization/all"))
+                                .andExpect(status().isOk()).andExpect(jsonPath("$.length()").value(1));
+                assertEquals(hits + 1, requests(QUERY_REGION, "hit"));
+
+                mockMvc.perform(post("/api/ucsborganization/post?orgCode=OSLI&orgTranslationShort=Student%20Life&orgTranslation=Office%20of%20Student%20Life&inactive=false")
+                                .with(csrf()))
+                                .andExpect(status().isOk());
+                mockMvc.perform(get("/api/ucsborganization/all"))
+                                .andExpect(status().isOk()).andExpect(jsonPath("$.length()").value(2));
+                assertEquals(hits + 1, requests(QUERY_REGION, "hit"));
+        }
+}
@@ -0,0 +1,156 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.CookieManager;
+import java.net.HttpCookie;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.InflaterInputStream;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+import org.springframework.security.oauth2.core.user.OAuth2UserAuthority;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import edu.ucsb.cs156.example.ExampleApplication;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Two instances of the app on one machine, started with app.session.store=jdbc and sharing one
+ * database (a named in-memory H2 database standing in for Postgres), as behind a load balancer:
+ * a login made on one instance is served, and logged out, by the other.
+ *
+ * The size of the stored login (the security context attribute) is printed, compressed as stored and
+ * as plain Java serialization.
+ */
+public class SharedSessionIT {
+
+        /**
+         * Stands in for the OAuth login: stores the security context of a Google login in the session, as
+         * the login filter does.  Only active in the sharedsession profile, so other test contexts never see it.
+         */
+        @Profile("sharedsession")
+        @RestController
+        public static class SharedSessionLogin {
+                @GetMapping("/sharedsession/login")
+                public void login(HttpServletRequest request, HttpServletResponse response) {
+                        Map<String, Object> attributes = Map.of("sub", "107126842018026740288", "email", "cgaucho@ucsb.edu",
+                                        "email_verified", true, "name", "Chris Gaucho", "given_name", "Chris", "family_name", "Gaucho",
+                                        "hd", "ucsb.edu", "locale", "en", "picture", "https://lh3.googleusercontent.com/a/photo");
+                        List<GrantedAuthority> authorities = List.of(new OAuth2UserAuthority(attributes),
+                                        new SimpleGrantedAuthority("ROLE_USER"), new SimpleGrantedAuthority("ROLE_MEMBER"));
+                        SecurityContext context = SecurityContextHolder.createEmptyContext();
+                        context.setAuthentication(new OAuth2AuthenticationToken(new DefaultOAuth2User(authorities, attributes, "sub"),
+                                        authorities, "my-oauth-provider"));
+                        new HttpSessionSecurityContextRepository().saveContext(context, request, response);
+                }
+        }
+
+        @Test
+        public void login_on_one_instance_is_shared_with_the_other() throws Exception {
+                String database = "jdbc:h2:mem:sharedsession-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+                try (ConfigurableApplicationContext a = start(database); ConfigurableApplicationContext b = start(database);
+                                HttpClient http = HttpClient.newBuilder().cookieHandler(new CookieManager()).build()) {
+                        String baseA = base(a);
+                        String baseB = base(b);
+
+                        // log in on A; the client's cookies for localhost go to both instances
+                        assertEquals(200, send(http, HttpRequest.newBuilder(URI.create(baseA + "/sharedsession/login"))).statusCode());
+                        String session = cookie(http, "SESSION");
+                        String csrf = cookie(http, "XSRF-TOKEN");
+                        assertNotNull(session);
+
+                        HttpResponse<String> onA = send(http, HttpRequest.newBuilder(URI.create(baseA + "/api/currentUser")));
+                        HttpResponse<String> onB = send(http, HttpRequest.newBuilder(URI.create(baseB + "/api/currentUser")));
+                        assertEquals(200, onA.statusCode());
+                        assertEquals(200, onB.statusCode());
+                        assertTrue(onB.body().contains("\"email\":\"cgaucho@ucsb.edu\""), onB.body());
+                        assertTrue(onB.body().contains("ROLE_MEMBER"), onB.body());
+
+                        JdbcTemplate jdbcTemplate = b.getBean(JdbcTemplate.class);
+                        assertEquals(1.0, b.getBean(MeterRegistry.class).get("sessions.stored").gauge().value());
+                        byte[] stored = jdbcTemplate.queryForObject(
+                                        "SELECT ATTRIBUTE_BYTES FROM SPRING_SESSION_ATTRIBUTES WHERE ATTRIBUTE_NAME = ?", byte[].class,
+                                        HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY);
+                        int plain = plainSerializedSize(stored);
+                        System.out.printf("stored security context: %,d bytes (%,d bytes with plain Java serialization)%n",
+                                        stored.length, plain);
+                        assertTrue(stored.length < plain);
+                        assertEquals(1, a.getBean(MeterRegistry.class).get("sessions.attribute.size")
+                                        .tags("type", "SecurityContextImpl").summary().count());
+
+                        // log out on B; A no longer accepts the session
+                        HttpResponse<String> logout = send(http, HttpRequest.newBuilder(URI.create(baseB + "/logout"))
+                                        .header("X-XSRF-TOKEN", csrf).POST(HttpRequest.BodyPublishers.noBody()));
+                        assertEquals(302, logout.statusCode());
+                        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM SPRING_SESSION", Long.class));
+                        HttpResponse<String> afterLogout = send(HttpClient.newHttpClient(),
+                                        HttpRequest.newBuilder(URI.create(baseA + "/api/currentUser")).header("Cookie", "SESSION=" + session));
+                        assertEquals(403, afterLogout.statusCode());
+                }
+        }
+
+        private static ConfigurableApplicationContext start(String database) {
+                return new SpringApplicationBuilder(ExampleApplication.class, SharedSessionLogin.class)
+                                .profiles("integration", "sharedsession")
+                                .run("--server.port=0", "--logging.level.root=WARN", "--logging.level.sql=WARN",
+                                                "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+                                                "--app.session.store=jdbc", "--spring.datasource.url=" + database);
+        }
+
+        private static String base(ConfigurableApplicationContext context) {
+                return "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+        }
+
+        private static HttpResponse<String> send(HttpClient http, HttpRequest.Builder request) throws Exception {
+                return http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        }
+
+        private static String cookie(HttpClient http, String name) {
+                return ((CookieManager) http.cookieHandler().orElseThrow()).getCookieStore().getCookies().stream()
+                                .filter(c -> c.getName().equals(name))
+                                .map(HttpCookie::getValue)
+                                .findFirst().orElse(null);
+        }
+
+        /** The size of the stored attribute had it been written with plain Java serialization. */
+        private static int plainSerializedSize(byte[] stored) throws Exception {
+                Object attribute;
+                try (ObjectInputStream in = new ObjectInputStream(
+                                new InflaterInputStream(new ByteArrayInputStream(stored)))) {
+                        attribute = in.readObject();
+                }
+                ByteArrayOutputStream plain = new ByteArrayOutputStream();
+                try (ObjectOutputStream out = new ObjectOutputStream(plain)) {
+                        out.writeObject(attribute);
+                }
+                return plain.size();
+        }
+}
@@ -0,0 +1,280 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.cookie;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.servlet.http.Cookie;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+import org.springframework.security.oauth2.core.user.OAuth2UserAuthority;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import edu.ucsb.cs156.example.config.SessionTokenRepository;
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.AdminStatusService;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+                "app.session.stateless=true",
+                "app.session.jwt.secret=" + StatelessSessionIT.SECRET })
+@AutoConfigureMockMvc
+@ActiveProfiles("integration")
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+public class StatelessSessionIT {
+
+        static final String SECRET = "an integration test secret of 32+ bytes";
+
+        @Autowired
+        public MockMvc mockMvc;
+
+        @Autowired
+        SessionTokenRepository sessionTokenRepository;
+
+        @Autowired
+        ClientRegistrationRepository clientRegistrationRepository;
+
+        @Autowired
+        ObjectMapper mapper;
+
+        @Autowired
+        EntityManagerFactory entityManagerFactory;
+
+        @Autowired
+        AdminStatusService adminStatusService;
+
+        @Autowired
+        UserRepository userRepository;
+
+        @AfterEach
+        public void clearSecurityContext() {
+                SecurityContextHolder.clearContext();
+        }
+
+        @Test
+        public void current_user_is_served_from_the_token_without_a_session_or_database_lookup() throws Exception {
+                // arrange
+
+                Cookie token = login(sessionTokenRepository);
+                Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+                long statementsBefore = statistics.getPrepareStatementCount();
+
+                // act
+
+                MvcResult response = mockMvc.perform(get("/api/currentUser").cookie(token))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.user.email").value("cgaucho@ucsb.edu"))
+                                .andExpect(jsonPath("$.roles[?(@.authority == 'ROLE_MEMBER')]").exists())
+                                .andReturn();
+
+                // assert
+
+                assertNull(response.getRequest().getSession(false));
+                assertNull(response.getResponse().getCookie(SessionTokenRepository.COOKIE), "token is not renewed yet");
+                assertEquals(statementsBefore, statistics.getPrepareStatementCount());
+        }
+
+        @Test
+        public void token_signed_with_another_key_is_ignored() throws Exception {
+                // arrange
+
+                SessionTokenRepository otherKey = new SessionTokenRepository("some other secret that is 32+ bytes",
+                                Duration.ofMinutes(30), Duration.ofHours(12), clientRegistrationRepository, () -> null,
+                                adminStatusService, mapper);
+                Cookie token = login(otherKey);
+
+                // act and assert
+
+                mockMvc.perform(get("/api/currentUser").cookie(token))
+                                .andExpect(status().isForbidden());
+        }
+
+        @Test
+        public void token_from_another_instance_near_expiry_is_accepted_and_renewed() throws Exception {
+                // arrange
+
+                SessionTokenRepository otherInstance = new SessionTokenRepository(SECRET, Duration.ofMinutes(1),
+                                Duration.ofHours(12), clientRegistrationRepository, () -> null, adminStatusService, mapper);
+                Cookie token = login(otherInstance);
+
+                // act
+
+                MvcResult response = mockMvc.perform(get("/api/currentUser").cookie(token))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.user.email").value("cgaucho@ucsb.edu"))
+                                .andExpect(cookie().maxAge(SessionTokenRepository.COOKIE, 30 * 60))
+                                .andReturn();
+
+                // assert
+
+                assertNotEquals(token.getValue(), response.getResponse().getCookie(SessionTokenRepository.COOKIE).getValue());
+        }
+
+        @Test
+        public void renewal_drops_admin_role_of_a_user_who_is_no_longer_an_admin() throws Exception {
+                // arrange
+
+                SessionTokenRepository otherInstance = new SessionTokenRepository(SECRET, Duration.ofMinutes(1),
+                                Duration.ofHours(12), clientRegistrationRepository, () -> null, adminStatusService, mapper);
+                Cookie token = login(otherInstance, "ROLE_ADMIN");
+
+                // act
+
+                MvcResult response = mockMvc.perform(get("/api/currentUser").cookie(token))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.roles[?(@.authority == 'ROLE_ADMIN')]").exists())
+                                .andReturn();
+                Cookie renewed = response.getResponse().getCookie(SessionTokenRepository.COOKIE);
+
+                // assert
+
+                mockMvc.perform(get("/api/currentUser").cookie(renewed))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.roles[?(@.authority == 'ROLE_MEMBER')]").exists())
+                                .andExpect(jsonPath("$.roles[?(@.authority == 'ROLE_ADMIN')]").doesNotExist());
+        }
+
+        @Test
+        public void renewal_reloads_the_user_of_someone_made_an_admin_since_login() throws Exception {
+                // arrange
+
+                User user = userRepository.save(User.builder().email("cgaucho@ucsb.edu").googleSub("107126842018026740288")
+                                .fullName("Chris Gaucho").admin(false).build());
+                SessionTokenRepository otherInstance = new SessionTokenRepository(SECRET, Duration.ofMinutes(1),
+                                Duration.ofHours(12), clientRegistrationRepository, () -> user, adminStatusService, mapper);
+                Cookie token = login(otherInstance);
+                mockMvc.perform(get("/api/currentUser").cookie(token))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.user.admin").value(false));
+
+                user.setAdmin(true);
+                adminStatusService.userSaved(userRepository.save(user));
+
+                // act
+
+                MvcResult response = mockMvc.perform(get("/api/currentUser").cookie(token))
+                                .andExpect(status().isOk())
+                                .andReturn();
+                Cookie renewed = response.getResponse().getCookie(SessionTokenRepository.COOKIE);
+
+                // assert
+
+                mockMvc.perform(get("/api/currentUser").cookie(renewed))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.user.admin").value(true))
+                                .andExpect(jsonPath("$.roles[?(@.authority == 'ROLE_ADMIN')]").exists());
+        }
+
+        @Test
+        public void token_is_not_renewed_past_the_max_lifetime() throws Exception {
+                // arrange
+
+                SessionTokenRepository otherInstance = new SessionTokenRepository(SECRET, Duration.ofMinutes(1),
+                                Duration.ofMinutes(1), clientRegistrationRepository, () -> null, adminStatusService, mapper);
+                Cookie token = login(otherInstance);
+
+                // act
+
+                MvcResult response = mockMvc.perform(get("/api/currentUser").cookie(token))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.user.email").value("cgaucho@ucsb.edu"))
+                                .andReturn();
+
+                // assert
+
+                assertNull(response.getResponse().getCookie(SessionTokenRepository.COOKIE));
+        }
+
+        @Test
+        public void logout_deletes_the_token() throws Exception {
+                // arrange
+
+                Cookie token = login(sessionTokenRepository);
+
+                // act and assert
+
+                mockMvc.perform(post("/logout").cookie(token).with(csrf()))
+                                .andExpect(status().is3xxRedirection())
+                                .andExpect(cookie().maxAge(SessionTokenRepository.COOKIE, 0));
+        }
+
+        @Test
+        public void oauth_login_redirect_keeps_the_authorization_request_in_a_cookie() throws Exception {
+                // act
+
+                MvcResult response = mockMvc.perform(get("/oauth2/authorization/my-oauth-provider"))
+                                .andExpect(status().is3xxRedirection())
+                                .andExpect(cookie().exists("OAUTH2_AUTHORIZATION_REQUEST"))
+                                .andReturn();
+
+                // assert
+
+                assertNull(response.getRequest().getSession(false));
+                assertTrue(response.getResponse().getRedirectedUrl().startsWith("http://localhost:8090/oauth/authorize"));
+        }
+
+        /**
+         * Saves an OAuth2 login of cgaucho@ucsb.edu, with ROLE_USER, ROLE_MEMBER and any other roles given,
+         * as the login filter does, returning the token cookie.
+         */
+        private Cookie login(SessionTokenRepository repository, String... roles) {
+                Map<String, Object> attributes = Map.of("sub", "107126842018026740288", "email", "cgaucho@ucsb.edu",
+                                "email_verified", true, "name", "Chris Gaucho", "given_name", "Chris", "family_name", "Gaucho",
+                                "hd", "ucsb.edu", "locale", "en", "picture", "https://lh3.googleusercontent.com/a/photo");
+                List<org.springframework.security.core.GrantedAuthority> authorities = new ArrayList<>(List.of(
+                                new OAuth2UserAuthority(attributes), new SimpleGrantedAuthority("ROLE_USER"),
+                                new SimpleGrantedAuthority("ROLE_MEMBER")));
+                for (String role : roles) {
+                        authorities.add(new SimpleGrantedAuthority(role));
+                }
+                SecurityContext context = SecurityContextHolder.createEmptyContext();
+                context.setAuthentication(new OAuth2AuthenticationToken(new DefaultOAuth2User(authorities, attributes, "sub"),
+                                authorities, "my-oauth-provider"));
+                SecurityContextHolder.setContext(context);
+
+                MockHttpServletResponse response = new MockHttpServletResponse();
+                repository.saveContext(context, new MockHttpServletRequest(), response);
+                SecurityContextHolder.clearContext();
+
+                String setCookie = response.getHeader(HttpHeaders.SET_COOKIE);
+                String value = setCookie.substring(setCookie.indexOf('=') + 1, setCookie.indexOf(';'));
+                return new Cookie(SessionTokenRepository.COOKIE, value);
+        }
+}
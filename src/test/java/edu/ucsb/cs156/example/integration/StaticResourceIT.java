@@ -0,0 +1,80 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.zip.GZIPInputStream;
+import java.io.ByteArrayInputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+
+/**
+ * Serving of the precompressed frontend build.  The fixture under src/test/resources/public/static
+ * was precompressed with frontend/scripts/precompress.js.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+public class StaticResourceIT {
+        private static final String ASSET = "/static/js/main.3f2a1b9c.js";
+        private static final String IMMUTABLE = "max-age=31536000, public, immutable";
+
+        @Autowired
+        public MockMvc mockMvc;
+
+        @MockBean
+        UserRepository userRepository;
+
+        private byte[] fixture(String suffix) throws Exception {
+                return new ClassPathResource("public" + ASSET + suffix).getContentAsByteArray();
+        }
+
+        @Test
+        public void hashed_assets_are_sent_brotli_compressed_and_cached_for_a_year() throws Exception {
+                mockMvc.perform(get(ASSET).header("Accept-Encoding", "gzip, deflate, br"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("Content-Encoding", "br"))
+                                .andExpect(header().string("Cache-Control", IMMUTABLE))
+                                .andExpect(header().string("Vary", "Accept-Encoding"))
+                                .andExpect(content().contentTypeCompatibleWith("text/javascript"))
+                                .andExpect(content().bytes(fixture(".br")));
+        }
+
+        @Test
+        public void hashed_assets_are_sent_gzipped_to_clients_without_brotli() throws Exception {
+                byte[] body = mockMvc.perform(get(ASSET).header("Accept-Encoding", "gzip"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("Content-Encoding", "gzip"))
+                                .andExpect(header().string("Cache-Control", IMMUTABLE))
+                                .andReturn().getResponse().getContentAsByteArray();
+
+                try (GZIPInputStream unzipped = new GZIPInputStream(new ByteArrayInputStream(body))) {
+                        assertEquals(new String(fixture("")), new String(unzipped.readAllBytes()));
+                }
+        }
+
+        @Test
+        public void hashed_assets_are_sent_uncompressed_when_no_encoding_is_accepted() throws Exception {
+                mockMvc.perform(get(ASSET))
+                                .andExpect(status().isOk())
+                                .andExpect(header().doesNotExist("Content-Encoding"))
+                                .andExpect(content().bytes(fixture("")));
+        }
+}
@@ -0,0 +1,139 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import jakarta.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+
+import java.time.LocalDateTime;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.CurrentUserService;
+import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+public class UCSBDateCalendarIT {
+        private static final String QUARTER_REGION = "ucsbdatesbyquarter";
+
+        @Autowired
+        public CurrentUserService currentUserService;
+
+        @Autowired
+        public GrantedAuthoritiesService grantedAuthoritiesService;
+
+        @Autowired
+        public MockMvc mockMvc;
+
+        @Autowired
+        UCSBDateRepository ucsbDateRepository;
+
+        @Autowired
+        EntityManagerFactory entityManagerFactory;
+
+        @Autowired
+        JdbcTemplate jdbcTemplate;
+
+        @MockBean
+        UserRepository userRepository;
+
+        private void save(String quarterYYYYQ, String name, String localDateTime) {
+                ucsbDateRepository.save(UCSBDate.builder().quarterYYYYQ(quarterYYYYQ).name(name)
+                                .localDateTime(LocalDateTime.parse(localDateTime)).build());
+        }
+
+        private long hits() {
+                CacheRegionStatistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics()
+                                .getCacheRegionStatistics(QUARTER_REGION);
+                return statistics == null ? 0 : statistics.getHitCount();
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void quarters_and_ranges_are_returned_in_date_order() throws Exception {
+                // arrange
+
+                save("20222", "lastDayOfClasses", "2022-06-03T00:00:00");
+                save("20222", "firstDayOfClasses", "2022-03-28T00:00:00");
+                save("20221", "lastDayOfClasses", "2022-03-11T00:00:00");
+                save("20221", "firstDayOfClasses", "2022-01-03T00:00:00");
+
+                // act and assert
+
+                mockMvc.perform(get("/api/ucsbdates/quarter/20222"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$[*].localDateTime", contains("2022-03-28T00:00:00", "2022-06-03T00:00:00")));
+                mockMvc.perform(get("/api/ucsbdates/quarter/20223"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.length()").value(0));
+                mockMvc.perform(get("/api/ucsbdates/range?from=2022-03-01T00:00:00&to=2022-03-28T00:00:00"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$[*].localDateTime", contains("2022-03-11T00:00:00", "2022-03-28T00:00:00")));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void a_quarter_is_served_from_the_query_cache_until_the_table_changes() throws Exception {
+                // arrange
+
+                save("20221", "firstDayOfClasses", "2022-01-03T00:00:00");
+
+                // act and assert
+
+                mockMvc.perform(get("/api/ucsbdates/quarter/20221"))
+                                .andExpect(status().isOk()).andExpect(jsonPath("$.length()").value(1));
+                long hits = hits();
+                mockMvc.perform(get("/api/ucsbdates/quarter/20221"))
+                                .andExpect(status().isOk()).andExpect(jsonPath("$.length()").value(1));
+                assertEquals(hits + 1, hits());
+
+                mockMvc.perform(post("/api/ucsbdates/post?quarterYYYYQ=20221&name=lastDayOfClasses&localDateTime=2022-03-11T00:00:00")
+                                .with(csrf()))
+                                .andExpect(status().isOk());
+                mockMvc.perform(get("/api/ucsbdates/quarter/20221"))
+                                .andExpect(status().isOk()).andExpect(jsonPath("$.length()").value(2));
+                assertEquals(hits + 1, hits());
+        }
+
+        @Test
+        public void quarter_and_range_queries_use_the_date_indexes() {
+                String quarterPlan = jdbcTemplate.queryForObject(
+                                "EXPLAIN SELECT * FROM UCSBDATES WHERE QUARTERYYYYQ = '20221' ORDER BY LOCAL_DATE_TIME, ID", String.class);
+                assertThat(quarterPlan, containsString("UCSBDATES_QUARTER_DATE_IDX"));
+
+                String rangePlan = jdbcTemplate.queryForObject(
+                                "EXPLAIN SELECT * FROM UCSBDATES WHERE LOCAL_DATE_TIME BETWEEN TIMESTAMP '2022-01-01 00:00:00'"
+                                                + " AND TIMESTAMP '2022-01-31 00:00:00' ORDER BY LOCAL_DATE_TIME, ID", String.class);
+                assertThat(rangePlan, containsString("UCSBDATES_DATE_IDX"));
+        }
+}
@@ -0,0 +1,93 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+
+/**
+ * Benchmark of UserRepository.findByEmail at 100k users, with and without USERS_EMAIL_IDX.
+ *
+ * Skipped by default; run with
+ *
+ *   mvn test -Dtest=UserEmailLookupIT -Dbenchmark=true
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = { "logging.level.sql=INFO" })
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class UserEmailLookupIT {
+
+        private static final int USERS = 100_000;
+        private static final int WARMUP_LOOKUPS = 500;
+        private static final int LOOKUPS = 2_000;
+
+        @Autowired
+        UserRepository userRepository;
+
+        @Autowired
+        JdbcTemplate jdbcTemplate;
+
+        @Test
+        public void findByEmail_is_faster_with_unique_index_on_email() {
+
+                // arrange
+
+                List<Object[]> rows = new ArrayList<>(USERS);
+                for (int i = 0; i < USERS; i++) {
+                        rows.add(new Object[] { "user" + i + "@ucsb.edu" });
+                }
+                jdbcTemplate.batchUpdate(
+                                "INSERT INTO USERS (EMAIL, ADMIN, EMAIL_VERIFIED) VALUES (?, FALSE, TRUE)", rows);
+                assertEquals(USERS, userRepository.count());
+
+                // act
+
+                jdbcTemplate.execute("DROP INDEX USERS_EMAIL_IDX");
+                double withoutIndex = meanLookupMicros();
+
+                jdbcTemplate.execute("CREATE UNIQUE INDEX USERS_EMAIL_IDX ON USERS (EMAIL)");
+                double withIndex = meanLookupMicros();
+
+                // assert
+
+                System.out.printf("findByEmail at %d users: %.1f us without index, %.1f us with USERS_EMAIL_IDX%n",
+                                USERS, withoutIndex, withIndex);
+                assertTrue(withIndex < withoutIndex);
+        }
+
+        private double meanLookupMicros() {
+                Random random = new Random(156);
+                for (int i = 0; i < WARMUP_LOOKUPS; i++) {
+                        lookup(random);
+                }
+                long start = System.nanoTime();
+                for (int i = 0; i < LOOKUPS; i++) {
+                        lookup(random);
+                }
+                return (System.nanoTime() - start) / 1_000.0 / LOOKUPS;
+        }
+
+        private void lookup(Random random) {
+                String email = "user" + random.nextInt(USERS) + "@ucsb.edu";
+                User user = userRepository.findByEmail(email).orElseThrow();
+                assertEquals(email, user.getEmail());
+        }
+}
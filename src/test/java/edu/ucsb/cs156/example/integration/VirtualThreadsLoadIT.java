@@ -0,0 +1,298 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.net.CookieManager;
+import java.net.HttpCookie;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import edu.ucsb.cs156.example.ExampleApplication;
+
+/**
+ * Load test of the CRUD controllers over real HTTP, comparing Tomcat's platform
+ * thread pool with the virtualthreads profile.
+ *
+ * Each of CLIENTS concurrent clients is assigned one of the CRUD resources (RESOURCES, round robin)
+ * and repeatedly creates, reads, pages, updates and deletes an entity of it; throughput and
+ * latency percentiles are printed for both modes, overall and per resource.
+ *
+ * Skipped by default; run with
+ *
+ *   mvn test -Dtest=VirtualThreadsLoadIT -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class VirtualThreadsLoadIT {
+
+        private static final int CLIENTS = 1_000;
+        private static final int WARMUP_CYCLES = 2;
+        private static final int CYCLES = 10;
+
+        /**
+         * Stands in for the OAuth login: stores an authenticated session for the load test clients.
+         * Only active in the loadtest profile, so other test contexts never see it.
+         */
+        @Profile("loadtest")
+        @RestController
+        public static class LoadTestLogin {
+                @GetMapping("/loadtest/login")
+                public void login(HttpServletRequest request, HttpServletResponse response) {
+                        SecurityContext context = SecurityContextHolder.createEmptyContext();
+                        context.setAuthentication(UsernamePasswordAuthenticationToken.authenticated("loadtest", null,
+                                        AuthorityUtils.createAuthorityList("ROLE_USER", "ROLE_ADMIN")));
+                        new HttpSessionSecurityContextRepository().saveContext(context, request, response);
+                }
+        }
+
+        /**
+         * A CRUD resource: its path, the name of its id parameter ("id" when the id is generated, otherwise
+         * the entity's name is its id), and the query string that creates and the JSON body that updates
+         * an entity, given the client number and the entity's name.
+         */
+        record Resource(String path, String idParam, BiFunction<Integer, String, String> create,
+                        BiFunction<Integer, String, String> update) {
+        }
+
+        private static final String DATE = "2024-10-01T12:00:00";
+
+        private static final List<Resource> RESOURCES = List.of(
+                        new Resource("/api/restaurants", "id",
+                                        (client, name) -> "name=" + name + "&description=load",
+                                        (client, name) -> "{\"name\":\"" + name + "\",\"description\":\"updated\"}"),
+                        new Resource("/api/ucsbdates", "id",
+                                        (client, name) -> "quarterYYYYQ=20244&name=" + name + "&localDateTime=" + DATE,
+                                        (client, name) -> "{\"quarterYYYYQ\":\"20251\",\"name\":\"" + name
+                                                        + "\",\"localDateTime\":\"" + DATE + "\"}"),
+                        new Resource("/api/articles", "id",
+                                        (client, name) -> "title=" + name + "&url=https://example.org/" + name
+                                                        + "&explanation=load&email=load@ucsb.edu&dateAdded=" + DATE,
+                                        (client, name) -> "{\"title\":\"" + name + "\",\"url\":\"https://example.org/" + name
+                                                        + "\",\"explanation\":\"updated\",\"email\":\"load@ucsb.edu\",\"dateAdded\":\""
+                                                        + DATE + "\"}"),
+                        new Resource("/api/helprequests", "id",
+                                        (client, name) -> "requesterEmail=load@ucsb.edu&teamId=f24-07&tableOrBreakoutRoom=7&explanation="
+                                                        + name + "&solved=false&requestTime=" + DATE,
+                                        (client, name) -> "{\"requesterEmail\":\"load@ucsb.edu\",\"teamId\":\"f24-07\","
+                                                        + "\"tableOrBreakoutRoom\":\"7\",\"explanation\":\"" + name
+                                                        + "\",\"solved\":true,\"requestTime\":\"" + DATE + "\"}"),
+                        // one menu item per client, so that clients do not all update the same review stats row
+                        new Resource("/api/menuitemreview", "id",
+                                        (client, name) -> "itemId=" + client + "&reviewerEmail=load@ucsb.edu&stars=4&comments=" + name
+                                                        + "&dateReviewed=" + DATE,
+                                        (client, name) -> "{\"itemId\":" + client + ",\"reviewerEmail\":\"load@ucsb.edu\",\"stars\":5,"
+                                                        + "\"comments\":\"" + name + "\",\"dateReviewed\":\"" + DATE + "\"}"),
+                        new Resource("/api/recommendationrequest", "id",
+                                        (client, name) -> "requesterEmail=load@ucsb.edu&professorEmail=prof@ucsb.edu&explanation=" + name
+                                                        + "&dateRequested=" + DATE + "&dateNeeded=" + DATE + "&done=false",
+                                        (client, name) -> "{\"requesterEmail\":\"load@ucsb.edu\",\"professorEmail\":\"prof@ucsb.edu\","
+                                                        + "\"explanation\":\"" + name + "\",\"dateRequested\":\"" + DATE
+                                                        + "\",\"dateNeeded\":\"" + DATE + "\",\"done\":true}"),
+                        new Resource("/api/ucsbdiningcommonsmenuitems", "id",
+                                        (client, name) -> "diningCommonsCode=ortega&name=" + name + "&station=grill",
+                                        (client, name) -> "{\"diningCommonsCode\":\"ortega\",\"name\":\"" + name
+                                                        + "\",\"station\":\"salad bar\"}"),
+                        new Resource("/api/ucsborganization", "orgCode",
+                                        (client, name) -> "orgCode=" + name + "&orgTranslationShort=load&orgTranslation=load&inactive=false",
+                                        (client, name) -> "{\"orgCode\":\"" + name + "\",\"orgTranslationShort\":\"load\","
+                                                        + "\"orgTranslation\":\"updated\",\"inactive\":true}"),
+                        new Resource("/api/ucsbdiningcommons", "code",
+                                        (client, name) -> "code=" + name + "&name=load&hasSackMeal=false&hasTakeOutMeal=false"
+                                                        + "&hasDiningCam=false&latitude=34.41&longitude=-119.85",
+                                        (client, name) -> "{\"code\":\"" + name + "\",\"name\":\"updated\",\"hasSackMeal\":true,"
+                                                        + "\"hasTakeOutMeal\":false,\"hasDiningCam\":false,\"latitude\":34.41,"
+                                                        + "\"longitude\":-119.85}"));
+
+        record Result(double requestsPerSecond, long p50Micros, long p95Micros, long p99Micros, int errors) {
+        }
+
+        @Test
+        public void compare_platform_and_virtual_threads() throws Exception {
+                Map<String, Result> platform = run("integration", "loadtest");
+                Map<String, Result> virtual = run("integration", "loadtest", "virtualthreads");
+
+                System.out.printf("%d clients, CRUD of %d resources:%n", CLIENTS, RESOURCES.size());
+                for (String resource : platform.keySet()) {
+                        System.out.printf("  %s%n", resource);
+                        print("platform threads", platform.get(resource));
+                        print("virtual threads", virtual.get(resource));
+                }
+
+                assertEquals(0, platform.get(ALL).errors());
+                assertEquals(0, virtual.get(ALL).errors());
+        }
+
+        private static final String ALL = "all resources";
+
+        private static void print(String mode, Result result) {
+                System.out.printf("    %-17s %,8.0f req/s  p50 %,d us  p95 %,d us  p99 %,d us  errors %d%n", mode + ":",
+                                result.requestsPerSecond(), result.p50Micros(), result.p95Micros(), result.p99Micros(),
+                                result.errors());
+        }
+
+        private Map<String, Result> run(String... profiles) throws Exception {
+                try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ExampleApplication.class, LoadTestLogin.class)
+                                .profiles(profiles)
+                                .run("--server.port=0", "--logging.level.root=WARN", "--logging.level.sql=WARN",
+                                                "--server.tomcat.accept-count=" + CLIENTS)) {
+                        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+                        return load("http://localhost:" + port);
+                }
+        }
+
+        private Map<String, Result> load(String base) throws Exception {
+                CookieManager cookies = new CookieManager();
+                try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+                                HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).cookieHandler(cookies).executor(clients).build()) {
+                        send(http, HttpRequest.newBuilder(URI.create(base + "/loadtest/login")).build());
+                        String csrf = cookies.getCookieStore().getCookies().stream()
+                                        .filter(c -> c.getName().equals("XSRF-TOKEN"))
+                                        .map(HttpCookie::getValue)
+                                        .findFirst().orElseThrow();
+                        Client client = new Client(http, base, csrf);
+
+                        runClients(clients, client, WARMUP_CYCLES);
+                        client.reset();
+
+                        long start = System.nanoTime();
+                        runClients(clients, client, CYCLES);
+                        double seconds = (System.nanoTime() - start) / 1e9;
+
+                        Map<String, Result> results = new LinkedHashMap<>();
+                        results.put(ALL, result(client.latencies(null), seconds, client.errors(null)));
+                        for (Resource resource : RESOURCES) {
+                                results.put(resource.path(),
+                                                result(client.latencies(resource), seconds, client.errors(resource)));
+                        }
+                        return results;
+                }
+        }
+
+        private static Result result(long[] latencies, double seconds, int errors) {
+                Arrays.sort(latencies);
+                return new Result(latencies.length / seconds, percentile(latencies, 50), percentile(latencies, 95),
+                                percentile(latencies, 99), errors);
+        }
+
+        private void runClients(ExecutorService clients, Client client, int cycles) throws Exception {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int i = 0; i < CLIENTS; i++) {
+                        int id = i;
+                        futures.add(clients.submit(() -> {
+                                for (int c = 0; c < cycles; c++) {
+                                        client.cycle(id, c);
+                                }
+                                return null;
+                        }));
+                }
+                for (Future<?> future : futures) {
+                        future.get();
+                }
+        }
+
+        private static long percentile(long[] sorted, int p) {
+                return sorted[(int) Math.min(sorted.length - 1, (long) sorted.length * p / 100)] / 1_000;
+        }
+
+        private static HttpResponse<String> send(HttpClient http, HttpRequest request) throws Exception {
+                return http.send(request, HttpResponse.BodyHandlers.ofString());
+        }
+
+        private static class Client {
+                private final HttpClient http;
+                private final String base;
+                private final String csrf;
+                private final Map<Resource, AtomicInteger> errors = new ConcurrentHashMap<>();
+                private final Map<Resource, ConcurrentLinkedQueue<Long>> latencies = new ConcurrentHashMap<>();
+
+                Client(HttpClient http, String base, String csrf) {
+                        this.http = http;
+                        this.base = base;
+                        this.csrf = csrf;
+                }
+
+                void reset() {
+                        errors.clear();
+                        latencies.clear();
+                }
+
+                /** The latencies of the given resource's requests, or of all requests for null. */
+                long[] latencies(Resource resource) {
+                        return latencies.entrySet().stream()
+                                        .filter(e -> resource == null || e.getKey().equals(resource))
+                                        .flatMap(e -> e.getValue().stream())
+                                        .mapToLong(Long::longValue).toArray();
+                }
+
+                /** The errors of the given resource's requests, or of all requests for null. */
+                int errors(Resource resource) {
+                        return errors.entrySet().stream()
+                                        .filter(e -> resource == null || e.getKey().equals(resource))
+                                        .mapToInt(e -> e.getValue().get()).sum();
+                }
+
+                void cycle(int clientId, int cycle) throws Exception {
+                        Resource resource = RESOURCES.get(clientId % RESOURCES.size());
+                        String name = "r" + clientId + "-" + cycle;
+                        String created = call(resource, "POST", "/post?" + resource.create().apply(clientId, name), null);
+                        if (created == null) {
+                                return;
+                        }
+                        String id = resource.idParam().equals("id") ? created.replaceAll(".*\"id\":(\\d+).*", "$1") : name;
+                        String entity = "?" + resource.idParam() + "=" + id;
+                        call(resource, "GET", entity, null);
+                        call(resource, "GET", "/page?size=20", null);
+                        call(resource, "PUT", entity, resource.update().apply(clientId, name));
+                        call(resource, "DELETE", entity, null);
+                }
+
+                private String call(Resource resource, String method, String path, String json) throws Exception {
+                        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(base + resource.path() + path))
+                                        .header("X-XSRF-TOKEN", csrf);
+                        if (json != null) {
+                                request.header("Content-Type", "application/json")
+                                                .method(method, HttpRequest.BodyPublishers.ofString(json));
+                        } else {
+                                request.method(method, HttpRequest.BodyPublishers.noBody());
+                        }
+                        long start = System.nanoTime();
+                        HttpResponse<String> response = send(http, request.build());
+                        latencies.computeIfAbsent(resource, r -> new ConcurrentLinkedQueue<>()).add(System.nanoTime() - start);
+                        if (response.statusCode() != 200) {
+                                errors.computeIfAbsent(resource, r -> new AtomicInteger()).incrementAndGet();
+                                return null;
+                        }
+                        return response.body();
+                }
+        }
+}
@@ -0,0 +1,184 @@
+package edu.ucsb.cs156.example.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ApiMetricsFilterTests {
+
+  SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  ApiMetricsFilter filter = new ApiMetricsFilter(registry);
+  QueryCountInspector inspector = new QueryCountInspector();
+
+  public static class SampleController {
+    public String allSamples() {
+      return "ok";
+    }
+  }
+
+  private MockHttpServletRequest request(String method) throws Exception {
+    MockHttpServletRequest request = new MockHttpServletRequest(method, "/api/sample/all");
+    request.setAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE,
+        new HandlerMethod(new SampleController(), SampleController.class.getMethod("allSamples")));
+    return request;
+  }
+
+  @Test
+  void records_latency_sizes_and_queries_per_handler() throws Exception {
+    MockHttpServletRequest request = request("POST");
+    request.setContent(new byte[12]);
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    filter.doFilter(request, response, new MockFilterChain(new jakarta.servlet.http.HttpServlet() {
+      @Override
+      protected void service(jakarta.servlet.http.HttpServletRequest req, HttpServletResponse res)
+          throws IOException {
+        inspector.inspect("select 1");
+        inspector.inspect("select 2");
+        res.getOutputStream().write('[');
+        res.getOutputStream().write(new byte[] { '1', ']' }, 0, 2);
+      }
+    }));
+
+    Timer timer = registry.get("api.requests")
+        .tags("handler", "SampleController.allSamples", "method", "POST", "status", "200").timer();
+    assertEquals(1, timer.count());
+    DistributionSummary responseSize = registry.get("api.response.size")
+        .tags("handler", "SampleController.allSamples").summary();
+    assertEquals(3.0, responseSize.totalAmount());
+    assertEquals(12.0, registry.get("api.request.size").summary().totalAmount());
+    assertEquals(2.0, registry.get("api.hibernate.queries").summary().totalAmount());
+    assertNull(registry.find("api.requests.errors").counter());
+    assertEquals("[1]", response.getContentAsString());
+  }
+
+  @Test
+  void counts_error_responses() throws Exception {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/nothing");
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    filter.doFilter(request, response, (req, res) -> ((HttpServletResponse) res).setStatus(404));
+
+    assertEquals(1.0, registry.get("api.requests.errors")
+        .tags("handler", "none", "status", "404", "exception", "none").counter().count());
+    assertEquals(0.0, registry.get("api.response.size").summary().totalAmount());
+    assertNull(registry.find("api.request.size").summary());
+  }
+
+  @Test
+  void counts_exceptions_as_server_errors() throws Exception {
+    MockHttpServletRequest request = request("GET");
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    assertThrows(ServletException.class, () -> filter.doFilter(request, response, (req, res) -> {
+      throw new ServletException("boom");
+    }));
+
+    assertEquals(1.0, registry.get("api.requests.errors")
+        .tags("status", "500", "exception", "ServletException").counter().count());
+    assertEquals(1, registry.get("api.requests").tags("status", "500").timer().count());
+  }
+
+  @Test
+  void exception_after_error_status_keeps_status() throws Exception {
+    MockHttpServletRequest request = request("GET");
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    assertThrows(IllegalStateException.class, () -> filter.doFilter(request, response, (req, res) -> {
+      ((HttpServletResponse) res).setStatus(403);
+      throw new IllegalStateException("denied");
+    }));
+
+    assertEquals(1.0, registry.get("api.requests.errors")
+        .tags("status", "403", "exception", "IllegalStateException").counter().count());
+  }
+
+  @Test
+  void async_requests_are_recorded_when_complete() throws Exception {
+    MockHttpServletRequest request = request("GET");
+    request.setAsyncSupported(true);
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    filter.doFilter(request, response, (req, res) -> req.startAsync(req, res));
+
+    assertNull(registry.find("api.requests").timer());
+
+    MockAsyncContext asyncContext = (MockAsyncContext) request.getAsyncContext();
+    asyncContext.getResponse().getOutputStream().write(new byte[] { '{', '}', '\n' });
+    asyncContext.complete();
+
+    assertEquals(1, registry.get("api.requests").tags("status", "200").timer().count());
+    assertEquals(3.0, registry.get("api.response.size").summary().totalAmount());
+  }
+
+  @Test
+  void async_errors_are_counted() throws Exception {
+    MockHttpServletRequest request = request("GET");
+    request.setAsyncSupported(true);
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    filter.doFilter(request, response, (req, res) -> req.startAsync(req, res));
+
+    AsyncContext asyncContext = request.getAsyncContext();
+    MockAsyncContext mockAsyncContext = (MockAsyncContext) asyncContext;
+    IOException failure = new IOException("client went away");
+    for (jakarta.servlet.AsyncListener listener : mockAsyncContext.getListeners()) {
+      listener.onStartAsync(new jakarta.servlet.AsyncEvent(asyncContext));
+      listener.onTimeout(new jakarta.servlet.AsyncEvent(asyncContext));
+      listener.onError(new jakarta.servlet.AsyncEvent(asyncContext, failure));
+    }
+    mockAsyncContext.complete();
+
+    assertEquals(1.0, registry.get("api.requests.errors")
+        .tags("status", "500", "exception", "IOException").counter().count());
+  }
+
+  @Test
+  void counting_output_stream_delegates() throws Exception {
+    HttpServletResponse response = mock(HttpServletResponse.class);
+    ServletOutputStream delegate = mock(ServletOutputStream.class);
+    when(response.getOutputStream()).thenReturn(delegate);
+    when(delegate.isReady()).thenReturn(true);
+    WriteListener listener = mock(WriteListener.class);
+    ApiMetricsFilter.CountingResponseWrapper wrapper = new ApiMetricsFilter.CountingResponseWrapper(response);
+
+    ServletOutputStream out = wrapper.getOutputStream();
+    assertSame(out, wrapper.getOutputStream());
+    assertTrue(out.isReady());
+    out.setWriteListener(listener);
+    out.write('x');
+    out.flush();
+    out.close();
+
+    assertEquals(1, wrapper.getByteCount());
+    verify(delegate).setWriteListener(listener);
+    verify(delegate).write('x');
+    verify(delegate).flush();
+    verify(delegate).close();
+  }
+}
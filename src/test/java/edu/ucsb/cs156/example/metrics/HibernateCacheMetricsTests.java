@@ -0,0 +1,38 @@
+package edu.ucsb.cs156.example.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+
+class HibernateCacheMetricsTests {
+
+  SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+  @Test
+  void publishes_hits_misses_and_puts_per_region() {
+    Statistics statistics = mock(Statistics.class);
+    CacheRegionStatistics commons = mock(CacheRegionStatistics.class);
+    when(statistics.getSecondLevelCacheRegionNames()).thenReturn(new String[] { "commons", "timestamps" });
+    when(statistics.getCacheRegionStatistics("commons")).thenReturn(commons);
+    when(commons.getHitCount()).thenReturn(3L);
+    when(commons.getMissCount()).thenReturn(1L);
+    when(commons.getPutCount()).thenReturn(2L);
+
+    new HibernateCacheMetrics(statistics).bindTo(registry);
+
+    assertEquals(3.0, registry.get("hibernate.second.level.cache.requests")
+        .tags("region", "commons", "result", "hit").functionCounter().count());
+    assertEquals(1.0, registry.get("hibernate.second.level.cache.requests")
+        .tags("region", "commons", "result", "miss").functionCounter().count());
+    assertEquals(2.0, registry.get("hibernate.second.level.cache.puts")
+        .tags("region", "commons").functionCounter().count());
+    assertNull(registry.find("hibernate.second.level.cache.puts").tags("region", "timestamps").functionCounter());
+  }
+}
@@ -0,0 +1,26 @@
+package edu.ucsb.cs156.example.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class QueryCountInspectorTests {
+
+  QueryCountInspector inspector = new QueryCountInspector();
+
+  @Test
+  void counts_statements_between_start_and_stop() {
+    QueryCountInspector.start();
+    assertEquals("select 1", inspector.inspect("select 1"));
+    inspector.inspect("select 2");
+
+    assertEquals(2, QueryCountInspector.stop());
+  }
+
+  @Test
+  void statements_outside_start_and_stop_are_not_counted() {
+    assertEquals("select 1", inspector.inspect("select 1"));
+
+    assertEquals(0, QueryCountInspector.stop());
+  }
+}
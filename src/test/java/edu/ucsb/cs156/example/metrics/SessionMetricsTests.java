@@ -0,0 +1,101 @@
+package edu.ucsb.cs156.example.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.context.SecurityContextImpl;
+
+class SessionMetricsTests {
+
+  private static final String STORED_BYTES =
+      "SELECT COALESCE(SUM(OCTET_LENGTH(ATTRIBUTE_BYTES)), 0) FROM SPRING_SESSION_ATTRIBUTES";
+
+  SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+  SessionMetrics sessionMetrics = new SessionMetrics(jdbcTemplate, Duration.ofMinutes(1));
+
+  @Test
+  void publishes_stored_sessions_and_bytes() {
+    when(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM SPRING_SESSION", Long.class)).thenReturn(3L);
+    when(jdbcTemplate.queryForObject(STORED_BYTES, Long.class)).thenReturn(2048L);
+
+    sessionMetrics.bindTo(registry);
+    sessionMetrics.refreshStoredBytes();
+
+    assertEquals(3.0, registry.get("sessions.stored").gauge().value());
+    assertEquals(2048.0, registry.get("sessions.stored.bytes").gauge().value());
+  }
+
+  @Test
+  void stored_bytes_are_read_on_refresh_not_on_scrape() {
+    when(jdbcTemplate.queryForObject(STORED_BYTES, Long.class)).thenReturn(2048L, 4096L);
+    sessionMetrics.bindTo(registry);
+
+    assertTrue(Double.isNaN(registry.get("sessions.stored.bytes").gauge().value()));
+    sessionMetrics.refreshStoredBytes();
+    assertEquals(2048.0, registry.get("sessions.stored.bytes").gauge().value());
+    assertEquals(2048.0, registry.get("sessions.stored.bytes").gauge().value());
+    sessionMetrics.refreshStoredBytes();
+    assertEquals(4096.0, registry.get("sessions.stored.bytes").gauge().value());
+
+    verify(jdbcTemplate, times(2)).queryForObject(STORED_BYTES, Long.class);
+  }
+
+  @Test
+  void stored_bytes_keep_the_last_value_when_the_database_fails() {
+    when(jdbcTemplate.queryForObject(STORED_BYTES, Long.class)).thenReturn(2048L)
+        .thenThrow(new QueryTimeoutException("timeout"));
+    sessionMetrics.bindTo(registry);
+
+    sessionMetrics.refreshStoredBytes();
+    sessionMetrics.refreshStoredBytes();
+
+    assertEquals(2048.0, registry.get("sessions.stored.bytes").gauge().value());
+  }
+
+  @Test
+  void refresher_thread_reads_stored_bytes_and_stops_with_the_binder() throws Exception {
+    CountDownLatch refreshed = new CountDownLatch(1);
+    when(jdbcTemplate.queryForObject(STORED_BYTES, Long.class)).thenAnswer(invocation -> {
+      refreshed.countDown();
+      return 2048L;
+    });
+
+    sessionMetrics.startRefresher();
+
+    assertTrue(refreshed.await(5, TimeUnit.SECONDS));
+    sessionMetrics.stopRefresher();
+    assertTrue(sessionMetrics.refresher.isShutdown());
+  }
+
+  @Test
+  void records_attribute_sizes_by_type_once_bound() {
+    sessionMetrics.recordAttributeSize(new SecurityContextImpl(), 100);
+    assertNull(registry.find("sessions.attribute.size").summary());
+
+    sessionMetrics.bindTo(registry);
+    sessionMetrics.recordAttributeSize(new SecurityContextImpl(), 600);
+    sessionMetrics.recordAttributeSize(new SecurityContextImpl(), 400);
+    sessionMetrics.recordAttributeSize("/api/currentUser", 30);
+
+    DistributionSummary contexts = registry.get("sessions.attribute.size").tags("type", "SecurityContextImpl").summary();
+    assertEquals(2, contexts.count());
+    assertEquals(1000.0, contexts.totalAmount());
+    assertEquals(1, registry.get("sessions.attribute.size").tags("type", "String").summary().count());
+  }
+}
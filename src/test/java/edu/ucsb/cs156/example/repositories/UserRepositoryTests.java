@@ -0,0 +1,27 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+import edu.ucsb.cs156.example.entities.User;
+
+class UserRepositoryTests {
+
+  @Test
+  void test_findByEmail_delegates_to_findFirstByEmailOrderByIdAsc() {
+    UserRepository userRepository = mock(UserRepository.class);
+    User u = User.builder().id(1L).email("cgaucho@ucsb.edu").build();
+    when(userRepository.findByEmail("cgaucho@ucsb.edu")).thenCallRealMethod();
+    when(userRepository.findFirstByEmailOrderByIdAsc("cgaucho@ucsb.edu")).thenReturn(Optional.of(u));
+
+    assertEquals(Optional.of(u), userRepository.findByEmail("cgaucho@ucsb.edu"));
+    verify(userRepository).findFirstByEmailOrderByIdAsc("cgaucho@ucsb.edu");
+  }
+
+}
@@ -0,0 +1,110 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+
+import java.util.Optional;
+import java.util.Set;
+
+@ExtendWith(MockitoExtension.class)
+class AdminStatusServiceTests {
+
+  @Mock
+  private UserRepository userRepository;
+
+  @InjectMocks
+  private AdminStatusService adminStatusService;
+
+  private final User admin = User.builder().email("admin@ucsb.edu").admin(true).build();
+  private final User student = User.builder().email("cgaucho@ucsb.edu").admin(false).build();
+
+  @BeforeEach
+  void setup() {
+    adminStatusService.adminEmails = Set.of("phtcon@ucsb.edu");
+    adminStatusService.buildCache();
+  }
+
+  @Test
+  void test_configured_admin_is_admin_without_a_query() {
+    assertTrue(adminStatusService.isAdmin("phtcon@ucsb.edu"));
+    verify(userRepository, never()).findByEmail("phtcon@ucsb.edu");
+  }
+
+  @Test
+  void test_admin_status_comes_from_the_users_table() {
+    when(userRepository.findByEmail("admin@ucsb.edu")).thenReturn(Optional.of(admin));
+    when(userRepository.findByEmail("cgaucho@ucsb.edu")).thenReturn(Optional.of(student));
+    when(userRepository.findByEmail("nobody@ucsb.edu")).thenReturn(Optional.empty());
+
+    assertTrue(adminStatusService.isAdmin("admin@ucsb.edu"));
+    assertFalse(adminStatusService.isAdmin("cgaucho@ucsb.edu"));
+    assertFalse(adminStatusService.isAdmin("nobody@ucsb.edu"));
+  }
+
+  @Test
+  void test_admin_status_is_cached_per_email() {
+    when(userRepository.findByEmail("cgaucho@ucsb.edu")).thenReturn(Optional.of(student));
+
+    assertFalse(adminStatusService.isAdmin("cgaucho@ucsb.edu"));
+    assertFalse(adminStatusService.isAdmin("cgaucho@ucsb.edu"));
+
+    verify(userRepository, times(1)).findByEmail("cgaucho@ucsb.edu");
+  }
+
+  @Test
+  void test_findUser_shares_the_cached_row() {
+    when(userRepository.findByEmail("admin@ucsb.edu")).thenReturn(Optional.of(admin));
+
+    assertTrue(adminStatusService.isAdmin("admin@ucsb.edu"));
+    assertEquals(Optional.of(admin), adminStatusService.findUser("admin@ucsb.edu"));
+
+    verify(userRepository, times(1)).findByEmail("admin@ucsb.edu");
+  }
+
+  @Test
+  void test_saved_user_replaces_a_cached_absence() {
+    when(userRepository.findByEmail("new@ucsb.edu")).thenReturn(Optional.empty());
+    User created = User.builder().email("new@ucsb.edu").admin(true).build();
+
+    assertFalse(adminStatusService.isAdmin("new@ucsb.edu"));
+    adminStatusService.userSaved(created);
+    assertTrue(adminStatusService.isAdmin("new@ucsb.edu"));
+
+    verify(userRepository, times(1)).findByEmail("new@ucsb.edu");
+  }
+
+  @Test
+  void test_invalidate_rereads_admin_status() {
+    User promoted = User.builder().email("cgaucho@ucsb.edu").admin(true).build();
+    when(userRepository.findByEmail("cgaucho@ucsb.edu")).thenReturn(Optional.of(student), Optional.of(promoted));
+
+    assertFalse(adminStatusService.isAdmin("cgaucho@ucsb.edu"));
+    adminStatusService.invalidate("cgaucho@ucsb.edu");
+    assertTrue(adminStatusService.isAdmin("cgaucho@ucsb.edu"));
+  }
+
+  @Test
+  void test_invalidateAll_rereads_admin_status() {
+    User promoted = User.builder().email("cgaucho@ucsb.edu").admin(true).build();
+    when(userRepository.findByEmail("cgaucho@ucsb.edu")).thenReturn(Optional.of(student), Optional.of(promoted));
+
+    assertFalse(adminStatusService.isAdmin("cgaucho@ucsb.edu"));
+    adminStatusService.invalidateAll();
+    assertTrue(adminStatusService.isAdmin("cgaucho@ucsb.edu"));
+  }
+}
@@ -0,0 +1,67 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+
+import edu.ucsb.cs156.example.entities.Article;
+import edu.ucsb.cs156.example.repositories.ArticleRepository;
+
+@ExtendWith(MockitoExtension.class)
+class ArticleSearchServiceTests {
+
+  @Mock
+  ArticleRepository articleRepository;
+
+  @InjectMocks
+  ArticleSearchService articleSearchService;
+
+  private final PageRequest pageable = PageRequest.of(0, 20);
+  private final Slice<Article> results = new SliceImpl<>(Arrays.asList(Article.builder().id(1L).title("Gaucho").build()));
+
+  @Test
+  void test_search_uses_full_text_search_on_postgres() {
+    articleSearchService.datasourceUrl = "jdbc:postgresql://localhost:5432/team01";
+    when(articleRepository.searchRanked("gaucho news", pageable)).thenReturn(results);
+
+    assertEquals(results, articleSearchService.search("gaucho news", pageable));
+  }
+
+  @Test
+  void test_search_falls_back_to_like_on_other_databases() {
+    articleSearchService.datasourceUrl = "jdbc:h2:mem:test";
+    when(articleRepository.searchByPattern("%gaucho news%", pageable)).thenReturn(results);
+
+    assertEquals(results, articleSearchService.search(" Gaucho News ", pageable));
+  }
+
+  @Test
+  void test_search_returns_nothing_for_blank_query() {
+    articleSearchService.datasourceUrl = "jdbc:h2:mem:test";
+
+    Slice<Article> slice = articleSearchService.search("  ", pageable);
+
+    assertTrue(slice.getContent().isEmpty());
+    assertFalse(slice.hasNext());
+    verifyNoInteractions(articleRepository);
+  }
+
+  @Test
+  void test_likePattern_escapes_wildcards() {
+    assertEquals("%100!% a!_b c!!d%", ArticleSearchService.likePattern("100% A_b c!d"));
+  }
+
+}
@@ -0,0 +1,183 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import edu.ucsb.cs156.example.models.CsvImportResult;
+import edu.ucsb.cs156.example.models.CsvImportResult.RejectedRow;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+@ExtendWith(MockitoExtension.class)
+class CsvImportServiceTests {
+
+  @Mock
+  private PlatformTransactionManager transactionManager;
+
+  @Spy
+  private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  @InjectMocks
+  private CsvImportService csvImportService;
+
+  private final List<List<String>> written = new ArrayList<>();
+
+  private final Function<CSVRecord, String> parseName = record -> CsvImportService.required(record, "name");
+
+  private static InputStream csv(String text) {
+    return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static CSVRecord record(String header, String row) throws IOException {
+    return CSVFormat.DEFAULT.builder().setHeader().setSkipHeaderRecord(true).build()
+        .parse(new StringReader(header + "\n" + row + "\n")).getRecords().get(0);
+  }
+
+  private double count(String outcome) {
+    return meterRegistry.counter("csv.import.rows", "entity", "test", "outcome", outcome).count();
+  }
+
+  @Test
+  void test_importCsv_writes_valid_rows_in_chunks_and_reports_rejected_rows() {
+    ReflectionTestUtils.setField(csvImportService, "chunkSize", 2);
+
+    CsvImportResult result = csvImportService.importCsv("test", csv("name,station\na,x\n\n,y\n b ,z\nc,x\n"),
+        List.of("name"), parseName, chunk -> written.add(new ArrayList<>(chunk)));
+
+    assertEquals(Arrays.asList(Arrays.asList("a", "b"), Arrays.asList("c")), written);
+    assertEquals(4, result.getRowsRead());
+    assertEquals(3, result.getRowsImported());
+    assertEquals(1, result.getRowsRejected());
+    assertEquals(Arrays.asList(new RejectedRow(2, "name is required")), result.getRejected());
+    assertTrue(result.getRowsPerSecond() > 0);
+    assertEquals(3.0, count("imported"));
+    assertEquals(1.0, count("rejected"));
+    verify(transactionManager, times(2)).commit(any());
+  }
+
+  @Test
+  void test_importCsv_reports_only_the_first_rejected_rows() {
+    ReflectionTestUtils.setField(csvImportService, "maxRejectedReported", 1);
+
+    CsvImportResult result = csvImportService.importCsv("test", csv("name\n\"\"\n\"\"\n"),
+        List.of("name"), parseName, chunk -> written.add(new ArrayList<>(chunk)));
+
+    assertTrue(written.isEmpty());
+    assertEquals(2, result.getRowsRejected());
+    assertEquals(Arrays.asList(new RejectedRow(1, "name is required")), result.getRejected());
+    verify(transactionManager, never()).getTransaction(any());
+  }
+
+  @Test
+  void test_importCsv_rejects_file_with_missing_columns() {
+    ResponseStatusException e = assertThrows(ResponseStatusException.class,
+        () -> csvImportService.importCsv("test", csv("name\na\n"), List.of("name", "station"), parseName, written::add));
+
+    assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+    assertEquals("CSV is missing column(s) [station]", e.getReason());
+    assertTrue(written.isEmpty());
+  }
+
+  @Test
+  void test_importCsv_rejects_header_with_repeated_column() {
+    ResponseStatusException e = assertThrows(ResponseStatusException.class,
+        () -> csvImportService.importCsv("test", csv("name,name\na,b\n"), List.of("name"), parseName, written::add));
+
+    assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+    assertTrue(e.getReason().startsWith("CSV header row is invalid: "));
+    assertTrue(e.getReason().contains("name"), e.getReason());
+    assertTrue(written.isEmpty());
+  }
+
+  @Test
+  void test_importCsv_rejects_header_with_empty_column() {
+    ResponseStatusException e = assertThrows(ResponseStatusException.class,
+        () -> csvImportService.importCsv("test", csv("name,\na,b\n"), List.of("name"), parseName, written::add));
+
+    assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+    assertTrue(e.getReason().startsWith("CSV header row is invalid: "));
+    assertTrue(written.isEmpty());
+  }
+
+  @Test
+  void test_importCsv_stops_at_malformed_csv_keeping_earlier_chunks() {
+    ReflectionTestUtils.setField(csvImportService, "chunkSize", 1);
+
+    ResponseStatusException e = assertThrows(ResponseStatusException.class,
+        () -> csvImportService.importCsv("test", csv("name\na\n\"b\n"), List.of("name"), parseName,
+            chunk -> written.add(new ArrayList<>(chunk))));
+
+    assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+    assertTrue(e.getReason().startsWith("CSV could not be parsed after row 1: "));
+    assertEquals(Arrays.asList(Arrays.asList("a")), written);
+    assertEquals(1.0, count("imported"));
+  }
+
+  @Test
+  void test_importCsv_reports_unreadable_upload_as_bad_request() {
+    InputStream broken = new InputStream() {
+      @Override
+      public int read() throws IOException {
+        throw new IOException("connection reset");
+      }
+    };
+
+    ResponseStatusException e = assertThrows(ResponseStatusException.class,
+        () -> csvImportService.importCsv("test", broken, List.of("name"), parseName, written::add));
+
+    assertEquals("CSV could not be parsed after row 0: connection reset", e.getReason());
+  }
+
+  @Test
+  void test_required() throws Exception {
+    assertEquals("a", CsvImportService.required(record("name", "a"), "name"));
+
+    IllegalArgumentException blank = assertThrows(IllegalArgumentException.class,
+        () -> CsvImportService.required(record("name,x", ",1"), "name"));
+    assertEquals("name is required", blank.getMessage());
+
+    IllegalArgumentException tooLong = assertThrows(IllegalArgumentException.class,
+        () -> CsvImportService.required(record("name", "a".repeat(256)), "name"));
+    assertEquals("name is longer than 255 characters", tooLong.getMessage());
+  }
+
+  @Test
+  void test_requiredBoolean() throws Exception {
+    assertTrue(CsvImportService.requiredBoolean(record("inactive", "TRUE"), "inactive"));
+    assertFalse(CsvImportService.requiredBoolean(record("inactive", "false"), "inactive"));
+
+    IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+        () -> CsvImportService.requiredBoolean(record("inactive", "yes"), "inactive"));
+    assertEquals("inactive must be true or false, not 'yes'", e.getMessage());
+  }
+}
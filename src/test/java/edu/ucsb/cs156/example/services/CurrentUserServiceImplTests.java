@@ -0,0 +1,197 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.event.LogoutSuccessEvent;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+import org.springframework.security.oauth2.core.user.OAuth2UserAuthority;
+
+import edu.ucsb.cs156.example.config.SessionTokenAuthentication;
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+
+@ExtendWith(MockitoExtension.class)
+class CurrentUserServiceImplTests {
+
+  private static final Map<String, Object> ATTRIBUTES = Map.of("sub", "107126842018026740288",
+      "email", "cgaucho@ucsb.edu", "email_verified", true, "name", "Chris Gaucho", "given_name", "Chris",
+      "family_name", "Gaucho", "hd", "ucsb.edu", "locale", "en", "picture", "https://example.org/photo.jpg");
+
+  @Mock
+  UserRepository userRepository;
+
+  private final AtomicLong nanos = new AtomicLong();
+  private final AdminStatusService adminStatusService = new AdminStatusService();
+  private final CurrentUserServiceImpl currentUserService = new CurrentUserServiceImpl();
+
+  private final User row = User.builder().id(7L).email("cgaucho@ucsb.edu").fullName("Chris Gaucho").admin(false).build();
+  private OAuth2AuthenticationToken authentication;
+
+  @BeforeEach
+  void setup() {
+    adminStatusService.userRepository = userRepository;
+    adminStatusService.adminEmails = Set.of("phtcon@ucsb.edu");
+    adminStatusService.cacheTtl = Duration.ofMinutes(5);
+    adminStatusService.ticker = nanos::get;
+    adminStatusService.buildCache();
+    currentUserService.userRepository = userRepository;
+    currentUserService.adminStatusService = adminStatusService;
+
+    List<GrantedAuthority> authorities = List.of(new OAuth2UserAuthority(ATTRIBUTES));
+    authentication = new OAuth2AuthenticationToken(new DefaultOAuth2User(authorities, ATTRIBUTES, "sub"),
+        authorities, "my-oauth-provider");
+    SecurityContextHolder.getContext().setAuthentication(authentication);
+  }
+
+  @AfterEach
+  void clearSecurityContext() {
+    SecurityContextHolder.clearContext();
+  }
+
+  @Test
+  void test_user_is_read_once_and_then_served_from_the_cache() {
+    when(userRepository.findByEmail("cgaucho@ucsb.edu")).thenReturn(Optional.of(row));
+
+    assertEquals(row, currentUserService.getUser());
+    assertEquals(row, currentUserService.getUser());
+
+    verify(userRepository, times(1)).findByEmail("cgaucho@ucsb.edu");
+    verify(userRepository, never()).save(any());
+  }
+
+  @Test
+  void test_cached_user_is_a_copy_that_callers_cannot_change() {
+    when(userRepository.findByEmail("cgaucho@ucsb.edu")).thenReturn(Optional.of(row));
+
+    User first = currentUserService.getUser();
+    first.setAdmin(true);
+    User second = currentUserService.getUser();
+
+    assertNotSame(row, first);
+    assertNotSame(first, second);
+    assertFalse(second.getAdmin());
+  }
+
+  @Test
+  void test_cached_user_expires_after_the_ttl() {
+    when(userRepository.findByEmail("cgaucho@ucsb.edu")).thenReturn(Optional.of(row));
+
+    currentUserService.getUser();
+    nanos.addAndGet(Duration.ofMinutes(5).minusSeconds(1).toNanos());
+    currentUserService.getUser();
+    verify(userRepository, times(1)).findByEmail("cgaucho@ucsb.edu");
+
+    nanos.addAndGet(Duration.ofSeconds(2).toNanos());
+    currentUserService.getUser();
+    verify(userRepository, times(2)).findByEmail("cgaucho@ucsb.edu");
+  }
+
+  @Test
+  void test_logout_drops_the_cached_user() {
+    when(userRepository.findByEmail("cgaucho@ucsb.edu")).thenReturn(Optional.of(row));
+
+    currentUserService.getUser();
+    currentUserService.onLogout(new LogoutSuccessEvent(authentication));
+    currentUserService.getUser();
+
+    verify(userRepository, times(2)).findByEmail("cgaucho@ucsb.edu");
+  }
+
+  @Test
+  void test_logout_of_another_kind_of_principal_keeps_the_cache() {
+    when(userRepository.findByEmail("cgaucho@ucsb.edu")).thenReturn(Optional.of(row));
+
+    currentUserService.getUser();
+    currentUserService.onLogout(new LogoutSuccessEvent(new UsernamePasswordAuthenticationToken("cgaucho", "")));
+    currentUserService.getUser();
+
+    verify(userRepository, times(1)).findByEmail("cgaucho@ucsb.edu");
+  }
+
+  @Test
+  void test_login_roles_and_current_user_share_one_lookup() {
+    when(userRepository.findByEmail("cgaucho@ucsb.edu")).thenReturn(Optional.of(row));
+
+    assertFalse(adminStatusService.isAdmin("cgaucho@ucsb.edu"));
+    assertEquals(row, currentUserService.getUser());
+
+    verify(userRepository, times(1)).findByEmail("cgaucho@ucsb.edu");
+  }
+
+  @Test
+  void test_new_user_is_saved_and_cached() {
+    when(userRepository.findByEmail("cgaucho@ucsb.edu")).thenReturn(Optional.empty());
+
+    User created = currentUserService.getUser();
+    User cached = currentUserService.getUser();
+
+    assertEquals("cgaucho@ucsb.edu", created.getEmail());
+    assertEquals("Chris Gaucho", created.getFullName());
+    assertFalse(created.getAdmin());
+    assertEquals(created, cached);
+    verify(userRepository, times(1)).save(any(User.class));
+    verify(userRepository, times(1)).findByEmail("cgaucho@ucsb.edu");
+  }
+
+  @Test
+  void test_listed_admin_is_made_an_admin_and_cached() {
+    adminStatusService.adminEmails = Set.of("cgaucho@ucsb.edu");
+    when(userRepository.findByEmail("cgaucho@ucsb.edu")).thenReturn(Optional.of(row));
+
+    User promoted = currentUserService.getUser();
+    currentUserService.getUser();
+
+    ArgumentCaptor<User> saved = ArgumentCaptor.forClass(User.class);
+    verify(userRepository, times(1)).save(saved.capture());
+    assertTrue(saved.getValue().getAdmin());
+    assertTrue(promoted.getAdmin());
+    assertFalse(row.getAdmin());
+    verify(userRepository, times(1)).findByEmail("cgaucho@ucsb.edu");
+  }
+
+  @Test
+  void test_login_restored_from_a_session_token_uses_its_user() {
+    SessionTokenAuthentication restored = new SessionTokenAuthentication(authentication.getPrincipal(),
+        authentication.getAuthorities(), "my-oauth-provider", row, Instant.now(), Instant.now().plusSeconds(60));
+    SecurityContextHolder.getContext().setAuthentication(restored);
+
+    assertEquals(row, currentUserService.getUser());
+
+    verify(userRepository, never()).findByEmail(any());
+  }
+
+  @Test
+  void test_no_user_without_an_oauth2_login() {
+    SecurityContextHolder.clearContext();
+
+    assertNull(currentUserService.getUser());
+  }
+}
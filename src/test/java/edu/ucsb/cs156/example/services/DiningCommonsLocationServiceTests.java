@@ -0,0 +1,166 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.geo.GeoDistance;
+import edu.ucsb.cs156.example.models.NearbyCommons;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+
+@ExtendWith(MockitoExtension.class)
+class DiningCommonsLocationServiceTests {
+
+  // Storke Tower
+  private static final double LAT = 34.4125;
+  private static final double LON = -119.8486;
+
+  @Mock
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @InjectMocks
+  DiningCommonsLocationService diningCommonsLocationService;
+
+  private final UCSBDiningCommons carrillo = commons("carrillo", 34.409953, -119.85277);
+  private final UCSBDiningCommons ortega = commons("ortega", 34.410987, -119.84709);
+  private final UCSBDiningCommons portola = commons("portola", 34.417723, -119.867427);
+  private final UCSBDiningCommons nowhere = commons("nowhere", null, null);
+  private final UCSBDiningCommons noLongitude = commons("no-longitude", 34.4125, null);
+
+  private static UCSBDiningCommons commons(String code, Double lat, Double lon) {
+    return UCSBDiningCommons.builder().code(code).name(code).latitude(lat).longitude(lon).build();
+  }
+
+  private List<String> nearbyCodes(int limit) {
+    return diningCommonsLocationService.nearby(LAT, LON, limit).stream().map(n -> n.getCommons().getCode()).toList();
+  }
+
+  @AfterEach
+  void clearSynchronization() {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+  }
+
+  @Test
+  void test_nearby_returns_commons_with_locations_nearest_first_with_distances() {
+    when(ucsbDiningCommonsRepository.findAll()).thenReturn(Arrays.asList(portola, nowhere, carrillo, noLongitude, ortega));
+
+    List<NearbyCommons> nearby = diningCommonsLocationService.nearby(LAT, LON, 5);
+
+    assertEquals(Arrays.asList("ortega", "carrillo", "portola"), nearby.stream().map(n -> n.getCommons().getCode()).toList());
+    assertEquals(ortega, nearby.get(0).getCommons());
+    assertEquals(GeoDistance.haversineMeters(LAT, LON, 34.410987, -119.84709), nearby.get(0).getDistanceMeters(), 1e-6);
+    assertEquals(Arrays.asList("ortega"), nearbyCodes(1));
+    verify(ucsbDiningCommonsRepository, times(1)).findAll();
+  }
+
+  @Test
+  void test_index_is_rebuilt_after_its_ttl() {
+    diningCommonsLocationService.indexTtl = Duration.ZERO;
+    when(ucsbDiningCommonsRepository.findAll()).thenReturn(Arrays.asList(ortega))
+        .thenReturn(Arrays.asList(ortega, carrillo));
+
+    assertEquals(Arrays.asList("ortega"), nearbyCodes(5));
+    assertEquals(Arrays.asList("ortega", "carrillo"), nearbyCodes(5));
+    verify(ucsbDiningCommonsRepository, times(2)).findAll();
+  }
+
+  @Test
+  void test_saves_and_deletes_are_applied_incrementally() {
+    when(ucsbDiningCommonsRepository.findAll()).thenReturn(Arrays.asList(ortega, carrillo));
+    assertEquals(Arrays.asList("ortega", "carrillo"), nearbyCodes(5));
+
+    UCSBDiningCommons movedOrtega = commons("ortega", 34.42, -119.88);
+    diningCommonsLocationService.commonsSaved(movedOrtega);
+    // the index keeps its own copy, so later changes to the saved entity are not seen
+    movedOrtega.setLatitude(LAT);
+    movedOrtega.setLongitude(LON);
+    diningCommonsLocationService.commonsSaved(portola);
+    diningCommonsLocationService.commonsDeleted(carrillo);
+    diningCommonsLocationService.commonsSaved(nowhere);
+
+    assertEquals(Arrays.asList("portola", "ortega"), nearbyCodes(5));
+    assertEquals(34.42, diningCommonsLocationService.nearby(LAT, LON, 5).get(1).getCommons().getLatitude());
+
+    diningCommonsLocationService.commonsSaved(commons("portola", null, null));
+    assertEquals(Arrays.asList("ortega"), nearbyCodes(5));
+    verify(ucsbDiningCommonsRepository, times(1)).findAll();
+  }
+
+  @Test
+  void test_changes_wait_for_the_transaction_to_commit() {
+    when(ucsbDiningCommonsRepository.findAll()).thenReturn(Arrays.asList(ortega, carrillo));
+    assertEquals(Arrays.asList("ortega", "carrillo"), nearbyCodes(5));
+    TransactionSynchronizationManager.initSynchronization();
+
+    diningCommonsLocationService.commonsSaved(portola);
+    diningCommonsLocationService.commonsDeleted(ortega);
+
+    assertEquals(Arrays.asList("ortega", "carrillo"), nearbyCodes(5));
+    for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+      synchronization.afterCommit();
+    }
+    assertEquals(Arrays.asList("carrillo", "portola"), nearbyCodes(5));
+  }
+
+  @Test
+  void test_changes_before_the_index_is_built_are_read_from_the_repository() {
+    diningCommonsLocationService.commonsSaved(portola);
+    diningCommonsLocationService.commonsDeleted(ortega);
+    when(ucsbDiningCommonsRepository.findAll()).thenReturn(Arrays.asList(portola));
+
+    assertTrue(nearbyCodes(5).contains("portola"));
+  }
+
+  @Test
+  void test_concurrent_first_calls_build_the_index_once() throws Exception {
+    int callers = 8;
+    CountDownLatch start = new CountDownLatch(1);
+    when(ucsbDiningCommonsRepository.findAll()).thenAnswer(invocation -> {
+      Thread.sleep(50);
+      return Arrays.asList(ortega, carrillo);
+    });
+
+    ExecutorService executor = Executors.newFixedThreadPool(callers);
+    try {
+      List<Future<List<String>>> results = new ArrayList<>();
+      for (int i = 0; i < callers; i++) {
+        results.add(executor.submit(() -> {
+          start.await();
+          return nearbyCodes(5);
+        }));
+      }
+      start.countDown();
+      for (Future<List<String>> result : results) {
+        assertEquals(Arrays.asList("ortega", "carrillo"), result.get(5, TimeUnit.SECONDS));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    verify(ucsbDiningCommonsRepository, times(1)).findAll();
+  }
+
+}
@@ -0,0 +1,362 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.models.HelpRequestEvent;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+@ExtendWith(MockitoExtension.class)
+class HelpRequestStreamServiceTests {
+
+  @Spy
+  private ObjectMapper mapper = JsonMapper.builder().findAndAddModules().build();
+
+  @InjectMocks
+  private HelpRequestStreamService helpRequestStreamService;
+
+  private final HelpRequest open = HelpRequest.builder().id(1L).teamId("f24-07").solved(false).build();
+  private final HelpRequest solved = HelpRequest.builder().id(1L).teamId("f24-07").solved(true).build();
+
+  /** Tasks submitted to the sender pool; run by {@link #deliver()}. */
+  private final Deque<Runnable> tasks = new ArrayDeque<>();
+
+  @BeforeEach
+  void queueSends() {
+    helpRequestStreamService.sender = tasks::add;
+  }
+
+  private void deliver() {
+    Runnable task;
+    while ((task = tasks.poll()) != null) {
+      task.run();
+    }
+  }
+
+  /** Records the events sent to it, as they would be written to the response. */
+  static class RecordingEmitter extends SseEmitter {
+    final List<String> events = new ArrayList<>();
+    Runnable onCompletion;
+    Runnable onTimeout;
+    Consumer<Throwable> onError;
+    boolean completed;
+    boolean broken;
+
+    @Override
+    public synchronized void send(Set<DataWithMediaType> items) throws IOException {
+      if (broken) {
+        throw new IOException("Broken pipe");
+      }
+      events.add(items.stream().map(item -> item.getData().toString()).collect(Collectors.joining()));
+    }
+
+    @Override
+    public synchronized void onCompletion(Runnable callback) {
+      onCompletion = callback;
+    }
+
+    @Override
+    public synchronized void onTimeout(Runnable callback) {
+      onTimeout = callback;
+    }
+
+    @Override
+    public synchronized void onError(Consumer<Throwable> callback) {
+      onError = callback;
+    }
+
+    @Override
+    public synchronized void complete() {
+      completed = true;
+    }
+  }
+
+  /** An emitter whose writes block until released, like a client that has stopped reading. */
+  static class StalledEmitter extends RecordingEmitter {
+    final CountDownLatch release = new CountDownLatch(1);
+
+    @Override
+    public void send(Set<DataWithMediaType> items) throws IOException {
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        throw new IOException(e);
+      }
+      super.send(items);
+    }
+  }
+
+  private static List<String> awaitEvents(RecordingEmitter emitter, int count) throws Exception {
+    long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+    while (true) {
+      synchronized (emitter) {
+        if (emitter.events.size() >= count || System.nanoTime() > deadline) {
+          return new ArrayList<>(emitter.events);
+        }
+      }
+      Thread.sleep(10);
+    }
+  }
+
+  private String id(long number) {
+    return helpRequestStreamService.epoch + "-" + number;
+  }
+
+  private String event(long number, String name, HelpRequest data) throws Exception {
+    return "id:%s\nevent:%s\ndata:%s\n\n".formatted(id(number), name, mapper.writeValueAsString(data));
+  }
+
+  /** A ready or reset event, whose data is its own id. */
+  private String control(long number, String name) {
+    return "id:%s\nevent:%s\ndata:%s\n\n".formatted(id(number), name, id(number));
+  }
+
+  @Test
+  void test_new_subscriber_is_sent_ready_then_events() throws Exception {
+    RecordingEmitter emitter = new RecordingEmitter();
+
+    helpRequestStreamService.subscribe(emitter, null);
+    helpRequestStreamService.helpRequestChanged(new HelpRequestEvent(HelpRequestEvent.CREATED, open));
+    helpRequestStreamService.helpRequestChanged(new HelpRequestEvent(HelpRequestEvent.SOLVED, solved));
+    deliver();
+
+    assertEquals(Arrays.asList(
+        control(0, HelpRequestStreamService.READY),
+        event(1, HelpRequestEvent.CREATED, open),
+        event(2, HelpRequestEvent.SOLVED, solved)), emitter.events);
+    assertEquals(1, helpRequestStreamService.subscriberCount());
+  }
+
+  @Test
+  void test_resuming_subscriber_is_sent_the_events_it_missed() throws Exception {
+    helpRequestStreamService.helpRequestChanged(new HelpRequestEvent(HelpRequestEvent.CREATED, open));
+    helpRequestStreamService.helpRequestChanged(new HelpRequestEvent(HelpRequestEvent.SOLVED, solved));
+    RecordingEmitter emitter = new RecordingEmitter();
+
+    helpRequestStreamService.subscribe(emitter, id(1));
+    deliver();
+
+    assertEquals(Arrays.asList(event(2, HelpRequestEvent.SOLVED, solved)), emitter.events);
+    assertEquals(1, helpRequestStreamService.subscriberCount());
+  }
+
+  @Test
+  void test_up_to_date_subscriber_is_sent_nothing() throws Exception {
+    helpRequestStreamService.helpRequestChanged(new HelpRequestEvent(HelpRequestEvent.CREATED, open));
+    RecordingEmitter emitter = new RecordingEmitter();
+
+    helpRequestStreamService.subscribe(emitter, id(1));
+
+    assertEquals(Arrays.asList(), emitter.events);
+    assertEquals(1, helpRequestStreamService.subscriberCount());
+  }
+
+  @Test
+  void test_resuming_subscriber_is_reset_when_missed_events_were_dropped() throws Exception {
+    helpRequestStreamService.replayBuffer = 2;
+    for (int i = 0; i < 4; i++) {
+      helpRequestStreamService.helpRequestChanged(new HelpRequestEvent(HelpRequestEvent.UPDATED, open));
+    }
+    RecordingEmitter resumable = new RecordingEmitter();
+    RecordingEmitter tooOld = new RecordingEmitter();
+
+    helpRequestStreamService.subscribe(resumable, id(2));
+    helpRequestStreamService.subscribe(tooOld, id(1));
+    deliver();
+
+    assertEquals(Arrays.asList(event(3, HelpRequestEvent.UPDATED, open), event(4, HelpRequestEvent.UPDATED, open)),
+        resumable.events);
+    assertEquals(Arrays.asList(control(4, HelpRequestStreamService.RESET)), tooOld.events);
+  }
+
+  @Test
+  void test_subscriber_from_before_a_restart_is_reset() throws Exception {
+    RecordingEmitter emitter = new RecordingEmitter();
+
+    helpRequestStreamService.subscribe(emitter, id(7));
+    deliver();
+
+    assertEquals(Arrays.asList(control(0, HelpRequestStreamService.RESET)), emitter.events);
+  }
+
+  @Test
+  void test_subscriber_with_an_id_from_another_epoch_is_reset_even_if_the_number_exists() throws Exception {
+    for (int i = 0; i < 3; i++) {
+      helpRequestStreamService.helpRequestChanged(new HelpRequestEvent(HelpRequestEvent.UPDATED, open));
+    }
+    RecordingEmitter restarted = new RecordingEmitter();
+    RecordingEmitter otherInstance = new RecordingEmitter();
+    RecordingEmitter numberOnly = new RecordingEmitter();
+    RecordingEmitter garbage = new RecordingEmitter();
+
+    helpRequestStreamService.subscribe(restarted, "previousepoch-1");
+    helpRequestStreamService.subscribe(otherInstance, new HelpRequestStreamService().epoch + "-1");
+    helpRequestStreamService.subscribe(numberOnly, "1");
+    helpRequestStreamService.subscribe(garbage, helpRequestStreamService.epoch + "-x");
+    deliver();
+
+    for (RecordingEmitter emitter : Arrays.asList(restarted, otherInstance, numberOnly, garbage)) {
+      assertEquals(Arrays.asList(control(3, HelpRequestStreamService.RESET)), emitter.events);
+    }
+  }
+
+  @Test
+  void test_subscriber_is_removed_when_its_stream_completes() {
+    RecordingEmitter emitter = new RecordingEmitter();
+    helpRequestStreamService.subscribe(emitter, null);
+
+    emitter.onCompletion.run();
+
+    assertEquals(0, helpRequestStreamService.subscriberCount());
+  }
+
+  @Test
+  void test_subscriber_is_removed_when_its_stream_fails() {
+    RecordingEmitter emitter = new RecordingEmitter();
+    helpRequestStreamService.subscribe(emitter, null);
+
+    emitter.onError.accept(new IOException("Connection reset"));
+
+    assertEquals(0, helpRequestStreamService.subscriberCount());
+  }
+
+  @Test
+  void test_stream_is_completed_when_it_times_out() {
+    RecordingEmitter emitter = new RecordingEmitter();
+    helpRequestStreamService.subscribe(emitter, null);
+
+    emitter.onTimeout.run();
+
+    assertTrue(emitter.completed);
+  }
+
+  @Test
+  void test_disconnected_subscriber_is_dropped_and_others_still_receive_events() throws Exception {
+    RecordingEmitter gone = new RecordingEmitter();
+    RecordingEmitter connected = new RecordingEmitter();
+    helpRequestStreamService.subscribe(gone, null);
+    helpRequestStreamService.subscribe(connected, null);
+    deliver();
+    gone.broken = true;
+
+    helpRequestStreamService.helpRequestChanged(new HelpRequestEvent(HelpRequestEvent.CREATED, open));
+    deliver();
+
+    assertEquals(1, helpRequestStreamService.subscriberCount());
+    assertEquals(event(1, HelpRequestEvent.CREATED, open), connected.events.get(1));
+  }
+
+  @Test
+  void test_subscriber_that_cannot_be_sent_to_is_dropped() {
+    RecordingEmitter fresh = new RecordingEmitter();
+    RecordingEmitter resuming = new RecordingEmitter();
+    fresh.broken = true;
+    resuming.broken = true;
+    helpRequestStreamService.helpRequestChanged(new HelpRequestEvent(HelpRequestEvent.CREATED, open));
+
+    helpRequestStreamService.subscribe(fresh, null);
+    helpRequestStreamService.subscribe(resuming, id(0));
+    deliver();
+
+    assertEquals(0, helpRequestStreamService.subscriberCount());
+  }
+
+  @Test
+  void test_subscribe_opens_an_emitter_with_the_configured_timeout() {
+    SseEmitter emitter = helpRequestStreamService.subscribe(null);
+
+    assertEquals(30 * 60 * 1000L, emitter.getTimeout());
+    assertEquals(1, helpRequestStreamService.subscriberCount());
+  }
+
+  @Test
+  void test_event_that_cannot_be_serialized_is_not_sent() throws Exception {
+    RecordingEmitter emitter = new RecordingEmitter();
+    helpRequestStreamService.subscribe(emitter, null);
+    doThrow(new JsonProcessingException("boom") {}).when(mapper).writeValueAsString(any());
+
+    assertThrows(UncheckedIOException.class,
+        () -> helpRequestStreamService.helpRequestChanged(new HelpRequestEvent(HelpRequestEvent.CREATED, open)));
+    deliver();
+    assertEquals(1, emitter.events.size());
+  }
+
+  @Test
+  void test_subscriber_that_falls_too_far_behind_is_completed() {
+    helpRequestStreamService.subscriberQueue = 1;
+    RecordingEmitter slow = new RecordingEmitter();
+    helpRequestStreamService.subscribe(slow, null);
+
+    helpRequestStreamService.helpRequestChanged(new HelpRequestEvent(HelpRequestEvent.CREATED, open));
+
+    assertEquals(0, helpRequestStreamService.subscriberCount());
+    deliver();
+    assertEquals(Arrays.asList(), slow.events);
+    assertTrue(slow.completed);
+  }
+
+  @Test
+  void test_stalled_subscriber_delays_neither_the_change_nor_other_subscribers() throws Exception {
+    helpRequestStreamService.senderThreads = 2;
+    helpRequestStreamService.startSender();
+    StalledEmitter stalled = new StalledEmitter();
+    RecordingEmitter live = new RecordingEmitter();
+    try {
+      helpRequestStreamService.subscribe(stalled, null);
+      helpRequestStreamService.subscribe(live, null);
+
+      // the change is published on the request thread that made it (e.g. a PUT), after its commit
+      assertTimeoutPreemptively(Duration.ofSeconds(1), () -> {
+        helpRequestStreamService.helpRequestChanged(new HelpRequestEvent(HelpRequestEvent.CREATED, open));
+        helpRequestStreamService.helpRequestChanged(new HelpRequestEvent(HelpRequestEvent.SOLVED, solved));
+      });
+
+      assertEquals(Arrays.asList(
+          control(0, HelpRequestStreamService.READY),
+          event(1, HelpRequestEvent.CREATED, open),
+          event(2, HelpRequestEvent.SOLVED, solved)), awaitEvents(live, 3));
+      stalled.release.countDown();
+      assertEquals(3, awaitEvents(stalled, 3).size());
+    } finally {
+      stalled.release.countDown();
+      helpRequestStreamService.stopSender();
+    }
+  }
+
+  @Test
+  void test_updated_event_is_solved_only_when_an_open_request_is_solved() {
+    assertEquals(HelpRequestEvent.SOLVED, HelpRequestEvent.updated(false, solved).getType());
+    assertEquals(HelpRequestEvent.SOLVED, HelpRequestEvent.updated(null, solved).getType());
+    assertEquals(HelpRequestEvent.UPDATED, HelpRequestEvent.updated(true, solved).getType());
+    assertEquals(HelpRequestEvent.UPDATED, HelpRequestEvent.updated(false, open).getType());
+  }
+}
@@ -0,0 +1,159 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.MenuItemReviewStats;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewStatsRepository;
+
+@ExtendWith(MockitoExtension.class)
+class MenuItemReviewStatsServiceTests {
+
+  @Mock
+  MenuItemReviewStatsRepository menuItemReviewStatsRepository;
+
+  @InjectMocks
+  MenuItemReviewStatsService menuItemReviewStatsService;
+
+  private MenuItemReview review(long itemId, int stars) {
+    return MenuItemReview.builder().itemId(itemId).stars(stars).build();
+  }
+
+  @Test
+  void test_reviewAdded_increments_existing_row() {
+    when(menuItemReviewStatsRepository.adjust(7L, 4, 1)).thenReturn(1);
+
+    menuItemReviewStatsService.reviewAdded(review(7L, 4));
+
+    verify(menuItemReviewStatsRepository, times(1)).adjust(7L, 4, 1);
+    verify(menuItemReviewStatsRepository, never()).save(any());
+  }
+
+  @Test
+  void test_reviewAdded_inserts_empty_row_for_first_review_of_item() {
+    when(menuItemReviewStatsRepository.adjust(7L, 4, 1)).thenReturn(0).thenReturn(1);
+    when(menuItemReviewStatsRepository.insertEmptyIfAbsent(7L)).thenReturn(1);
+
+    menuItemReviewStatsService.reviewAdded(review(7L, 4));
+
+    InOrder inOrder = inOrder(menuItemReviewStatsRepository);
+    inOrder.verify(menuItemReviewStatsRepository).adjust(7L, 4, 1);
+    inOrder.verify(menuItemReviewStatsRepository).insertEmptyIfAbsent(7L);
+    inOrder.verify(menuItemReviewStatsRepository).adjust(7L, 4, 1);
+    verify(menuItemReviewStatsRepository, never()).save(any());
+  }
+
+  @Test
+  void test_reviewAdded_counts_review_when_a_concurrent_first_review_inserted_the_row() {
+    when(menuItemReviewStatsRepository.adjust(7L, 4, 1)).thenReturn(0).thenReturn(1);
+    when(menuItemReviewStatsRepository.insertEmptyIfAbsent(7L)).thenReturn(0);
+
+    menuItemReviewStatsService.reviewAdded(review(7L, 4));
+
+    verify(menuItemReviewStatsRepository, times(2)).adjust(7L, 4, 1);
+  }
+
+  @Test
+  void test_reviewAdded_rejects_stars_outside_1_to_5() {
+    for (int stars : new int[] { 0, 6, -1 }) {
+      MenuItemReview review = review(7L, stars);
+      assertThrows(IllegalArgumentException.class, () -> menuItemReviewStatsService.reviewAdded(review));
+    }
+
+    verify(menuItemReviewStatsRepository, never()).adjust(anyLong(), anyLong(), anyLong());
+  }
+
+  @Test
+  void test_reviewRemoved_decrements_and_drops_empty_row() {
+    menuItemReviewStatsService.reviewRemoved(review(7L, 2));
+
+    verify(menuItemReviewStatsRepository, times(1)).adjust(7L, 2, -1);
+    verify(menuItemReviewStatsRepository, times(1)).deleteIfEmpty(7L);
+  }
+
+  @Test
+  void test_reviewChanged_moves_review_to_new_item_and_stars() {
+    when(menuItemReviewStatsRepository.adjust(7L, 2, -1)).thenReturn(1);
+    when(menuItemReviewStatsRepository.adjust(8L, 5, 1)).thenReturn(1);
+
+    menuItemReviewStatsService.reviewChanged(7L, 2, review(8L, 5));
+
+    verify(menuItemReviewStatsRepository, times(1)).adjust(7L, 2, -1);
+    verify(menuItemReviewStatsRepository, times(1)).deleteIfEmpty(7L);
+    verify(menuItemReviewStatsRepository, times(1)).adjust(8L, 5, 1);
+  }
+
+  @Test
+  void test_reviewChanged_only_stars() {
+    when(menuItemReviewStatsRepository.adjust(7L, 2, -1)).thenReturn(1);
+    when(menuItemReviewStatsRepository.adjust(7L, 5, 1)).thenReturn(1);
+
+    menuItemReviewStatsService.reviewChanged(7L, 2, review(7L, 5));
+
+    verify(menuItemReviewStatsRepository, times(1)).adjust(7L, 2, -1);
+    verify(menuItemReviewStatsRepository, times(1)).adjust(7L, 5, 1);
+  }
+
+  @Test
+  void test_reviewChanged_does_nothing_when_item_and_stars_unchanged() {
+    menuItemReviewStatsService.reviewChanged(7L, 2, review(7L, 2));
+
+    verify(menuItemReviewStatsRepository, never()).adjust(anyLong(), anyLong(), anyLong());
+    verify(menuItemReviewStatsRepository, never()).deleteIfEmpty(anyLong());
+  }
+
+  @Test
+  void test_reviewsAdded_adjusts_once_per_item_and_stars() {
+    when(menuItemReviewStatsRepository.adjust(7L, 4, 2)).thenReturn(0).thenReturn(1);
+    when(menuItemReviewStatsRepository.adjust(8L, 5, 1)).thenReturn(1);
+
+    menuItemReviewStatsService.reviewsAdded(Arrays.asList(review(7L, 4), review(8L, 5), review(7L, 4)));
+
+    verify(menuItemReviewStatsRepository, times(1)).insertEmptyIfAbsent(7L);
+    verify(menuItemReviewStatsRepository, never()).insertEmptyIfAbsent(8L);
+    verify(menuItemReviewStatsRepository, times(2)).adjust(7L, 4, 2);
+    verify(menuItemReviewStatsRepository, times(1)).adjust(8L, 5, 1);
+  }
+
+  @Test
+  void test_reviewsRemoved_adjusts_once_per_item_and_stars() {
+    menuItemReviewStatsService.reviewsRemoved(Arrays.asList(review(7L, 2), review(7L, 3), review(7L, 2)));
+
+    verify(menuItemReviewStatsRepository, times(1)).adjust(7L, 2, -2);
+    verify(menuItemReviewStatsRepository, times(1)).adjust(7L, 3, -1);
+    verify(menuItemReviewStatsRepository, times(1)).deleteIfEmpty(7L);
+  }
+
+  @Test
+  void test_allStats() {
+    List<MenuItemReviewStats> stats = Arrays.asList(MenuItemReviewStats.builder().itemId(7L).build());
+    when(menuItemReviewStatsRepository.findAllByReviewCountGreaterThanOrderByItemIdAsc(0)).thenReturn(stats);
+
+    assertEquals(stats, menuItemReviewStatsService.allStats());
+  }
+
+  @Test
+  void test_mean_is_null_without_reviews() {
+    assertNull(MenuItemReviewStats.builder().itemId(7L).build().getMean());
+  }
+
+}
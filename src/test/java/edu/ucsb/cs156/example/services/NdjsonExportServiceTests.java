@@ -0,0 +1,112 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+import jakarta.persistence.EntityManager;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.stream.Stream;
+
+@ExtendWith(MockitoExtension.class)
+class NdjsonExportServiceTests {
+
+  @Mock
+  private EntityManager entityManager;
+
+  @Mock
+  private PlatformTransactionManager transactionManager;
+
+  @Spy
+  private ObjectMapper mapper = JsonMapper.builder().findAndAddModules().build();
+
+  @InjectMocks
+  private NdjsonExportService ndjsonExportService;
+
+  private final UCSBDiningCommons carrillo = UCSBDiningCommons.builder().code("carrillo").name("Carrillo").build();
+  private final UCSBDiningCommons ortega = UCSBDiningCommons.builder().code("ortega").name("Ortega").build();
+
+  @Test
+  void test_write_emits_one_line_per_row_and_detaches_each_row() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    ndjsonExportService.write(() -> Stream.of(carrillo, ortega), out);
+
+    String expected = mapper.writeValueAsString(carrillo) + "\n" + mapper.writeValueAsString(ortega) + "\n";
+    assertEquals(expected, out.toString());
+    verify(entityManager, times(1)).detach(carrillo);
+    verify(entityManager, times(1)).detach(ortega);
+    verify(transactionManager, times(1)).commit(any());
+  }
+
+  @Test
+  void test_write_of_empty_stream_emits_nothing() {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    ndjsonExportService.write(Stream::empty, out);
+
+    assertEquals("", out.toString());
+    verify(transactionManager, times(1)).commit(any());
+  }
+
+  @Test
+  void test_write_rolls_back_when_a_row_cannot_be_serialized() {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Object unserializable = new Object();
+
+    assertThrows(UncheckedIOException.class, () -> ndjsonExportService.write(() -> Stream.of(unserializable), out));
+
+    verify(entityManager, never()).detach(any());
+    verify(transactionManager, times(1)).rollback(any());
+  }
+
+  @Test
+  void test_write_rolls_back_when_the_client_goes_away() {
+    OutputStream broken = new OutputStream() {
+      @Override
+      public void write(int b) throws IOException {
+        throw new IOException("Broken pipe");
+      }
+    };
+
+    assertThrows(UncheckedIOException.class, () -> ndjsonExportService.write(() -> Stream.of(carrillo), broken));
+
+    verify(transactionManager, times(1)).rollback(any());
+  }
+
+  @Test
+  void test_export_returns_ndjson_response_that_writes_rows() throws Exception {
+    ResponseEntity<StreamingResponseBody> response = ndjsonExportService.export(() -> Stream.of(carrillo));
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(NdjsonExportService.APPLICATION_NDJSON_VALUE, response.getHeaders().getContentType().toString());
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    response.getBody().writeTo(out);
+    assertEquals(mapper.writeValueAsString(carrillo) + "\n", out.toString());
+  }
+
+}
@@ -0,0 +1,186 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+
+@ExtendWith(MockitoExtension.class)
+class TableVersionServiceTests {
+
+  private static final String VERSION = "SELECT COALESCE((SELECT VERSION FROM TABLE_VERSIONS WHERE TABLE_NAME = ?), 0)"
+      + " + (SELECT COUNT(*) FROM TABLE_VERSION_CHANGES WHERE TABLE_NAME = ?)";
+  private static final String RECORD_CHANGE = "INSERT INTO TABLE_VERSION_CHANGES (TABLE_NAME) VALUES (?)";
+  private static final String CHANGED_TABLES = "SELECT DISTINCT TABLE_NAME FROM TABLE_VERSION_CHANGES";
+  private static final String DELETE_CHANGES = "DELETE FROM TABLE_VERSION_CHANGES WHERE TABLE_NAME = ?";
+  private static final String ADD_CHANGES = "UPDATE TABLE_VERSIONS SET VERSION = VERSION + ? WHERE TABLE_NAME = ?";
+
+  @Mock
+  JdbcTemplate jdbcTemplate;
+
+  @Mock
+  PlatformTransactionManager transactionManager;
+
+  @InjectMocks
+  TableVersionService tableVersionService;
+
+  @AfterEach
+  void clearSynchronization() {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+  }
+
+  @Test
+  void test_etag_changes_with_version() {
+    when(jdbcTemplate.queryForObject(VERSION, Long.class, "restaurants", "restaurants"))
+        .thenReturn(3L)
+        .thenReturn(4L);
+
+    String before = tableVersionService.etag(Restaurant.class);
+    String after = tableVersionService.etag(Restaurant.class);
+
+    assertEquals("W/\"3\"", before);
+    assertEquals("W/\"4\"", after);
+    assertNotEquals(before, after);
+  }
+
+  @Test
+  void test_etag_is_the_same_on_every_instance() {
+    TableVersionService otherInstance = new TableVersionService();
+    otherInstance.jdbcTemplate = jdbcTemplate;
+    when(jdbcTemplate.queryForObject(VERSION, Long.class, "ucsbdiningcommons", "ucsbdiningcommons")).thenReturn(7L);
+
+    assertEquals(tableVersionService.etag(UCSBDiningCommons.class), otherInstance.etag(UCSBDiningCommons.class));
+  }
+
+  @Test
+  void test_tableChanged_outside_a_transaction_records_change() {
+    tableVersionService.tableChanged(Restaurant.class);
+
+    verify(jdbcTemplate, times(1)).update(RECORD_CHANGE, "restaurants");
+  }
+
+  @Test
+  void test_tableChanged_records_once_per_table_in_a_transaction() {
+    TransactionSynchronizationManager.initSynchronization();
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+    });
+
+    tableVersionService.tableChanged(Restaurant.class);
+    tableVersionService.tableChanged(Restaurant.class);
+    tableVersionService.tableChanged(UCSBDiningCommons.class);
+
+    verify(jdbcTemplate, times(1)).update(RECORD_CHANGE, "restaurants");
+    verify(jdbcTemplate, times(1)).update(RECORD_CHANGE, "ucsbdiningcommons");
+    assertEquals(2, TransactionSynchronizationManager.getSynchronizations().size());
+  }
+
+  @Test
+  void test_foldChanges_moves_changes_into_the_version_in_one_transaction() {
+    SimpleTransactionStatus status = new SimpleTransactionStatus();
+    when(transactionManager.getTransaction(any())).thenReturn(status);
+    when(jdbcTemplate.queryForList(CHANGED_TABLES, String.class)).thenReturn(Arrays.asList("restaurants"));
+    when(jdbcTemplate.update(DELETE_CHANGES, "restaurants")).thenReturn(3);
+    when(jdbcTemplate.update(ADD_CHANGES, 3, "restaurants")).thenReturn(1);
+
+    tableVersionService.foldChanges();
+
+    InOrder inOrder = inOrder(transactionManager, jdbcTemplate);
+    inOrder.verify(transactionManager).getTransaction(any());
+    inOrder.verify(jdbcTemplate).update(DELETE_CHANGES, "restaurants");
+    inOrder.verify(jdbcTemplate).update(ADD_CHANGES, 3, "restaurants");
+    inOrder.verify(transactionManager).commit(status);
+    assertFalse(status.isRollbackOnly());
+  }
+
+  @Test
+  void test_foldChanges_leaves_version_alone_when_another_instance_folded_first() {
+    when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+    when(jdbcTemplate.queryForList(CHANGED_TABLES, String.class)).thenReturn(Arrays.asList("restaurants"));
+    when(jdbcTemplate.update(DELETE_CHANGES, "restaurants")).thenReturn(0);
+
+    tableVersionService.foldChanges();
+
+    verify(jdbcTemplate, never()).update(eq(ADD_CHANGES), anyInt(), anyString());
+  }
+
+  @Test
+  void test_foldChanges_keeps_changes_of_a_table_without_a_row() {
+    SimpleTransactionStatus status = new SimpleTransactionStatus();
+    when(transactionManager.getTransaction(any())).thenReturn(status);
+    when(jdbcTemplate.queryForList(CHANGED_TABLES, String.class)).thenReturn(Arrays.asList("restaurants"));
+    when(jdbcTemplate.update(DELETE_CHANGES, "restaurants")).thenReturn(2);
+    when(jdbcTemplate.update(ADD_CHANGES, 2, "restaurants")).thenReturn(0);
+
+    tableVersionService.foldChanges();
+
+    assertTrue(status.isRollbackOnly());
+  }
+
+  @Test
+  void test_foldChanges_does_not_throw_when_the_database_fails() {
+    when(jdbcTemplate.queryForList(CHANGED_TABLES, String.class)).thenThrow(new QueryTimeoutException("timeout"));
+
+    tableVersionService.foldChanges();
+
+    verify(transactionManager, never()).getTransaction(any());
+  }
+
+  @Test
+  void test_foldChanges_with_nothing_to_fold() {
+    when(jdbcTemplate.queryForList(CHANGED_TABLES, String.class)).thenReturn(Collections.emptyList());
+
+    tableVersionService.foldChanges();
+
+    verify(transactionManager, never()).getTransaction(any());
+  }
+
+  @Test
+  void test_folder_thread_folds_changes_and_stops_with_the_service() throws Exception {
+    tableVersionService.foldInterval = Duration.ofMillis(10);
+    CountDownLatch folded = new CountDownLatch(2);
+    when(jdbcTemplate.queryForList(CHANGED_TABLES, String.class)).thenAnswer(invocation -> {
+      folded.countDown();
+      return Collections.emptyList();
+    });
+
+    tableVersionService.startFolder();
+
+    assertTrue(folded.await(5, TimeUnit.SECONDS));
+    tableVersionService.stopFolder();
+    assertTrue(tableVersionService.folder.isShutdown());
+  }
+}
@@ -5,9 +5,14 @@ import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
 
 
+import edu.ucsb.cs156.example.services.AdminStatusService;
 import edu.ucsb.cs156.example.services.CurrentUserService;
 import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
 import org.springframework.context.annotation.Import;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @TestConfiguration
 @Import(SecurityConfig.class)
@@ -23,4 +28,20 @@ public class TestConfig {
         return new GrantedAuthoritiesService();
     }
 
+    @Bean
+    public AdminStatusService adminStatusService() {
+        return new AdminStatusService();
+    }
+
+    // Run StreamingResponseBody on the request thread so MockMvc does not race the writer
+    @Bean
+    public WebMvcConfigurer synchronousAsyncSupport() {
+        return new WebMvcConfigurer() {
+            @Override
+            public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+                configurer.setTaskExecutor(new TaskExecutorAdapter(new SyncTaskExecutor()));
+            }
+        };
+    }
+
 }
@@ -0,0 +1,61 @@
+/*! test fixture standing in for a hashed production bundle (see StaticResourceIT) */
+export function component0(props) { return "<div class=\"component-0\">" + props.children + "</div>"; }
+export function component1(props) { return "<div class=\"component-1\">" + props.children + "</div>"; }
+export function component2(props) { return "<div class=\"component-2\">" + props.children + "</div>"; }
+export function component3(props) { return "<div class=\"component-3\">" + props.children + "</div>"; }
+export function component4(props) { return "<div class=\"component-4\">" + props.children + "</div>"; }
+export function component5(props) { return "<div class=\"component-5\">" + props.children + "</div>"; }
+export function component6(props) { return "<div class=\"component-6\">" + props.children + "</div>"; }
+export function component7(props) { return "<div class=\"component-7\">" + props.children + "</div>"; }
+export function component8(props) { return "<div class=\"component-8\">" + props.children + "</div>"; }
+export function component9(props) { return "<div class=\"component-9\">" + props.children + "</div>"; }
+export function component10(props) { return "<div class=\"component-10\">" + props.children + "</div>"; }
+export function component11(props) { return "<div class=\"component-11\">" + props.children + "</div>"; }
+export function component12(props) { return "<div class=\"component-12\">" + props.children + "</div>"; }
+export function component13(props) { return "<div class=\"component-13\">" + props.children + "</div>"; }
+export function component14(props) { return "<div class=\"component-14\">" + props.children + "</div>"; }
+export function component15(props) { return "<div class=\"component-15\">" + props.children + "</div>"; }
+export function component16(props) { return "<div class=\"component-16\">" + props.children + "</div>"; }
+export function component17(props) { return "<div class=\"component-17\">" + props.children + "</div>"; }
+export function component18(props) { return "<div class=\"component-18\">" + props.children + "</div>"; }
+export function component19(props) { return "<div class=\"component-19\">" + props.children + "</div>"; }
+export function component20(props) { return "<div class=\"component-20\">" + props.children + "</div>"; }
+export function component21(props) { return "<div class=\"component-21\">" + props.children + "</div>"; }
+export function component22(props) { return "<div class=\"component-22\">" + props.children + "</div>"; }
+export function component23(props) { return "<div class=\"component-23\">" + props.children + "</div>"; }
+export function component24(props) { return "<div class=\"component-24\">" + props.children + "</div>"; }
+export function component25(props) { return "<div class=\"component-25\">" + props.children + "</div>"; }
+export function component26(props) { return "<div class=\"component-26\">" + props.children + "</div>"; }
+export function component27(props) { return "<div class=\"component-27\">" + props.children + "</div>"; }
+export function component28(props) { return "<div class=\"component-28\">" + props.children + "</div>"; }
+export function component29(props) { return "<div class=\"component-29\">" + props.children + "</div>"; }
+export function component30(props) { return "<div class=\"component-30\">" + props.children + "</div>"; }
+export function component31(props) { return "<div class=\"component-31\">" + props.children + "</div>"; }
+export function component32(props) { return "<div class=\"component-32\">" + props.children + "</div>"; }
+export function component33(props) { return "<div class=\"component-33\">" + props.children + "</div>"; }
+export function component34(props) { return "<div class=\"component-34\">" + props.children + "</div>"; }
+export function component35(props) { return "<div class=\"component-35\">" + props.children + "</div>"; }
+export function component36(props) { return "<div class=\"component-36\">" + props.children + "</div>"; }
+export function component37(props) { return "<div class=\"component-37\">" + props.children + "</div>"; }
+export function component38(props) { return "<div class=\"component-38\">" + props.children + "</div>"; }
+export function component39(props) { return "<div class=\"component-39\">" + props.children + "</div>"; }
+export function component40(props) { return "<div class=\"component-40\">" + props.children + "</div>"; }
+export function component41(props) { return "<div class=\"component-41\">" + props.children + "</div>"; }
+export function component42(props) { return "<div class=\"component-42\">" + props.children + "</div>"; }
+export function component43(props) { return "<div class=\"component-43\">" + props.children + "</div>"; }
+export function component44(props) { return "<div class=\"component-44\">" + props.children + "</div>"; }
+export function component45(props) { return "<div class=\"component-45\">" + props.children + "</div>"; }
+export function component46(props) { return "<div class=\"component-46\">" + props.children + "</div>"; }
+export function component47(props) { return "<div class=\"component-47\">" + props.children + "</div>"; }
+export function component48(props) { return "<div class=\"component-48\">" + props.children + "</div>"; }
+export function component49(props) { return "<div class=\"component-49\">" + props.children + "</div>"; }
+export function component50(props) { return "<div class=\"component-50\">" + props.children + "</div>"; }
+export function component51(props) { return "<div class=\"component-51\">" + props.children + "</div>"; }
+export function component52(props) { return "<div class=\"component-52\">" + props.children + "</div>"; }
+export function component53(props) { return "<div class=\"component-53\">" + props.children + "</div>"; }
+export function component54(props) { return "<div class=\"component-54\">" + props.children + "</div>"; }
+export function component55(props) { return "<div class=\"component-55\">" + props.children + "</div>"; }
+export function component56(props) { return "<div class=\"component-56\">" + props.children + "</div>"; }
+export function component57(props) { return "<div class=\"component-57\">" + props.children + "</div>"; }
+export function component58(props) { return "<div class=\"component-58\">" + props.children + "</div>"; }
+export function component59(props) { return "<div class=\"component-59\">" + props.children + "</div>"; }